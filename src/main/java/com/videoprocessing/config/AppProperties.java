@@ -7,6 +7,7 @@ import org.springframework.validation.annotation.Validated;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 
 @Configuration
 @ConfigurationProperties(prefix = "app")
@@ -36,4 +37,120 @@ public class AppProperties {
 
     @Positive
     private int cleanupRetentionDays = 7;
+
+    @NotBlank
+    private String cleanupCron = "0 30 3 * * *";
+
+    // Unlinks per second, so cleanup does not compete with encodes for disk I/O
+    @Positive
+    private int cleanupDeletesPerSecond = 50;
+
+    @Positive
+    private int cleanupWalkParallelism = 4;
+
+    // Rows deleted per transaction
+    @Positive
+    private int cleanupBatchSize = 500;
+
+    // Output cache: bytes of regenerable outputs kept on disk, 0 for no limit
+    @PositiveOrZero
+    private long outputCacheQuotaBytes = 0;
+
+    // Recency in ms an output gains per ms it took to produce; 0 evicts purely least recently used
+    @PositiveOrZero
+    private long outputCacheCostWeight = 60;
+
+    @Positive
+    private long outputCacheCheckIntervalMs = 60000;
+
+    // How often this node writes the access times it saw
+    @Positive
+    private long outputCacheAccessFlushIntervalMs = 5000;
+
+    // Job queue
+    private String workerId;
+
+    @NotBlank
+    private String queueMode = "database"; // database, redis
+
+    @NotBlank
+    private String redisStreamKey = "video:jobs";
+
+    @NotBlank
+    private String redisConsumerGroup = "video-workers";
+
+    @Positive
+    private long redisStreamBlockMs = 1000;
+
+    @Positive
+    private long redisStreamMaxLength = 100000;
+
+    // Pending jobs not on the stream this long after they were created are published again
+    @Positive
+    private int redisPublishGraceSeconds = 30;
+
+    @Positive
+    private long queuePollIntervalMs = 1000;
+
+    @Positive
+    private long jobHeartbeatIntervalMs = 30000;
+
+    @Positive
+    private int jobLeaseTimeoutSeconds = 120;
+
+    @Positive
+    private int maxJobAttempts = 3;
+
+    // Chunked encoding
+    @Positive
+    private int chunkDurationSeconds = 30;
+
+    @Positive
+    private int chunkParallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    // A chunk running this many times longer than the median gets a speculative duplicate
+    @Positive
+    private double chunkSpeculationFactor = 2.0;
+
+    // Virtual clips: remuxes streamed at once on this node; further requests get a 503
+    @Positive
+    private int clipStreamConcurrency = 16;
+
+    // How long clients may cache a clip's playlist and segments
+    @Positive
+    private long clipCacheMaxAgeSeconds = 86400;
+
+    // Minimum gap between progress pushes for a single job
+    @Positive
+    private long progressPushIntervalMs = 1000;
+
+    // Resumable uploads: chunk size used when the client does not choose one
+    @Positive
+    private int uploadChunkSize = 8 * 1024 * 1024;
+
+    // ffprobe results kept in memory, one per file version
+    @Positive
+    private int probeCacheSize = 1024;
+
+    // Content type, size and ETag of served files, one per file version
+    @Positive
+    private int downloadMetadataCacheSize = 1024;
+
+    // Job status polls are answered from Redis; MySQL only on a miss
+    private boolean jobStatusCacheEnabled = true;
+
+    // How long a finished job's status stays cached
+    @Positive
+    private long jobStatusTtlSeconds = 3600;
+
+    // System stats: how often this node's counter deltas are added to the cluster totals
+    @Positive
+    private long statsFlushIntervalMs = 1000;
+
+    // How often the counters are checked against a full recount, by one node at a time
+    @Positive
+    private long statsReconcileIntervalMs = 300000;
+
+    @Positive
+    private long statsReconcileInitialDelayMs = 30000;
 }
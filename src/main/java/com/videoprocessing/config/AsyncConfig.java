@@ -1,5 +1,6 @@
 package com.videoprocessing.config;
 
+import com.videoprocessing.ffmpeg.ResourceUsage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -31,4 +32,64 @@ public class AsyncConfig implements AsyncConfigurer {
 
         return executor;
     }
+
+    // Workers claim only as many jobs as there are free threads, so no queue is needed here
+    @Bean(name = "jobExecutor")
+    public ThreadPoolTaskExecutor jobExecutor(AppProperties appProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(appProperties.getMaxConcurrentJobs());
+        executor.setMaxPoolSize(appProperties.getMaxConcurrentJobs());
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("JobWorker-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        log.info("Job executor configured: workers={}", executor.getMaxPoolSize());
+
+        return executor;
+    }
+
+    // Shared by all chunked encodes, so the number of concurrent chunk encodes stays bounded node-wide
+    @Bean(name = "chunkExecutor")
+    public ThreadPoolTaskExecutor chunkExecutor(AppProperties appProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(appProperties.getChunkParallelism());
+        executor.setMaxPoolSize(appProperties.getChunkParallelism());
+        executor.setThreadNamePrefix("ChunkEncoder-");
+        // Chunk encodes are charged to the job that submitted them
+        executor.setTaskDecorator(ResourceUsage::propagating);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+
+        log.info("Chunk executor configured: parallelism={}", executor.getMaxPoolSize());
+
+        return executor;
+    }
+
+    // Hashes files for their download ETags off the request threads; when full, requests go without one
+    @Bean(name = "digestExecutor")
+    public ThreadPoolTaskExecutor digestExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("Digest-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    // Storage cleanup runs one at a time, off the scheduler and request threads
+    @Bean(name = "cleanupExecutor")
+    public ThreadPoolTaskExecutor cleanupExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("StorageCleanup-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
 }
@@ -2,15 +2,24 @@ package com.videoprocessing.controller;
 
 import com.videoprocessing.dtos.ApiResponseWrappers.ApiResponse;
 import com.videoprocessing.dtos.SystemStats;
+import com.videoprocessing.dtos.responseDtos.CleanupReport;
+import com.videoprocessing.dtos.responseDtos.ResourceUsageSummary;
+import com.videoprocessing.service.StorageGcService;
+import com.videoprocessing.service.SystemStatsService;
 import com.videoprocessing.service.VideoProcessingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/admin")
 @RequiredArgsConstructor
@@ -18,24 +27,35 @@ import org.springframework.web.bind.annotation.RestController;
 public class AdminController {
 
     private final VideoProcessingService videoService;
+    private final SystemStatsService statsService;
+    private final StorageGcService storageGcService;
 
+    // Served from counters; no query or directory walk per call
     @GetMapping("/stats")
     public ResponseEntity<ApiResponse<SystemStats>> getSystemStats() {
-        // Implementation would fetch actual system stats from service/db
-        SystemStats stats = SystemStats.builder()
-                .totalVideos(0L)
-                .totalJobs(0L)
-                .completedJobs(0L)
-                .failedJobs(0L)
-                .storageUsed(0L)
-                .build();
-
-        return ResponseEntity.ok(ApiResponse.success("System stats", stats));
+        return ResponseEntity.ok(ApiResponse.success("System stats", statsService.getStats()));
     }
 
+    // Runs in the background; GET /cleanup reports on it
     @PostMapping("/cleanup")
-    public ResponseEntity<ApiResponse<String>> cleanupOldFiles() {
-        // Implementation would cleanup old processed files
-        return ResponseEntity.ok(ApiResponse.success("Cleanup initiated"));
+    public ResponseEntity<ApiResponse<String>> cleanupOldFiles(@RequestParam(defaultValue = "false") boolean dryRun) {
+        if (!storageGcService.start(dryRun)) {
+            throw new RuntimeException("Cleanup already running");
+        }
+        return ResponseEntity.accepted().body(ApiResponse.success(dryRun ? "Dry run started" : "Cleanup started"));
+    }
+
+    @GetMapping("/cleanup")
+    public ResponseEntity<ApiResponse<CleanupReport>> getCleanupReport() {
+        String message = storageGcService.isRunning() ? "Cleanup running; last report" : "Last cleanup report";
+        return ResponseEntity.ok(ApiResponse.success(message, storageGcService.getLastReport()));
+    }
+
+    // Per job type and resolution of the source video, not of the outputs, of jobs finished since the
+    // given time, e.g. 2026-10-01T00:00:00. FFmpeg runs of all kinds are counted, ffprobe included
+    @GetMapping("/resource-usage")
+    public ResponseEntity<ApiResponse<List<ResourceUsageSummary>>> getResourceUsage(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        return ResponseEntity.ok(ApiResponse.success("Resource usage", videoService.getResourceUsage(since)));
     }
 }
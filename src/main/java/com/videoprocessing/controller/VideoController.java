@@ -3,16 +3,21 @@ package com.videoprocessing.controller;
 import com.videoprocessing.dtos.requestDtos.*;
 import com.videoprocessing.dtos.responseDtos.*;
 import com.videoprocessing.dtos.ApiResponseWrappers.*;
+import com.videoprocessing.download.FileDownloadService;
+import com.videoprocessing.service.ClipStreamLimitException;
+import com.videoprocessing.service.OutputRegeneratingException;
+import com.videoprocessing.service.ResumableUploadService;
+import com.videoprocessing.service.VirtualClipService;
 import com.videoprocessing.service.VideoProcessingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 import jakarta.validation.Valid;
-import java.nio.file.Files;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 
@@ -23,34 +28,58 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class VideoController {
 
+    private static final int REGENERATING_RETRY_AFTER_SECONDS = 10;
+    private static final int CLIP_STREAM_RETRY_AFTER_SECONDS = 1;
+
     private final VideoProcessingService videoService;
+    private final ResumableUploadService resumableUploadService;
+    private final FileDownloadService fileDownloadService;
+    private final VirtualClipService virtualClipService;
 
     // ===== LEVEL 1: UPLOAD & METADATA =====
 
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<ApiResponse<UploadResponse>> uploadVideo(
-            @RequestParam("file") MultipartFile file) {
+    public ResponseEntity<ApiResponse<UploadResponse>> uploadVideo(HttpServletRequest request) {
+        // The body is streamed to disk by the service; validation happens as the file part arrives
+        log.info("Uploading video ({} bytes)", request.getContentLengthLong());
 
-        log.info("Uploading video: {}", file.getOriginalFilename());
+        UploadResponse response = videoService.uploadVideo(request);
+        return ResponseEntity.ok(ApiResponse.success("Video upload started", response));
+    }
 
-        // Validate file
-        if (file.isEmpty()) {
-            return ResponseEntity.badRequest()
-                    .body(ApiResponse.error("File is empty"));
-        }
+    // Resumable uploads: create a session, PUT chunks in any order, then complete it
 
-        if (!isVideoFile(file)) {
-            return ResponseEntity.badRequest()
-                    .body(ApiResponse.error("File must be a video"));
-        }
+    @PostMapping("/uploads")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> createUpload(
+            @Valid @RequestBody CreateUploadRequest request) {
+        UploadSessionResponse response = resumableUploadService.createSession(request);
+        return ResponseEntity.ok(ApiResponse.success("Upload session created", response));
+    }
+
+    @PutMapping("/uploads/{uploadId}/chunks/{index}")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> uploadChunk(
+            @PathVariable String uploadId, @PathVariable int index, HttpServletRequest request) throws IOException {
+        UploadSessionResponse response = resumableUploadService.writeChunk(uploadId, index, request.getInputStream());
+        return ResponseEntity.ok(ApiResponse.success("Chunk received", response));
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> getUpload(@PathVariable String uploadId) {
+        UploadSessionResponse response = resumableUploadService.getSession(uploadId);
+        return ResponseEntity.ok(ApiResponse.success("Upload session retrieved", response));
+    }
 
-        UploadResponse response = videoService.uploadVideo(file);
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<ApiResponse<UploadResponse>> completeUpload(@PathVariable String uploadId) {
+        UploadResponse response = videoService.completeUpload(uploadId);
         return ResponseEntity.ok(ApiResponse.success("Video upload started", response));
     }
 
     @GetMapping("/videos")
-    public ResponseEntity<ApiResponse<List<VideoResponse>>> getAllVideos() {
-        List<VideoResponse> videos = videoService.getAllVideos();
+    public ResponseEntity<ApiResponse<CursorPage<VideoResponse>>> getAllVideos(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        CursorPage<VideoResponse> videos = videoService.getVideos(cursor, size);
         return ResponseEntity.ok(ApiResponse.success("Videos retrieved successfully", videos));
     }
 
@@ -98,30 +127,43 @@ public class VideoController {
     }
 
     @GetMapping("/result/{jobId}")
-    public ResponseEntity<Resource> downloadJobResult(@PathVariable String jobId) {
-        try {
-            String filePath = videoService.getJobResult(jobId);
-            Resource resource = new FileSystemResource(filePath);
-
-            if (!resource.exists()) {
-                return ResponseEntity.notFound().build();
-            }
-
-            String contentType = Files.probeContentType(Paths.get(filePath));
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + resource.getFilename() + "\"")
-                    .body(resource);
-
-        } catch (Exception e) {
-            log.error("Error downloading job result: {}", jobId, e);
-            return ResponseEntity.internalServerError().build();
+    public void downloadJobResult(@PathVariable String jobId, HttpServletRequest request,
+                                  HttpServletResponse response) throws Exception {
+        // A running job's output is streamed as it is written, until the job completes
+        String partial = videoService.getPartialJobResult(jobId);
+        if (partial != null && fileDownloadService.follow(Paths.get(partial),
+                () -> videoService.isJobOutputFinished(jobId), response)) {
+            return;
         }
+        fileDownloadService.serve(Paths.get(videoService.getJobResult(jobId)), request, response);
+    }
+
+    @GetMapping("/clips/{clipId}/" + VirtualClipService.PLAYLIST)
+    public ResponseEntity<String> getClipPlaylist(@PathVariable String clipId) throws Exception {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/vnd.apple.mpegurl"))
+                .header(HttpHeaders.CACHE_CONTROL, virtualClipService.cacheControl())
+                .body(virtualClipService.playlist(clipId));
+    }
+
+    @GetMapping("/clips/{clipId}/segment_{index:\\d+}.ts")
+    public void streamClipSegment(@PathVariable String clipId, @PathVariable int index,
+                                  HttpServletResponse response) throws Exception {
+        virtualClipService.streamSegment(clipId, index, () -> {
+            response.setContentType("video/mp2t");
+            response.setHeader(HttpHeaders.CACHE_CONTROL, virtualClipService.cacheControl());
+            return response.getOutputStream();
+        });
+    }
+
+    // Remuxed while it is sent, so there is no length and no range support
+    @GetMapping("/clips/{clipId}")
+    public void downloadClip(@PathVariable String clipId, HttpServletResponse response) throws Exception {
+        virtualClipService.streamClip(clipId, () -> {
+            response.setContentType("video/mp4");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"clip_" + clipId + ".mp4\"");
+            return response.getOutputStream();
+        });
     }
 
     // ===== LEVEL 5: MULTIPLE OUTPUT QUALITIES =====
@@ -144,9 +186,29 @@ public class VideoController {
     }
 
     @GetMapping("/download/quality/{qualityId}")
-    public ResponseEntity<Resource> downloadQualityVersion(@PathVariable Long qualityId) {
-        // Implementation would download specific quality version
-        return ResponseEntity.ok().build();
+    public void downloadQualityVersion(@PathVariable Long qualityId, HttpServletRequest request,
+                                       HttpServletResponse response) throws IOException {
+        fileDownloadService.serve(Paths.get(videoService.getQualityVersionPath(qualityId)), request, response);
+    }
+
+    // Packages are named by the job fingerprint and never rewritten, so everything in them is cacheable for good
+    @GetMapping({"/hls/{packageId}/{file:.+}", "/hls/{packageId}/{variant}/{file:.+}"})
+    public void streamHlsFile(@PathVariable String packageId, @PathVariable(required = false) String variant,
+                              @PathVariable String file, HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        Path path = videoService.getHlsFile(packageId, variant, file);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable");
+        fileDownloadService.serve(path, false, request, response);
+    }
+
+    // ===== PIPELINES =====
+
+    @PostMapping("/pipeline")
+    public ResponseEntity<ApiResponse<JobResponse>> runPipeline(@Valid @RequestBody PipelineRequest request) {
+        log.info("Running {}-step pipeline for video ID: {}", request.getSteps().size(), request.getVideoId());
+
+        JobResponse response = videoService.runPipeline(request);
+        return ResponseEntity.ok(ApiResponse.success("Pipeline processing started", response));
     }
 
     // ===== UTILITY ENDPOINTS =====
@@ -157,23 +219,34 @@ public class VideoController {
     }
 
     @GetMapping("/jobs")
-    public ResponseEntity<ApiResponse<List<JobResponse>>> getAllJobs(
-            @RequestParam(defaultValue = "0") int page,
+    public ResponseEntity<ApiResponse<CursorPage<JobResponse>>> getAllJobs(
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "20") int size,
-            @RequestParam(required = false) String status) {
-
-        // Implementation would fetch paginated jobs
-        return ResponseEntity.ok(ApiResponse.success("Jobs retrieved", List.of()));
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String type) {
+        CursorPage<JobResponse> jobs = videoService.getJobs(cursor, size, status, type);
+        return ResponseEntity.ok(ApiResponse.success("Jobs retrieved", jobs));
     }
 
-    // ===== PRIVATE HELPER METHODS =====
+    // ===== EXCEPTION HANDLER =====
 
-    private boolean isVideoFile(MultipartFile file) {
-        String contentType = file.getContentType();
-        return contentType != null && contentType.startsWith("video/");
+    // An evicted output is still being produced again; the download can be retried
+    @ExceptionHandler(OutputRegeneratingException.class)
+    public ResponseEntity<ApiResponse<String>> handleOutputRegenerating(OutputRegeneratingException e) {
+        log.info("Download deferred: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(REGENERATING_RETRY_AFTER_SECONDS))
+                .body(ApiResponse.error(e.getMessage()));
     }
 
-    // ===== EXCEPTION HANDLER =====
+    // Every clip remux this node allows is running; another request may find a free one
+    @ExceptionHandler(ClipStreamLimitException.class)
+    public ResponseEntity<ApiResponse<String>> handleClipStreamLimit(ClipStreamLimitException e) {
+        log.warn("Clip request rejected: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(CLIP_STREAM_RETRY_AFTER_SECONDS))
+                .body(ApiResponse.error(e.getMessage()));
+    }
 
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ApiResponse<String>> handleRuntimeException(RuntimeException e) {
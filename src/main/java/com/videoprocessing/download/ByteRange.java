@@ -0,0 +1,92 @@
+package com.videoprocessing.download;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An inclusive byte range of a file of known size, as requested by an HTTP Range header.
+ */
+@Value
+public class ByteRange {
+
+    // More parts than any player asks for; a longer list is served as the whole file
+    static final int MAX_RANGES = 16;
+
+    long start;
+    long end;
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    public String contentRange(long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+
+    /**
+     * Parses a {@code Range} header against a file of {@code size} bytes.
+     *
+     * @return the satisfiable ranges, sorted and with overlapping or adjacent ones merged;
+     * an empty list if none is satisfiable; null if the header is absent, malformed or
+     * asks for too many ranges, in which case the whole file should be sent
+     */
+    public static List<ByteRange> parse(String header, long size) {
+        if (header == null || !header.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+
+        String[] specs = header.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<>();
+        for (String spec : specs) {
+            String range = spec.trim();
+            int dash = range.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                String first = range.substring(0, dash).trim();
+                String last = range.substring(dash + 1).trim();
+                if (first.isEmpty()) {
+                    // Suffix range: the last n bytes
+                    long suffix = Long.parseLong(last);
+                    if (suffix > 0 && size > 0) {
+                        ranges.add(new ByteRange(Math.max(0, size - suffix), size - 1));
+                    }
+                } else {
+                    long start = Long.parseLong(first);
+                    long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    if (start < size) {
+                        ranges.add(new ByteRange(start, Math.min(end, size - 1)));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return merge(ranges);
+    }
+
+    private static List<ByteRange> merge(List<ByteRange> ranges) {
+        ranges.sort(Comparator.comparingLong(ByteRange::getStart));
+        List<ByteRange> merged = new ArrayList<>();
+        for (ByteRange range : ranges) {
+            ByteRange previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (previous != null && range.getStart() <= previous.getEnd() + 1) {
+                merged.set(merged.size() - 1,
+                        new ByteRange(previous.getStart(), Math.max(previous.getEnd(), range.getEnd())));
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,417 @@
+package com.videoprocessing.download;
+
+import com.videoprocessing.config.AppProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Serves files with HTTP range and conditional request support: single ranges as 206 with
+ * Content-Range, several as multipart/byteranges, 304 for a matching If-None-Match and the
+ * whole file when If-Range no longer matches. The ETag is the SHA-256 of the content.
+ * <p>
+ * Content type, size and ETag are cached per file version (path, size and modification
+ * time), so a seek costs one stat. Outputs are hashed by {@link #prepare} when they are
+ * published. A file this node has not hashed yet is served without an ETag while it is
+ * hashed in the background, once however many requests ask for it, so no request reads
+ * the whole file first. Bodies go out through Tomcat's sendfile when the connector offers
+ * it, and through {@link FileChannel#transferTo} otherwise.
+ * <p>
+ * Files still being written can be followed instead: their bytes are sent as they appear.
+ */
+@Service
+@Slf4j
+public class FileDownloadService {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final long FOLLOW_POLL_MILLIS = 250;
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    // Types the platform's file type detection may not know
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "m3u8", "application/vnd.apple.mpegurl",
+            "m4s", "video/iso.segment",
+            "mp4", "video/mp4");
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final Map<String, FileMetadata> metadata;
+    // Hashes running, by file version
+    private final Map<String, CompletableFuture<FileMetadata>> hashing = new ConcurrentHashMap<>();
+    private final Executor digestExecutor;
+
+    public FileDownloadService(AppProperties appProperties, @Qualifier("digestExecutor") Executor digestExecutor) {
+        this.digestExecutor = digestExecutor;
+        int capacity = appProperties.getDownloadMetadataCacheSize();
+        this.metadata = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FileMetadata> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Value
+    static class FileMetadata {
+        String contentType;
+        long size;
+        // Seconds precision, as sent in Last-Modified
+        Instant lastModified;
+        // Null until the content is hashed
+        String etag;
+    }
+
+    /**
+     * Hashes {@code file} now, on the calling thread, so downloads of it carry an ETag from
+     * the first. Called as outputs are published, while their pages are still cached.
+     */
+    public void prepare(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        String key = versionKey(file, attributes);
+        if (cached(key) == null) {
+            CompletableFuture<FileMetadata> created = new CompletableFuture<>();
+            if (hashing.putIfAbsent(key, created) == null) {
+                hash(file, attributes, key, created);
+            }
+        }
+    }
+
+    public void serve(Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(file, true, request, response);
+    }
+
+    /**
+     * Serves {@code file} as a download, or inline when {@code attachment} is false, as for
+     * streaming playlists and segments fetched by a player.
+     */
+    public void serve(Path file, boolean attachment, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        FileMetadata meta = metadataFor(file);
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (meta.getEtag() != null) {
+            response.setHeader(HttpHeaders.ETAG, meta.getEtag());
+        }
+        response.setHeader(HttpHeaders.LAST_MODIFIED, HTTP_DATE.format(meta.getLastModified()));
+
+        if (matchesNoneMatch(request.getHeader(HttpHeaders.IF_NONE_MATCH), meta.getEtag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        if (attachment) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"");
+        }
+
+        List<ByteRange> ranges = rangeStillValid(request.getHeader(HttpHeaders.IF_RANGE), meta)
+                ? ByteRange.parse(request.getHeader(HttpHeaders.RANGE), meta.getSize()) : null;
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        if (ranges == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(meta.getContentType());
+            response.setContentLengthLong(meta.getSize());
+            if (!head) {
+                send(file, 0, meta.getSize(), request, response);
+            }
+        } else if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + meta.getSize());
+        } else if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(meta.getContentType());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(meta.getSize()));
+            response.setContentLengthLong(range.length());
+            if (!head) {
+                send(file, range.getStart(), range.length(), request, response);
+            }
+        } else {
+            sendMultipart(file, meta, ranges, head, response);
+        }
+    }
+
+    /**
+     * Sends a file that is still being written, following it as it grows until
+     * {@code finished} reports the writer done, then sending the rest. The length is not
+     * known up front, so the body goes out chunked and without range support. Returns false,
+     * having sent nothing, if the writer finished without the file being there, as when it
+     * was just moved to its final place.
+     * <p>
+     * {@code finished} may throw to abort a download whose writer gave up on the file.
+     */
+    public boolean follow(Path file, BooleanSupplier finished, HttpServletResponse response)
+            throws IOException, InterruptedException {
+        FileChannel opened = openWhenPresent(file, finished);
+        if (opened == null) {
+            return false;
+        }
+
+        try (FileChannel channel = opened) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType(file));
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"");
+
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = 0;
+            boolean done = false;
+            while (true) {
+                long size = channel.size();
+                if (size > position) {
+                    transfer(channel, position, size - position, target);
+                    position = size;
+                    out.flush();
+                } else if (done) {
+                    return true;
+                } else {
+                    // Checked before the last look at the size, so nothing written before finishing is missed
+                    done = finished.getAsBoolean();
+                    if (!done) {
+                        Thread.sleep(FOLLOW_POLL_MILLIS);
+                    }
+                }
+            }
+        }
+    }
+
+    // Null if the writer finished before the file showed up
+    private static FileChannel openWhenPresent(Path file, BooleanSupplier finished)
+            throws IOException, InterruptedException {
+        while (true) {
+            try {
+                return FileChannel.open(file, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                // The writer may not have created it yet
+                if (finished.getAsBoolean()) {
+                    return null;
+                }
+                Thread.sleep(FOLLOW_POLL_MILLIS);
+            }
+        }
+    }
+
+    private void send(Path file, long start, long length, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the file itself once the request returns, straight from the page cache
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            transfer(channel, start, length, out);
+        }
+    }
+
+    private void sendMultipart(Path file, FileMetadata meta, List<ByteRange> ranges, boolean head,
+                               HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        byte[][] partHeaders = new byte[ranges.size()][];
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        long length = closing.length;
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            // Every part but the first starts with the CRLF ending the previous part's body
+            partHeaders[i] = ((i == 0 ? "" : "\r\n") + "--" + boundary + "\r\n"
+                    + "Content-Type: " + meta.getContentType() + "\r\n"
+                    + "Content-Range: " + range.contentRange(meta.getSize()) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            length += partHeaders[i].length + range.length();
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(length);
+        if (head) {
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                out.write(partHeaders[i]);
+                transfer(channel, ranges.get(i).getStart(), ranges.get(i).length(), target);
+            }
+        }
+        out.write(closing);
+    }
+
+    private static void transfer(FileChannel channel, long start, long length, WritableByteChannel out) throws IOException {
+        long position = start;
+        long end = start + length;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, out);
+            if (sent <= 0) {
+                throw new IOException("File shrank while being sent");
+            }
+            position += sent;
+        }
+    }
+
+    private static boolean matchesNoneMatch(String header, String etag) {
+        if (header == null) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            // Weak comparison: W/"x" matches "x"
+            if (tag.equals("*") || etag != null && (tag.equals(etag) || tag.equals("W/" + etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a Range header may be honoured: If-Range holds either an ETag, compared
+     * strongly, or an HTTP date that must equal Last-Modified.
+     */
+    private static boolean rangeStillValid(String ifRange, FileMetadata meta) {
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            return value.equals(meta.getEtag());
+        }
+        try {
+            return Instant.from(HTTP_DATE.parse(value)).equals(meta.getLastModified());
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    // Without an ETag if the file is still to be hashed; the hash is started if no one has yet
+    private FileMetadata metadataFor(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        String key = versionKey(file, attributes);
+        FileMetadata cached = cached(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<FileMetadata> created = new CompletableFuture<>();
+        if (hashing.putIfAbsent(key, created) == null) {
+            try {
+                digestExecutor.execute(() -> {
+                    try {
+                        hash(file, attributes, key, created);
+                    } catch (IOException e) {
+                        log.warn("Failed to hash {} for its ETag: {}", file, e.getMessage());
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Rejected while the executor is busy; a later request tries again
+                hashing.remove(key, created);
+            }
+        }
+        return new FileMetadata(contentType(file), attributes.size(), lastModified(attributes), null);
+    }
+
+    private void hash(Path file, BasicFileAttributes attributes, String key,
+                      CompletableFuture<FileMetadata> result) throws IOException {
+        try {
+            FileMetadata meta = new FileMetadata(contentType(file), attributes.size(), lastModified(attributes),
+                    "\"" + sha256(file) + "\"");
+            log.debug("Cached download metadata for {}: {}", file, meta);
+            synchronized (metadata) {
+                metadata.put(key, meta);
+            }
+            result.complete(meta);
+        } catch (IOException | RuntimeException e) {
+            result.completeExceptionally(e);
+            throw e;
+        } finally {
+            hashing.remove(key, result);
+        }
+    }
+
+    private FileMetadata cached(String key) {
+        synchronized (metadata) {
+            return metadata.get(key);
+        }
+    }
+
+    private static String versionKey(Path file, BasicFileAttributes attributes) {
+        return file.toAbsolutePath().normalize() + ":" + attributes.size() + ":"
+                + attributes.lastModifiedTime().toMillis();
+    }
+
+    private static Instant lastModified(BasicFileAttributes attributes) {
+        return attributes.lastModifiedTime().toInstant().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private static String contentType(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        String known = CONTENT_TYPES.get(name.substring(name.lastIndexOf('.') + 1).toLowerCase());
+        if (known != null) {
+            return known;
+        }
+        String probed = Files.probeContentType(file);
+        return probed != null ? probed : DEFAULT_CONTENT_TYPE;
+    }
+
+    // Read once per file version; outputs are immutable once published, so this is rare
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[1024 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -5,6 +5,9 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -15,5 +18,15 @@ public class SystemStats {
     private Long completedJobs;
     private Long failedJobs;
     private Long storageUsed;
+
+    // Job counts by type, then by status
+    private Map<String, Map<String, Long>> jobsByType;
+    private Map<String, Long> jobsByStatus;
+
+    // Bytes stored per tier
+    private Map<String, Long> storageByTier;
+
+    // When the counters were last checked against a full recount
+    private LocalDateTime reconciledAt;
 }
 
@@ -1,5 +1,7 @@
 package com.videoprocessing.dtos.requestDtos;
 
+import com.videoprocessing.enums.EncodingMode;
+import com.videoprocessing.enums.OutputFormat;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
@@ -20,4 +22,11 @@ public class GenerateQualitiesRequest {
 
     @NotEmpty(message = "At least one quality must be specified")
     private List<@Pattern(regexp = "480p|720p|1080p", message = "Quality must be 480p, 720p, or 1080p") String> qualities;
+
+    @Builder.Default
+    private EncodingMode mode = EncodingMode.SINGLE_PASS; // PER_RENDITION, SINGLE_PASS, CHUNKED
+
+    // HLS is always encoded in a single pass, whatever the mode
+    @Builder.Default
+    private OutputFormat format = OutputFormat.MP4; // MP4, HLS
 }
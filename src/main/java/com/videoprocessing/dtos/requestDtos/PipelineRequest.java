@@ -0,0 +1,23 @@
+package com.videoprocessing.dtos.requestDtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipelineRequest {
+    @NotNull(message = "Video ID is required")
+    private Long videoId;
+
+    // Applied in order: optional trim first, then overlays/watermarks, optional qualities last
+    @NotEmpty(message = "At least one step must be specified")
+    private List<PipelineStep> steps;
+}
@@ -0,0 +1,21 @@
+package com.videoprocessing.dtos.requestDtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One operation of a pipeline; exactly one field is set. The videoId of the nested request
+ * is ignored in favour of the pipeline's, and overlay times are relative to the trimmed clip.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipelineStep {
+    private TrimVideoRequest trim;
+    private AddOverlayRequest overlay;
+    private AddWatermarkRequest watermark;
+    private GenerateQualitiesRequest qualities;
+}
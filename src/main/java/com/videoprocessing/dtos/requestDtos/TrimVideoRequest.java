@@ -1,5 +1,6 @@
 package com.videoprocessing.dtos.requestDtos;
 
+import com.videoprocessing.enums.TrimMode;
 import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
@@ -24,6 +25,9 @@ public class TrimVideoRequest {
     @DecimalMin(value = "0.1", message = "End time must be greater than 0.1")
     private Double endTime;
 
+    @Builder.Default
+    private TrimMode mode = TrimMode.COPY; // COPY, ACCURATE, SMART
+
     @AssertTrue(message = "End time must be greater than start time")
     public boolean isValidTimeRange() {
         return endTime != null && startTime != null && endTime > startTime;
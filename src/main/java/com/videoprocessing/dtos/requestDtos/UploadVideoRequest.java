@@ -0,0 +1,21 @@
+package com.videoprocessing.dtos.requestDtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Queue payload for an UPLOAD job: the bytes are already on disk when the job is enqueued.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadVideoRequest {
+    private String filename;
+    private String originalFilename;
+    private String filepath;
+    private Long size;
+    private String contentHash; // SHA-256, hex
+}
@@ -0,0 +1,40 @@
+package com.videoprocessing.dtos.responseDtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * What a storage cleanup removed, or in a dry run would have removed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CleanupReport {
+    private boolean dryRun;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    // Files older than this and not used by anything newer are removed
+    private LocalDateTime cutoff;
+
+    // Outputs and blobs; a directory such as an HLS package counts once
+    private Long filesDeleted;
+    private Long bytesReclaimed;
+    private Map<String, Long> filesByCategory;
+    private Map<String, Long> bytesByCategory;
+
+    private Long trimmedRowsDeleted;
+    private Long qualityRowsDeleted;
+    private Long blobRowsDeleted;
+
+    // Resumable uploads abandoned while open, their files removed
+    private Long uploadSessionsExpired;
+
+    private Long failures;
+}
@@ -1,11 +1,19 @@
 package com.videoprocessing.dtos.responseDtos;
 
 @lombok.Data
+@lombok.Builder
 @lombok.AllArgsConstructor
 @lombok.NoArgsConstructor
 public class JobUpdateMessage {
     private String jobId;
     private String status;
     private Integer progress;
+    private Double fps;
+    private Double speed;
+    private Double etaSeconds;
+
+    public JobUpdateMessage(String jobId, String status, Integer progress) {
+        this(jobId, status, progress, null, null, null);
+    }
 }
 
@@ -17,4 +17,7 @@ public class QualityVersionResponse {
     private Long size;
     private LocalDateTime createdAt;
     private String downloadUrl;
+    private String format;
+    // Master playlist of an HLS ladder
+    private String streamUrl;
 }
@@ -0,0 +1,34 @@
+package com.videoprocessing.dtos.responseDtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Compute used by the FFmpeg runs of one job type on sources of one resolution.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceUsageSummary {
+    private String jobType;
+    // Height of the source video, e.g. "1080p", not of the outputs, of which a quality job makes
+    // several; null for jobs without a source video
+    private String sourceResolution;
+    private Long jobs;
+
+    private Double cpuSeconds;
+    private Double cpuSecondsPerJob;
+    private Double cpuUserSeconds;
+    private Double cpuSystemSeconds;
+    private Double ffmpegWallSeconds;
+    // CPU time over wall time: how many cores a run keeps busy on average
+    private Double coresPerRun;
+
+    // Largest of any one run
+    private Long peakRssBytes;
+    private Long readBytes;
+    private Long writeBytes;
+}
@@ -0,0 +1,24 @@
+package com.videoprocessing.dtos.responseDtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionResponse {
+    private String uploadId;
+    private String filename;
+    private Long size;
+    private Integer chunkSize;
+    private Integer chunkCount;
+    private Integer receivedChunks;
+    private List<String> receivedRanges; // chunk indexes, e.g. "0-4", "7"
+    private String status;
+    private String jobId;
+}
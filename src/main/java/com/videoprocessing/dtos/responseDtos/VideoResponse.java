@@ -17,5 +17,13 @@ public class VideoResponse {
     private Long size;
     private Integer width;
     private Integer height;
+    private String videoCodec;
+    private String pixelFormat;
+    private Double frameRate;
+    private Long bitrate;
+    private Integer rotation;
+    private String audioCodec;
+    private Integer audioChannels;
+    private Integer audioSampleRate;
     private LocalDateTime uploadTime;
 }
\ No newline at end of file
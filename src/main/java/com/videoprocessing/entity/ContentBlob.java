@@ -0,0 +1,35 @@
+package com.videoprocessing.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored file, addressed by the SHA-256 of its bytes. Videos with the same content share
+ * one blob; {@code refCount} is the number of videos pointing at it.
+ */
+@Entity
+@Table(name = "content_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ContentBlob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // SHA-256 of the file, hex
+    @Column(unique = true, nullable = false, length = 64)
+    private String contentHash;
+
+    private String path;
+    private Long size;
+
+    @Builder.Default
+    private Integer refCount = 0;
+
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
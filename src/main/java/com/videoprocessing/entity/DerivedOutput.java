@@ -0,0 +1,51 @@
+package com.videoprocessing.entity;
+
+import com.videoprocessing.enums.JobType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * An output in the output cache: a file, or an HLS package directory, that the job with
+ * {@code fingerprint} produces again if it is evicted.
+ */
+@Entity
+@Table(name = "derived_outputs", indexes = {
+        @Index(name = "idx_derived_outputs_eviction", columnList = "evicted_at, priority")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DerivedOutput {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Absolute path of the top-level entry under the output directory
+    @Column(unique = true, nullable = false)
+    private String path;
+
+    @Column(length = 64, nullable = false)
+    private String fingerprint;
+
+    @Enumerated(EnumType.STRING)
+    private JobType jobType;
+
+    private Long size;
+
+    // How long the job producing it ran, i.e. what evicting it costs
+    private Long regenerationMillis;
+
+    private LocalDateTime lastAccessedAt;
+
+    // Last access in epoch millis plus the regeneration time scaled by app.output-cache-cost-weight; lowest goes first
+    private Long priority;
+
+    // Null while the output is on disk
+    private LocalDateTime evictedAt;
+
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
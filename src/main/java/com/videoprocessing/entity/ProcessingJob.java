@@ -8,7 +8,14 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "processing_jobs")
+@Table(name = "processing_jobs", indexes = {
+        // InnoDB appends the primary key, so this also serves (status, created_at, id) keyset pages
+        @Index(name = "idx_jobs_status_created", columnList = "status, created_at"),
+        @Index(name = "idx_jobs_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_jobs_type_created_id", columnList = "job_type, created_at, id"),
+        @Index(name = "idx_jobs_fingerprint_status", columnList = "fingerprint, status"),
+        @Index(name = "idx_jobs_attached_to", columnList = "attached_to")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -35,12 +42,58 @@ public class ProcessingJob {
 
     private String resultPath;
 
+    // File the running job is writing, readable before it completes
+    private String partialPath;
+
+    // SHA-256 of what determines the output; jobs with equal fingerprints share it
+    @Column(length = 64)
+    private String fingerprint;
+
+    // Job producing the same output that this one waits for instead of running itself
+    private String attachedTo;
+
+    // Started to produce an evicted output again; the job it replays saved the records already
+    private Boolean regeneration;
+
+    private Integer progress;
+
+    // Serialized request the worker replays when it claims the job
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    private String workerId;
+
+    // When the job was put on the Redis stream; null until then, and again once requeued
+    private LocalDateTime publishedAt;
+
+    @Builder.Default
+    private Integer attempts = 0;
+
     @Column(columnDefinition = "TEXT")
     private String errorMessage;
 
     @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    private LocalDateTime startedAt;
+
+    private LocalDateTime heartbeatAt;
+
     private LocalDateTime completedAt;
+
+    // What the job's FFmpeg runs used, summed over them; null for jobs that ran none
+    private Long cpuUserMillis;
+
+    private Long cpuSystemMillis;
+
+    // Largest of any one run
+    private Long peakRssBytes;
+
+    private Long readBytes;
+
+    private Long writeBytes;
+
+    // Wall time of the runs added up, parallel ones each counted
+    private Long ffmpegWallMillis;
 }
 
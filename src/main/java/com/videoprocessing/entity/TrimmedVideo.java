@@ -1,5 +1,6 @@
 package com.videoprocessing.entity;
 
+import com.videoprocessing.enums.TrimMode;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -24,12 +25,16 @@ public class TrimmedVideo {
     @ToString.Exclude
     private Video originalVideo;
 
+    // Null for virtual clips, which are served from the original video
     private String filename;
     private String filepath;
     private Double startTime;
     private Double endTime;
     private Double duration;
 
+    @Enumerated(EnumType.STRING)
+    private TrimMode trimMode;
+
     @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
 }
@@ -0,0 +1,45 @@
+package com.videoprocessing.entity;
+
+import com.videoprocessing.enums.UploadStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A resumable upload: chunks are written in place into a preallocated file at
+ * {@code filepath}, and which ones have arrived is tracked in a sidecar next to it.
+ */
+@Entity
+@Table(name = "upload_sessions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSession {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(unique = true)
+    private String uploadId;
+
+    private String filename;
+    private String originalFilename;
+    private String filepath;
+    private Long totalSize;
+    private Integer chunkSize;
+    private Integer chunkCount;
+
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private UploadStatus status = UploadStatus.OPEN;
+
+    // UPLOAD job started by completing the session
+    private String jobId;
+
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime completedAt;
+}
@@ -6,7 +6,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "videos")
+@Table(name = "videos", indexes = {
+        @Index(name = "idx_videos_content_hash", columnList = "content_hash"),
+        @Index(name = "idx_videos_upload_time_id", columnList = "upload_time, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -27,6 +30,27 @@ public class Video {
     private Integer width;
     private Integer height;
 
+    private String videoCodec;
+    private String pixelFormat;
+    private Double frameRate;
+    private Long bitrate; // bits per second
+    private Integer rotation; // clockwise degrees; width/height are as displayed
+
+    private String audioCodec;
+    private Integer audioChannels;
+    private Integer audioSampleRate;
+
+    // SHA-256 of the file, hex
+    @Column(length = 64)
+    private String contentHash;
+
+    // Where the file lives; null for videos stored before the blob store
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blob_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ContentBlob blob;
+
     @Builder.Default
     private LocalDateTime uploadTime = LocalDateTime.now();
 
@@ -1,5 +1,6 @@
 package com.videoprocessing.entity;
 
+import com.videoprocessing.enums.OutputFormat;
 import com.videoprocessing.enums.VideoQuality;
 import jakarta.persistence.*;
 import lombok.*;
@@ -26,9 +27,15 @@ public class VideoQualityVersion {
     private VideoQuality quality;
 
     private String filename;
+    // For HLS, the rendition's playlist; its segments are next to it
     private String filepath;
+    // For HLS, all segments of the rendition together
     private Long size;
 
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private OutputFormat format = OutputFormat.MP4;
+
     @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
 }
@@ -0,0 +1,7 @@
+package com.videoprocessing.enums;
+
+public enum EncodingMode {
+    PER_RENDITION, // one FFmpeg process per quality
+    SINGLE_PASS,   // decode once, split into every quality in one process
+    CHUNKED        // split at keyframes, encode chunks in parallel, then concatenate
+}
@@ -1,5 +1,5 @@
 package com.videoprocessing.enums;
 
 public enum JobType {
-    UPLOAD, TRIM, OVERLAY, WATERMARK, QUALITY_CONVERSION
+    UPLOAD, TRIM, OVERLAY, WATERMARK, QUALITY_CONVERSION, PIPELINE
 }
@@ -0,0 +1,6 @@
+package com.videoprocessing.enums;
+
+public enum OutputFormat {
+    MP4, // one progressive MP4 per quality
+    HLS  // fMP4 segments per quality with variant and master playlists
+}
@@ -0,0 +1,6 @@
+package com.videoprocessing.enums;
+
+public enum StorageTier {
+    ORIGINAL, // uploaded content blobs; cannot be recreated
+    DERIVED   // job outputs under the output directory; can be re-encoded from their source
+}
@@ -0,0 +1,8 @@
+package com.videoprocessing.enums;
+
+public enum TrimMode {
+    COPY,     // stream copy, cuts snap to keyframes
+    ACCURATE, // full re-encode, frame-accurate
+    SMART,    // re-encode only the boundary GOPs, stream copy the rest
+    VIRTUAL   // no output file, remuxed from the source when played; cuts snap to keyframes
+}
@@ -0,0 +1,7 @@
+package com.videoprocessing.enums;
+
+public enum UploadStatus {
+    OPEN, COMPLETING, COMPLETED,
+    EXPIRED, // abandoned while open; its file was removed by the storage cleanup
+    FAILED   // the hand-off took the file but failed to start the job; the file must be uploaded again
+}
@@ -0,0 +1,308 @@
+package com.videoprocessing.ffmpeg;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.enums.VideoQuality;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Segment-parallel encoder for long sources: the video is cut at keyframes into fixed-length
+ * chunks, every chunk is encoded into all requested qualities as an independent task on the
+ * chunk executor, and each quality is stitched back together with the concat demuxer. Audio
+ * is encoded once for the whole file and muxed in at the end, so chunk boundaries never
+ * cause audio gaps.
+ *
+ * <p>The executor is shared by all jobs, so a job only has as many chunks submitted at a
+ * time as the executor has threads; the rest wait here and are submitted as chunks finish.
+ * A long source therefore cannot queue hundreds of chunks ahead of other jobs.
+ *
+ * <p>Stragglers are re-run speculatively: once half the chunks are done, a chunk that has
+ * been running longer than {@code app.chunk-speculation-factor} times the median gets a
+ * second attempt and whichever finishes first wins. The second attempt is submitted at once,
+ * outside the job's limit, so it runs before the job's remaining chunks.
+ */
+@Component
+@Slf4j
+public class ChunkedEncoder {
+
+    private static final long MONITOR_INTERVAL_MS = 500;
+
+    private final FFmpegExecutor ffmpegExecutor;
+    private final ThreadPoolTaskExecutor chunkExecutor;
+    private final AppProperties appProperties;
+    private final VideoProber videoProber;
+
+    public ChunkedEncoder(FFmpegExecutor ffmpegExecutor,
+                          @Qualifier("chunkExecutor") ThreadPoolTaskExecutor chunkExecutor,
+                          AppProperties appProperties,
+                          VideoProber videoProber) {
+        this.ffmpegExecutor = ffmpegExecutor;
+        this.chunkExecutor = chunkExecutor;
+        this.appProperties = appProperties;
+        this.videoProber = videoProber;
+    }
+
+    /**
+     * Encodes {@code source} into every quality in {@code outputs}, using {@code workDir} for
+     * intermediate files. Combined progress across all chunks is reported to {@code listener}.
+     */
+    public void encode(String source, Map<VideoQuality, String> outputs, Path workDir,
+                       Consumer<FFmpegProgress> listener) throws IOException, InterruptedException {
+        Files.createDirectories(workDir);
+        try {
+            List<Chunk> chunks = split(source, workDir);
+            log.info("Split {} into {} chunks of ~{}s", source, chunks.size(), appProperties.getChunkDurationSeconds());
+
+            Future<Path> audio = chunkExecutor.submit(() -> encodeAudio(source, workDir));
+            encodeChunks(chunks, new ArrayList<>(outputs.keySet()), workDir, listener);
+            Path audioPath = await(audio);
+
+            for (Map.Entry<VideoQuality, String> output : outputs.entrySet()) {
+                Path list = workDir.resolve(output.getKey().getResolution() + ".txt");
+                List<String> entries = chunks.stream()
+                        .map(chunk -> FFmpegCommands.concatEntry(chunk.winner.get().get(output.getKey()).toString()))
+                        .toList();
+                Files.write(list, entries, StandardCharsets.UTF_8);
+
+                ffmpegExecutor.execute(FFmpegCommands.concatCommand(
+                        list.toString(), audioPath != null ? audioPath.toString() : null, output.getValue()));
+            }
+        } finally {
+            WorkDirs.deleteRecursively(workDir);
+        }
+    }
+
+    private List<Chunk> split(String source, Path workDir) throws IOException, InterruptedException {
+        Path sourceDir = Files.createDirectories(workDir.resolve("source"));
+        Path list = workDir.resolve("chunks.csv");
+        ffmpegExecutor.execute(FFmpegCommands.segmentCommand(source, appProperties.getChunkDurationSeconds(),
+                list.toString(), sourceDir.resolve("chunk_%05d.mkv").toString()));
+
+        // Each line: filename,start,end
+        List<Chunk> chunks = new ArrayList<>();
+        for (String line : Files.readAllLines(list, StandardCharsets.UTF_8)) {
+            String[] fields = line.split(",");
+            if (fields.length < 3) {
+                continue;
+            }
+            double duration = Double.parseDouble(fields[2]) - Double.parseDouble(fields[1]);
+            chunks.add(new Chunk(chunks.size(), sourceDir.resolve(fields[0]), duration));
+        }
+        if (chunks.isEmpty()) {
+            throw new RuntimeException("Source produced no chunks: " + source);
+        }
+        return chunks;
+    }
+
+    private Path encodeAudio(String source, Path workDir) throws IOException, InterruptedException {
+        if (!videoProber.probe(source).hasAudio()) {
+            return null;
+        }
+        Path audio = workDir.resolve("audio.m4a");
+        ffmpegExecutor.execute(FFmpegCommands.audioCommand(source, audio.toString()));
+        return audio;
+    }
+
+    private void encodeChunks(List<Chunk> chunks, List<VideoQuality> qualities, Path workDir,
+                              Consumer<FFmpegProgress> listener) throws InterruptedException {
+        double totalSeconds = chunks.stream().mapToDouble(chunk -> chunk.duration).sum();
+        int parallelism = appProperties.getChunkParallelism();
+        // Split the cores between the chunks that run side by side instead of letting x264 oversubscribe
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / parallelism);
+        // Released by every attempt that ends, so a freed slot is refilled without waiting for the next check
+        Semaphore attemptEnded = new Semaphore(0);
+
+        try {
+            int submitted = 0;
+            while (true) {
+                int done = 0;
+                int inFlight = 0;
+                for (Chunk chunk : chunks.subList(0, submitted)) {
+                    if (chunk.winner.get() != null) {
+                        done++;
+                    } else if (chunk.allAttemptsFailed()) {
+                        Throwable failure = chunk.failure();
+                        throw new RuntimeException("Chunk " + chunk.index + " failed: "
+                                + (failure != null ? failure.getMessage() : "cancelled"), failure);
+                    } else {
+                        inFlight++;
+                    }
+                }
+                for (; submitted < chunks.size() && inFlight < parallelism; submitted++, inFlight++) {
+                    submitAttempt(chunks.get(submitted), qualities, workDir, threads, attemptEnded);
+                }
+
+                listener.accept(combinedProgress(chunks, totalSeconds, done == chunks.size()));
+                if (done == chunks.size()) {
+                    return;
+                }
+
+                speculate(chunks, done, qualities, workDir, threads, attemptEnded);
+                if (attemptEnded.tryAcquire(MONITOR_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    attemptEnded.drainPermits();
+                }
+            }
+        } finally {
+            chunks.forEach(Chunk::cancelAll);
+        }
+    }
+
+    private void submitAttempt(Chunk chunk, List<VideoQuality> qualities, Path workDir, int threads,
+                               Semaphore attemptEnded) {
+        int attempt = chunk.attempts.size();
+        Path attemptDir = workDir.resolve("attempt-" + attempt);
+
+        chunk.attempts.add(chunkExecutor.submit(() -> {
+            try {
+                Map<VideoQuality, Path> outputs = new LinkedHashMap<>();
+                for (VideoQuality quality : qualities) {
+                    Path dir = Files.createDirectories(attemptDir.resolve(quality.getResolution()));
+                    outputs.put(quality, dir.resolve(String.format("chunk_%05d.mp4", chunk.index)));
+                }
+                Map<VideoQuality, String> outputPaths = new LinkedHashMap<>();
+                outputs.forEach((quality, path) -> outputPaths.put(quality, path.toString()));
+
+                chunk.markStarted();
+                ffmpegExecutor.execute(FFmpegCommands.chunkLadderCommand(chunk.source.toString(), outputPaths, threads),
+                        chunk.duration, chunk::record);
+
+                if (chunk.winner.compareAndSet(null, outputs)) {
+                    chunk.finishedNanos = System.nanoTime();
+                    chunk.cancelOthers(attempt);
+                }
+                return null;
+            } finally {
+                attemptEnded.release();
+            }
+        }));
+    }
+
+    private void speculate(List<Chunk> chunks, int done, List<VideoQuality> qualities, Path workDir, int threads,
+                           Semaphore attemptEnded) {
+        if (done == 0 || done < chunks.size() / 2) {
+            return;
+        }
+
+        // Median wall time per second of content among finished chunks
+        double[] rates = chunks.stream()
+                .filter(chunk -> chunk.winner.get() != null && chunk.duration > 0)
+                .mapToDouble(chunk -> (chunk.finishedNanos - chunk.startedNanos) / chunk.duration)
+                .sorted()
+                .toArray();
+        if (rates.length == 0) {
+            return;
+        }
+        double median = rates[rates.length / 2];
+
+        long now = System.nanoTime();
+        for (Chunk chunk : chunks) {
+            if (chunk.winner.get() == null && chunk.startedNanos > 0 && chunk.attempts.size() == 1
+                    && now - chunk.startedNanos > appProperties.getChunkSpeculationFactor() * median * chunk.duration) {
+                log.info("Chunk {} is straggling, starting a speculative attempt", chunk.index);
+                submitAttempt(chunk, qualities, workDir, threads, attemptEnded);
+            }
+        }
+    }
+
+    private static FFmpegProgress combinedProgress(List<Chunk> chunks, double totalSeconds, boolean finished) {
+        double encoded = 0;
+        double speed = 0;
+        for (Chunk chunk : chunks) {
+            encoded += chunk.winner.get() != null ? chunk.duration : Math.min(chunk.encodedSeconds, chunk.duration);
+            if (chunk.winner.get() == null && chunk.speed != null) {
+                speed += chunk.speed;
+            }
+        }
+        return FFmpegProgress.builder()
+                .outTimeSeconds(encoded)
+                .totalSeconds(totalSeconds)
+                .speed(speed > 0 ? speed : null)
+                .finished(finished)
+                .build();
+    }
+
+    private static <T> T await(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Chunked encode step failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static class Chunk {
+        private final int index;
+        private final Path source;
+        private final double duration;
+        private final List<Future<?>> attempts = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Map<VideoQuality, Path>> winner = new AtomicReference<>();
+
+        private volatile long startedNanos;
+        private volatile long finishedNanos;
+        private volatile double encodedSeconds;
+        private volatile Double speed;
+
+        Chunk(int index, Path source, double duration) {
+            this.index = index;
+            this.source = source;
+            this.duration = duration;
+        }
+
+        synchronized void markStarted() {
+            if (startedNanos == 0) {
+                startedNanos = System.nanoTime();
+            }
+        }
+
+        // Attempts race; the chunk is as far along as its fastest attempt
+        synchronized void record(FFmpegProgress progress) {
+            encodedSeconds = Math.max(encodedSeconds, progress.getOutTimeSeconds());
+            speed = progress.getSpeed();
+        }
+
+        boolean allAttemptsFailed() {
+            return !attempts.isEmpty() && attempts.stream().allMatch(Future::isDone) && winner.get() == null;
+        }
+
+        // What the first failed attempt threw, or null if they were all cancelled
+        Throwable failure() {
+            for (Future<?> attempt : attempts) {
+                try {
+                    attempt.get(0, TimeUnit.MILLISECONDS);
+                } catch (ExecutionException e) {
+                    return e.getCause();
+                } catch (Exception ignored) {
+                    // cancelled or interrupted; look at the next attempt
+                }
+            }
+            return null;
+        }
+
+        void cancelAll() {
+            attempts.forEach(attempt -> attempt.cancel(true));
+        }
+
+        // Called by the winning attempt, which must not cancel, and so interrupt, itself
+        void cancelOthers(int winner) {
+            for (int i = 0; i < attempts.size(); i++) {
+                if (i != winner) {
+                    attempts.get(i).cancel(true);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package com.videoprocessing.ffmpeg;
+
+import com.videoprocessing.enums.VideoQuality;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builders for the FFmpeg argument lists used by the processing pipelines.
+ */
+public final class FFmpegCommands {
+
+    public static final String VIDEO_CRF = "23";
+    public static final String VIDEO_PRESET = "medium";
+    public static final String AUDIO_BITRATE = "128k";
+    // Boundary GOPs of a smart trim are re-encoded at higher quality to hide the generation loss
+    public static final String BOUNDARY_CRF = "18";
+
+    // Fragmented MP4: playable from the first fragment on, so a file can be read while it is written
+    public static final String FRAGMENTED_MP4 = "frag_keyframe+empty_moov+default_base_moof";
+
+    public static final int HLS_SEGMENT_SECONDS = 4;
+    public static final String HLS_MASTER_PLAYLIST = "master.m3u8";
+    public static final String HLS_VARIANT_PLAYLIST = "index.m3u8";
+
+    private FFmpegCommands() {
+    }
+
+    /**
+     * Encodes {@code source} to a single quality.
+     */
+    public static String[] renditionCommand(String source, VideoQuality quality, String outputPath) {
+        return new String[]{
+                "ffmpeg", "-i", source,
+                "-vf", scaleFilter(quality),
+                "-c:v", "libx264",
+                "-crf", VIDEO_CRF,
+                "-preset", VIDEO_PRESET,
+                "-c:a", "aac",
+                "-b:a", AUDIO_BITRATE,
+                outputPath
+        };
+    }
+
+    public static String[] copyTrimCommand(String source, double start, double end, String outputPath) {
+        return new String[]{
+                "ffmpeg", "-y", "-i", source,
+                "-ss", String.valueOf(start),
+                "-t", String.valueOf(end - start),
+                "-c", "copy", "-avoid_negative_ts", "make_zero",
+                outputPath
+        };
+    }
+
+    /**
+     * Stream copies {@code [start, end)} of {@code source} to stdout as MPEG-TS. Source
+     * timestamps are kept, so consecutive ranges play as consecutive HLS segments;
+     * {@code start} should be a keyframe.
+     */
+    public static String[] segmentRemuxCommand(String source, double start, double end) {
+        return new String[]{
+                "ffmpeg",
+                "-ss", seconds(start), "-t", seconds(end - start), "-i", source,
+                "-map", "0:v:0", "-map", "0:a:0?",
+                "-c", "copy", "-copyts", "-muxdelay", "0",
+                "-f", "mpegts", "pipe:1"
+        };
+    }
+
+    /**
+     * Stream copies {@code [start, end)} of {@code source} to stdout as fragmented MP4, which
+     * needs no seekable output. The start snaps to the keyframe before it, as in a copy trim.
+     */
+    public static String[] clipRemuxCommand(String source, double start, double end) {
+        return new String[]{
+                "ffmpeg",
+                "-ss", seconds(start), "-t", seconds(end - start), "-i", source,
+                "-map", "0:v:0", "-map", "0:a:0?",
+                "-c", "copy",
+                "-movflags", FRAGMENTED_MP4,
+                "-f", "mp4", "pipe:1"
+        };
+    }
+
+    public static String[] accurateTrimCommand(String source, double start, double end, String outputPath) {
+        return new String[]{
+                "ffmpeg", "-y",
+                "-ss", seconds(start), "-i", source,
+                "-t", seconds(end - start),
+                "-c:v", "libx264",
+                "-crf", VIDEO_CRF,
+                "-preset", VIDEO_PRESET,
+                "-c:a", "aac",
+                "-b:a", AUDIO_BITRATE,
+                "-movflags", FRAGMENTED_MP4,
+                outputPath
+        };
+    }
+
+    /**
+     * Re-encodes the video of {@code [start, end)} into an MPEG-TS piece. TS carries the
+     * parameter sets in-band, so re-encoded and copied pieces concatenate cleanly.
+     */
+    public static String[] encodeVideoPieceCommand(String source, double start, double end,
+                                                   String pixelFormat, String outputPath) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-y",
+                "-ss", seconds(start), "-i", source,
+                "-t", seconds(end - start),
+                "-map", "0:v:0",
+                "-c:v", "libx264",
+                "-crf", BOUNDARY_CRF,
+                "-preset", VIDEO_PRESET));
+        if (pixelFormat != null) {
+            command.addAll(List.of("-pix_fmt", pixelFormat));
+        }
+        command.addAll(List.of("-f", "mpegts", outputPath));
+        return command.toArray(new String[0]);
+    }
+
+    /**
+     * Stream-copies the video of {@code [start, end)} into an MPEG-TS piece; {@code start}
+     * must be a keyframe and a null {@code end} copies to the end of the file.
+     */
+    public static String[] copyVideoPieceCommand(String source, double start, Double end, String outputPath) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-y", "-ss", seconds(start), "-i", source));
+        if (end != null) {
+            command.addAll(List.of("-t", seconds(end - start)));
+        }
+        command.addAll(List.of("-map", "0:v:0", "-c", "copy", "-f", "mpegts", outputPath));
+        return command.toArray(new String[0]);
+    }
+
+    /**
+     * Re-encodes the video of {@code [start, end)} through {@code filterComplex}, whose output
+     * must be labelled {@code [out]}; {@code extraInputs} become inputs 1, 2, ...
+     */
+    public static String[] filteredVideoPieceCommand(String source, double start, Double end, List<String> extraInputs,
+                                                     String filterComplex, String pixelFormat, String outputPath) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-y", "-ss", seconds(start), "-i", source));
+        for (String input : extraInputs) {
+            command.addAll(List.of("-i", input));
+        }
+        if (end != null) {
+            command.addAll(List.of("-t", seconds(end - start)));
+        }
+        command.addAll(List.of(
+                "-filter_complex", filterComplex,
+                "-map", "[out]",
+                "-c:v", "libx264",
+                "-crf", BOUNDARY_CRF,
+                "-preset", VIDEO_PRESET));
+        if (pixelFormat != null) {
+            command.addAll(List.of("-pix_fmt", pixelFormat));
+        }
+        command.addAll(List.of("-f", "mpegts", outputPath));
+        return command.toArray(new String[0]);
+    }
+
+    public static String[] trimAudioCommand(String source, double start, double end, String outputPath) {
+        return new String[]{
+                "ffmpeg", "-y",
+                "-ss", seconds(start), "-i", source,
+                "-t", seconds(end - start),
+                "-map", "0:a:0", "-vn",
+                "-c:a", "aac",
+                "-b:a", AUDIO_BITRATE,
+                outputPath
+        };
+    }
+
+    /**
+     * Format and stream metadata as JSON, for {@link FFprobeParser}.
+     */
+    public static String[] probeCommand(String source) {
+        return new String[]{
+                "ffprobe", "-v", "quiet",
+                "-print_format", "json",
+                "-show_format", "-show_streams",
+                source
+        };
+    }
+
+    /**
+     * Prints the FFmpeg build; the first line names the version.
+     */
+    public static String[] versionCommand() {
+        return new String[]{"ffmpeg", "-version"};
+    }
+
+    /**
+     * Lists keyframe timestamps of the first video stream between {@code from} and {@code to}.
+     */
+    public static String[] keyframeProbeCommand(String source, double from, double to) {
+        return new String[]{
+                "ffprobe", "-v", "error",
+                "-select_streams", "v:0",
+                "-skip_frame", "nokey",
+                "-show_entries", "frame=pts_time",
+                "-of", "csv=p=0",
+                "-read_intervals", seconds(from) + "%" + seconds(to),
+                source
+        };
+    }
+
+    /**
+     * Lists the timestamp and byte offset of every keyframe of the first video stream. With
+     * {@code -skip_frame nokey} only keyframes are decoded, so this is one cheap pass.
+     */
+    public static String[] keyframeIndexCommand(String source) {
+        return new String[]{
+                "ffprobe", "-v", "error",
+                "-select_streams", "v:0",
+                "-skip_frame", "nokey",
+                "-show_entries", "frame=best_effort_timestamp_time,pkt_pos",
+                "-of", "csv=p=0",
+                source
+        };
+    }
+
+    /**
+     * Encodes every quality of the ladder from one decode of {@code source}. The decoded frames
+     * are fanned out with a split filter, and the tee muxer writes one MP4 per quality, all
+     * sharing a single AAC encode of the audio track.
+     */
+    public static String[] renditionLadderCommand(String source, Map<VideoQuality, String> outputs) {
+        return filteredLadderCommand(List.of("-i", source), "", "[0:v]", outputs);
+    }
+
+    /**
+     * Like {@link #renditionLadderCommand}, but the ladder is fed from {@code videoLabel} of
+     * {@code graph}, a filtergraph over the given inputs (empty for the plain source video).
+     */
+    public static String[] filteredLadderCommand(List<String> inputArgs, String graph, String videoLabel,
+                                                 Map<VideoQuality, String> outputs) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg"));
+        command.addAll(inputArgs);
+
+        int count = outputs.size();
+        String ladder = splitScaleGraph(videoLabel, outputs.keySet());
+        command.addAll(List.of("-filter_complex", graph.isEmpty() ? ladder : graph + ";" + ladder));
+
+        for (int i = 0; i < count; i++) {
+            command.addAll(List.of("-map", "[v" + i + "]"));
+        }
+        command.addAll(List.of("-map", "0:a?"));
+
+        command.addAll(List.of(
+                "-c:v", "libx264",
+                "-crf", VIDEO_CRF,
+                "-preset", VIDEO_PRESET,
+                "-c:a", "aac",
+                "-b:a", AUDIO_BITRATE,
+                // tee cannot tell the encoders that MP4 needs out-of-band headers
+                "-flags", "+global_header",
+                "-f", "tee",
+                teeTargets(outputs.values())));
+
+        return command.toArray(new String[0]);
+    }
+
+    /**
+     * Encodes every quality of the ladder from one decode of {@code source} and packages it
+     * as HLS with fMP4 (CMAF) segments: one directory per quality under {@code packageDir},
+     * named by its resolution, and a master playlist listing them. Keyframes are forced at
+     * every segment boundary in all renditions, so segments line up and players can switch
+     * between them. The audio is encoded once into its own rendition group.
+     */
+    public static String[] hlsLadderCommand(String source, List<VideoQuality> qualities, boolean withAudio,
+                                            String packageDir) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-y", "-i", source,
+                "-filter_complex", splitScaleGraph("[0:v]", qualities)));
+
+        List<String> streams = new ArrayList<>();
+        for (int i = 0; i < qualities.size(); i++) {
+            command.addAll(List.of("-map", "[v" + i + "]"));
+            streams.add("v:" + i + (withAudio ? ",agroup:audio" : "") + ",name:" + qualities.get(i).getResolution());
+        }
+        if (withAudio) {
+            command.addAll(List.of("-map", "0:a:0"));
+            streams.add("a:0,agroup:audio,name:audio");
+        }
+
+        command.addAll(List.of(
+                "-c:v", "libx264",
+                "-crf", VIDEO_CRF,
+                "-preset", VIDEO_PRESET,
+                "-force_key_frames", "expr:gte(t,n_forced*" + HLS_SEGMENT_SECONDS + ")",
+                "-sc_threshold", "0",
+                "-c:a", "aac",
+                "-b:a", AUDIO_BITRATE,
+                "-f", "hls",
+                "-hls_time", String.valueOf(HLS_SEGMENT_SECONDS),
+                "-hls_playlist_type", "vod",
+                "-hls_flags", "independent_segments",
+                "-hls_segment_type", "fmp4",
+                "-hls_fmp4_init_filename", "init.mp4",
+                "-hls_segment_filename", packageDir + "/%v/segment_%05d.m4s",
+                "-master_pl_name", HLS_MASTER_PLAYLIST,
+                "-var_stream_map", String.join(" ", streams),
+                packageDir + "/%v/" + HLS_VARIANT_PLAYLIST));
+        return command.toArray(new String[0]);
+    }
+
+    /**
+     * Encodes {@code videoLabel} of {@code graph} (the plain source video if the graph is
+     * empty) with the audio of input 0 into a single MP4.
+     */
+    public static String[] filteredCommand(List<String> inputArgs, String graph, String videoLabel,
+                                           String outputPath) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-y"));
+        command.addAll(inputArgs);
+        if (graph.isEmpty()) {
+            command.addAll(List.of("-map", "0:v:0"));
+        } else {
+            command.addAll(List.of("-filter_complex", graph, "-map", videoLabel));
+        }
+        command.addAll(List.of(
+                "-map", "0:a?",
+                "-c:v", "libx264",
+                "-crf", VIDEO_CRF,
+                "-preset", VIDEO_PRESET,
+                "-c:a", "aac",
+                "-b:a", AUDIO_BITRATE,
+                "-movflags", "+faststart",
+                outputPath));
+        return command.toArray(new String[0]);
+    }
+
+    /**
+     * Encodes one video-only chunk into every quality, one output file per quality.
+     */
+    public static String[] chunkLadderCommand(String chunk, Map<VideoQuality, String> outputs, int threads) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-y", "-i", chunk,
+                "-filter_complex", splitScaleGraph("[0:v]", outputs.keySet())));
+
+        int index = 0;
+        for (String output : outputs.values()) {
+            command.addAll(List.of(
+                    "-map", "[v" + index++ + "]",
+                    "-c:v", "libx264",
+                    "-crf", VIDEO_CRF,
+                    "-preset", VIDEO_PRESET,
+                    "-threads", String.valueOf(threads),
+                    output));
+        }
+        return command.toArray(new String[0]);
+    }
+
+    /**
+     * Splits the video stream of {@code source} at keyframes into chunks of roughly
+     * {@code seconds} each, without re-encoding; the chunk boundaries go to a CSV list.
+     */
+    public static String[] segmentCommand(String source, int seconds, String listPath, String chunkPattern) {
+        return new String[]{
+                "ffmpeg", "-y", "-i", source,
+                "-map", "0:v:0", "-c", "copy",
+                "-f", "segment",
+                "-segment_time", String.valueOf(seconds),
+                "-reset_timestamps", "1",
+                "-segment_list", listPath,
+                "-segment_list_type", "csv",
+                chunkPattern
+        };
+    }
+
+    public static String[] audioCommand(String source, String outputPath) {
+        return new String[]{
+                "ffmpeg", "-y", "-i", source,
+                "-map", "0:a:0", "-vn",
+                "-c:a", "aac",
+                "-b:a", AUDIO_BITRATE,
+                outputPath
+        };
+    }
+
+    /**
+     * Stream-copies the pieces listed in a concat demuxer file into one MP4, optionally
+     * muxing in the audio of {@code audioPath} (if it has any).
+     */
+    public static String[] concatCommand(String listPath, String audioPath, String outputPath) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-y",
+                "-f", "concat", "-safe", "0", "-i", listPath));
+        if (audioPath != null) {
+            command.addAll(List.of("-i", audioPath, "-map", "0:v", "-map", "1:a?"));
+        }
+        command.addAll(List.of("-c", "copy", "-movflags", "+faststart", outputPath));
+        return command.toArray(new String[0]);
+    }
+
+    /**
+     * Line for a concat demuxer list file.
+     */
+    public static String concatEntry(String path) {
+        return "file '" + path.replace("'", "'\\''") + "'";
+    }
+
+    public static String seconds(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    public static String scaleFilter(VideoQuality quality) {
+        return String.format("scale=%d:%d", quality.getWidth(), quality.getHeight());
+    }
+
+    // The input label split into one scaled stream per quality, labelled [v0], [v1], ...
+    private static String splitScaleGraph(String input, Collection<VideoQuality> qualities) {
+        StringBuilder graph = new StringBuilder(input).append("split=").append(qualities.size());
+        for (int i = 0; i < qualities.size(); i++) {
+            graph.append("[s").append(i).append("]");
+        }
+        int index = 0;
+        for (VideoQuality quality : qualities) {
+            graph.append(";[s").append(index).append("]").append(scaleFilter(quality))
+                    .append("[v").append(index).append("]");
+            index++;
+        }
+        return graph.toString();
+    }
+
+    // Output i receives video stream i plus the shared audio stream
+    private static String teeTargets(Iterable<String> outputPaths) {
+        StringBuilder targets = new StringBuilder();
+        int index = 0;
+        for (String path : outputPaths) {
+            if (index > 0) {
+                targets.append('|');
+            }
+            targets.append("[select=\\'v:").append(index).append(",a\\':f=mp4]").append(path);
+            index++;
+        }
+        return targets.toString();
+    }
+}
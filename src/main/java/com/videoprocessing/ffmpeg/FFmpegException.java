@@ -0,0 +1,13 @@
+package com.videoprocessing.ffmpeg;
+
+/**
+ * FFmpeg or ffprobe exited with an error.
+ */
+public class FFmpegException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public FFmpegException(String message) {
+        super(message);
+    }
+}
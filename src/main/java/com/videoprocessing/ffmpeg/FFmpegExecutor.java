@@ -0,0 +1,304 @@
+package com.videoprocessing.ffmpeg;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Runs FFmpeg child processes and reports machine-readable progress while they run. Each run
+ * with progress records its average speed factor and fps, the size of its input files and the
+ * bytes it wrote, from its last progress block.
+ * <p>
+ * Every child, whether run with progress, captured or streamed, has its CPU time, peak memory
+ * and I/O sampled from {@code /proc} while it runs and once more when its output ends. It is
+ * charged to the job's {@link ResourceUsage} if it runs for one, and its CPU time is counted
+ * node-wide either way, so clip remuxes streamed to clients show up too. Whatever a process
+ * uses after its last sample, typically a fraction of a second spent finishing the output, is
+ * not seen: the JVM reaps it, and its {@code /proc} entry with it, as soon as it exits.
+ */
+@Component
+@Slf4j
+public class FFmpegExecutor {
+
+    private static final int LOG_TAIL_LINES = 200;
+    // Streamed runs have no progress blocks to sample on
+    private static final long STREAM_SAMPLE_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final String ffmpegPath;
+    private final DistributionSummary speed;
+    private final DistributionSummary fps;
+    private final Counter inputBytes;
+    private final Counter outputBytes;
+    private final Counter jobCpu;
+    private final Counter requestCpu;
+
+    public FFmpegExecutor(@Value("${app.ffmpeg.path:ffmpeg}") String ffmpegPath, MeterRegistry registry) {
+        this.ffmpegPath = ffmpegPath;
+        this.speed = DistributionSummary.builder("video.ffmpeg.speed")
+                .description("Encode speed of a run as a multiple of real time")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.fps = DistributionSummary.builder("video.ffmpeg.fps")
+                .description("Frames encoded per second over a run")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.inputBytes = Counter.builder("video.ffmpeg.input.bytes")
+                .description("Size of the input files of finished runs")
+                .baseUnit("bytes")
+                .register(registry);
+        this.outputBytes = Counter.builder("video.ffmpeg.output.bytes")
+                .description("Bytes written by finished runs")
+                .baseUnit("bytes")
+                .register(registry);
+        this.jobCpu = cpuCounter(registry, "true");
+        this.requestCpu = cpuCounter(registry, "false");
+    }
+
+    private static Counter cpuCounter(MeterRegistry registry, String job) {
+        return Counter.builder("video.ffmpeg.cpu")
+                .description("CPU time of finished runs, user and system")
+                .baseUnit("seconds")
+                .tag("job", job)
+                .register(registry);
+    }
+
+    /**
+     * One child process: sampled while it runs, charged when it ends.
+     */
+    private final class Run {
+        private final ProcessHandle handle;
+        private final ResourceUsage usage = ResourceUsage.current();
+        private final long startedNanos = System.nanoTime();
+        private ProcessSample sample;
+        private long sampledNanos = startedNanos;
+
+        Run(Process process) {
+            this.handle = process.toHandle();
+        }
+
+        void sample() {
+            sample = latest(handle, sample);
+            sampledNanos = System.nanoTime();
+        }
+
+        void sampleEvery(long intervalNanos) {
+            if (System.nanoTime() - sampledNanos >= intervalNanos) {
+                sample();
+            }
+        }
+
+        // Cancelled runs, such as speculative chunk attempts that lost, cost as much as they ran
+        void ended() {
+            if (usage != null) {
+                usage.charge(sample, (System.nanoTime() - startedNanos) / 1_000_000);
+            }
+            if (sample != null) {
+                (usage != null ? jobCpu : requestCpu)
+                        .increment((sample.getCpuUserMillis() + sample.getCpuSystemMillis()) / 1000.0);
+            }
+        }
+    }
+
+    public void execute(String[] command) throws IOException, InterruptedException {
+        execute(command, null, null);
+    }
+
+    /**
+     * Runs {@code command} with {@code -progress pipe:1}; every completed progress block is
+     * handed to {@code listener}. {@code durationSeconds} is the expected output duration used
+     * for percent/ETA, or null to take it from the input header.
+     */
+    public void execute(String[] command, Double durationSeconds, Consumer<FFmpegProgress> listener)
+            throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(withProgress(command));
+        pb.redirectErrorStream(true);
+
+        // Set environment for better Unicode support
+        Map<String, String> env = pb.environment();
+        env.put("LANG", "en_US.UTF-8");
+
+        Process process = pb.start();
+        Run run = new Run(process);
+        FFmpegProgressParser parser = new FFmpegProgressParser(durationSeconds);
+
+        // Keep only the tail of the log for error reporting
+        Deque<String> outputLog = new ArrayDeque<>();
+        FFmpegProgress last = null;
+        int exitCode;
+        try {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // Progress lines arrive several times a second, so this is a timely cancellation point
+                    if (Thread.currentThread().isInterrupted()) {
+                        process.destroyForcibly();
+                        throw new InterruptedException("FFmpeg run cancelled");
+                    }
+                    FFmpegProgress progress = parser.accept(line);
+                    if (progress != null) {
+                        last = progress;
+                        run.sample();
+                    }
+                    if (progress != null && listener != null) {
+                        try {
+                            listener.accept(progress);
+                        } catch (Exception e) {
+                            log.warn("Progress listener failed: {}", e.getMessage());
+                        }
+                    }
+                    if (!parser.isProgressLine(line)) {
+                        outputLog.addLast(line);
+                        if (outputLog.size() > LOG_TAIL_LINES) {
+                            outputLog.removeFirst();
+                        }
+                        log.debug("FFmpeg: {}", line);
+                    }
+                }
+            }
+            run.sample();
+            exitCode = process.waitFor();
+        } finally {
+            run.ended();
+        }
+        record(command, last);
+        if (exitCode != 0) {
+            log.error("FFmpeg failed with exit code: {} and output: {}", exitCode, String.join("\n", outputLog));
+            throw new FFmpegException("FFmpeg command failed with exit code: " + exitCode);
+        }
+    }
+
+    // FFmpeg reports speed and fps averaged since the start, so the last block holds the run's
+    private void record(String[] command, FFmpegProgress last) {
+        if (last != null) {
+            if (last.getSpeed() != null) {
+                speed.record(last.getSpeed());
+            }
+            if (last.getFps() != null) {
+                fps.record(last.getFps());
+            }
+            if (last.getTotalSize() != null && last.getTotalSize() > 0) {
+                outputBytes.increment(last.getTotalSize());
+            }
+        }
+        for (int i = 0; i + 1 < command.length; i++) {
+            if ("-i".equals(command[i])) {
+                inputBytes.increment(sizeOf(command[i + 1]));
+            }
+        }
+    }
+
+    // A process that has exited has no /proc entry left, and an exiting one no memory; what was seen before stands
+    private static ProcessSample latest(ProcessHandle process, ProcessSample previous) {
+        ProcessSample sample = ProcessSampler.sample(process);
+        if (sample == null || previous == null) {
+            return sample != null ? sample : previous;
+        }
+        return new ProcessSample(
+                Math.max(sample.getCpuUserMillis(), previous.getCpuUserMillis()),
+                Math.max(sample.getCpuSystemMillis(), previous.getCpuSystemMillis()),
+                Math.max(sample.getPeakRssBytes(), previous.getPeakRssBytes()),
+                Math.max(sample.getReadBytes(), previous.getReadBytes()),
+                Math.max(sample.getWriteBytes(), previous.getWriteBytes()));
+    }
+
+    // Inputs that are not plain files, such as lavfi sources or URLs, count as nothing
+    private static long sizeOf(String input) {
+        try {
+            Path path = Path.of(input);
+            return Files.isRegularFile(path) ? Files.size(path) : 0;
+        } catch (IOException | InvalidPathException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Runs a short-lived tool invocation (typically ffprobe) and returns its standard output.
+     */
+    public String capture(String[] command) throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+
+        Process process = pb.start();
+        Run run = new Run(process);
+        String output;
+        int exitCode;
+        try {
+            output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            run.sample();
+            exitCode = process.waitFor();
+        } finally {
+            run.ended();
+        }
+        if (exitCode != 0) {
+            throw new FFmpegException(command[0] + " failed with exit code: " + exitCode);
+        }
+        return output;
+    }
+
+    /**
+     * Runs {@code command}, which writes its output to {@code pipe:1}, and copies that output
+     * to {@code out} as it is produced. If writing to {@code out} fails, typically because the
+     * client went away, FFmpeg is stopped.
+     */
+    public void stream(String[] command, OutputStream out) throws IOException, InterruptedException {
+        String[] args = command.clone();
+        if ("ffmpeg".equals(args[0])) {
+            args[0] = ffmpegPath;
+        }
+        ProcessBuilder pb = new ProcessBuilder(args);
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+
+        Process process = pb.start();
+        Run run = new Run(process);
+        int exitCode;
+        try {
+            try (InputStream in = process.getInputStream()) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, read);
+                    run.sampleEvery(STREAM_SAMPLE_INTERVAL_NANOS);
+                }
+            } catch (IOException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+            run.sample();
+            exitCode = process.waitFor();
+        } finally {
+            run.ended();
+        }
+        if (exitCode != 0) {
+            throw new FFmpegException("FFmpeg command failed with exit code: " + exitCode);
+        }
+    }
+
+    private String[] withProgress(String[] command) {
+        List<String> args = new ArrayList<>(command.length + 3);
+        args.add("ffmpeg".equals(command[0]) ? ffmpegPath : command[0]);
+        args.addAll(List.of("-progress", "pipe:1", "-nostats"));
+        args.addAll(Arrays.asList(command).subList(1, command.length));
+        return args.toArray(new String[0]);
+    }
+}
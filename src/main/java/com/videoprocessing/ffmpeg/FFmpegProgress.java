@@ -0,0 +1,45 @@
+package com.videoprocessing.ffmpeg;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * One progress block reported by {@code ffmpeg -progress}.
+ */
+@Value
+@Builder
+public class FFmpegProgress {
+    double outTimeSeconds;
+    Double totalSeconds;
+    Double fps;
+    Double speed;
+    // Bytes written to the outputs so far
+    Long totalSize;
+    boolean finished;
+
+    /**
+     * Percent complete in the range 0-100, or null when the total duration is unknown.
+     */
+    public Integer getPercent() {
+        if (finished) {
+            return 100;
+        }
+        if (totalSeconds == null || totalSeconds <= 0) {
+            return null;
+        }
+        return (int) Math.max(0, Math.min(99, outTimeSeconds * 100 / totalSeconds));
+    }
+
+    /**
+     * Estimated seconds remaining at the current encode speed, or null when unknown.
+     */
+    public Double getEtaSeconds() {
+        if (finished) {
+            return 0.0;
+        }
+        if (totalSeconds == null || totalSeconds <= 0 || speed == null || speed <= 0) {
+            return null;
+        }
+        return Math.max(0, (totalSeconds - outTimeSeconds) / speed);
+    }
+}
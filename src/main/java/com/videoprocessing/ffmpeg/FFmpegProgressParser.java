@@ -0,0 +1,96 @@
+package com.videoprocessing.ffmpeg;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental parser for the key=value blocks written by {@code -progress pipe:1}. A block
+ * ends with a {@code progress=continue} or {@code progress=end} line.
+ *
+ * <p>When no duration is supplied, the input duration from FFmpeg's own header
+ * ({@code Duration: 00:01:23.45}) is used instead.
+ */
+public class FFmpegProgressParser {
+
+    private static final Pattern KEY_VALUE = Pattern.compile("^([a-z_0-9]+)=\\s*(.*)$");
+    private static final Pattern HEADER_DURATION = Pattern.compile("Duration:\\s*(\\d+):(\\d{2}):(\\d{2}(?:\\.\\d+)?)");
+
+    private Double totalSeconds;
+    private double outTimeSeconds;
+    private Double fps;
+    private Double speed;
+    private Long totalSize;
+
+    public FFmpegProgressParser(Double totalSeconds) {
+        this.totalSeconds = totalSeconds != null && totalSeconds > 0 ? totalSeconds : null;
+    }
+
+    /**
+     * @return true if the line belonged to the progress protocol
+     */
+    public boolean isProgressLine(String line) {
+        return KEY_VALUE.matcher(line).matches();
+    }
+
+    /**
+     * Feeds one output line; returns a snapshot when the line completes a progress block.
+     */
+    public FFmpegProgress accept(String line) {
+        Matcher kv = KEY_VALUE.matcher(line);
+        if (!kv.matches()) {
+            if (totalSeconds == null) {
+                Matcher duration = HEADER_DURATION.matcher(line);
+                if (duration.find()) {
+                    totalSeconds = Integer.parseInt(duration.group(1)) * 3600
+                            + Integer.parseInt(duration.group(2)) * 60
+                            + Double.parseDouble(duration.group(3));
+                }
+            }
+            return null;
+        }
+
+        String key = kv.group(1);
+        String value = kv.group(2).trim();
+        switch (key) {
+            // out_time_ms is in microseconds as well, for historical reasons
+            case "out_time_us", "out_time_ms" -> {
+                Long micros = parseLong(value);
+                if (micros != null && micros >= 0) {
+                    outTimeSeconds = micros / 1_000_000.0;
+                }
+            }
+            case "fps" -> fps = parseDouble(value);
+            case "total_size" -> totalSize = parseLong(value);
+            case "speed" -> speed = parseDouble(value.endsWith("x") ? value.substring(0, value.length() - 1) : value);
+            case "progress" -> {
+                return FFmpegProgress.builder()
+                        .outTimeSeconds(outTimeSeconds)
+                        .totalSeconds(totalSeconds)
+                        .fps(fps)
+                        .speed(speed)
+                        .totalSize(totalSize)
+                        .finished("end".equals(value))
+                        .build();
+            }
+            default -> {
+            }
+        }
+        return null;
+    }
+
+    private static Long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.videoprocessing.ffmpeg;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Asks ffprobe for the keyframes in a window; only the packets of that window are read.
+ */
+@Component
+@RequiredArgsConstructor
+public class FFprobeKeyframeLocator implements KeyframeLocator {
+
+    private final FFmpegExecutor ffmpegExecutor;
+
+    @Override
+    public List<Double> keyframesBetween(String source, double from, double to) throws IOException, InterruptedException {
+        String output = ffmpegExecutor.capture(FFmpegCommands.keyframeProbeCommand(source, from, to));
+
+        List<Double> keyframes = new ArrayList<>();
+        for (String line : output.split("\\R")) {
+            String value = line.trim();
+            if (value.endsWith(",")) {
+                value = value.substring(0, value.length() - 1);
+            }
+            if (!value.isEmpty() && !"N/A".equals(value)) {
+                keyframes.add(Double.parseDouble(value));
+            }
+        }
+        keyframes.sort(null);
+        return keyframes;
+    }
+}
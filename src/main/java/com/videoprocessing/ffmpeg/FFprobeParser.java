@@ -0,0 +1,209 @@
+package com.videoprocessing.ffmpeg;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the output of {@code ffprobe -print_format json -show_format -show_streams} token by
+ * token, keeping only the fields {@link MediaInfo} needs; everything else is skipped unread.
+ */
+public final class FFprobeParser {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private FFprobeParser() {
+    }
+
+    public static MediaInfo parse(InputStream json) throws IOException {
+        try (JsonParser parser = JSON.createParser(json)) {
+            return parse(parser);
+        }
+    }
+
+    public static MediaInfo parse(String json) throws IOException {
+        try (JsonParser parser = JSON.createParser(json)) {
+            return parse(parser);
+        }
+    }
+
+    private static MediaInfo parse(JsonParser parser) throws IOException {
+        Stream video = null;
+        Stream audio = null;
+        Double formatDuration = null;
+        Long formatBitrate = null;
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("ffprobe output is not a JSON object");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("streams".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    Stream stream = readStream(parser);
+                    if ("video".equals(stream.codecType) && video == null) {
+                        video = stream;
+                    } else if ("audio".equals(stream.codecType) && audio == null) {
+                        audio = stream;
+                    }
+                }
+            } else if ("format".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    switch (name) {
+                        case "duration" -> formatDuration = toDouble(parser.getValueAsString());
+                        case "bit_rate" -> formatBitrate = toLong(parser.getValueAsString());
+                        default -> parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        MediaInfo.MediaInfoBuilder info = MediaInfo.builder()
+                .duration(formatDuration != null ? formatDuration : video != null ? video.duration : null)
+                .bitrate(formatBitrate);
+        if (video != null) {
+            int rotation = video.rotation();
+            boolean sideways = rotation == 90 || rotation == 270;
+            info.width(sideways ? video.height : video.width)
+                    .height(sideways ? video.width : video.height)
+                    .videoCodec(video.codecName)
+                    .pixelFormat(video.pixelFormat)
+                    .frameRate(video.avgFrameRate != null ? video.avgFrameRate : video.realFrameRate)
+                    .rotation(rotation);
+        }
+        if (audio != null) {
+            info.audioCodec(audio.codecName)
+                    .audioChannels(audio.channels)
+                    .audioSampleRate(audio.sampleRate);
+        }
+        return info.build();
+    }
+
+    private static Stream readStream(JsonParser parser) throws IOException {
+        Stream stream = new Stream();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (name) {
+                case "codec_type" -> stream.codecType = parser.getValueAsString();
+                case "codec_name" -> stream.codecName = parser.getValueAsString();
+                case "width" -> stream.width = parser.getValueAsInt();
+                case "height" -> stream.height = parser.getValueAsInt();
+                case "pix_fmt" -> stream.pixelFormat = parser.getValueAsString();
+                case "avg_frame_rate" -> stream.avgFrameRate = toRate(parser.getValueAsString());
+                case "r_frame_rate" -> stream.realFrameRate = toRate(parser.getValueAsString());
+                case "channels" -> stream.channels = parser.getValueAsInt();
+                case "sample_rate" -> stream.sampleRate = toInteger(parser.getValueAsString());
+                case "duration" -> stream.duration = toDouble(parser.getValueAsString());
+                case "tags" -> readTags(parser, stream, value);
+                case "side_data_list" -> readSideData(parser, stream, value);
+                default -> parser.skipChildren();
+            }
+        }
+        return stream;
+    }
+
+    // Older muxers store rotation as a "rotate" tag (clockwise degrees)
+    private static void readTags(JsonParser parser, Stream stream, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if ("rotate".equals(name)) {
+                stream.rotateTag = toInteger(parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    // Newer ffprobe reports the display matrix rotation (counter-clockwise degrees)
+    private static void readSideData(JsonParser parser, Stream stream, JsonToken value) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if ("rotation".equals(name)) {
+                    stream.displayMatrixRotation = toInteger(parser.getValueAsString());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    // "30000/1001" -> 29.97; "0/0" (unknown) -> null
+    static Double toRate(String rate) {
+        if (rate == null) {
+            return null;
+        }
+        int slash = rate.indexOf('/');
+        try {
+            if (slash < 0) {
+                return Double.parseDouble(rate);
+            }
+            double numerator = Double.parseDouble(rate.substring(0, slash));
+            double denominator = Double.parseDouble(rate.substring(slash + 1));
+            return numerator > 0 && denominator > 0 ? numerator / denominator : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double toDouble(String value) {
+        try {
+            return value != null ? Double.parseDouble(value) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long toLong(String value) {
+        try {
+            return value != null ? Long.parseLong(value) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer toInteger(String value) {
+        Double number = toDouble(value);
+        return number != null ? (int) Math.round(number) : null;
+    }
+
+    private static class Stream {
+        String codecType;
+        String codecName;
+        Integer width;
+        Integer height;
+        String pixelFormat;
+        Double avgFrameRate;
+        Double realFrameRate;
+        Integer channels;
+        Integer sampleRate;
+        Double duration;
+        Integer rotateTag;
+        Integer displayMatrixRotation;
+
+        int rotation() {
+            int degrees = rotateTag != null ? rotateTag
+                    : displayMatrixRotation != null ? -displayMatrixRotation : 0;
+            return Math.floorMod(degrees, 360);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.videoprocessing.ffmpeg;
+
+import com.videoprocessing.enums.VideoQuality;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a chain of video operations into one FFmpeg invocation, so that the source is
+ * decoded once and encoded once no matter how many steps are applied. Each step extends the
+ * filtergraph from the output of the previous one.
+ */
+public class FilterPipeline {
+
+    private final List<String> inputArgs = new ArrayList<>();
+    private final List<String> chains = new ArrayList<>();
+    private int inputs = 1;
+    private int steps = 0;
+    private String current = "[0:v]";
+
+    /**
+     * @param start where to start reading the source, or null for the beginning
+     * @param end   where to stop reading the source, or null for the end
+     */
+    public FilterPipeline(String source, Double start, Double end) {
+        // Input options, so the trim applies to video and audio alike and overlay times
+        // are relative to the trimmed clip
+        if (start != null) {
+            inputArgs.addAll(List.of("-ss", FFmpegCommands.seconds(start)));
+        }
+        if (end != null) {
+            inputArgs.addAll(List.of("-t", FFmpegCommands.seconds(end - (start != null ? start : 0))));
+        }
+        inputArgs.addAll(List.of("-i", source));
+    }
+
+    /**
+     * Applies a single-input filter such as drawtext to the video.
+     */
+    public FilterPipeline filter(String filter) {
+        String next = nextLabel();
+        chains.add(current + filter + next);
+        current = next;
+        return this;
+    }
+
+    /**
+     * Overlays the first video stream of {@code input}, first run through {@code inputFilter},
+     * on the video with the given overlay filter options.
+     */
+    public FilterPipeline overlay(String input, String inputFilter, String overlayOptions) {
+        int index = inputs++;
+        inputArgs.addAll(List.of("-i", input));
+
+        String prepared = "[in" + index + "]";
+        String next = nextLabel();
+        chains.add("[" + index + ":v]" + inputFilter + prepared);
+        chains.add(current + prepared + "overlay=" + overlayOptions + next);
+        current = next;
+        return this;
+    }
+
+    public String[] command(String outputPath) {
+        return FFmpegCommands.filteredCommand(inputArgs, String.join(";", chains), current, outputPath);
+    }
+
+    public String[] ladderCommand(Map<VideoQuality, String> outputs) {
+        return FFmpegCommands.filteredLadderCommand(inputArgs, String.join(";", chains), current, outputs);
+    }
+
+    private String nextLabel() {
+        return "[p" + steps++ + "]";
+    }
+}
@@ -0,0 +1,159 @@
+package com.videoprocessing.ffmpeg;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers keyframe lookups from the {@link KeyframeIndex} sidecar written at ingest, next
+ * to the source as {@code <source>.kfi}. Sources without an up-to-date sidecar fall back
+ * to asking ffprobe about the window.
+ *
+ * <p>Opened indexes are kept, most recently used first, and reused while their sidecar is
+ * unchanged, so a lookup costs two file stats rather than mapping the file again. A rebuilt
+ * sidecar has a new modification time and is opened afresh.
+ */
+@Component
+@Primary
+@RequiredArgsConstructor
+@Slf4j
+public class IndexedKeyframeLocator implements KeyframeLocator {
+
+    public static final String SIDECAR_SUFFIX = ".kfi";
+    // Indexes are a few KB each; the mappings of dropped ones are released when they are collected
+    private static final int MAX_OPEN_INDEXES = 256;
+
+    private final FFmpegExecutor ffmpegExecutor;
+    private final FFprobeKeyframeLocator fallback;
+
+    private final Map<Path, OpenIndex> openIndexes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, OpenIndex> eldest) {
+            return size() > MAX_OPEN_INDEXES;
+        }
+    };
+
+    @Value
+    private static class OpenIndex {
+        FileTime modified;
+        KeyframeIndex index;
+    }
+
+    /**
+     * Probes every keyframe of {@code source} and writes its sidecar.
+     */
+    public Path buildIndex(String source) throws IOException, InterruptedException {
+        String output = ffmpegExecutor.capture(FFmpegCommands.keyframeIndexCommand(source));
+
+        String[] lines = output.split("\\R");
+        long[] pts = new long[lines.length];
+        long[] positions = new long[lines.length];
+        int count = 0;
+        for (String line : lines) {
+            String[] fields = line.trim().split(",");
+            if (fields.length == 0 || fields[0].isEmpty() || "N/A".equals(fields[0])) {
+                continue;
+            }
+            pts[count] = KeyframeIndex.toMicros(Double.parseDouble(fields[0]));
+            positions[count] = fields.length > 1 && !fields[1].isEmpty() && !"N/A".equals(fields[1])
+                    ? Long.parseLong(fields[1]) : -1;
+            count++;
+        }
+        pts = Arrays.copyOf(pts, count);
+        positions = Arrays.copyOf(positions, count);
+        sortByPts(pts, positions);
+
+        Path sidecar = sidecarFor(source);
+        KeyframeIndex.write(sidecar, pts, positions);
+        log.info("Indexed {} keyframes of {}", count, source);
+        return sidecar;
+    }
+
+    /**
+     * The index of {@code source}, or null if it has none or the source changed since.
+     */
+    public KeyframeIndex indexFor(String source) {
+        Path sidecar = sidecarFor(source);
+        try {
+            if (!Files.exists(sidecar)) {
+                return null;
+            }
+            FileTime modified = Files.getLastModifiedTime(sidecar);
+            if (modified.compareTo(Files.getLastModifiedTime(Paths.get(source))) < 0) {
+                return null;
+            }
+            synchronized (openIndexes) {
+                OpenIndex open = openIndexes.get(sidecar);
+                if (open != null && open.getModified().equals(modified)) {
+                    return open.getIndex();
+                }
+            }
+            KeyframeIndex index = KeyframeIndex.open(sidecar);
+            synchronized (openIndexes) {
+                openIndexes.put(sidecar, new OpenIndex(modified, index));
+            }
+            return index;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Ignoring unreadable keyframe index {}: {}", sidecar, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public List<Double> keyframesBetween(String source, double from, double to) throws IOException, InterruptedException {
+        KeyframeIndex index = indexFor(source);
+        return index != null ? index.timesBetween(from, to) : fallback.keyframesBetween(source, from, to);
+    }
+
+    @Override
+    public Double keyframeAtOrBefore(String source, double time) throws IOException, InterruptedException {
+        KeyframeIndex index = indexFor(source);
+        if (index == null) {
+            return fallback.keyframeAtOrBefore(source, time);
+        }
+        KeyframeIndex.Keyframe keyframe = index.atOrBefore(time);
+        return keyframe != null ? keyframe.getTime() : null;
+    }
+
+    @Override
+    public Double keyframeAtOrAfter(String source, double time) throws IOException, InterruptedException {
+        KeyframeIndex index = indexFor(source);
+        if (index == null) {
+            return fallback.keyframeAtOrAfter(source, time);
+        }
+        KeyframeIndex.Keyframe keyframe = index.atOrAfter(time);
+        return keyframe != null ? keyframe.getTime() : null;
+    }
+
+    static Path sidecarFor(String source) {
+        return Paths.get(source + SIDECAR_SUFFIX);
+    }
+
+    // Keyframes come out in presentation order, so this insertion sort is a single pass in practice
+    private static void sortByPts(long[] pts, long[] positions) {
+        for (int i = 1; i < pts.length; i++) {
+            long p = pts[i];
+            long position = positions[i];
+            int j = i - 1;
+            while (j >= 0 && pts[j] > p) {
+                pts[j + 1] = pts[j];
+                positions[j + 1] = positions[j];
+                j--;
+            }
+            pts[j + 1] = p;
+            positions[j + 1] = position;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.videoprocessing.ffmpeg;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyframe timestamps and byte offsets of a video, stored in a compact binary sidecar and
+ * read through a memory mapping, so a lookup touches a few pages of the file rather than
+ * loading it onto the heap.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * header  int magic, int count, int blockSize, int blockCount
+ * blocks  blockCount x (long firstPts, long firstPosition, int dataOffset)
+ * data    per block, the remaining entries as varint PTS deltas and zigzag varint position deltas
+ * </pre>
+ * PTS are in microseconds and positions in bytes (-1 when unknown). The block table is
+ * binary searched, then at most one block of deltas is decoded, so lookups are O(log n).
+ */
+public final class KeyframeIndex {
+
+    private static final int MAGIC = 0x4B464931; // "KFI1"
+    private static final int HEADER_BYTES = 16;
+    private static final int BLOCK_ENTRY_BYTES = 20;
+    static final int BLOCK_SIZE = 64;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int blockSize;
+    private final int blockCount;
+
+    private KeyframeIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a keyframe index");
+        }
+        this.count = buffer.getInt(4);
+        this.blockSize = buffer.getInt(8);
+        this.blockCount = buffer.getInt(12);
+    }
+
+    @Value
+    public static class Keyframe {
+        double time;
+        long position;
+    }
+
+    public static KeyframeIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new KeyframeIndex(mapped);
+        }
+    }
+
+    /**
+     * Writes an index of the given keyframes, sorted by PTS. The file is written next to
+     * {@code path} and moved into place, so readers never map a half-written index.
+     */
+    public static void write(Path path, long[] ptsMicros, long[] positions) throws IOException {
+        int count = ptsMicros.length;
+        int blockCount = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int dataStart = HEADER_BYTES + blockCount * BLOCK_ENTRY_BYTES;
+
+        // Worst case of two 10-byte varints per entry
+        ByteBuffer out = ByteBuffer.allocate(dataStart + count * 20).order(ByteOrder.BIG_ENDIAN);
+        out.putInt(MAGIC).putInt(count).putInt(BLOCK_SIZE).putInt(blockCount);
+
+        int dataOffset = dataStart;
+        for (int block = 0; block < blockCount; block++) {
+            int first = block * BLOCK_SIZE;
+            int last = Math.min(first + BLOCK_SIZE, count);
+            out.putLong(HEADER_BYTES + block * BLOCK_ENTRY_BYTES, ptsMicros[first]);
+            out.putLong(HEADER_BYTES + block * BLOCK_ENTRY_BYTES + 8, positions[first]);
+            out.putInt(HEADER_BYTES + block * BLOCK_ENTRY_BYTES + 16, dataOffset);
+
+            out.position(dataOffset);
+            for (int i = first + 1; i < last; i++) {
+                long ptsDelta = ptsMicros[i] - ptsMicros[i - 1];
+                if (ptsDelta < 0) {
+                    throw new IllegalArgumentException("Keyframes must be sorted by PTS");
+                }
+                putVarint(out, ptsDelta);
+                putVarint(out, zigzag(positions[i] - positions[i - 1]));
+            }
+            dataOffset = out.position();
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer written = out.flip().limit(dataOffset);
+            while (written.hasRemaining()) {
+                channel.write(written);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * The last keyframe at or before {@code time} seconds, or null if there is none.
+     */
+    public Keyframe atOrBefore(double time) {
+        long pts = toMicros(time);
+        int block = lastBlockStartingAtOrBefore(pts);
+        if (block < 0) {
+            return null;
+        }
+        Cursor cursor = new Cursor(block);
+        Keyframe found = cursor.current();
+        while (cursor.next() && cursor.pts <= pts) {
+            found = cursor.current();
+        }
+        return found;
+    }
+
+    /**
+     * The first keyframe at or after {@code time} seconds, or null if there is none.
+     */
+    public Keyframe atOrAfter(double time) {
+        if (count == 0) {
+            return null;
+        }
+        long pts = toMicros(time);
+        Cursor cursor = new Cursor(Math.max(lastBlockStartingAtOrBefore(pts), 0));
+        do {
+            if (cursor.pts >= pts) {
+                return cursor.current();
+            }
+        } while (cursor.next());
+        return null;
+    }
+
+    /**
+     * Keyframe times in {@code [from, to]} seconds, preceded by the keyframe at or before
+     * {@code from} when there is one.
+     */
+    public List<Double> timesBetween(double from, double to) {
+        List<Double> times = new ArrayList<>();
+        if (count == 0) {
+            return times;
+        }
+        long fromPts = toMicros(from);
+        long toPts = toMicros(to);
+        Cursor cursor = new Cursor(Math.max(lastBlockStartingAtOrBefore(fromPts), 0));
+        long previous = -1;
+        boolean hasPrevious = false;
+        do {
+            if (cursor.pts > toPts) {
+                break;
+            }
+            if (cursor.pts < fromPts) {
+                previous = cursor.pts;
+                hasPrevious = true;
+                continue;
+            }
+            if (hasPrevious) {
+                times.add(previous / 1e6);
+                hasPrevious = false;
+            }
+            times.add(cursor.pts / 1e6);
+        } while (cursor.next());
+        if (hasPrevious) {
+            times.add(previous / 1e6);
+        }
+        return times;
+    }
+
+    private int lastBlockStartingAtOrBefore(long pts) {
+        int low = 0;
+        int high = blockCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blockPts(mid) <= pts) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private long blockPts(int block) {
+        return buffer.getLong(HEADER_BYTES + block * BLOCK_ENTRY_BYTES);
+    }
+
+    /**
+     * Walks the entries from the start of a block onwards. Reads use absolute offsets only,
+     * so one index can be shared between threads.
+     */
+    private final class Cursor {
+        private int block;
+        private int entry;
+        private int offset;
+        private long pts;
+        private long position;
+
+        Cursor(int block) {
+            startBlock(block);
+        }
+
+        private void startBlock(int block) {
+            int table = HEADER_BYTES + block * BLOCK_ENTRY_BYTES;
+            this.block = block;
+            this.entry = block * blockSize;
+            this.pts = buffer.getLong(table);
+            this.position = buffer.getLong(table + 8);
+            this.offset = buffer.getInt(table + 16);
+        }
+
+        boolean next() {
+            if (entry + 1 >= count) {
+                return false;
+            }
+            if ((entry + 1) % blockSize == 0) {
+                startBlock(block + 1);
+                return true;
+            }
+            pts += readVarint();
+            position += unzigzag(readVarint());
+            entry++;
+            return true;
+        }
+
+        Keyframe current() {
+            return new Keyframe(pts / 1e6, position);
+        }
+
+        private long readVarint() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(offset++);
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    private static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long toMicros(double seconds) {
+        return Math.round(seconds * 1_000_000);
+    }
+}
@@ -0,0 +1,44 @@
+package com.videoprocessing.ffmpeg;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Finds keyframe (random access point) timestamps in a source file.
+ */
+public interface KeyframeLocator {
+
+    /**
+     * Keyframe timestamps in seconds, ascending, covering at least {@code [from, to]}. The
+     * result may also include the keyframe at or before {@code from}.
+     */
+    List<Double> keyframesBetween(String source, double from, double to) throws IOException, InterruptedException;
+
+    /**
+     * The last keyframe at or before {@code time}, or null if there is none.
+     */
+    default Double keyframeAtOrBefore(String source, double time) throws IOException, InterruptedException {
+        Double found = null;
+        for (Double keyframe : keyframesBetween(source, time, time)) {
+            if (keyframe <= time) {
+                found = keyframe;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The first keyframe at or after {@code time}, or null if there is none before the end.
+     */
+    default Double keyframeAtOrAfter(String source, double time) throws IOException, InterruptedException {
+        // Widen the window until a keyframe turns up; GOPs are rarely longer than a few seconds
+        for (double lookahead : new double[]{10, 60, 600, 36000}) {
+            for (Double keyframe : keyframesBetween(source, time, time + lookahead)) {
+                if (keyframe >= time) {
+                    return keyframe;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.videoprocessing.ffmpeg;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * What ffprobe reports about a file: its first video and first audio stream. Width and
+ * height are as displayed, i.e. already swapped for sources rotated by 90 or 270 degrees,
+ * which is also what FFmpeg filters see since it applies the rotation when decoding.
+ */
+@Value
+@Builder
+public class MediaInfo {
+    Double duration;
+    Integer width;
+    Integer height;
+    String videoCodec;
+    String pixelFormat;
+    Double frameRate;
+    // Overall bitrate of the container, bits per second
+    Long bitrate;
+    // Clockwise, 0, 90, 180 or 270
+    Integer rotation;
+
+    String audioCodec;
+    Integer audioChannels;
+    Integer audioSampleRate;
+
+    public boolean hasAudio() {
+        return audioCodec != null;
+    }
+}
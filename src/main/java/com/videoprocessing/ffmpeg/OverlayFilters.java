@@ -0,0 +1,78 @@
+package com.videoprocessing.ffmpeg;
+
+import java.util.Locale;
+
+/**
+ * Filter expressions for text and image overlays. Times are relative to the stream the
+ * filter is applied to.
+ */
+public final class OverlayFilters {
+
+    // Stands in for "until the end" in enable expressions
+    private static final double OPEN_END = 999999.0;
+
+    public static final String IMAGE_SCALE = "scale=200:200";
+
+    private OverlayFilters() {
+    }
+
+    public static String drawText(String text, int x, int y, int fontSize, String fontColor,
+                                  String fontPath, Double enableFrom, Double enableTo) {
+        StringBuilder filterBuilder = new StringBuilder("drawtext=");
+
+        // Escape text for FFmpeg - handle Unicode properly
+        String escapedText = text
+                .replace("\\", "\\\\")    // Escape backslashes
+                .replace(":", "\\:")      // Escape colons
+                .replace("'", "\\'");     // Escape single quotes
+
+        filterBuilder.append("text='").append(escapedText).append("'");
+        filterBuilder.append(":x=").append(x);
+        filterBuilder.append(":y=").append(y);
+        filterBuilder.append(":fontsize=").append(fontSize);
+        filterBuilder.append(":fontcolor=").append(fontColor);
+
+        // Add font file if available - fix Windows path escaping
+        if (fontPath != null && !fontPath.isEmpty()) {
+            // Escape Windows backslashes and colons in path
+            String escapedFontPath = fontPath
+                    .replace("\\", "\\\\")
+                    .replace(":", "\\:");
+            filterBuilder.append(":fontfile='").append(escapedFontPath).append("'");
+        }
+
+        filterBuilder.append(enable(enableFrom, enableTo));
+        return filterBuilder.toString();
+    }
+
+    /**
+     * Overlays input 1, scaled to 200x200, on input 0.
+     */
+    public static String imageOverlay(int x, int y, Double enableFrom, Double enableTo) {
+        return "[1:v]" + IMAGE_SCALE + "[overlay];[0:v][overlay]overlay=" + overlayOptions(x, y, enableFrom, enableTo);
+    }
+
+    public static String overlayOptions(int x, int y, Double enableFrom, Double enableTo) {
+        return x + ":" + y + enable(enableFrom, enableTo);
+    }
+
+    /**
+     * Prepares a watermark image for blending at the given opacity.
+     */
+    public static String watermarkAlpha(double opacity) {
+        return String.format(Locale.ROOT, "format=rgba,colorchannelmixer=aa=%f", opacity);
+    }
+
+    /**
+     * {@code :enable='between(t,from,to)'}, or nothing when the overlay is always visible.
+     */
+    public static String enable(Double from, Double to) {
+        double start = from != null ? Math.max(0, from) : 0;
+        if (start <= 0 && to == null) {
+            return "";
+        }
+        double end = to != null ? to : OPEN_END;
+        return ":enable='between(t\\," + String.format(Locale.ROOT, "%.2f", start)
+                + "\\," + String.format(Locale.ROOT, "%.2f", end) + ")'";
+    }
+}
@@ -0,0 +1,17 @@
+package com.videoprocessing.ffmpeg;
+
+import lombok.Value;
+
+/**
+ * Resources a child process had used when it was last sampled. CPU times and I/O only grow,
+ * and the resident set size is the peak so far, so the latest sample stands for the run.
+ */
+@Value
+public class ProcessSample {
+    long cpuUserMillis;
+    long cpuSystemMillis;
+    long peakRssBytes;
+    // Bytes the process read and wrote, page cache hits included
+    long readBytes;
+    long writeBytes;
+}
@@ -0,0 +1,58 @@
+package com.videoprocessing.ffmpeg;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Reads what a process has used so far from {@code /proc/<pid>}: CPU times from {@code stat},
+ * peak RSS from {@code status} and I/O from {@code io}. Where {@code /proc} is not available
+ * only the total CPU time {@link ProcessHandle} reports is known, counted as user time.
+ */
+final class ProcessSampler {
+
+    // USER_HZ, which the kernel fixes at 100 on every architecture it exports stat times for
+    private static final long MILLIS_PER_TICK = 10;
+
+    private ProcessSampler() {
+    }
+
+    /**
+     * The process's usage so far, or null once it has gone.
+     */
+    static ProcessSample sample(ProcessHandle process) {
+        Path proc = Path.of("/proc", String.valueOf(process.pid()));
+        try {
+            String stat = Files.readString(proc.resolve("stat"), StandardCharsets.US_ASCII);
+            // The command name in parentheses may contain spaces; the fields after it are fixed
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            long user = Long.parseLong(fields[11]) * MILLIS_PER_TICK;
+            long system = Long.parseLong(fields[12]) * MILLIS_PER_TICK;
+            return new ProcessSample(user, system,
+                    field(proc.resolve("status"), "VmHWM:") * 1024,
+                    field(proc.resolve("io"), "rchar:"),
+                    field(proc.resolve("io"), "wchar:"));
+        } catch (IOException | RuntimeException e) {
+            return process.info().totalCpuDuration()
+                    .map(Duration::toMillis)
+                    .map(cpu -> new ProcessSample(cpu, 0, 0, 0, 0))
+                    .orElse(null);
+        }
+    }
+
+    // A "name: value [unit]" line; 0 if the file or line is missing, e.g. io of another user's process
+    private static long field(Path file, String name) {
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+                if (line.startsWith(name)) {
+                    return Long.parseLong(line.substring(name.length()).trim().split("\\s+")[0]);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Unreadable counts as unknown
+        }
+        return 0;
+    }
+}
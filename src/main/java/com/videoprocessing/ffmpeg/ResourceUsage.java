@@ -0,0 +1,71 @@
+package com.videoprocessing.ffmpeg;
+
+import lombok.Getter;
+
+/**
+ * What the FFmpeg runs made on behalf of one job used, summed over all of them. The job's
+ * thread binds it with {@link #bind}; {@link FFmpegExecutor} charges every run on that thread,
+ * and on chunk executor threads the job's tasks run on, to it.
+ */
+@Getter
+public class ResourceUsage {
+
+    private static final ThreadLocal<ResourceUsage> CURRENT = new ThreadLocal<>();
+
+    private long runs;
+    private long cpuUserMillis;
+    private long cpuSystemMillis;
+    // Largest of any one run; runs side by side, such as chunk encodes, are not added up
+    private long peakRssBytes;
+    private long readBytes;
+    private long writeBytes;
+    // Summed over runs, so parallel runs count more than the time the job took
+    private long wallMillis;
+
+    /**
+     * The usage runs on this thread are charged to, or null.
+     */
+    public static ResourceUsage current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(ResourceUsage usage) {
+        CURRENT.set(usage);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Wraps {@code task} so it charges the usage current where it was wrapped. Used as the
+     * chunk executor's task decorator.
+     */
+    public static Runnable propagating(Runnable task) {
+        ResourceUsage usage = current();
+        if (usage == null) {
+            return task;
+        }
+        return () -> {
+            ResourceUsage previous = current();
+            bind(usage);
+            try {
+                task.run();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    synchronized void charge(ProcessSample sample, long wallMillis) {
+        runs++;
+        this.wallMillis += wallMillis;
+        if (sample != null) {
+            cpuUserMillis += sample.getCpuUserMillis();
+            cpuSystemMillis += sample.getCpuSystemMillis();
+            peakRssBytes = Math.max(peakRssBytes, sample.getPeakRssBytes());
+            readBytes += sample.getReadBytes();
+            writeBytes += sample.getWriteBytes();
+        }
+    }
+}
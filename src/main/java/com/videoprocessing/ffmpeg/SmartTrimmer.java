@@ -0,0 +1,113 @@
+package com.videoprocessing.ffmpeg;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Frame-accurate trim at close to stream-copy speed ("smart render"). Only the partial GOP
+ * between the requested start and the next keyframe, and between the last keyframe and the
+ * requested end, are re-encoded; everything in between is stream-copied. The pieces are then
+ * joined with the concat demuxer and the audio, re-encoded exactly to the cut, is muxed in.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SmartTrimmer {
+
+    // Boundaries closer than this to a keyframe need no re-encoded piece
+    private static final double EPSILON = 0.001;
+
+    private final FFmpegExecutor ffmpegExecutor;
+    private final KeyframeLocator keyframeLocator;
+    private final VideoProber videoProber;
+
+    public void trim(String source, double start, double end, Path output, Path workDir,
+                     Consumer<FFmpegProgress> listener) throws IOException, InterruptedException {
+        double total = end - start;
+
+        MediaInfo info = videoProber.probe(source);
+        String codec = info.getVideoCodec();
+        String pixelFormat = info.getPixelFormat();
+
+        List<Double> keyframes = keyframeLocator.keyframesBetween(source, start, end);
+        Double first = keyframes.stream().filter(t -> t >= start - EPSILON && t <= end).findFirst().orElse(null);
+        Double last = keyframes.stream().filter(t -> t >= start - EPSILON && t <= end).reduce((a, b) -> b).orElse(null);
+
+        // Copied middle and re-encoded edges only join cleanly when they share a codec
+        if (first == null || !"h264".equals(codec)) {
+            log.info("Smart trim not possible for {} (codec={}, keyframes in range={}), re-encoding",
+                    source, codec, first != null);
+            ffmpegExecutor.execute(FFmpegCommands.accurateTrimCommand(source, start, end, output.toString()),
+                    total, listener);
+            return;
+        }
+
+        Files.createDirectories(workDir);
+        try {
+            List<Path> pieces = new ArrayList<>();
+            double done = 0;
+
+            if (first - start > EPSILON) {
+                Path head = workDir.resolve("head.ts");
+                encodePiece(source, start, first, pixelFormat, head, done, total, listener);
+                pieces.add(head);
+                done += first - start;
+            }
+            if (last - first > EPSILON) {
+                Path middle = workDir.resolve("middle.ts");
+                ffmpegExecutor.execute(FFmpegCommands.copyVideoPieceCommand(source, first, last, middle.toString()));
+                pieces.add(middle);
+                done += last - first;
+                listener.accept(progress(done, total, false));
+            }
+            if (end - last > EPSILON) {
+                Path tail = workDir.resolve("tail.ts");
+                encodePiece(source, last, end, pixelFormat, tail, done, total, listener);
+                pieces.add(tail);
+            }
+
+            Path audio = null;
+            if (info.hasAudio()) {
+                audio = workDir.resolve("audio.m4a");
+                ffmpegExecutor.execute(FFmpegCommands.trimAudioCommand(source, start, end, audio.toString()));
+            }
+
+            Path list = workDir.resolve("pieces.txt");
+            Files.write(list, pieces.stream().map(piece -> FFmpegCommands.concatEntry(piece.toString())).toList(),
+                    StandardCharsets.UTF_8);
+            ffmpegExecutor.execute(FFmpegCommands.concatCommand(
+                    list.toString(), audio != null ? audio.toString() : null, output.toString()));
+
+            log.info("Smart trim of {} [{}, {}): copied [{}, {}), re-encoded {}s",
+                    source, start, end, first, last, (first - start) + (end - last));
+            listener.accept(progress(total, total, true));
+        } finally {
+            WorkDirs.deleteRecursively(workDir);
+        }
+    }
+
+    private void encodePiece(String source, double from, double to, String pixelFormat, Path piece,
+                             double offset, double total, Consumer<FFmpegProgress> listener)
+            throws IOException, InterruptedException {
+        ffmpegExecutor.execute(FFmpegCommands.encodeVideoPieceCommand(source, from, to, pixelFormat, piece.toString()),
+                to - from,
+                progress -> listener.accept(progress(offset + progress.getOutTimeSeconds(), total, false)));
+    }
+
+    private static FFmpegProgress progress(double done, double total, boolean finished) {
+        return FFmpegProgress.builder()
+                .outTimeSeconds(done)
+                .totalSeconds(total)
+                .finished(finished)
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package com.videoprocessing.ffmpeg;
+
+import com.videoprocessing.config.AppProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs ffprobe on a file at most once per version of it. Results are kept in an LRU cache
+ * keyed by the file's content hash (or its path when the hash is unknown) together with
+ * its size and modification time, so a changed file is probed again.
+ */
+@Component
+@Slf4j
+public class VideoProber {
+
+    private final FFmpegExecutor ffmpegExecutor;
+    private final Map<String, MediaInfo> cache;
+
+    public VideoProber(FFmpegExecutor ffmpegExecutor, AppProperties appProperties) {
+        this.ffmpegExecutor = ffmpegExecutor;
+        int capacity = appProperties.getProbeCacheSize();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MediaInfo> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public MediaInfo probe(String source) throws IOException, InterruptedException {
+        return probe(source, null);
+    }
+
+    public MediaInfo probe(String source, String contentHash) throws IOException, InterruptedException {
+        Path path = Paths.get(source);
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        String key = (contentHash != null ? contentHash : path.toAbsolutePath().normalize().toString())
+                + ":" + attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+
+        synchronized (cache) {
+            MediaInfo cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        MediaInfo info = FFprobeParser.parse(ffmpegExecutor.capture(FFmpegCommands.probeCommand(source)));
+        log.debug("Probed {}: {}", source, info);
+        synchronized (cache) {
+            cache.put(key, info);
+        }
+        return info;
+    }
+}
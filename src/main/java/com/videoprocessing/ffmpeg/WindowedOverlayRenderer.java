@@ -0,0 +1,84 @@
+package com.videoprocessing.ffmpeg;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleFunction;
+
+/**
+ * Applies a time-bounded overlay by re-encoding only the span that shows it. The window is
+ * widened outwards to keyframes; the video before and after it is stream-copied, and the
+ * source audio is copied untouched.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WindowedOverlayRenderer {
+
+    private final FFmpegExecutor ffmpegExecutor;
+    private final KeyframeLocator keyframeLocator;
+    private final VideoProber videoProber;
+
+    /**
+     * Renders the overlay visible during {@code [from, to)} ({@code to} null means until the
+     * end). {@code graphForOffset} receives the start of the re-encoded span and must return a
+     * filter_complex graph, with times relative to that start, whose output is labelled
+     * {@code [out]}.
+     *
+     * @return false if the source cannot be spliced (not H.264); nothing is written then
+     */
+    public boolean render(String source, double from, Double to, List<String> extraInputs,
+                          DoubleFunction<String> graphForOffset, Path output, Path workDir,
+                          Consumer<FFmpegProgress> listener) throws IOException, InterruptedException {
+        MediaInfo info = videoProber.probe(source);
+        if (!"h264".equals(info.getVideoCodec())) {
+            return false;
+        }
+        String pixelFormat = info.getPixelFormat();
+
+        Double spanStart = keyframeLocator.keyframeAtOrBefore(source, from);
+        double start = spanStart != null ? spanStart : 0;
+        Double end = to != null ? keyframeLocator.keyframeAtOrAfter(source, to) : null;
+
+        Files.createDirectories(workDir);
+        try {
+            List<Path> pieces = new ArrayList<>();
+
+            if (start > 0) {
+                Path before = workDir.resolve("before.ts");
+                ffmpegExecutor.execute(FFmpegCommands.copyVideoPieceCommand(source, 0, start, before.toString()));
+                pieces.add(before);
+            }
+
+            Path window = workDir.resolve("window.ts");
+            ffmpegExecutor.execute(FFmpegCommands.filteredVideoPieceCommand(source, start, end, extraInputs,
+                    graphForOffset.apply(start), pixelFormat, window.toString()),
+                    end != null ? end - start : null, listener);
+            pieces.add(window);
+
+            if (end != null) {
+                Path after = workDir.resolve("after.ts");
+                ffmpegExecutor.execute(FFmpegCommands.copyVideoPieceCommand(source, end, null, after.toString()));
+                pieces.add(after);
+            }
+
+            Path list = workDir.resolve("pieces.txt");
+            Files.write(list, pieces.stream().map(piece -> FFmpegCommands.concatEntry(piece.toString())).toList(),
+                    StandardCharsets.UTF_8);
+            ffmpegExecutor.execute(FFmpegCommands.concatCommand(list.toString(), source, output.toString()));
+
+            log.info("Overlay window [{}, {}) of {} re-encoded as [{}, {})", from, to, source, start, end);
+            return true;
+        } finally {
+            WorkDirs.deleteRecursively(workDir);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.videoprocessing.queue;
+
+import com.videoprocessing.enums.JobType;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Detached view of a job this worker has claimed; carries everything needed to run it.
+ */
+@Value
+@AllArgsConstructor
+public class ClaimedJob {
+    String jobId;
+    JobType jobType;
+    String payload;
+}
@@ -0,0 +1,16 @@
+package com.videoprocessing.queue;
+
+import com.videoprocessing.enums.JobType;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Published when a job row is committed to the queue so workers can claim it
+ * without waiting for the next poll.
+ */
+@Value
+@AllArgsConstructor
+public class JobEnqueuedEvent {
+    String jobId;
+    JobType jobType;
+}
@@ -0,0 +1,240 @@
+package com.videoprocessing.queue;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.entity.ProcessingJob;
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.repository.ProcessingJobRepository;
+import com.videoprocessing.service.JobMetrics;
+import com.videoprocessing.service.JobMetrics.FailureCause;
+import com.videoprocessing.service.JobMetrics.Phase;
+import com.videoprocessing.service.SystemStatsService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Durable job queue backed by the processing_jobs table.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JobQueueService {
+
+    private final ProcessingJobRepository jobRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final AppProperties appProperties;
+    private final SystemStatsService statsService;
+    private final JobMetrics metrics;
+
+    private String workerId;
+
+    @PostConstruct
+    void initWorkerId() {
+        workerId = appProperties.getWorkerId() != null
+                ? appProperties.getWorkerId()
+                : ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Identity of this node as recorded on claimed jobs and used as its stream consumer name.
+     */
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    @Transactional
+    public ProcessingJob enqueue(ProcessingJob job, Object request) {
+        return enqueuePayload(job, writePayload(request));
+    }
+
+    /**
+     * Queues a job whose request is already serialized, such as an earlier job's replayed to
+     * produce its output again.
+     */
+    @Transactional
+    public ProcessingJob enqueuePayload(ProcessingJob job, String payload) {
+        metrics.holdingConnection(Phase.ENQUEUE);
+        job.setPayload(payload);
+        job.setStatus(JobStatus.PENDING);
+        ProcessingJob saved = jobRepository.save(job);
+        statsService.jobCreated(saved.getJobType(), JobStatus.PENDING);
+
+        // Delivered after commit so a worker never claims a row it cannot see yet
+        eventPublisher.publishEvent(new JobEnqueuedEvent(saved.getJobId(), saved.getJobType()));
+        return saved;
+    }
+
+    /**
+     * Queues a job that produces the same output as {@code leaderJobId}. It is not claimed
+     * until the leader finishes; then it runs normally and finds the leader's output.
+     */
+    @Transactional
+    public ProcessingJob attach(ProcessingJob job, Object request, String leaderJobId) {
+        metrics.holdingConnection(Phase.ENQUEUE);
+        job.setPayload(writePayload(request));
+        job.setStatus(JobStatus.PENDING);
+        job.setAttachedTo(leaderJobId);
+        statsService.jobCreated(job.getJobType(), JobStatus.PENDING);
+        return jobRepository.save(job);
+    }
+
+    /**
+     * Makes the jobs waiting for {@code leaderJobId} claimable. Safe to call more than once.
+     */
+    @Transactional
+    public void releaseFollowers(String leaderJobId) {
+        release(jobRepository.findByAttachedToAndStatus(leaderJobId, JobStatus.PENDING));
+    }
+
+    private void release(List<ProcessingJob> followers) {
+        for (ProcessingJob follower : followers) {
+            follower.setAttachedTo(null);
+            eventPublisher.publishEvent(new JobEnqueuedEvent(follower.getJobId(), follower.getJobType()));
+        }
+        jobRepository.saveAll(followers);
+    }
+
+    @Transactional
+    public List<ClaimedJob> claim(String workerId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        metrics.holdingConnection(Phase.CLAIM);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ProcessingJob> jobs = jobRepository.lockPendingJobs(limit);
+        for (ProcessingJob job : jobs) {
+            job.setStatus(JobStatus.PROCESSING);
+            job.setWorkerId(workerId);
+            job.setStartedAt(now);
+            job.setHeartbeatAt(now);
+            job.setAttempts(job.getAttempts() == null ? 1 : job.getAttempts() + 1);
+            statsService.jobTransitioned(job.getJobType(), JobStatus.PENDING, JobStatus.PROCESSING);
+            metrics.claimed(job.getJobType(), job.getCreatedAt(), now);
+        }
+        jobRepository.saveAll(jobs);
+        if (!jobs.isEmpty()) {
+            eventPublisher.publishEvent(new JobStatusChangedEvent(jobs.stream().map(ProcessingJob::getJobId).toList()));
+        }
+
+        return jobs.stream()
+                .map(job -> new ClaimedJob(job.getJobId(), job.getJobType(), job.getPayload()))
+                .toList();
+    }
+
+    @Transactional
+    public Optional<ClaimedJob> claimById(String jobId, String workerId) {
+        metrics.holdingConnection(Phase.CLAIM);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleCutoff = now.minusSeconds(appProperties.getJobLeaseTimeoutSeconds());
+        // Read before the claim: the update may take over a stale PROCESSING job as well as a PENDING one
+        Optional<ProcessingJob> before = jobRepository.findByJobId(jobId);
+        if (before.isEmpty() || jobRepository.claimJob(jobId, workerId, now, staleCutoff) == 0) {
+            return Optional.empty();
+        }
+        ProcessingJob job = before.get();
+        statsService.jobTransitioned(job.getJobType(), job.getStatus(), JobStatus.PROCESSING);
+        metrics.claimed(job.getJobType(), job.getCreatedAt(), now);
+        eventPublisher.publishEvent(new JobStatusChangedEvent(List.of(jobId)));
+        return Optional.of(new ClaimedJob(job.getJobId(), job.getJobType(), job.getPayload()));
+    }
+
+    @Transactional
+    public void release(String jobId) {
+        metrics.holdingConnection(Phase.STATE);
+        jobRepository.findByJobId(jobId).ifPresent(job -> {
+            if (job.getStatus() == JobStatus.PROCESSING) {
+                job.setStatus(JobStatus.PENDING);
+                job.setWorkerId(null);
+                jobRepository.save(job);
+                statsService.jobTransitioned(job.getJobType(), JobStatus.PROCESSING, JobStatus.PENDING);
+                eventPublisher.publishEvent(new JobStatusChangedEvent(List.of(jobId)));
+            }
+        });
+    }
+
+    public void markPublished(String jobId) {
+        jobRepository.markPublished(jobId, LocalDateTime.now());
+    }
+
+    /**
+     * Pending jobs that should be on the Redis stream by now but were never put there.
+     */
+    public List<String> findUnpublished(int limit) {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(appProperties.getRedisPublishGraceSeconds());
+        return jobRepository.findUnpublishedJobIds(cutoff, Limit.of(limit));
+    }
+
+    @Transactional
+    public void heartbeat(Collection<String> jobIds) {
+        if (!jobIds.isEmpty()) {
+            metrics.holdingConnection(Phase.HEARTBEAT);
+            jobRepository.touchHeartbeats(jobIds, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Requeues jobs whose lease expired and fails those out of attempts.
+     *
+     * @return ids of the jobs put back to PENDING
+     */
+    @Transactional
+    public List<String> reapExpiredLeases() {
+        metrics.holdingConnection(Phase.REAP);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minusSeconds(appProperties.getJobLeaseTimeoutSeconds());
+        int maxAttempts = appProperties.getMaxJobAttempts();
+
+        List<ProcessingJob> exhausted = jobRepository.findExhaustedJobs(cutoff, maxAttempts);
+        int failed = exhausted.isEmpty() ? 0 : jobRepository.failExhaustedJobs(cutoff, maxAttempts, now);
+        List<ProcessingJob> stale = jobRepository.findStaleJobs(cutoff, maxAttempts);
+        int requeued = stale.isEmpty() ? 0 : jobRepository.requeueStaleJobs(cutoff, maxAttempts);
+        release(jobRepository.findOrphanedFollowers());
+
+        List<String> staleIds = stale.stream().map(ProcessingJob::getJobId).toList();
+        if (failed > 0 || requeued > 0) {
+            List<String> changed = new ArrayList<>(staleIds);
+            for (ProcessingJob job : exhausted) {
+                changed.add(job.getJobId());
+                statsService.jobTransitioned(job.getJobType(), JobStatus.PROCESSING, JobStatus.FAILED);
+                metrics.failed(job.getJobType(), FailureCause.LEASE_EXPIRED);
+                metrics.finished(job.getJobType(), false, job.getStartedAt(), now);
+            }
+            stale.forEach(job -> statsService.jobTransitioned(job.getJobType(), JobStatus.PROCESSING, JobStatus.PENDING));
+            eventPublisher.publishEvent(new JobStatusChangedEvent(changed));
+            log.warn("Expired job leases: {} requeued, {} failed", requeued, failed);
+        }
+        return staleIds;
+    }
+
+    public <T> T readPayload(ClaimedJob job, Class<T> type) {
+        try {
+            return objectMapper.readValue(job.getPayload(), type);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Invalid payload for job: " + job.getJobId(), e);
+        }
+    }
+
+    public String writePayload(Object request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Cannot serialize job payload", e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.videoprocessing.queue;
+
+import com.videoprocessing.dtos.requestDtos.*;
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.ffmpeg.ResourceUsage;
+import com.videoprocessing.service.JobProgressService;
+import com.videoprocessing.service.JobStateService;
+import com.videoprocessing.service.VideoProcessingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Routes a claimed job to its handler. Shared by every queue mode.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JobRunner {
+
+    private final JobQueueService queueService;
+    private final VideoProcessingService videoService;
+    private final JobProgressService progressService;
+    private final JobStateService jobStateService;
+
+    public void run(ClaimedJob job) {
+        String jobId = job.getJobId();
+        progressService.publishStatus(jobId, JobStatus.PROCESSING);
+
+        // Every FFmpeg run the handler makes, here or on the chunk executor, is charged to the job
+        ResourceUsage usage = new ResourceUsage();
+        ResourceUsage.bind(usage);
+        try {
+            switch (job.getJobType()) {
+                case UPLOAD -> videoService.processVideoUpload(
+                        queueService.readPayload(job, UploadVideoRequest.class), jobId);
+                case TRIM -> videoService.processTrimVideo(
+                        queueService.readPayload(job, TrimVideoRequest.class), jobId);
+                case OVERLAY -> videoService.processAddOverlay(
+                        queueService.readPayload(job, AddOverlayRequest.class), jobId);
+                case WATERMARK -> videoService.processAddWatermark(
+                        queueService.readPayload(job, AddWatermarkRequest.class), jobId);
+                case QUALITY_CONVERSION -> videoService.processQualityConversion(
+                        queueService.readPayload(job, GenerateQualitiesRequest.class), jobId);
+                case PIPELINE -> videoService.processPipeline(
+                        queueService.readPayload(job, PipelineRequest.class), jobId);
+            }
+        } finally {
+            ResourceUsage.unbind();
+            jobStateService.recordUsage(jobId, usage);
+        }
+
+        // Identical jobs waiting for this one can now reuse its output, or run themselves if it failed
+        queueService.releaseFollowers(jobId);
+    }
+}
@@ -0,0 +1,16 @@
+package com.videoprocessing.queue;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.Collection;
+
+/**
+ * Published when jobs change status, so the status cache can be rewritten from the
+ * committed rows.
+ */
+@Value
+@AllArgsConstructor
+public class JobStatusChangedEvent {
+    Collection<String> jobIds;
+}
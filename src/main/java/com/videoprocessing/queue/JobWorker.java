@@ -0,0 +1,105 @@
+package com.videoprocessing.queue;
+
+import com.videoprocessing.config.AppProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Claims jobs from the queue and runs them on the job executor, never more than
+ * {@code app.max-concurrent-jobs} at a time on this node.
+ */
+@Component
+@ConditionalOnProperty(name = "app.queue-mode", havingValue = "database", matchIfMissing = true)
+@Slf4j
+public class JobWorker {
+
+    private final JobQueueService queueService;
+    private final JobRunner jobRunner;
+    private final ThreadPoolTaskExecutor jobExecutor;
+    private final int maxConcurrentJobs;
+    private final String workerId;
+
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+
+    public JobWorker(JobQueueService queueService,
+                     JobRunner jobRunner,
+                     @Qualifier("jobExecutor") ThreadPoolTaskExecutor jobExecutor,
+                     AppProperties appProperties) {
+        this.queueService = queueService;
+        this.jobRunner = jobRunner;
+        this.jobExecutor = jobExecutor;
+        this.maxConcurrentJobs = appProperties.getMaxConcurrentJobs();
+        this.workerId = queueService.getWorkerId();
+
+        log.info("Job worker {} started with {} slots", workerId, maxConcurrentJobs);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onJobEnqueued(JobEnqueuedEvent event) {
+        dispatchAvailable();
+    }
+
+    @Scheduled(fixedDelayString = "${app.queue-poll-interval-ms:1000}")
+    public void poll() {
+        dispatchAvailable();
+    }
+
+    @Scheduled(fixedDelayString = "${app.job-heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        queueService.heartbeat(List.copyOf(inFlight));
+    }
+
+    @Scheduled(fixedDelayString = "${app.job-heartbeat-interval-ms:30000}")
+    public void reapExpiredLeases() {
+        queueService.reapExpiredLeases();
+    }
+
+    private void dispatchAvailable() {
+        // A concurrent dispatch will see the same free slots; no need to queue up behind it
+        if (!dispatchLock.tryLock()) {
+            return;
+        }
+        try {
+            int free = maxConcurrentJobs - inFlight.size();
+            for (ClaimedJob job : queueService.claim(workerId, free)) {
+                inFlight.add(job.getJobId());
+                try {
+                    jobExecutor.execute(() -> run(job));
+                } catch (TaskRejectedException e) {
+                    log.warn("Job executor rejected job {}, returning it to the queue", job.getJobId());
+                    inFlight.remove(job.getJobId());
+                    queueService.release(job.getJobId());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to claim jobs from queue", e);
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    private void run(ClaimedJob job) {
+        try {
+            log.info("Worker {} running {} job {}", workerId, job.getJobType(), job.getJobId());
+            jobRunner.run(job);
+        } catch (Exception e) {
+            log.error("Job {} crashed outside its handler", job.getJobId(), e);
+        } finally {
+            inFlight.remove(job.getJobId());
+            dispatchAvailable();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.videoprocessing.queue;
+
+import com.videoprocessing.config.AppProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.RedisStreamCommands.XClaimOptions;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thin wrapper over the job stream and its consumer group. Messages carry only the job id;
+ * the job row in MySQL stays the source of truth.
+ */
+@Component
+@ConditionalOnProperty(name = "app.queue-mode", havingValue = "redis")
+@Slf4j
+public class RedisJobStream {
+
+    private static final String JOB_ID_FIELD = "jobId";
+    private static final String CURSOR_START = "0-0";
+
+    private final StringRedisTemplate redisTemplate;
+    private final String streamKey;
+    private final String group;
+    private final long maxLength;
+
+    private volatile String autoClaimCursor = CURSOR_START;
+
+    @Autowired
+    public RedisJobStream(StringRedisTemplate redisTemplate, AppProperties appProperties) {
+        this(redisTemplate, appProperties.getRedisStreamKey(), appProperties.getRedisConsumerGroup(),
+                appProperties.getRedisStreamMaxLength());
+    }
+
+    public RedisJobStream(StringRedisTemplate redisTemplate, String streamKey, String group, long maxLength) {
+        this.redisTemplate = redisTemplate;
+        this.streamKey = streamKey;
+        this.group = group;
+        this.maxLength = maxLength;
+    }
+
+    public void ensureGroup() {
+        try {
+            redisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands()
+                    .xGroupCreate(bytes(streamKey), group, ReadOffset.from(CURSOR_START), true));
+            log.info("Created consumer group {} on stream {}", group, streamKey);
+        } catch (DataAccessException e) {
+            if (!String.valueOf(e.getMessage()).contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    public RecordId publish(String jobId) {
+        return redisTemplate.opsForStream().add(
+                StreamRecords.string(Map.of(JOB_ID_FIELD, jobId)).withStreamKey(streamKey),
+                XAddOptions.maxlen(maxLength).approximateTrimming(true));
+    }
+
+    // read() takes its offsets as generic varargs, which javac cannot check; the one passed is a StreamOffset<String>
+    @SuppressWarnings("unchecked")
+    public List<StreamJob> read(String consumer, int count, Duration block) {
+        if (count <= 0) {
+            return List.of();
+        }
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().read(
+                Consumer.from(group, consumer),
+                StreamReadOptions.empty().count(count).block(block),
+                StreamOffset.create(streamKey, ReadOffset.lastConsumed()));
+        if (records == null) {
+            return List.of();
+        }
+        return records.stream()
+                .map(record -> new StreamJob(record.getId().getValue(), String.valueOf(record.getValue().get(JOB_ID_FIELD))))
+                .toList();
+    }
+
+    public void ack(String messageId) {
+        redisTemplate.opsForStream().acknowledge(streamKey, group, messageId);
+    }
+
+    /**
+     * Re-claims our own in-flight messages, resetting their idle time so that other nodes'
+     * XAUTOCLAIM does not take a job that is still running here.
+     */
+    public void touch(String consumer, Collection<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        RecordId[] ids = messageIds.stream().map(RecordId::of).toArray(RecordId[]::new);
+        redisTemplate.execute((RedisCallback<List<RecordId>>) connection -> connection.streamCommands()
+                .xClaimJustId(bytes(streamKey), group, consumer, XClaimOptions.minIdle(Duration.ZERO).ids(ids)));
+    }
+
+    /**
+     * Takes over up to {@code count} messages that have been pending on any consumer for at
+     * least {@code minIdle}, continuing the scan where the previous call stopped.
+     */
+    public List<StreamJob> autoClaim(String consumer, Duration minIdle, int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        Object reply = redisTemplate.execute((RedisCallback<Object>) connection -> connection.execute("XAUTOCLAIM",
+                bytes(streamKey), bytes(group), bytes(consumer),
+                bytes(String.valueOf(minIdle.toMillis())), bytes(autoClaimCursor),
+                bytes("COUNT"), bytes(String.valueOf(count))));
+
+        List<StreamJob> claimed = new ArrayList<>();
+        if (!(reply instanceof List<?> parts) || parts.size() < 2) {
+            return claimed;
+        }
+
+        autoClaimCursor = string(parts.get(0));
+        for (Object entry : (List<?>) parts.get(1)) {
+            // Deleted entries come back as nil bodies; they are acked so they leave the PEL
+            if (!(entry instanceof List<?> message) || message.size() < 2 || !(message.get(1) instanceof List<?> fields)) {
+                continue;
+            }
+            String messageId = string(message.get(0));
+            String jobId = null;
+            for (int i = 0; i + 1 < fields.size(); i += 2) {
+                if (JOB_ID_FIELD.equals(string(fields.get(i)))) {
+                    jobId = string(fields.get(i + 1));
+                }
+            }
+            if (jobId == null) {
+                ack(messageId);
+            } else {
+                claimed.add(new StreamJob(messageId, jobId));
+            }
+        }
+        return claimed;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(Object value) {
+        return value instanceof byte[] raw ? new String(raw, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
+}
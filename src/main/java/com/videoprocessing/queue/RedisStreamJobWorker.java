@@ -0,0 +1,231 @@
+package com.videoprocessing.queue;
+
+import com.videoprocessing.config.AppProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Multi-node worker: jobs are dispatched over a Redis Stream consumer group, so every API
+ * node pulls work in proportion to its free slots. Messages left pending by a dead node are
+ * taken over with XAUTOCLAIM once they have been idle longer than the job lease.
+ * <p>
+ * A job is published after its row commits and the row is then marked published. Rows still
+ * unmarked {@code app.redis-publish-grace-seconds} after creation, because the publish failed
+ * or the node died in between, are published by whichever node holds the reclaim lock.
+ */
+@Component
+@ConditionalOnProperty(name = "app.queue-mode", havingValue = "redis")
+@Slf4j
+public class RedisStreamJobWorker {
+
+    private static final String RECLAIM_LOCK = "video:jobs:reclaim";
+    private static final int REPUBLISH_BATCH_SIZE = 500;
+
+    private final JobQueueService queueService;
+    private final JobRunner jobRunner;
+    private final RedisJobStream jobStream;
+    private final StringRedisTemplate redisTemplate;
+    private final ThreadPoolTaskExecutor jobExecutor;
+    private final int maxConcurrentJobs;
+    private final Duration blockTimeout;
+    private final Duration leaseTimeout;
+    private final Duration reclaimLockTtl;
+    private final String consumer;
+
+    // jobId -> stream message id, acked once the job finishes
+    private final Map<String, String> inFlight = new ConcurrentHashMap<>();
+    private final Object slotMonitor = new Object();
+
+    private volatile boolean running;
+    private Thread readerThread;
+
+    public RedisStreamJobWorker(JobQueueService queueService,
+                                JobRunner jobRunner,
+                                RedisJobStream jobStream,
+                                StringRedisTemplate redisTemplate,
+                                @Qualifier("jobExecutor") ThreadPoolTaskExecutor jobExecutor,
+                                AppProperties appProperties) {
+        this.queueService = queueService;
+        this.jobRunner = jobRunner;
+        this.jobStream = jobStream;
+        this.redisTemplate = redisTemplate;
+        this.jobExecutor = jobExecutor;
+        this.maxConcurrentJobs = appProperties.getMaxConcurrentJobs();
+        this.blockTimeout = Duration.ofMillis(appProperties.getRedisStreamBlockMs());
+        this.leaseTimeout = Duration.ofSeconds(appProperties.getJobLeaseTimeoutSeconds());
+        this.reclaimLockTtl = Duration.ofMillis(appProperties.getJobHeartbeatIntervalMs() / 2);
+        this.consumer = queueService.getWorkerId();
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        readerThread = new Thread(this::readLoop, "JobStreamReader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+        log.info("Redis stream worker {} started with {} slots", consumer, maxConcurrentJobs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        synchronized (slotMonitor) {
+            slotMonitor.notifyAll();
+        }
+        if (readerThread != null) {
+            readerThread.interrupt();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onJobEnqueued(JobEnqueuedEvent event) {
+        publish(event.getJobId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.job-heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        List<String> jobIds = List.copyOf(inFlight.keySet());
+        queueService.heartbeat(jobIds);
+        jobStream.touch(consumer, List.copyOf(inFlight.values()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.job-heartbeat-interval-ms:30000}")
+    public void reclaimAbandoned() {
+        try {
+            for (StreamJob message : jobStream.autoClaim(consumer, leaseTimeout, freeSlots())) {
+                handle(message);
+            }
+
+            // The table-wide part runs on one node at a time
+            if (!acquireReclaimLock()) {
+                return;
+            }
+            // Rows whose lease expired go back to PENDING; make sure some node hears about them
+            queueService.reapExpiredLeases().forEach(this::publish);
+            queueService.findUnpublished(REPUBLISH_BATCH_SIZE).forEach(this::publish);
+        } catch (Exception e) {
+            log.error("Failed to reclaim abandoned stream messages", e);
+        }
+    }
+
+    private boolean acquireReclaimLock() {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(RECLAIM_LOCK,
+                    consumer, reclaimLockTtl));
+        } catch (RuntimeException e) {
+            log.debug("Reclaim lock unavailable, reclaiming anyway: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    // A duplicate message is harmless: claiming it fails and it is acked
+    private void publish(String jobId) {
+        try {
+            jobStream.publish(jobId);
+        } catch (Exception e) {
+            log.error("Failed to publish job {} to stream, the reclaim sweep will retry", jobId, e);
+            return;
+        }
+        try {
+            queueService.markPublished(jobId);
+        } catch (Exception e) {
+            log.warn("Published job {} but could not mark it, it may be published again", jobId, e);
+        }
+    }
+
+    private void readLoop() {
+        while (running) {
+            try {
+                jobStream.ensureGroup();
+                break;
+            } catch (Exception e) {
+                log.error("Cannot create consumer group, retrying", e);
+                sleepQuietly(5000);
+            }
+        }
+
+        while (running) {
+            try {
+                awaitFreeSlot();
+                for (StreamJob message : jobStream.read(consumer, freeSlots(), blockTimeout)) {
+                    handle(message);
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.error("Failed to read from job stream", e);
+                    sleepQuietly(1000);
+                }
+            }
+        }
+    }
+
+    private void handle(StreamJob message) {
+        Optional<ClaimedJob> claimed = queueService.claimById(message.getJobId(), consumer);
+        if (claimed.isEmpty()) {
+            // Already finished, or running on a node that is still alive
+            jobStream.ack(message.getMessageId());
+            return;
+        }
+
+        ClaimedJob job = claimed.get();
+        inFlight.put(job.getJobId(), message.getMessageId());
+        try {
+            jobExecutor.execute(() -> run(job, message));
+        } catch (TaskRejectedException e) {
+            log.warn("Job executor rejected job {}, leaving it for reclaim", job.getJobId());
+            inFlight.remove(job.getJobId());
+            queueService.release(job.getJobId());
+        }
+    }
+
+    private void run(ClaimedJob job, StreamJob message) {
+        try {
+            log.info("Worker {} running {} job {}", consumer, job.getJobType(), job.getJobId());
+            jobRunner.run(job);
+        } catch (Exception e) {
+            log.error("Job {} crashed outside its handler", job.getJobId(), e);
+        } finally {
+            inFlight.remove(job.getJobId());
+            jobStream.ack(message.getMessageId());
+            synchronized (slotMonitor) {
+                slotMonitor.notifyAll();
+            }
+        }
+    }
+
+    private int freeSlots() {
+        return Math.max(0, maxConcurrentJobs - inFlight.size());
+    }
+
+    private void awaitFreeSlot() throws InterruptedException {
+        synchronized (slotMonitor) {
+            while (running && freeSlots() == 0) {
+                slotMonitor.wait(blockTimeout.toMillis());
+            }
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
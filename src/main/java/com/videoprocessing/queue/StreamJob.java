@@ -0,0 +1,14 @@
+package com.videoprocessing.queue;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * A job id delivered through the Redis stream, with the message id needed to acknowledge it.
+ */
+@Value
+@AllArgsConstructor
+public class StreamJob {
+    String messageId;
+    String jobId;
+}
@@ -0,0 +1,42 @@
+package com.videoprocessing.repository;
+
+import com.videoprocessing.entity.ContentBlob;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, Long> {
+    Optional<ContentBlob> findByContentHash(String contentHash);
+
+    // In the database, so concurrent uploads of the same content do not lose counts
+    @Modifying
+    @Query("UPDATE ContentBlob b SET b.refCount = b.refCount + :delta WHERE b.id = :id")
+    int adjustRefCount(@Param("id") Long id, @Param("delta") int delta);
+
+    @Query("SELECT COALESCE(SUM(b.size), 0) FROM ContentBlob b")
+    long sumSize();
+
+    // Blobs no video points at, e.g. left by uploads whose processing failed
+    @Query("SELECT b FROM ContentBlob b WHERE b.refCount <= 0 AND b.createdAt < :cutoff AND b.id > :afterId ORDER BY b.id")
+    List<ContentBlob> findUnreferencedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("afterId") Long afterId,
+                                             Limit limit);
+
+    // Conditional, so a blob acquired since it was read survives
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ContentBlob b WHERE b.id IN :ids AND b.refCount <= 0")
+    int deleteUnreferenced(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT b.contentHash FROM ContentBlob b WHERE b.contentHash IN :hashes")
+    List<String> findExistingHashes(@Param("hashes") Collection<String> hashes);
+}
@@ -0,0 +1,49 @@
+package com.videoprocessing.repository;
+
+import com.videoprocessing.entity.DerivedOutput;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DerivedOutputRepository extends JpaRepository<DerivedOutput, Long> {
+    Optional<DerivedOutput> findByPath(String path);
+
+    @Query("SELECT COALESCE(SUM(d.size), 0) FROM DerivedOutput d WHERE d.evictedAt IS NULL")
+    long sumResidentSize();
+
+    // Keyset page of outputs on disk, cheapest to lose first, after (:priority, :afterId)
+    @Query("SELECT d FROM DerivedOutput d WHERE d.evictedAt IS NULL " +
+            "AND (d.priority > :priority OR (d.priority = :priority AND d.id > :afterId)) " +
+            "ORDER BY d.priority ASC, d.id ASC")
+    List<DerivedOutput> findEvictionCandidates(@Param("priority") Long priority, @Param("afterId") Long afterId,
+                                               Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE DerivedOutput d SET d.lastAccessedAt = :accessedAt, " +
+            "d.priority = :accessedMillis + d.regenerationMillis * :costWeight WHERE d.path = :path")
+    int touch(@Param("path") String path, @Param("accessedAt") LocalDateTime accessedAt,
+              @Param("accessedMillis") long accessedMillis, @Param("costWeight") long costWeight);
+
+    // Conditional, so an output accessed or produced again since it was picked stays
+    @Transactional
+    @Modifying
+    @Query("UPDATE DerivedOutput d SET d.evictedAt = :now " +
+            "WHERE d.id = :id AND d.priority = :priority AND d.evictedAt IS NULL")
+    int markEvicted(@Param("id") Long id, @Param("priority") Long priority, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM DerivedOutput d WHERE d.path IN :paths")
+    int deleteByPathIn(@Param("paths") Collection<String> paths);
+}
@@ -0,0 +1,27 @@
+package com.videoprocessing.repository;
+
+import com.videoprocessing.enums.JobType;
+
+/**
+ * What the FFmpeg runs of the jobs of one type on sources of one height used, summed.
+ */
+public interface JobResourceTotals {
+    JobType getJobType();
+
+    // Null for jobs without a source video
+    Integer getHeight();
+
+    Long getJobs();
+
+    Long getCpuUserMillis();
+
+    Long getCpuSystemMillis();
+
+    Long getPeakRssBytes();
+
+    Long getReadBytes();
+
+    Long getWriteBytes();
+
+    Long getFfmpegWallMillis();
+}
@@ -0,0 +1,15 @@
+package com.videoprocessing.repository;
+
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.enums.JobType;
+
+/**
+ * Number of jobs of one type in one status.
+ */
+public interface JobStatusCount {
+    JobType getJobType();
+
+    JobStatus getStatus();
+
+    Long getCount();
+}
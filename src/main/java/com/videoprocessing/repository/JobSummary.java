@@ -0,0 +1,27 @@
+package com.videoprocessing.repository;
+
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.enums.JobType;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a job that listings show, read without loading the entity.
+ */
+public interface JobSummary {
+    Long getId();
+
+    String getJobId();
+
+    JobType getJobType();
+
+    JobStatus getStatus();
+
+    String getResultPath();
+
+    String getErrorMessage();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getCompletedAt();
+}
@@ -2,12 +2,16 @@ package com.videoprocessing.repository;
 
 import com.videoprocessing.entity.*;
 import com.videoprocessing.enums.*;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,8 +19,22 @@ import java.util.Optional;
 public interface ProcessingJobRepository extends JpaRepository<ProcessingJob, Long> {
     Optional<ProcessingJob> findByJobId(String jobId);
 
+    // For use outside a transaction: the video is loaded along with the job
+    @Query("SELECT pj FROM ProcessingJob pj LEFT JOIN FETCH pj.video WHERE pj.jobId = :jobId")
+    Optional<ProcessingJob> findWithVideoByJobId(@Param("jobId") String jobId);
+
     List<ProcessingJob> findByStatus(JobStatus status);
 
+    // Keyset page, newest first, of the rows after (:time, :id); null filters and a null time are ignored
+    @Query("SELECT pj.id AS id, pj.jobId AS jobId, pj.jobType AS jobType, pj.status AS status, " +
+            "pj.resultPath AS resultPath, pj.errorMessage AS errorMessage, pj.createdAt AS createdAt, " +
+            "pj.completedAt AS completedAt FROM ProcessingJob pj " +
+            "WHERE (:status IS NULL OR pj.status = :status) AND (:jobType IS NULL OR pj.jobType = :jobType) " +
+            "AND (:time IS NULL OR pj.createdAt < :time OR (pj.createdAt = :time AND pj.id < :id)) " +
+            "ORDER BY pj.createdAt DESC, pj.id DESC")
+    List<JobSummary> findPage(@Param("status") JobStatus status, @Param("jobType") JobType jobType,
+                              @Param("time") LocalDateTime time, @Param("id") Long id, Limit limit);
+
     List<ProcessingJob> findByJobType(JobType jobType);
 
     List<ProcessingJob> findByVideoId(Long videoId);
@@ -33,4 +51,106 @@ public interface ProcessingJobRepository extends JpaRepository<ProcessingJob, Lo
             "AND pj.createdAt > :cutoff")
     List<ProcessingJob> findRecentFailedJobs(@Param("cutoff") LocalDateTime cutoff);
 
+    // Claim pending jobs; rows locked by another worker are skipped rather than waited on
+    @Query(value = "SELECT * FROM processing_jobs WHERE status = 'PENDING' AND attached_to IS NULL " +
+            "ORDER BY created_at ASC, id ASC LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<ProcessingJob> lockPendingJobs(@Param("limit") int limit);
+
+    boolean existsByFingerprintAndStatus(String fingerprint, JobStatus status);
+
+    Optional<ProcessingJob> findFirstByFingerprintAndStatusOrderByIdDesc(String fingerprint, JobStatus status);
+
+    // Unattached jobs producing this fingerprint that have not finished yet, oldest first
+    @Query("SELECT pj FROM ProcessingJob pj WHERE pj.fingerprint = :fingerprint AND pj.attachedTo IS NULL " +
+            "AND pj.status IN (com.videoprocessing.enums.JobStatus.PENDING, com.videoprocessing.enums.JobStatus.PROCESSING) " +
+            "ORDER BY pj.createdAt ASC, pj.id ASC")
+    List<ProcessingJob> findInFlightByFingerprint(@Param("fingerprint") String fingerprint);
+
+    // Jobs with this fingerprint whose request can be replayed, newest first
+    @Query("SELECT pj FROM ProcessingJob pj LEFT JOIN FETCH pj.video WHERE pj.fingerprint = :fingerprint " +
+            "AND pj.payload IS NOT NULL ORDER BY pj.id DESC")
+    List<ProcessingJob> findReplayableByFingerprint(@Param("fingerprint") String fingerprint, Limit limit);
+
+    List<ProcessingJob> findByAttachedToAndStatus(String attachedTo, JobStatus status);
+
+    // Waiting jobs whose leader finished without releasing them, e.g. failed by the lease reaper
+    @Query("SELECT pj FROM ProcessingJob pj WHERE pj.attachedTo IS NOT NULL " +
+            "AND pj.status = com.videoprocessing.enums.JobStatus.PENDING " +
+            "AND pj.attachedTo IN (SELECT leader.jobId FROM ProcessingJob leader " +
+            "WHERE leader.status IN (com.videoprocessing.enums.JobStatus.COMPLETED, com.videoprocessing.enums.JobStatus.FAILED))")
+    List<ProcessingJob> findOrphanedFollowers();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ProcessingJob pj SET pj.publishedAt = :now WHERE pj.jobId = :jobId")
+    int markPublished(@Param("jobId") String jobId, @Param("now") LocalDateTime now);
+
+    // Claimable jobs no node put on the Redis stream, e.g. because it died between commit and publish
+    @Query("SELECT pj.jobId FROM ProcessingJob pj WHERE pj.status = com.videoprocessing.enums.JobStatus.PENDING " +
+            "AND pj.attachedTo IS NULL AND pj.publishedAt IS NULL AND pj.createdAt < :cutoff ORDER BY pj.id ASC")
+    List<String> findUnpublishedJobIds(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ProcessingJob pj SET pj.progress = :progress WHERE pj.jobId = :jobId")
+    int updateProgress(@Param("jobId") String jobId, @Param("progress") Integer progress);
+
+    @Modifying
+    @Query("UPDATE ProcessingJob pj SET pj.heartbeatAt = :now WHERE pj.jobId IN :jobIds")
+    int touchHeartbeats(@Param("jobIds") Collection<String> jobIds, @Param("now") LocalDateTime now);
+
+    // Claim one job by id; a PROCESSING row only qualifies once its owner stopped heart-beating
+    @Modifying
+    @Query("UPDATE ProcessingJob pj SET pj.status = com.videoprocessing.enums.JobStatus.PROCESSING, " +
+            "pj.workerId = :workerId, pj.startedAt = :now, pj.heartbeatAt = :now, " +
+            "pj.attempts = COALESCE(pj.attempts, 0) + 1 " +
+            "WHERE pj.jobId = :jobId AND pj.attachedTo IS NULL AND (pj.status = com.videoprocessing.enums.JobStatus.PENDING " +
+            "OR (pj.status = com.videoprocessing.enums.JobStatus.PROCESSING AND pj.heartbeatAt < :staleCutoff))")
+    int claimJob(@Param("jobId") String jobId, @Param("workerId") String workerId,
+                 @Param("now") LocalDateTime now, @Param("staleCutoff") LocalDateTime staleCutoff);
+
+    @Query("SELECT pj FROM ProcessingJob pj WHERE pj.status = com.videoprocessing.enums.JobStatus.PROCESSING " +
+            "AND pj.heartbeatAt < :cutoff AND pj.attempts < :maxAttempts")
+    List<ProcessingJob> findStaleJobs(@Param("cutoff") LocalDateTime cutoff, @Param("maxAttempts") int maxAttempts);
+
+    // Put jobs whose worker stopped heart-beating back on the queue
+    @Modifying
+    @Query("UPDATE ProcessingJob pj SET pj.status = com.videoprocessing.enums.JobStatus.PENDING, pj.workerId = NULL, " +
+            "pj.publishedAt = NULL " +
+            "WHERE pj.status = com.videoprocessing.enums.JobStatus.PROCESSING " +
+            "AND pj.heartbeatAt < :cutoff AND pj.attempts < :maxAttempts")
+    int requeueStaleJobs(@Param("cutoff") LocalDateTime cutoff, @Param("maxAttempts") int maxAttempts);
+
+    @Query("SELECT pj FROM ProcessingJob pj WHERE pj.status = com.videoprocessing.enums.JobStatus.PROCESSING " +
+            "AND pj.heartbeatAt < :cutoff AND pj.attempts >= :maxAttempts")
+    List<ProcessingJob> findExhaustedJobs(@Param("cutoff") LocalDateTime cutoff, @Param("maxAttempts") int maxAttempts);
+
+    @Modifying
+    @Query("UPDATE ProcessingJob pj SET pj.status = com.videoprocessing.enums.JobStatus.FAILED, " +
+            "pj.errorMessage = 'Worker lease expired too many times', pj.completedAt = :now " +
+            "WHERE pj.status = com.videoprocessing.enums.JobStatus.PROCESSING " +
+            "AND pj.heartbeatAt < :cutoff AND pj.attempts >= :maxAttempts")
+    int failExhaustedJobs(@Param("cutoff") LocalDateTime cutoff, @Param("maxAttempts") int maxAttempts,
+                          @Param("now") LocalDateTime now);
+
+    // Retention: outputs of jobs that finished recently or have not finished yet
+    @Query("SELECT pj.resultPath FROM ProcessingJob pj WHERE pj.resultPath IS NOT NULL AND (pj.completedAt >= :cutoff " +
+            "OR pj.status IN (com.videoprocessing.enums.JobStatus.PENDING, com.videoprocessing.enums.JobStatus.PROCESSING))")
+    List<String> findResultPathsInUseSince(@Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT pj.jobType AS jobType, pj.status AS status, COUNT(pj) AS count FROM ProcessingJob pj " +
+            "GROUP BY pj.jobType, pj.status")
+    List<JobStatusCount> countByTypeAndStatus();
+
+    // Resource usage of jobs finished since :since, or ever if null, per type and source height
+    @Query("SELECT pj.jobType AS jobType, v.height AS height, COUNT(pj) AS jobs, " +
+            "SUM(pj.cpuUserMillis) AS cpuUserMillis, SUM(pj.cpuSystemMillis) AS cpuSystemMillis, " +
+            "MAX(pj.peakRssBytes) AS peakRssBytes, SUM(pj.readBytes) AS readBytes, " +
+            "SUM(pj.writeBytes) AS writeBytes, SUM(pj.ffmpegWallMillis) AS ffmpegWallMillis " +
+            "FROM ProcessingJob pj LEFT JOIN pj.video v " +
+            "WHERE pj.cpuUserMillis IS NOT NULL AND (:since IS NULL OR pj.completedAt >= :since) " +
+            "GROUP BY pj.jobType, v.height")
+    List<JobResourceTotals> sumResourceUsage(@Param("since") LocalDateTime since);
+
 }
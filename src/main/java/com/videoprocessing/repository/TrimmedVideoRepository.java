@@ -1,8 +1,13 @@
 package com.videoprocessing.repository;
 
 import com.videoprocessing.entity.*;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,7 +15,19 @@ import java.util.Optional;
 public interface TrimmedVideoRepository extends JpaRepository<TrimmedVideo, Long> {
     Optional<TrimmedVideo> findByUuid(String uuid);
 
+    @Query("SELECT t FROM TrimmedVideo t JOIN FETCH t.originalVideo WHERE t.uuid = :uuid")
+    Optional<TrimmedVideo> findWithOriginalByUuid(@Param("uuid") String uuid);
+
     List<TrimmedVideo> findByOriginalVideoId(Long originalVideoId);
 
     List<TrimmedVideo> findByOriginalVideoOrderByCreatedAtDesc(Video originalVideo);
+
+    // Retention: virtual clips have no file and are kept
+    @Query("SELECT t.filepath FROM TrimmedVideo t WHERE t.filepath IS NOT NULL AND t.createdAt >= :cutoff")
+    List<String> findFilepathsCreatedSince(@Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT t.id FROM TrimmedVideo t WHERE t.filepath IS NOT NULL AND t.createdAt < :cutoff ORDER BY t.id")
+    List<Long> findExpiredIds(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    long countByFilepathIsNotNullAndCreatedAtBefore(LocalDateTime cutoff);
 }
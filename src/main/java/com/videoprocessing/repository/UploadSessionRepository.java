@@ -0,0 +1,32 @@
+package com.videoprocessing.repository;
+
+import com.videoprocessing.entity.UploadSession;
+import com.videoprocessing.enums.UploadStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, Long> {
+    Optional<UploadSession> findByUploadId(String uploadId);
+
+    // Sessions still open that were created before the cutoff, keyset-paged by id
+    @Query("SELECT us FROM UploadSession us WHERE us.status = com.videoprocessing.enums.UploadStatus.OPEN " +
+            "AND us.createdAt < :cutoff AND us.id > :afterId ORDER BY us.id")
+    List<UploadSession> findOpenBefore(@Param("cutoff") LocalDateTime cutoff, @Param("afterId") Long afterId,
+                                       Limit limit);
+
+    // Moves the session from one status to another; 0 if it was not in the expected one
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession us SET us.status = :to WHERE us.uploadId = :uploadId AND us.status = :from")
+    int transition(@Param("uploadId") String uploadId, @Param("from") UploadStatus from, @Param("to") UploadStatus to);
+}
@@ -3,11 +3,13 @@ package com.videoprocessing.repository;
 
 import com.videoprocessing.entity.*;
 import com.videoprocessing.enums.*;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,4 +30,13 @@ public interface VideoQualityVersionRepositor extends JpaRepository<VideoQuality
     // Get total storage used by quality versions
     @Query("SELECT SUM(vqv.size) FROM VideoQualityVersion vqv WHERE vqv.originalVideo.id = :videoId")
     Long getTotalSizeByVideo(@Param("videoId") Long videoId);
+
+    // Retention
+    @Query("SELECT vqv.filepath FROM VideoQualityVersion vqv WHERE vqv.createdAt >= :cutoff")
+    List<String> findFilepathsCreatedSince(@Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT vqv.id FROM VideoQualityVersion vqv WHERE vqv.createdAt < :cutoff ORDER BY vqv.id")
+    List<Long> findExpiredIds(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    long countByCreatedAtBefore(LocalDateTime cutoff);
 }
\ No newline at end of file
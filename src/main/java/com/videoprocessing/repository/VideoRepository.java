@@ -1,10 +1,14 @@
 package com.videoprocessing.repository;
 
+import com.videoprocessing.dtos.responseDtos.VideoResponse;
 import com.videoprocessing.entity.*;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +18,17 @@ public interface VideoRepository extends JpaRepository<Video, Long> {
 
     List<Video> findByOrderByUploadTimeDesc();
 
+    // Keyset page, newest first, of the rows after (:time, :id); a null time starts at the top
+    @Query("SELECT new com.videoprocessing.dtos.responseDtos.VideoResponse(v.id, v.uuid, v.filename, " +
+            "v.originalFilename, v.duration, v.size, v.width, v.height, v.videoCodec, v.pixelFormat, v.frameRate, " +
+            "v.bitrate, v.rotation, v.audioCodec, v.audioChannels, v.audioSampleRate, v.uploadTime) " +
+            "FROM Video v WHERE :time IS NULL OR v.uploadTime < :time OR (v.uploadTime = :time AND v.id < :id) " +
+            "ORDER BY v.uploadTime DESC, v.id DESC")
+    List<VideoResponse> findPage(@Param("time") LocalDateTime time, @Param("id") Long id, Limit limit);
+
+    // An already probed video with this content, to copy metadata from
+    Optional<Video> findFirstByContentHashOrderByIdAsc(String contentHash);
+
     @Query("SELECT v FROM Video v WHERE v.duration > :minDuration")
     List<Video> findByDurationGreaterThan(@Param("minDuration") Double minDuration);
 
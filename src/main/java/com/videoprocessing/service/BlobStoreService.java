@@ -0,0 +1,93 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.entity.ContentBlob;
+import com.videoprocessing.enums.StorageTier;
+import com.videoprocessing.repository.ContentBlobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Content-addressed store for uploaded files. A file lives at
+ * {@code <uploadDir>/blobs/ab/cd/<sha256>}, named by its hash and sharded by the first two
+ * byte pairs of it, so each directory level holds at most 256 entries. Identical uploads
+ * end up as one file, and everything derived from the file alone (such as its keyframe
+ * index) is shared too.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BlobStoreService {
+
+    static final String BLOB_DIR = "blobs";
+
+    private final ContentBlobRepository blobRepository;
+    private final SystemStatsService statsService;
+
+    @Value("${app.upload.dir:./uploads}")
+    private String uploadDir;
+
+    /**
+     * Moves a stored upload into the store under its hash. If the content is stored already,
+     * the upload is deleted instead and the existing blob returned.
+     */
+    public ContentBlob ingest(Path stored, String contentHash, long size) {
+        Path target = blobPath(contentHash);
+        try {
+            Files.createDirectories(target.getParent());
+            // Never replace an existing blob: its modification time keys the probe cache and
+            // dates its keyframe index
+            if (Files.exists(target)) {
+                Files.delete(stored);
+                log.info("Upload {} duplicates blob {}", stored, contentHash);
+            } else {
+                try {
+                    Files.move(stored, target);
+                } catch (FileAlreadyExistsException e) {
+                    // Same content stored concurrently
+                    Files.delete(stored);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store upload: " + e.getMessage(), e);
+        }
+
+        return blobRepository.findByContentHash(contentHash).orElseGet(() -> {
+            try {
+                ContentBlob blob = blobRepository.save(ContentBlob.builder()
+                        .contentHash(contentHash)
+                        .path(target.toString())
+                        .size(size)
+                        .build());
+                statsService.bytesStored(StorageTier.ORIGINAL, size);
+                return blob;
+            } catch (DataIntegrityViolationException e) {
+                return blobRepository.findByContentHash(contentHash).orElseThrow(() -> e);
+            }
+        });
+    }
+
+    /**
+     * Counts one more video referencing the blob with this hash, in the caller's transaction.
+     */
+    @Transactional
+    public ContentBlob acquire(String contentHash) {
+        ContentBlob blob = blobRepository.findByContentHash(contentHash)
+                .orElseThrow(() -> new RuntimeException("No blob for " + contentHash));
+        blobRepository.adjustRefCount(blob.getId(), 1);
+        return blob;
+    }
+
+    Path blobPath(String contentHash) {
+        return Paths.get(uploadDir, BLOB_DIR, contentHash.substring(0, 2), contentHash.substring(2, 4), contentHash);
+    }
+}
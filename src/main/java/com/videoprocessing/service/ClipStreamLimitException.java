@@ -0,0 +1,13 @@
+package com.videoprocessing.service;
+
+/**
+ * All of {@code app.clip-stream-concurrency} clip remuxes are running. The client should retry.
+ */
+public class ClipStreamLimitException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ClipStreamLimitException() {
+        super("Too many clips are being streamed, retry shortly");
+    }
+}
@@ -0,0 +1,208 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.dtos.requestDtos.AddOverlayRequest;
+import com.videoprocessing.dtos.requestDtos.AddWatermarkRequest;
+import com.videoprocessing.dtos.requestDtos.GenerateQualitiesRequest;
+import com.videoprocessing.dtos.requestDtos.TrimVideoRequest;
+import com.videoprocessing.entity.Video;
+import com.videoprocessing.enums.JobType;
+import com.videoprocessing.enums.OutputFormat;
+import com.videoprocessing.enums.TrimMode;
+import com.videoprocessing.ffmpeg.FFmpegCommands;
+import com.videoprocessing.ffmpeg.FFmpegExecutor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Canonical fingerprints of processing jobs: two jobs with the same fingerprint produce the
+ * same output. A fingerprint covers the source content hash, the parameters that affect the
+ * result (normalized, defaults filled in), the content of any font or image the job reads,
+ * and the FFmpeg build doing the encoding.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JobFingerprintService {
+
+    // Bump when a change to the FFmpeg commands changes what existing fingerprints produce
+    private static final int RECIPE_VERSION = 2;
+    private static final int ASSET_CACHE_SIZE = 256;
+
+    private final FFmpegExecutor ffmpegExecutor;
+    private final FontService fontService;
+
+    private volatile String encoderVersion;
+
+    // Asset hashes by path, size and modification time
+    private final Map<String, String> assetHashes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > ASSET_CACHE_SIZE;
+        }
+    };
+
+    public String trim(Video video, TrimVideoRequest request) {
+        return fingerprint(JobType.TRIM, video)
+                .add("start", request.getStartTime())
+                .add("end", request.getEndTime())
+                .add("mode", request.getMode() != null ? request.getMode() : TrimMode.COPY)
+                .hash();
+    }
+
+    public String overlay(Video video, AddOverlayRequest request) {
+        boolean text = "TEXT".equals(request.getOverlayType());
+        boolean image = "IMAGE".equals(request.getOverlayType());
+        return fingerprint(JobType.OVERLAY, video)
+                .add("type", request.getOverlayType())
+                .add("content", image ? assetHash(request.getContent()) : request.getContent())
+                .add("x", request.getPositionX())
+                .add("y", request.getPositionY())
+                .add("start", request.getStartTime())
+                .add("end", request.getEndTime())
+                .add("fontSize", text ? request.getFontSize() : null)
+                .add("fontColor", text ? request.getFontColor() : null)
+                .add("font", text ? assetHash(fontService.getFontPathForLanguage(request.getLanguage())) : null)
+                .hash();
+    }
+
+    public String watermark(Video video, AddWatermarkRequest request) {
+        return fingerprint(JobType.WATERMARK, video)
+                .add("image", assetHash(request.getWatermarkPath()))
+                .add("position", request.getPosition())
+                .add("opacity", request.getOpacity())
+                .hash();
+    }
+
+    /**
+     * The encoding mode is left out: every mode produces the same renditions.
+     */
+    public String qualities(Video video, GenerateQualitiesRequest request) {
+        return fingerprint(JobType.QUALITY_CONVERSION, video)
+                .add("qualities", request.getQualities() != null
+                        ? String.join(",", new TreeSet<>(request.getQualities())) : null)
+                .add("format", request.getFormat() != null ? request.getFormat() : OutputFormat.MP4)
+                .hash();
+    }
+
+    private Canonical fingerprint(JobType type, Video video) {
+        // Videos stored before content hashing are identified by their file version instead
+        String source = video.getContentHash() != null
+                ? video.getContentHash() : "file:" + fileVersion(video.getFilepath());
+        return new Canonical()
+                .add("recipe", RECIPE_VERSION)
+                .add("encoder", encoderVersion())
+                .add("type", type)
+                .add("source", source);
+    }
+
+    private String encoderVersion() {
+        String version = encoderVersion;
+        if (version == null) {
+            try {
+                String output = ffmpegExecutor.capture(FFmpegCommands.versionCommand());
+                version = output.lines().findFirst().orElse("").trim();
+                encoderVersion = version;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not determine FFmpeg version: {}", e.getMessage());
+                return "unknown";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "unknown";
+            }
+        }
+        return version;
+    }
+
+    private String assetHash(String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        String version = fileVersion(path);
+        if (version == null) {
+            // Missing: the job will fail, and a failed job is never reused
+            return "missing:" + path;
+        }
+
+        synchronized (assetHashes) {
+            String cached = assetHashes.get(version);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(Paths.get(path))) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            return "unreadable:" + path;
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        synchronized (assetHashes) {
+            assetHashes.put(version, hash);
+        }
+        return hash;
+    }
+
+    private static String fileVersion(String path) {
+        try {
+            Path file = Paths.get(path);
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return file.toAbsolutePath().normalize() + ":" + attributes.size() + ":"
+                    + attributes.lastModifiedTime().toMillis();
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Builds the canonical form: one field per line, values length-prefixed so that no
+     * value can run into the next field, numbers without trailing zeros.
+     */
+    private static class Canonical {
+        private final StringBuilder text = new StringBuilder();
+
+        Canonical add(String name, Object value) {
+            String normalized;
+            if (value == null) {
+                normalized = "-";
+            } else if (value instanceof Double number) {
+                normalized = BigDecimal.valueOf(number).stripTrailingZeros().toPlainString();
+            } else {
+                normalized = value.toString();
+            }
+            text.append(name).append('=').append(normalized.length()).append(':').append(normalized).append('\n');
+            return this;
+        }
+
+        String hash() {
+            return HexFormat.of().formatHex(sha256().digest(text.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.enums.JobType;
+import com.videoprocessing.ffmpeg.FFmpegException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the job pipeline, scraped from {@code /actuator/prometheus}. Every
+ * meter is registered up front, one per job type, outcome, failure cause and phase, and held
+ * in arrays indexed by ordinal, so recording looks one up and adds to it without building
+ * tags or meters.
+ * <p>
+ * Queue depth is read from the {@link SystemStatsService} counters, so a scrape costs no query.
+ * Like those counters, job events recorded inside a transaction count only once it commits.
+ */
+@Component
+public class JobMetrics {
+
+    public enum FailureCause {
+        FFMPEG,        // FFmpeg or ffprobe exited with an error
+        IO,            // reading or writing files
+        INTERRUPTED,   // cancelled, e.g. on shutdown
+        LEASE_EXPIRED, // the worker stopped heart-beating too many times
+        OTHER;
+
+        // The first cause along the chain that says more than OTHER
+        public static FailureCause of(Throwable e) {
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof InterruptedException) {
+                    return INTERRUPTED;
+                }
+                if (t instanceof IOException || t instanceof UncheckedIOException) {
+                    return IO;
+                }
+                if (t instanceof FFmpegException) {
+                    return FFMPEG;
+                }
+            }
+            return OTHER;
+        }
+    }
+
+    /**
+     * What a job transaction is for, to tell which one holds connections.
+     */
+    public enum Phase {
+        ENQUEUE,
+        CLAIM,
+        HEARTBEAT,
+        STATE,    // reads and updates while the job runs
+        COMPLETE,
+        FAIL,
+        REAP
+    }
+
+    private final Timer[] queueWait;
+    private final Timer[] completed;
+    private final Timer[] failed;
+    private final Counter[][] failures;
+    private final Timer[] connectionHold;
+
+    public JobMetrics(MeterRegistry registry, SystemStatsService statsService) {
+        JobType[] types = JobType.values();
+        FailureCause[] causes = FailureCause.values();
+        queueWait = new Timer[types.length];
+        completed = new Timer[types.length];
+        failed = new Timer[types.length];
+        failures = new Counter[types.length][causes.length];
+
+        for (JobType type : types) {
+            int i = type.ordinal();
+            Gauge.builder("video.jobs.queue.depth", statsService, stats -> stats.jobCount(type, JobStatus.PENDING))
+                    .description("Jobs waiting to be claimed, cluster-wide")
+                    .tag("type", type.name())
+                    .register(registry);
+            queueWait[i] = Timer.builder("video.jobs.queue.wait")
+                    .description("Time from submission until a worker claimed the job")
+                    .tag("type", type.name())
+                    .publishPercentileHistogram()
+                    .register(registry);
+            completed[i] = executionTimer(registry, type, "completed");
+            failed[i] = executionTimer(registry, type, "failed");
+            for (FailureCause cause : causes) {
+                failures[i][cause.ordinal()] = Counter.builder("video.jobs.failures")
+                        .description("Jobs that failed")
+                        .tag("type", type.name())
+                        .tag("cause", cause.name())
+                        .register(registry);
+            }
+        }
+
+        Phase[] phases = Phase.values();
+        connectionHold = new Timer[phases.length];
+        for (Phase phase : phases) {
+            connectionHold[phase.ordinal()] = Timer.builder("video.jobs.connection.hold")
+                    .description("Time a job transaction held its database connection")
+                    .tag("phase", phase.name())
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+
+    private static Timer executionTimer(MeterRegistry registry, JobType type, String outcome) {
+        return Timer.builder("video.jobs.execution")
+                .description("Time from claim until the job completed or failed")
+                .tag("type", type.name())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+
+    public void claimed(JobType type, LocalDateTime createdAt, LocalDateTime claimedAt) {
+        if (createdAt != null) {
+            Timer timer = queueWait[type.ordinal()];
+            afterCommit(() -> timer.record(ChronoUnit.MILLIS.between(createdAt, claimedAt), TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * A job finished. Jobs that completed on submission, reusing an earlier output, were never
+     * claimed and are not timed.
+     */
+    public void finished(JobType type, boolean success, LocalDateTime startedAt, LocalDateTime finishedAt) {
+        if (startedAt != null) {
+            Timer timer = success ? completed[type.ordinal()] : failed[type.ordinal()];
+            afterCommit(() -> timer.record(ChronoUnit.MILLIS.between(startedAt, finishedAt), TimeUnit.MILLISECONDS));
+        }
+    }
+
+    public void failed(JobType type, FailureCause cause) {
+        afterCommit(failures[type.ordinal()][cause.ordinal()]::increment);
+    }
+
+    /**
+     * Times the current transaction until it completes. Transactions take their connection
+     * when they begin and return it when they end, so this is the connection's hold time.
+     */
+    public void holdingConnection(Phase phase) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Timer timer = connectionHold[phase.ordinal()];
+        long started = System.nanoTime();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    // A claim or outcome rolled back, e.g. by a lost race for the job, did not happen
+    private static void afterCommit(Runnable record) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record.run();
+                }
+            });
+        } else {
+            record.run();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.dtos.responseDtos.JobUpdateMessage;
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.ffmpeg.FFmpegProgress;
+import com.videoprocessing.repository.ProcessingJobRepository;
+import com.videoprocessing.websocket.JobStatusWebSocketController;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Turns FFmpeg progress into job progress: pushes it over WebSocket at most once per
+ * {@code app.progress-push-interval-ms} per job and records the percent on the job row.
+ *
+ * <p>Updates are coalesced per job: the first is pushed at once, later ones within the
+ * interval only replace the job's pending update, which is pushed when the interval is up.
+ * So the last update before a pause is never dropped. A job's state goes once an interval
+ * passes without an update, whether or not its final status is ever published.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JobProgressService {
+
+    private final JobStatusWebSocketController webSocketController;
+    private final ProcessingJobRepository jobRepository;
+    private final AppProperties appProperties;
+    private final JobStatusCache statusCache;
+    private final TaskScheduler taskScheduler;
+
+    private final Map<String, Throttle> throttles = new ConcurrentHashMap<>();
+
+    // A job's latest unsent update; present while the job pushed within the last interval
+    private static class Throttle {
+        private JobUpdateMessage pending;
+        private Integer pendingPercent;
+        private boolean closed;
+    }
+
+    public Consumer<FFmpegProgress> listener(String jobId) {
+        return listener(jobId, 0, 1);
+    }
+
+    /**
+     * Listener for step {@code step} (0-based) of a job made of {@code steps} FFmpeg runs;
+     * the step's own progress is mapped onto its slice of the job's 0-100 range.
+     */
+    public Consumer<FFmpegProgress> listener(String jobId, int step, int steps) {
+        return progress -> report(jobId, progress, step, steps);
+    }
+
+    public void publishStatus(String jobId, JobStatus status) {
+        if (status == JobStatus.COMPLETED || status == JobStatus.FAILED) {
+            // A pending progress update must not arrive after the final status
+            Throttle throttle = throttles.remove(jobId);
+            if (throttle != null) {
+                synchronized (throttle) {
+                    throttle.closed = true;
+                }
+            }
+        }
+        send(JobUpdateMessage.builder()
+                .jobId(jobId)
+                .status(status.name())
+                .progress(status == JobStatus.COMPLETED ? 100 : 0)
+                .build());
+    }
+
+    private void report(String jobId, FFmpegProgress progress, int step, int steps) {
+        Integer percent = progress.getPercent();
+        Integer overall = percent == null ? null : Math.min(99, (step * 100 + percent) / steps);
+        JobUpdateMessage message = JobUpdateMessage.builder()
+                .jobId(jobId)
+                .status(JobStatus.PROCESSING.name())
+                .progress(overall)
+                .fps(progress.getFps())
+                .speed(progress.getSpeed())
+                .etaSeconds(progress.getEtaSeconds())
+                .build();
+
+        while (true) {
+            Throttle created = new Throttle();
+            Throttle throttle = throttles.putIfAbsent(jobId, created);
+            if (throttle == null) {
+                push(message, overall);
+                scheduleFlush(jobId, created);
+                return;
+            }
+            synchronized (throttle) {
+                // Otherwise it was let go just now, and a new one starts with this update
+                if (!throttle.closed) {
+                    throttle.pending = message;
+                    throttle.pendingPercent = overall;
+                    return;
+                }
+            }
+        }
+    }
+
+    private void scheduleFlush(String jobId, Throttle throttle) {
+        Duration interval = Duration.ofMillis(appProperties.getProgressPushIntervalMs());
+        taskScheduler.schedule(() -> flush(jobId, throttle), taskScheduler.getClock().instant().plus(interval));
+    }
+
+    // The trailing edge: sends what arrived during the interval, or lets the job go if nothing did.
+    // Sent under the lock, so a final status published meanwhile cannot overtake it
+    private void flush(String jobId, Throttle throttle) {
+        synchronized (throttle) {
+            if (throttle.closed) {
+                return;
+            }
+            if (throttle.pending == null) {
+                throttle.closed = true;
+                throttles.remove(jobId, throttle);
+                return;
+            }
+            push(throttle.pending, throttle.pendingPercent);
+            throttle.pending = null;
+            throttle.pendingPercent = null;
+        }
+        scheduleFlush(jobId, throttle);
+    }
+
+    private void push(JobUpdateMessage message, Integer overall) {
+        String jobId = message.getJobId();
+        send(message);
+
+        if (overall != null) {
+            statusCache.updateProgress(jobId, overall);
+            try {
+                jobRepository.updateProgress(jobId, overall);
+            } catch (Exception e) {
+                log.warn("Failed to record progress for job {}: {}", jobId, e.getMessage());
+            }
+        }
+    }
+
+    private void send(JobUpdateMessage message) {
+        try {
+            webSocketController.sendJobUpdate(message);
+        } catch (Exception e) {
+            log.warn("Failed to push update for job {}: {}", message.getJobId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.entity.ProcessingJob;
+import com.videoprocessing.entity.Video;
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.ffmpeg.ResourceUsage;
+import com.videoprocessing.queue.JobStatusChangedEvent;
+import com.videoprocessing.repository.ProcessingJobRepository;
+import com.videoprocessing.service.JobMetrics.FailureCause;
+import com.videoprocessing.service.JobMetrics.Phase;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Short transactions for the state changes of a running job. Processing runs between them
+ * without a transaction, so no connection is held while FFmpeg works; what is handed out
+ * here is detached and fully loaded.
+ */
+@Service
+@RequiredArgsConstructor
+public class JobStateService {
+
+    private final ProcessingJobRepository jobRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SystemStatsService statsService;
+    private final JobMetrics metrics;
+
+    /**
+     * The video the job operates on, or null for jobs that create one.
+     */
+    @Transactional(readOnly = true)
+    public Video videoFor(String jobId) {
+        metrics.holdingConnection(Phase.STATE);
+        return jobRepository.findWithVideoByJobId(jobId)
+                .orElseThrow(() -> new RuntimeException("Job not found: " + jobId))
+                .getVideo();
+    }
+
+    @Transactional(readOnly = true)
+    public String fingerprintFor(String jobId) {
+        metrics.holdingConnection(Phase.STATE);
+        return jobRepository.findByJobId(jobId)
+                .orElseThrow(() -> new RuntimeException("Job not found: " + jobId))
+                .getFingerprint();
+    }
+
+    /**
+     * Records the file the job is about to write, so downloads can follow it as it grows.
+     */
+    @Transactional
+    public void recordPartialOutput(String jobId, String partialPath) {
+        metrics.holdingConnection(Phase.STATE);
+        jobRepository.findByJobId(jobId).ifPresent(job -> {
+            job.setPartialPath(partialPath);
+            jobRepository.save(job);
+        });
+    }
+
+    /**
+     * Saves the job's records through {@code records} and marks it completed, atomically. A
+     * regeneration saves none: they would duplicate those of the job it replays.
+     */
+    @Transactional
+    public void complete(String jobId, String resultPath, Consumer<ProcessingJob> records) {
+        metrics.holdingConnection(Phase.COMPLETE);
+        ProcessingJob job = jobRepository.findByJobId(jobId)
+                .orElseThrow(() -> new RuntimeException("Job not found: " + jobId));
+        if (!Boolean.TRUE.equals(job.getRegeneration())) {
+            records.accept(job);
+        }
+
+        statsService.jobTransitioned(job.getJobType(), job.getStatus(), JobStatus.COMPLETED);
+        job.setStatus(JobStatus.COMPLETED);
+        job.setResultPath(resultPath);
+        job.setPartialPath(null);
+        job.setCompletedAt(LocalDateTime.now());
+        jobRepository.save(job);
+        metrics.finished(job.getJobType(), true, job.getStartedAt(), job.getCompletedAt());
+        eventPublisher.publishEvent(new JobStatusChangedEvent(List.of(jobId)));
+    }
+
+    /**
+     * Stores what the job's FFmpeg runs used, once they are all done.
+     */
+    @Transactional
+    public void recordUsage(String jobId, ResourceUsage usage) {
+        if (usage.getRuns() == 0) {
+            return;
+        }
+        metrics.holdingConnection(Phase.STATE);
+        jobRepository.findByJobId(jobId).ifPresent(job -> {
+            job.setCpuUserMillis(usage.getCpuUserMillis());
+            job.setCpuSystemMillis(usage.getCpuSystemMillis());
+            job.setPeakRssBytes(usage.getPeakRssBytes());
+            job.setReadBytes(usage.getReadBytes());
+            job.setWriteBytes(usage.getWriteBytes());
+            job.setFfmpegWallMillis(usage.getWallMillis());
+            jobRepository.save(job);
+        });
+    }
+
+    /**
+     * Marks the job failed with {@code cause}, counted by what kind of failure it was.
+     */
+    @Transactional
+    public void fail(String jobId, Throwable cause) {
+        metrics.holdingConnection(Phase.FAIL);
+        jobRepository.findByJobId(jobId).ifPresent(job -> {
+            statsService.jobTransitioned(job.getJobType(), job.getStatus(), JobStatus.FAILED);
+            job.setStatus(JobStatus.FAILED);
+            job.setErrorMessage(cause.getMessage());
+            job.setCompletedAt(LocalDateTime.now());
+            metrics.finished(job.getJobType(), false, job.getStartedAt(), job.getCompletedAt());
+            metrics.failed(job.getJobType(), FailureCause.of(cause));
+            jobRepository.save(job);
+            eventPublisher.publishEvent(new JobStatusChangedEvent(List.of(jobId)));
+        });
+    }
+}
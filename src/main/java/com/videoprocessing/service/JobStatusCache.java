@@ -0,0 +1,158 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.dtos.ApiResponseWrappers.JobStatusResponse;
+import com.videoprocessing.enums.JobStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Job status as a small Redis hash per job, so status polls do not need MySQL. Finished
+ * jobs expire after {@code app.job-status-ttl-seconds}; running ones are kept for a day at
+ * most, in case a transition was never written through.
+ * <p>
+ * Redis is an optimization only: every operation swallows its failures, and callers fall
+ * back to MySQL when {@link #get} returns null.
+ */
+@Component
+@Slf4j
+public class JobStatusCache {
+
+    private static final String KEY_PREFIX = "video:job-status:";
+    private static final long ACTIVE_TTL_SECONDS = 24 * 3600;
+
+    // ARGV: only-if-absent flag, TTL, then field/value pairs. Jobs never leave COMPLETED or
+    // FAILED, so a refresh that arrives late must not move a finished entry back.
+    private static final RedisScript<Long> WRITE = new DefaultRedisScript<>("""
+            if ARGV[1] == '1' and redis.call('EXISTS', KEYS[1]) == 1 then return 0 end
+            local current = redis.call('HGET', KEYS[1], 'status')
+            if (current == 'COMPLETED' or current == 'FAILED') and ARGV[4] ~= 'COMPLETED' and ARGV[4] ~= 'FAILED' then
+                return 0
+            end
+            redis.call('DEL', KEYS[1])
+            redis.call('HSET', KEYS[1], unpack(ARGV, 3))
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    // Progress only moves a running job; it must not touch an entry that already finished
+    private static final RedisScript<Long> PROGRESS = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], 'status') ~= 'PROCESSING' then return 0 end
+            redis.call('HSET', KEYS[1], 'progress', ARGV[1])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final long finishedTtlSeconds;
+
+    @Autowired
+    public JobStatusCache(StringRedisTemplate redisTemplate, AppProperties appProperties) {
+        this(redisTemplate, appProperties.isJobStatusCacheEnabled(), appProperties.getJobStatusTtlSeconds());
+    }
+
+    public JobStatusCache(StringRedisTemplate redisTemplate, boolean enabled, long finishedTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.finishedTtlSeconds = finishedTtlSeconds;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The cached status, or null on a miss or when Redis is unavailable.
+     */
+    public JobStatusResponse get(String jobId) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            Map<Object, Object> fields = redisTemplate.opsForHash().entries(KEY_PREFIX + jobId);
+            // A hash without a status is a leftover progress write, not a snapshot
+            if (fields.get("status") == null) {
+                return null;
+            }
+            return JobStatusResponse.builder()
+                    .jobId(jobId)
+                    .status((String) fields.get("status"))
+                    .progress(fields.get("progress") != null ? Integer.valueOf((String) fields.get("progress")) : null)
+                    .message((String) fields.get("message"))
+                    .resultUrl((String) fields.get("resultUrl"))
+                    .createdAt(fields.get("createdAt") != null ? LocalDateTime.parse((String) fields.get("createdAt")) : null)
+                    .completedAt(fields.get("completedAt") != null ? LocalDateTime.parse((String) fields.get("completedAt")) : null)
+                    .build();
+        } catch (RuntimeException e) {
+            log.debug("Job status cache read failed for {}: {}", jobId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes a status read after its transition committed, replacing what is cached.
+     */
+    public void put(JobStatusResponse status) {
+        write(status, false);
+    }
+
+    /**
+     * Writes a status read on a cache miss. If a transition was written meanwhile it is at
+     * least as new as this read, so it is kept.
+     */
+    public void putIfAbsent(JobStatusResponse status) {
+        write(status, true);
+    }
+
+    public void updateProgress(String jobId, int progress) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            redisTemplate.execute(PROGRESS, List.of(KEY_PREFIX + jobId), String.valueOf(progress));
+        } catch (RuntimeException e) {
+            log.debug("Job status cache progress write failed for {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    private void write(JobStatusResponse status, boolean onlyIfAbsent) {
+        if (!enabled) {
+            return;
+        }
+        boolean finished = JobStatus.COMPLETED.name().equals(status.getStatus())
+                || JobStatus.FAILED.name().equals(status.getStatus());
+
+        List<String> args = new ArrayList<>();
+        args.add(onlyIfAbsent ? "1" : "0");
+        args.add(String.valueOf(finished ? finishedTtlSeconds : ACTIVE_TTL_SECONDS));
+        addField(args, "status", status.getStatus());
+        addField(args, "progress", status.getProgress());
+        addField(args, "message", status.getMessage());
+        addField(args, "resultUrl", status.getResultUrl());
+        addField(args, "createdAt", status.getCreatedAt());
+        addField(args, "completedAt", status.getCompletedAt());
+
+        try {
+            redisTemplate.execute(WRITE, List.of(KEY_PREFIX + status.getJobId()), args.toArray());
+        } catch (RuntimeException e) {
+            log.debug("Job status cache write failed for {}: {}", status.getJobId(), e.getMessage());
+        }
+    }
+
+    // Absent fields are left out rather than stored as empty strings
+    private static void addField(List<String> args, String name, Object value) {
+        if (value != null) {
+            args.add(name);
+            args.add(value.toString());
+        }
+    }
+}
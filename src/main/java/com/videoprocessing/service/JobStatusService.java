@@ -0,0 +1,92 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.dtos.ApiResponseWrappers.JobStatusResponse;
+import com.videoprocessing.entity.ProcessingJob;
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.enums.JobType;
+import com.videoprocessing.queue.JobStatusChangedEvent;
+import com.videoprocessing.repository.ProcessingJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Answers job status polls from {@link JobStatusCache}, reading MySQL only on a miss.
+ * Every status transition is written through once it commits.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JobStatusService {
+
+    private final ProcessingJobRepository jobRepository;
+    private final JobStatusCache statusCache;
+
+    // Not transactional: a cache hit must not take a pooled connection
+    public JobStatusResponse getJobStatus(String jobId) {
+        JobStatusResponse cached = statusCache.get(jobId);
+        if (cached != null) {
+            return cached;
+        }
+
+        ProcessingJob job = jobRepository.findByJobId(jobId)
+                .orElseThrow(() -> new RuntimeException("Job not found"));
+        JobStatusResponse status = toStatusResponse(job);
+        statusCache.putIfAbsent(status);
+        return status;
+    }
+
+    /**
+     * Rewrites the cached status of jobs that changed, from a fresh read of their committed
+     * rows, so bulk updates that bypass the entities are covered too. Runs on the async
+     * executor: the committing thread still holds its connection until it returns, and
+     * reading from it would take a second one per transition.
+     */
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStatusChanged(JobStatusChangedEvent event) {
+        if (!statusCache.isEnabled()) {
+            return;
+        }
+        for (String jobId : event.getJobIds()) {
+            jobRepository.findByJobId(jobId)
+                    .map(JobStatusService::toStatusResponse)
+                    .ifPresent(statusCache::put);
+        }
+    }
+
+    static JobStatusResponse toStatusResponse(ProcessingJob job) {
+        return JobStatusResponse.builder()
+                .jobId(job.getJobId())
+                .status(job.getStatus().toString())
+                .progress(calculateProgress(job))
+                .message(job.getErrorMessage())
+                .resultUrl(resultUrl(job))
+                .createdAt(job.getCreatedAt())
+                .completedAt(job.getCompletedAt())
+                .build();
+    }
+
+    private static String resultUrl(ProcessingJob job) {
+        if (job.getResultPath() != null) {
+            return "/download/" + job.getJobId();
+        }
+        // Trims complete without a file only as virtual clips
+        if (job.getJobType() == JobType.TRIM && job.getStatus() == JobStatus.COMPLETED) {
+            return VirtualClipService.playlistUrl(job.getJobId());
+        }
+        return null;
+    }
+
+    private static Integer calculateProgress(ProcessingJob job) {
+        return switch (job.getStatus()) {
+            case PENDING -> 0;
+            case PROCESSING -> job.getProgress() != null ? job.getProgress() : 0;
+            case COMPLETED -> 100;
+            case FAILED -> 0;
+        };
+    }
+}
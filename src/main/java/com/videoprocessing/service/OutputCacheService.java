@@ -0,0 +1,230 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.entity.DerivedOutput;
+import com.videoprocessing.entity.ProcessingJob;
+import com.videoprocessing.enums.StorageTier;
+import com.videoprocessing.ffmpeg.WorkDirs;
+import com.videoprocessing.repository.DerivedOutputRepository;
+import com.videoprocessing.repository.ProcessingJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The output directory as a cache under {@code app.output-cache-quota-bytes}. Every output a
+ * fingerprinted job publishes is recorded with its size, how long the job ran and when it was
+ * last downloaded. Once the recorded outputs exceed the quota, the cheapest to lose are evicted
+ * until they are 10% under it: least recently used, with each millisecond of regeneration
+ * counting as {@code app.output-cache-cost-weight} milliseconds of recency, so an expensive
+ * ladder outlives a cheap trim downloaded at the same time.
+ * <p>
+ * Evicted rows stay, marked, so a later download knows which fingerprint produces the output
+ * again; {@link VideoProcessingService} does that on demand. Outputs of jobs without a
+ * fingerprint cannot be reproduced under their name and are left to the retention cleanup.
+ */
+@Service
+@Slf4j
+public class OutputCacheService {
+
+    private static final String EVICT_LOCK = "video:output-cache:evict";
+    private static final double LOW_WATERMARK = 0.9;
+    private static final int BATCH_SIZE = 100;
+
+    private final DerivedOutputRepository outputRepository;
+    private final ProcessingJobRepository jobRepository;
+    private final SystemStatsService statsService;
+    private final StringRedisTemplate redisTemplate;
+    private final AppProperties appProperties;
+    private final Path outputRoot;
+
+    // Latest access per output seen on this node since the last flush, in epoch millis
+    private final Map<Path, Long> accessed = new ConcurrentHashMap<>();
+
+    public OutputCacheService(DerivedOutputRepository outputRepository,
+                              ProcessingJobRepository jobRepository,
+                              SystemStatsService statsService,
+                              StringRedisTemplate redisTemplate,
+                              AppProperties appProperties,
+                              @Value("${app.output.dir:./outputs}") String outputDir) {
+        this.outputRepository = outputRepository;
+        this.jobRepository = jobRepository;
+        this.statsService = statsService;
+        this.redisTemplate = redisTemplate;
+        this.appProperties = appProperties;
+        this.outputRoot = Paths.get(outputDir).toAbsolutePath().normalize();
+    }
+
+    // ===== TRACKING =====
+
+    /**
+     * Records an output the job just moved into place, or refreshes the record of one it
+     * produced again.
+     */
+    public void published(Path output, String jobId) {
+        Path entry = entryOf(output);
+        ProcessingJob job = jobRepository.findByJobId(jobId).orElse(null);
+        if (entry == null || job == null || job.getFingerprint() == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long regenerationMillis = job.getStartedAt() != null
+                ? Math.max(0, Duration.between(job.getStartedAt(), now).toMillis()) : 0;
+
+        DerivedOutput record = outputRepository.findByPath(entry.toString())
+                .orElseGet(() -> DerivedOutput.builder().path(entry.toString()).build());
+        record.setFingerprint(job.getFingerprint());
+        record.setJobType(job.getJobType());
+        record.setSize(WorkDirs.sizeOf(entry));
+        record.setRegenerationMillis(regenerationMillis);
+        record.setLastAccessedAt(now);
+        record.setPriority(priority(now, regenerationMillis));
+        record.setEvictedAt(null);
+        try {
+            outputRepository.save(record);
+        } catch (DataIntegrityViolationException e) {
+            // An identical job on another node recorded it first
+            log.debug("Output {} already recorded", entry.getFileName());
+        }
+    }
+
+    /**
+     * Notes a download from an output. Only remembered here; written on the next flush.
+     */
+    public void touch(Path path) {
+        Path entry = entryOf(path);
+        if (entry != null) {
+            accessed.merge(entry, System.currentTimeMillis(), Math::max);
+        }
+    }
+
+    /**
+     * The fingerprint producing the output {@code path} lies in, or null if it is not tracked.
+     */
+    public String fingerprintOf(Path path) {
+        Path entry = entryOf(path);
+        return entry == null ? null : outputRepository.findByPath(entry.toString())
+                .map(DerivedOutput::getFingerprint)
+                .orElse(null);
+    }
+
+    /**
+     * Drops the records of outputs deleted for good, e.g. by the retention cleanup.
+     */
+    public void forget(List<String> paths) {
+        for (int i = 0; i < paths.size(); i += BATCH_SIZE) {
+            outputRepository.deleteByPathIn(paths.subList(i, Math.min(i + BATCH_SIZE, paths.size())));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.output-cache-access-flush-interval-ms:5000}")
+    public void flushAccesses() {
+        long costWeight = appProperties.getOutputCacheCostWeight();
+        for (Path entry : List.copyOf(accessed.keySet())) {
+            Long millis = accessed.remove(entry);
+            if (millis != null) {
+                LocalDateTime accessedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+                outputRepository.touch(entry.toString(), accessedAt, millis, costWeight);
+            }
+        }
+    }
+
+    // ===== EVICTION =====
+
+    @Scheduled(fixedDelayString = "${app.output-cache-check-interval-ms:60000}")
+    public void enforceQuota() {
+        long quota = appProperties.getOutputCacheQuotaBytes();
+        if (quota <= 0) {
+            return;
+        }
+        // One node at a time; without Redis each node checks, and the conditional evictions keep that safe
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(EVICT_LOCK,
+                    String.valueOf(System.currentTimeMillis()),
+                    Duration.ofMillis(appProperties.getOutputCacheCheckIntervalMs() / 2)))) {
+                return;
+            }
+        } catch (RuntimeException e) {
+            log.debug("Output cache lock unavailable, checking anyway: {}", e.getMessage());
+        }
+
+        // Accesses not written yet would otherwise count for nothing
+        flushAccesses();
+        long used = outputRepository.sumResidentSize();
+        if (used > quota) {
+            long freed = evict(used - (long) (quota * LOW_WATERMARK));
+            log.info("Output cache over quota ({} of {} bytes), evicted {} bytes", used, quota, freed);
+        }
+    }
+
+    /**
+     * Evicts outputs, lowest priority first, until at least {@code bytes} are freed. Outputs
+     * an unfinished job is producing or reusing are skipped.
+     *
+     * @return bytes freed
+     */
+    long evict(long bytes) {
+        long freed = 0;
+        long priority = Long.MIN_VALUE;
+        long afterId = 0;
+        Map<String, Boolean> inFlight = new HashMap<>();
+        List<DerivedOutput> batch;
+        do {
+            batch = outputRepository.findEvictionCandidates(priority, afterId, Limit.of(BATCH_SIZE));
+            for (DerivedOutput output : batch) {
+                if (freed >= bytes) {
+                    return freed;
+                }
+                priority = output.getPriority();
+                afterId = output.getId();
+                if (inFlight.computeIfAbsent(output.getFingerprint(),
+                        fingerprint -> !jobRepository.findInFlightByFingerprint(fingerprint).isEmpty())) {
+                    continue;
+                }
+                // Row first: if it was touched or produced again in the meantime, the file stays
+                if (outputRepository.markEvicted(output.getId(), output.getPriority(), LocalDateTime.now()) == 0) {
+                    continue;
+                }
+                Path entry = Paths.get(output.getPath());
+                long size = WorkDirs.sizeOf(entry);
+                WorkDirs.deleteRecursively(entry);
+                long reclaimed = size - WorkDirs.sizeOf(entry);
+                statsService.bytesStored(StorageTier.DERIVED, -reclaimed);
+                // The recorded size is what counts against the quota, even if the file had changed
+                freed += output.getSize() != null ? output.getSize() : reclaimed;
+                log.debug("Evicted {} ({} bytes, last accessed {})", entry.getFileName(), reclaimed,
+                        output.getLastAccessedAt());
+            }
+        } while (batch.size() == BATCH_SIZE);
+        return freed;
+    }
+
+    private long priority(LocalDateTime accessedAt, long regenerationMillis) {
+        return accessedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                + regenerationMillis * appProperties.getOutputCacheCostWeight();
+    }
+
+    // The top-level entry under the output directory a path lies in: the file itself, or its HLS package
+    private Path entryOf(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        if (!absolute.startsWith(outputRoot) || absolute.equals(outputRoot)) {
+            return null;
+        }
+        return outputRoot.resolve(outputRoot.relativize(absolute).getName(0));
+    }
+}
@@ -0,0 +1,19 @@
+package com.videoprocessing.service;
+
+import lombok.Getter;
+
+/**
+ * An evicted output is being produced again by another job. The client should retry.
+ */
+@Getter
+public class OutputRegeneratingException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String jobId;
+
+    public OutputRegeneratingException(String jobId) {
+        super("Output is being regenerated by job " + jobId + ", retry shortly");
+        this.jobId = jobId;
+    }
+}
@@ -0,0 +1,371 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.dtos.ApiResponseWrappers.UploadResponse;
+import com.videoprocessing.dtos.requestDtos.CreateUploadRequest;
+import com.videoprocessing.dtos.requestDtos.UploadVideoRequest;
+import com.videoprocessing.dtos.responseDtos.UploadSessionResponse;
+import com.videoprocessing.entity.UploadSession;
+import com.videoprocessing.enums.UploadStatus;
+import com.videoprocessing.repository.UploadSessionRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resumable uploads. A session preallocates the final file; chunks may then arrive in any
+ * order, in parallel and more than once, and each is written in place at its offset, so the
+ * finished file needs no assembly. A sidecar file holds one byte per chunk, set once that
+ * chunk has been written completely.
+ * <p>
+ * Chunk writes on this node hold a read lock of their own session, and completion takes its
+ * write lock once the session has left OPEN, so the file is hashed and handed off only after
+ * writes already under way have finished. The barrier is node-local: a first write of a chunk
+ * on another node is not waited for, but it is not marked received until it is done, so the
+ * completion then fails for a missing chunk and may be repeated. Sessions abandoned while
+ * OPEN are expired by {@link StorageGcService}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ResumableUploadService {
+
+    private static final int MIN_CHUNK_SIZE = 256 * 1024;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final byte RECEIVED = 1;
+
+    private final UploadSessionRepository sessionRepository;
+    private final AppProperties appProperties;
+
+    // Locks of sessions being written or completed on this node, by upload id; dropped when unused
+    private final Map<String, SessionLock> sessionLocks = new ConcurrentHashMap<>();
+
+    @Value("${app.upload.dir:./uploads}")
+    private String uploadDir;
+
+    public UploadSessionResponse createSession(CreateUploadRequest request) {
+        if (request.getSize() > appProperties.getMaxFileSize()) {
+            throw new RuntimeException("File exceeds the maximum size of " + appProperties.getMaxFileSize() + " bytes");
+        }
+        int chunkSize = request.getChunkSize() != null ? request.getChunkSize() : appProperties.getUploadChunkSize();
+        if (chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE) {
+            throw new RuntimeException("Chunk size must be between " + MIN_CHUNK_SIZE + " and " + MAX_CHUNK_SIZE + " bytes");
+        }
+
+        String originalFilename = FilenameUtils.getName(request.getFilename());
+        String filename = UUID.randomUUID() + "_" + originalFilename;
+        Path filePath = Paths.get(uploadDir, filename);
+        int chunkCount = (int) ((request.getSize() + chunkSize - 1) / chunkSize);
+
+        try {
+            Files.createDirectories(filePath.getParent());
+            try (RandomAccessFile file = new RandomAccessFile(filePath.toFile(), "rw")) {
+                file.setLength(request.getSize());
+            }
+            try (RandomAccessFile sidecar = new RandomAccessFile(sidecarPath(filePath).toFile(), "rw")) {
+                sidecar.setLength(chunkCount);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create upload: " + e.getMessage(), e);
+        }
+
+        UploadSession session = sessionRepository.save(UploadSession.builder()
+                .uploadId(UUID.randomUUID().toString())
+                .filename(filename)
+                .originalFilename(originalFilename)
+                .filepath(filePath.toString())
+                .totalSize(request.getSize())
+                .chunkSize(chunkSize)
+                .chunkCount(chunkCount)
+                .build());
+
+        log.info("Upload session {} created for {} ({} bytes in {} chunks)",
+                session.getUploadId(), originalFilename, request.getSize(), chunkCount);
+        return mapToResponse(session);
+    }
+
+    /**
+     * Writes chunk {@code index} from {@code body}. Writing a chunk again overwrites it with
+     * the same bytes, so retries are harmless.
+     */
+    public UploadSessionResponse writeChunk(String uploadId, int index, InputStream body) {
+        SessionLock sessionLock = acquireLock(uploadId);
+        Lock lock = sessionLock.getLock().readLock();
+        lock.lock();
+        try {
+            return writeChunk(findSession(uploadId), index, body);
+        } finally {
+            lock.unlock();
+            releaseLock(uploadId);
+        }
+    }
+
+    private UploadSessionResponse writeChunk(UploadSession session, int index, InputStream body) {
+        if (session.getStatus() != UploadStatus.OPEN) {
+            throw new RuntimeException("Upload is already " + session.getStatus().name().toLowerCase());
+        }
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new RuntimeException("Chunk index must be between 0 and " + (session.getChunkCount() - 1));
+        }
+
+        long offset = (long) index * session.getChunkSize();
+        long expected = Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+        Path filePath = Paths.get(session.getFilepath());
+
+        try (ReadableByteChannel source = Channels.newChannel(body);
+             FileChannel target = FileChannel.open(filePath, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long written = 0;
+            boolean eof = false;
+            while (!eof) {
+                buffer.clear();
+                while (buffer.hasRemaining() && !eof) {
+                    eof = source.read(buffer) == -1;
+                }
+                buffer.flip();
+                if (written + buffer.remaining() > expected) {
+                    throw new RuntimeException("Chunk " + index + " is larger than " + expected + " bytes");
+                }
+                while (buffer.hasRemaining()) {
+                    written += target.write(buffer, offset + written);
+                }
+            }
+            if (written != expected) {
+                throw new RuntimeException("Chunk " + index + " has " + written + " bytes, expected " + expected);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write chunk " + index + ": " + e.getMessage(), e);
+        }
+
+        // Only marked once all of its bytes are in place
+        try (FileChannel sidecar = FileChannel.open(sidecarPath(filePath), StandardOpenOption.WRITE)) {
+            sidecar.write(ByteBuffer.wrap(new byte[]{RECEIVED}), index);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to record chunk " + index + ": " + e.getMessage(), e);
+        }
+
+        return mapToResponse(session);
+    }
+
+    public UploadSessionResponse getSession(String uploadId) {
+        return mapToResponse(findSession(uploadId));
+    }
+
+    /**
+     * Hashes the assembled file and hands it to {@code handOff}, which starts the UPLOAD job
+     * and returns its id. Completing a completed session returns the same job. A session whose
+     * hand-off failed after taking the file is FAILED for good.
+     */
+    public UploadResponse completeSession(String uploadId, UploadHandOff handOff) {
+        if (sessionRepository.transition(uploadId, UploadStatus.OPEN, UploadStatus.COMPLETING) == 0) {
+            UploadSession session = findSession(uploadId);
+            if (session.getStatus() == UploadStatus.COMPLETED) {
+                return UploadResponse.builder()
+                        .jobId(session.getJobId())
+                        .message("Upload already completed")
+                        .status("COMPLETED")
+                        .build();
+            }
+            if (session.getStatus() == UploadStatus.COMPLETING) {
+                throw new RuntimeException("Upload is already being completed");
+            }
+            throw new RuntimeException("Upload is already " + session.getStatus().name().toLowerCase());
+        }
+
+        // New writes now see the session is no longer open; wait for those already writing
+        Lock barrier = acquireLock(uploadId).getLock().writeLock();
+        barrier.lock();
+        barrier.unlock();
+        releaseLock(uploadId);
+
+        UploadSession session = findSession(uploadId);
+        Path filePath = Paths.get(session.getFilepath());
+        UploadResponse response;
+        try {
+            int missing = session.getChunkCount() - countReceived(readReceived(session));
+            if (missing > 0) {
+                throw new RuntimeException(missing + " of " + session.getChunkCount() + " chunks not received yet");
+            }
+
+            String contentHash = sha256(filePath);
+            response = handOff.start(UploadVideoRequest.builder()
+                    .filename(session.getFilename())
+                    .originalFilename(session.getOriginalFilename())
+                    .filepath(session.getFilepath())
+                    .size(session.getTotalSize())
+                    .contentHash(contentHash)
+                    .build());
+        } catch (IOException | RuntimeException e) {
+            if (Files.exists(filePath)) {
+                // Nothing was handed off, so the client may send what is missing and complete again
+                sessionRepository.transition(uploadId, UploadStatus.COMPLETING, UploadStatus.OPEN);
+                throw e instanceof RuntimeException runtime ? runtime
+                        : new RuntimeException("Failed to complete upload: " + e.getMessage(), e);
+            }
+            // The hand-off moved the file into the blob store before failing; completing again
+            // would find nothing to hash
+            sessionRepository.transition(uploadId, UploadStatus.COMPLETING, UploadStatus.FAILED);
+            deleteSidecar(filePath, uploadId);
+            log.warn("Upload session {} failed after its file was handed off: {}", uploadId, e.getMessage());
+            throw new RuntimeException("Upload could not be processed, upload the file again: " + e.getMessage(), e);
+        }
+
+        // The job owns the file from here on; the session must not go back to OPEN
+        session.setStatus(UploadStatus.COMPLETED);
+        session.setJobId(response.getJobId());
+        session.setCompletedAt(LocalDateTime.now());
+        sessionRepository.save(session);
+        deleteSidecar(filePath, uploadId);
+
+        log.info("Upload session {} completed, job {}", uploadId, response.getJobId());
+        return response;
+    }
+
+    /**
+     * Starts processing of a completed upload.
+     */
+    @FunctionalInterface
+    public interface UploadHandOff {
+        UploadResponse start(UploadVideoRequest upload);
+    }
+
+    // A session's lock with the number of threads using it, only changed inside the map's compute
+    @Getter
+    private static class SessionLock {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private int users;
+    }
+
+    private SessionLock acquireLock(String uploadId) {
+        return sessionLocks.compute(uploadId, (id, held) -> {
+            SessionLock sessionLock = held != null ? held : new SessionLock();
+            sessionLock.users++;
+            return sessionLock;
+        });
+    }
+
+    private void releaseLock(String uploadId) {
+        sessionLocks.computeIfPresent(uploadId, (id, held) -> --held.users == 0 ? null : held);
+    }
+
+    private static void deleteSidecar(Path filePath, String uploadId) {
+        try {
+            Files.deleteIfExists(sidecarPath(filePath));
+        } catch (IOException e) {
+            log.warn("Could not remove chunk sidecar of upload {}: {}", uploadId, e.getMessage());
+        }
+    }
+
+    private UploadSession findSession(String uploadId) {
+        return sessionRepository.findByUploadId(uploadId)
+                .orElseThrow(() -> new RuntimeException("Upload not found"));
+    }
+
+    private byte[] readReceived(UploadSession session) throws IOException {
+        Path sidecar = sidecarPath(Paths.get(session.getFilepath()));
+        if (!Files.exists(sidecar)) {
+            // Removed on completion, when every chunk is in
+            byte[] all = new byte[session.getChunkCount()];
+            Arrays.fill(all, RECEIVED);
+            return all;
+        }
+        return Files.readAllBytes(sidecar);
+    }
+
+    private static int countReceived(byte[] received) {
+        int count = 0;
+        for (byte chunk : received) {
+            if (chunk == RECEIVED) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Runs of received chunk indexes, e.g. ["0-4", "7"]
+    private static List<String> ranges(byte[] received) {
+        List<String> ranges = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= received.length; i++) {
+            boolean got = i < received.length && received[i] == RECEIVED;
+            if (got && start < 0) {
+                start = i;
+            } else if (!got && start >= 0) {
+                ranges.add(start == i - 1 ? String.valueOf(start) : start + "-" + (i - 1));
+                start = -1;
+            }
+        }
+        return ranges;
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static Path sidecarPath(Path filePath) {
+        return filePath.resolveSibling(filePath.getFileName() + ".chunks");
+    }
+
+    private UploadSessionResponse mapToResponse(UploadSession session) {
+        byte[] received;
+        try {
+            received = readReceived(session);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read upload state: " + e.getMessage(), e);
+        }
+        return UploadSessionResponse.builder()
+                .uploadId(session.getUploadId())
+                .filename(session.getOriginalFilename())
+                .size(session.getTotalSize())
+                .chunkSize(session.getChunkSize())
+                .chunkCount(session.getChunkCount())
+                .receivedChunks(countReceived(received))
+                .receivedRanges(ranges(received))
+                .status(session.getStatus().name())
+                .jobId(session.getJobId())
+                .build();
+    }
+}
@@ -0,0 +1,585 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.dtos.responseDtos.CleanupReport;
+import com.videoprocessing.entity.ContentBlob;
+import com.videoprocessing.entity.UploadSession;
+import com.videoprocessing.enums.StorageTier;
+import com.videoprocessing.enums.UploadStatus;
+import com.videoprocessing.ffmpeg.IndexedKeyframeLocator;
+import com.videoprocessing.ffmpeg.WorkDirs;
+import com.videoprocessing.repository.ContentBlobRepository;
+import com.videoprocessing.repository.ProcessingJobRepository;
+import com.videoprocessing.repository.TrimmedVideoRepository;
+import com.videoprocessing.repository.UploadSessionRepository;
+import com.videoprocessing.repository.VideoQualityVersionRepositor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Retention for stored files. A run removes outputs older than
+ * {@code app.cleanup-retention-days} that nothing newer uses, leftovers of crashed jobs,
+ * blobs no video references, blob files without a row and resumable uploads abandoned while
+ * open, then deletes the trim and rendition rows that outlived their retention.
+ * <p>
+ * The directories are walked in parallel, but deletes go one at a time at no more than
+ * {@code app.cleanup-deletes-per-second}: unlinking large files is real I/O, and the volume is
+ * shared with running encodes. Rows go in batches of {@code app.cleanup-batch-size}, one short
+ * transaction each. A dry run walks and counts the same way but deletes nothing.
+ */
+@Service
+@Slf4j
+public class StorageGcService {
+
+    enum Category {
+        TRIM,    // trimmed_*
+        OVERLAY, // overlay_*, watermark_*, pipeline_*
+        QUALITY, // renditions and HLS packages
+        BLOB,    // uploaded content no video references
+        UPLOAD,  // resumable uploads never completed
+        ORPHAN   // leftovers of crashed jobs and files nothing here writes
+    }
+
+    @lombok.Value
+    static class Candidate {
+        Path path;
+        Category category;
+        StorageTier tier; // null for files the stats do not count
+        long size;
+    }
+
+    private static final String SCHEDULE_LOCK = "video:cleanup";
+    // Scratch directories of running jobs, one subdirectory per job
+    private static final Set<String> WORK_DIRS = Set.of("trim", "overlay", "chunks");
+    // A staging output or package carries the id of the job writing it
+    private static final Pattern STAGING = Pattern.compile(".+\\.[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}(\\.mp4)?");
+    private static final Pattern RENDITION = Pattern.compile(".+_\\d+p(_[0-9a-f]{8})?\\.mp4");
+    private static final Pattern BLOB_NAME = Pattern.compile("[0-9a-f]{64}");
+    // A blob file being deleted is renamed to this first, out of sight of uploads of the same content
+    private static final String TOMBSTONE_SUFFIX = ".deleting";
+
+    private final TrimmedVideoRepository trimmedVideoRepository;
+    private final VideoQualityVersionRepositor qualityRepository;
+    private final ProcessingJobRepository jobRepository;
+    private final ContentBlobRepository blobRepository;
+    private final UploadSessionRepository sessionRepository;
+    private final SystemStatsService statsService;
+    private final OutputCacheService outputCache;
+    private final StringRedisTemplate redisTemplate;
+    private final ThreadPoolTaskExecutor cleanupExecutor;
+    private final AppProperties appProperties;
+    private final Path outputRoot;
+    private final Path blobRoot;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile CleanupReport lastReport;
+
+    // Only touched by the run in progress
+    private long nextDeleteNanos;
+
+    public StorageGcService(TrimmedVideoRepository trimmedVideoRepository,
+                            VideoQualityVersionRepositor qualityRepository,
+                            ProcessingJobRepository jobRepository,
+                            ContentBlobRepository blobRepository,
+                            UploadSessionRepository sessionRepository,
+                            SystemStatsService statsService,
+                            OutputCacheService outputCache,
+                            StringRedisTemplate redisTemplate,
+                            @Qualifier("cleanupExecutor") ThreadPoolTaskExecutor cleanupExecutor,
+                            AppProperties appProperties,
+                            @Value("${app.output.dir:./outputs}") String outputDir,
+                            @Value("${app.upload.dir:./uploads}") String uploadDir) {
+        this.trimmedVideoRepository = trimmedVideoRepository;
+        this.qualityRepository = qualityRepository;
+        this.jobRepository = jobRepository;
+        this.blobRepository = blobRepository;
+        this.sessionRepository = sessionRepository;
+        this.statsService = statsService;
+        this.outputCache = outputCache;
+        this.redisTemplate = redisTemplate;
+        this.cleanupExecutor = cleanupExecutor;
+        this.appProperties = appProperties;
+        this.outputRoot = Paths.get(outputDir).toAbsolutePath().normalize();
+        this.blobRoot = Paths.get(uploadDir, BlobStoreService.BLOB_DIR).toAbsolutePath().normalize();
+    }
+
+    @Scheduled(cron = "${app.cleanup-cron:0 30 3 * * *}")
+    public void scheduledCleanup() {
+        if (!appProperties.isCleanupEnabled()) {
+            return;
+        }
+        // One node a day is enough; without Redis every node runs, which only repeats work
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(SCHEDULE_LOCK, String.valueOf(System.currentTimeMillis()), Duration.ofHours(12)))) {
+                return;
+            }
+        } catch (RuntimeException e) {
+            log.debug("Cleanup lock unavailable, running anyway: {}", e.getMessage());
+        }
+        start(false);
+    }
+
+    /**
+     * Starts a run in the background.
+     *
+     * @return false if one is already running
+     */
+    public boolean start(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            cleanupExecutor.execute(() -> {
+                try {
+                    lastReport = run(dryRun);
+                } catch (Exception e) {
+                    log.error("Storage cleanup failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public CleanupReport getLastReport() {
+        return lastReport;
+    }
+
+    CleanupReport run(boolean dryRun) throws InterruptedException {
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDateTime cutoff = startedAt.minusDays(appProperties.getCleanupRetentionDays());
+        Instant cutoffInstant = cutoff.atZone(ZoneId.systemDefault()).toInstant();
+        nextDeleteNanos = System.nanoTime();
+        log.info("Storage cleanup started{}, removing files older than {}", dryRun ? " (dry run)" : "", cutoff);
+
+        Map<Category, Long> files = new EnumMap<>(Category.class);
+        Map<Category, Long> bytes = new EnumMap<>(Category.class);
+        long[] failures = {0};
+        Predicate<Candidate> remove = candidate -> {
+            if (!dryRun && !delete(candidate.getPath())) {
+                failures[0]++;
+                return false;
+            }
+            files.merge(candidate.getCategory(), 1L, Long::sum);
+            bytes.merge(candidate.getCategory(), candidate.getSize(), Long::sum);
+            if (!dryRun && candidate.getTier() != null) {
+                statsService.bytesStored(candidate.getTier(), -candidate.getSize());
+            }
+            return true;
+        };
+
+        // Blobs first: once their rows are gone the walk below would take them for orphans
+        long blobRows = removeUnreferencedBlobs(cutoff, dryRun, remove);
+        long expiredUploads = expireAbandonedUploads(cutoff, cutoffInstant, dryRun, remove);
+
+        Set<Path> inUse = outputsInUse(cutoff);
+        List<String> removedOutputs = new ArrayList<>();
+        for (Candidate candidate : walk(cutoffInstant, inUse)) {
+            if (remove.test(candidate) && !dryRun && candidate.getTier() == StorageTier.DERIVED) {
+                removedOutputs.add(candidate.getPath().toString());
+            }
+        }
+        // Expired for good: a download should not bring them back
+        outputCache.forget(removedOutputs);
+
+        int batchSize = appProperties.getCleanupBatchSize();
+        long trimmedRows = dryRun
+                ? trimmedVideoRepository.countByFilepathIsNotNullAndCreatedAtBefore(cutoff)
+                : deleteInBatches(() -> {
+                    List<Long> ids = trimmedVideoRepository.findExpiredIds(cutoff, Limit.of(batchSize));
+                    trimmedVideoRepository.deleteAllByIdInBatch(ids);
+                    return ids.size();
+                }, batchSize);
+        long qualityRows = dryRun
+                ? qualityRepository.countByCreatedAtBefore(cutoff)
+                : deleteInBatches(() -> {
+                    List<Long> ids = qualityRepository.findExpiredIds(cutoff, Limit.of(batchSize));
+                    qualityRepository.deleteAllByIdInBatch(ids);
+                    return ids.size();
+                }, batchSize);
+
+        Map<String, Long> filesByCategory = new LinkedHashMap<>();
+        Map<String, Long> bytesByCategory = new LinkedHashMap<>();
+        for (Category category : Category.values()) {
+            filesByCategory.put(category.name(), files.getOrDefault(category, 0L));
+            bytesByCategory.put(category.name(), bytes.getOrDefault(category, 0L));
+        }
+        CleanupReport report = CleanupReport.builder()
+                .dryRun(dryRun)
+                .startedAt(startedAt)
+                .completedAt(LocalDateTime.now())
+                .cutoff(cutoff)
+                .filesDeleted(filesByCategory.values().stream().mapToLong(Long::longValue).sum())
+                .bytesReclaimed(bytesByCategory.values().stream().mapToLong(Long::longValue).sum())
+                .filesByCategory(filesByCategory)
+                .bytesByCategory(bytesByCategory)
+                .trimmedRowsDeleted(trimmedRows)
+                .qualityRowsDeleted(qualityRows)
+                .blobRowsDeleted(blobRows)
+                .uploadSessionsExpired(expiredUploads)
+                .failures(failures[0])
+                .build();
+        log.info("Storage cleanup finished{}: {} files, {} bytes, {} trim rows, {} rendition rows, {} blob rows, "
+                        + "{} expired uploads, {} failures",
+                dryRun ? " (dry run)" : "", report.getFilesDeleted(), report.getBytesReclaimed(),
+                trimmedRows, qualityRows, blobRows, expiredUploads, failures[0]);
+        return report;
+    }
+
+    // ===== FINDING =====
+
+    /**
+     * Top-level output entries that rows newer than the cutoff, or unfinished jobs, point into.
+     * An old file reused by a recent job is among them.
+     */
+    private Set<Path> outputsInUse(LocalDateTime cutoff) {
+        Set<Path> inUse = new HashSet<>();
+        Stream.of(trimmedVideoRepository.findFilepathsCreatedSince(cutoff),
+                        qualityRepository.findFilepathsCreatedSince(cutoff),
+                        jobRepository.findResultPathsInUseSince(cutoff))
+                .flatMap(List::stream)
+                .map(path -> Paths.get(path).toAbsolutePath().normalize())
+                .filter(path -> path.startsWith(outputRoot) && !path.equals(outputRoot))
+                .forEach(path -> inUse.add(outputRoot.resolve(outputRoot.relativize(path).getName(0))));
+        return inUse;
+    }
+
+    /**
+     * Expired outputs and orphaned blob files. Each top-level output entry, job scratch
+     * directory and blob shard is measured as its own task.
+     */
+    private List<Candidate> walk(Instant cutoff, Set<Path> inUse) throws InterruptedException {
+        List<Path> roots = new ArrayList<>();
+        for (Path entry : list(outputRoot)) {
+            if (WORK_DIRS.contains(entry.getFileName().toString()) && Files.isDirectory(entry)) {
+                roots.addAll(list(entry));
+            } else if (!inUse.contains(entry)) {
+                roots.add(entry);
+            }
+        }
+        List<Path> shards = list(blobRoot);
+
+        ForkJoinPool pool = new ForkJoinPool(appProperties.getCleanupWalkParallelism());
+        try {
+            List<Candidate> outputs = pool.submit(() -> roots.parallelStream()
+                    .filter(entry -> olderThan(entry, cutoff))
+                    .map(entry -> new Candidate(entry, classify(entry), StorageTier.DERIVED, WorkDirs.sizeOf(entry)))
+                    .toList()).get();
+            List<Path> oldBlobFiles = pool.submit(() -> shards.parallelStream()
+                    .flatMap(shard -> walkFiles(shard).stream())
+                    .filter(file -> olderThan(file, cutoff))
+                    .toList()).get();
+
+            List<Candidate> candidates = new ArrayList<>(outputs);
+            candidates.addAll(orphanedBlobFiles(oldBlobFiles));
+            return candidates;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Storage walk failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    // Blob files whose hash has no row, and keyframe sidecars whose blob is gone
+    private List<Candidate> orphanedBlobFiles(List<Path> files) {
+        Map<String, Path> blobs = new LinkedHashMap<>();
+        List<Candidate> orphans = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (BLOB_NAME.matcher(name).matches()) {
+                blobs.put(name, file);
+            } else if (name.endsWith(TOMBSTONE_SUFFIX)) {
+                // Left by a run that stopped between renaming and deleting
+                orphans.add(new Candidate(file, Category.ORPHAN, null, file.toFile().length()));
+            } else if (name.endsWith(IndexedKeyframeLocator.SIDECAR_SUFFIX)
+                    && !Files.exists(file.resolveSibling(name.substring(0, name.length() - IndexedKeyframeLocator.SIDECAR_SUFFIX.length())))) {
+                orphans.add(new Candidate(file, Category.ORPHAN, null, file.toFile().length()));
+            }
+        }
+
+        List<String> hashes = new ArrayList<>(blobs.keySet());
+        int batchSize = appProperties.getCleanupBatchSize();
+        for (int i = 0; i < hashes.size(); i += batchSize) {
+            List<String> batch = hashes.subList(i, Math.min(i + batchSize, hashes.size()));
+            Set<String> existing = new HashSet<>(blobRepository.findExistingHashes(batch));
+            for (String hash : batch) {
+                if (!existing.contains(hash)) {
+                    Path file = blobs.get(hash);
+                    // Not counted in the stats: those sum blob rows, and this file has none
+                    orphans.add(new Candidate(file, Category.ORPHAN, null, file.toFile().length()));
+                }
+            }
+        }
+        return orphans;
+    }
+
+    static Category classify(Path entry) {
+        String name = entry.getFileName().toString();
+        if (WORK_DIRS.contains(entry.getParent().getFileName().toString()) || STAGING.matcher(name).matches()) {
+            return Category.ORPHAN;
+        }
+        if (name.startsWith("trimmed_")) {
+            return Category.TRIM;
+        }
+        if (name.startsWith("overlay_") || name.startsWith("watermark_") || name.startsWith("pipeline_")) {
+            return Category.OVERLAY;
+        }
+        if (name.startsWith("hls_") || RENDITION.matcher(name).matches()) {
+            return Category.QUALITY;
+        }
+        return Category.ORPHAN;
+    }
+
+    // ===== DELETING =====
+
+    /**
+     * Deletes blobs with no references in batches. Each file is renamed to a tombstone before
+     * its row is deleted, so an upload of the same content meanwhile stores a file of its own
+     * rather than taking the one about to go. Rows are only deleted if still unreferenced, and
+     * a tombstone is put back if its row stayed or a new row for the hash turned up.
+     */
+    private long removeUnreferencedBlobs(LocalDateTime cutoff, boolean dryRun, Predicate<Candidate> remove) {
+        long rows = 0;
+        long afterId = 0;
+        int batchSize = appProperties.getCleanupBatchSize();
+        List<ContentBlob> batch;
+        do {
+            batch = blobRepository.findUnreferencedBefore(cutoff, afterId, Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+
+            if (dryRun) {
+                rows += batch.size();
+                for (ContentBlob blob : batch) {
+                    remove.test(new Candidate(Paths.get(blob.getPath()), Category.BLOB, null, sizeOf(blob)));
+                }
+                continue;
+            }
+
+            Map<Long, Path> tombstones = new LinkedHashMap<>();
+            for (ContentBlob blob : batch) {
+                Path tombstone = tombstone(Paths.get(blob.getPath()));
+                if (tombstone != null) {
+                    tombstones.put(blob.getId(), tombstone);
+                }
+            }
+            if (tombstones.isEmpty()) {
+                continue;
+            }
+            rows += blobRepository.deleteUnreferenced(tombstones.keySet());
+            Set<Long> kept = blobRepository.findAllById(tombstones.keySet()).stream()
+                    .map(ContentBlob::getId).collect(Collectors.toSet());
+
+            for (ContentBlob blob : batch) {
+                Path tombstone = tombstones.get(blob.getId());
+                if (tombstone == null) {
+                    continue;
+                }
+                Path file = Paths.get(blob.getPath());
+                if (kept.contains(blob.getId())) {
+                    restore(tombstone, file);
+                    continue;
+                }
+                if (blob.getSize() != null) {
+                    statsService.bytesStored(StorageTier.ORIGINAL, -blob.getSize());
+                }
+                // Uploaded again since the rename; the new row points at the same path
+                if (blobRepository.findByContentHash(blob.getContentHash()).isPresent()) {
+                    restore(tombstone, file);
+                    continue;
+                }
+                if (remove.test(new Candidate(tombstone, Category.BLOB, null, sizeOf(blob))) && !Files.exists(file)) {
+                    Path sidecar = file.resolveSibling(file.getFileName() + IndexedKeyframeLocator.SIDECAR_SUFFIX);
+                    if (Files.exists(sidecar)) {
+                        delete(sidecar);
+                    }
+                }
+            }
+        } while (batch.size() == batchSize);
+        return rows;
+    }
+
+    private static long sizeOf(ContentBlob blob) {
+        return blob.getSize() != null ? blob.getSize() : 0;
+    }
+
+    // Where the file now is (the file itself if it was gone already), or null to keep the blob for now
+    private static Path tombstone(Path file) {
+        Path tombstone = file.resolveSibling(file.getFileName() + TOMBSTONE_SUFFIX);
+        try {
+            Files.move(file, tombstone, StandardCopyOption.ATOMIC_MOVE);
+            return tombstone;
+        } catch (NoSuchFileException e) {
+            return file;
+        } catch (IOException e) {
+            log.warn("Could not set aside blob {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    // Puts a tombstoned blob back, unless an upload has stored the same content there since
+    private void restore(Path tombstone, Path file) {
+        if (tombstone.equals(file)) {
+            return;
+        }
+        try {
+            // A link, unlike a rename, never replaces a file stored there meanwhile
+            Files.createLink(file, tombstone);
+            Files.delete(tombstone);
+        } catch (FileAlreadyExistsException e) {
+            delete(tombstone);
+        } catch (IOException e) {
+            log.warn("Could not restore blob {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Expires uploads left open since before the cutoff and deletes their files. One whose
+     * file was written to since the cutoff is still being uploaded and stays; the conditional
+     * transition keeps one being completed meanwhile.
+     */
+    private long expireAbandonedUploads(LocalDateTime cutoff, Instant cutoffInstant, boolean dryRun,
+                                        Predicate<Candidate> remove) {
+        long expired = 0;
+        long afterId = 0;
+        int batchSize = appProperties.getCleanupBatchSize();
+        List<UploadSession> batch;
+        do {
+            batch = sessionRepository.findOpenBefore(cutoff, afterId, Limit.of(batchSize));
+            for (UploadSession session : batch) {
+                afterId = session.getId();
+                Path file = Paths.get(session.getFilepath());
+                if (Files.exists(file) && !olderThan(file, cutoffInstant)) {
+                    continue;
+                }
+                if (!dryRun && sessionRepository.transition(session.getUploadId(), UploadStatus.OPEN, UploadStatus.EXPIRED) == 0) {
+                    continue;
+                }
+                expired++;
+                if (Files.exists(file)) {
+                    remove.test(new Candidate(file, Category.UPLOAD, null, file.toFile().length()));
+                }
+                Path sidecar = ResumableUploadService.sidecarPath(file);
+                if (!dryRun && Files.exists(sidecar)) {
+                    delete(sidecar);
+                }
+            }
+        } while (batch.size() == batchSize);
+        return expired;
+    }
+
+    private static long deleteInBatches(LongSupplier deleteBatch, int batchSize) {
+        long total = 0;
+        long deleted;
+        do {
+            deleted = deleteBatch.getAsLong();
+            total += deleted;
+        } while (deleted == batchSize);
+        return total;
+    }
+
+    /**
+     * Deletes a file, or a directory and everything in it, one paced unlink at a time.
+     */
+    private boolean delete(Path path) {
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path entry : paths.sorted(Comparator.reverseOrder()).toList()) {
+                pace();
+                Files.deleteIfExists(entry);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not delete {}: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    private void pace() {
+        long interval = TimeUnit.SECONDS.toNanos(1) / appProperties.getCleanupDeletesPerSecond();
+        long now = System.nanoTime();
+        if (nextDeleteNanos > now) {
+            LockSupport.parkNanos(nextDeleteNanos - now);
+        }
+        nextDeleteNanos = Math.max(nextDeleteNanos, now) + interval;
+    }
+
+    // ===== FILES =====
+
+    private static List<Path> list(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries.toList();
+        } catch (IOException e) {
+            log.warn("Could not list {}: {}", dir, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static List<Path> walkFiles(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile).toList();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not walk {}: {}", dir, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static boolean olderThan(Path path, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            // Gone since it was listed
+            return false;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.dtos.SystemStats;
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.enums.JobType;
+import com.videoprocessing.enums.StorageTier;
+import com.videoprocessing.ffmpeg.WorkDirs;
+import com.videoprocessing.repository.ContentBlobRepository;
+import com.videoprocessing.repository.JobStatusCount;
+import com.videoprocessing.repository.ProcessingJobRepository;
+import com.videoprocessing.repository.VideoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * System statistics kept as counters, so reading them costs the same however many jobs and
+ * files there are. Every job transition, video and stored file adjusts a striped
+ * {@link LongAdder} on this node; a flush every {@code app.stats-flush-interval-ms} adds the
+ * accumulated deltas to a Redis hash holding the cluster totals and reads the totals back.
+ * Stats are served from that copy plus what this node has not flushed yet, without a
+ * round trip.
+ * <p>
+ * Counters drift when a process dies with unflushed deltas or a change bypasses them, so one
+ * node every {@code app.stats-reconcile-interval-ms} recounts from MySQL and the output
+ * directory and adds the difference. Without Redis, counters are this node's view only,
+ * reset to the recount.
+ */
+@Service
+@Slf4j
+public class SystemStatsService {
+
+    private static final String KEY = "video:stats";
+    private static final String RECONCILE_LOCK = "video:stats:reconcile";
+    private static final String VIDEOS = "videos";
+    private static final String RECONCILED_AT = "reconciledAt";
+
+    // ARGV: field/delta pairs. Returns the whole hash after applying them.
+    @SuppressWarnings("unchecked") // List.class cannot carry the element type
+    private static final RedisScript<List<Object>> INCREMENT = new DefaultRedisScript<>("""
+            for i = 1, #ARGV, 2 do
+                redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            return redis.call('HGETALL', KEYS[1])
+            """, (Class<List<Object>>) (Class<?>) List.class);
+
+    private final ProcessingJobRepository jobRepository;
+    private final VideoRepository videoRepository;
+    private final ContentBlobRepository blobRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final String outputDir;
+    private final Duration reconcileLockTtl;
+
+    private final Map<String, LongAdder> unflushed = new ConcurrentHashMap<>();
+    private volatile Map<String, Long> totals = Map.of();
+
+    public SystemStatsService(ProcessingJobRepository jobRepository,
+                              VideoRepository videoRepository,
+                              ContentBlobRepository blobRepository,
+                              StringRedisTemplate redisTemplate,
+                              AppProperties appProperties,
+                              @Value("${app.output.dir:./outputs}") String outputDir) {
+        this.jobRepository = jobRepository;
+        this.videoRepository = videoRepository;
+        this.blobRepository = blobRepository;
+        this.redisTemplate = redisTemplate;
+        this.outputDir = outputDir;
+        // Shorter than the interval, so some node always gets the next one
+        this.reconcileLockTtl = Duration.ofMillis(appProperties.getStatsReconcileIntervalMs() / 2);
+    }
+
+    // ===== RECORDING =====
+
+    public void jobCreated(JobType type, JobStatus status) {
+        add(jobCounter(type, status), 1);
+    }
+
+    public void jobTransitioned(JobType type, JobStatus from, JobStatus to) {
+        if (from != to) {
+            add(jobCounter(type, from), -1);
+            add(jobCounter(type, to), 1);
+        }
+    }
+
+    public void videoAdded() {
+        add(VIDEOS, 1);
+    }
+
+    public void bytesStored(StorageTier tier, long delta) {
+        if (delta != 0) {
+            add(bytesCounter(tier), delta);
+        }
+    }
+
+    // Inside a transaction the change counts only once it commits
+    private void add(String counter, long delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    adder(counter).add(delta);
+                }
+            });
+        } else {
+            adder(counter).add(delta);
+        }
+    }
+
+    private LongAdder adder(String counter) {
+        return unflushed.computeIfAbsent(counter, name -> new LongAdder());
+    }
+
+    // ===== READING =====
+
+    public SystemStats getStats() {
+        Map<String, Long> counters = new HashMap<>(totals);
+        unflushed.forEach((counter, adder) -> counters.merge(counter, adder.sum(), Long::sum));
+
+        Map<String, Map<String, Long>> jobsByType = new LinkedHashMap<>();
+        Map<String, Long> jobsByStatus = new LinkedHashMap<>();
+        for (JobType type : JobType.values()) {
+            Map<String, Long> byStatus = new LinkedHashMap<>();
+            for (JobStatus status : JobStatus.values()) {
+                long count = counters.getOrDefault(jobCounter(type, status), 0L);
+                byStatus.put(status.name(), count);
+                jobsByStatus.merge(status.name(), count, Long::sum);
+            }
+            jobsByType.put(type.name(), byStatus);
+        }
+        Map<String, Long> storageByTier = new LinkedHashMap<>();
+        for (StorageTier tier : StorageTier.values()) {
+            storageByTier.put(tier.name(), counters.getOrDefault(bytesCounter(tier), 0L));
+        }
+        Long reconciledAt = counters.get(RECONCILED_AT);
+
+        return SystemStats.builder()
+                .totalVideos(counters.getOrDefault(VIDEOS, 0L))
+                .totalJobs(jobsByStatus.values().stream().mapToLong(Long::longValue).sum())
+                .completedJobs(jobsByStatus.get(JobStatus.COMPLETED.name()))
+                .failedJobs(jobsByStatus.get(JobStatus.FAILED.name()))
+                .storageUsed(storageByTier.values().stream().mapToLong(Long::longValue).sum())
+                .jobsByType(jobsByType)
+                .jobsByStatus(jobsByStatus)
+                .storageByTier(storageByTier)
+                .reconciledAt(reconciledAt != null
+                        ? LocalDateTime.ofInstant(Instant.ofEpochMilli(reconciledAt), ZoneId.systemDefault())
+                        : null)
+                .build();
+    }
+
+    /**
+     * One job counter, e.g. the queue depth of a job type, as {@link #getStats()} would report it.
+     */
+    public long jobCount(JobType type, JobStatus status) {
+        String counter = jobCounter(type, status);
+        LongAdder pending = unflushed.get(counter);
+        return totals.getOrDefault(counter, 0L) + (pending != null ? pending.sum() : 0);
+    }
+
+    // ===== CLUSTER TOTALS =====
+
+    @Scheduled(fixedDelayString = "${app.stats-flush-interval-ms:1000}")
+    public void flush() {
+        Map<String, Long> deltas = drain();
+        try {
+            totals = increment(deltas);
+        } catch (RuntimeException e) {
+            // Kept for the next flush
+            deltas.forEach((counter, delta) -> adder(counter).add(delta));
+            log.debug("Stats flush failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.stats-reconcile-initial-delay-ms:30000}",
+            fixedDelayString = "${app.stats-reconcile-interval-ms:300000}")
+    public void reconcile() {
+        boolean clustered;
+        try {
+            clustered = Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(RECONCILE_LOCK, String.valueOf(System.currentTimeMillis()), reconcileLockTtl));
+            if (!clustered) {
+                return;
+            }
+            flush();
+        } catch (RuntimeException e) {
+            clustered = false;
+        }
+
+        long started = System.currentTimeMillis();
+        Map<String, Long> actual = count();
+        // Stored as one more counter, so the correction below sets it
+        actual.put(RECONCILED_AT, started);
+
+        if (!clustered) {
+            drain();
+            totals = actual;
+            log.info("Stats recounted locally in {} ms", System.currentTimeMillis() - started);
+            return;
+        }
+
+        // Differences against the totals as they were just before the recount
+        Map<String, Long> corrections = new HashMap<>();
+        actual.forEach((counter, value) -> corrections.put(counter, value - totals.getOrDefault(counter, 0L)));
+        totals.forEach((counter, value) -> corrections.putIfAbsent(counter, -value));
+        corrections.values().removeIf(delta -> delta == 0);
+        try {
+            totals = increment(corrections);
+        } catch (RuntimeException e) {
+            log.warn("Stats reconciliation could not be written: {}", e.getMessage());
+            return;
+        }
+        corrections.remove(RECONCILED_AT);
+        if (!corrections.isEmpty()) {
+            log.info("Stats reconciled in {} ms, corrected {}", System.currentTimeMillis() - started, corrections);
+        }
+    }
+
+    private Map<String, Long> drain() {
+        Map<String, Long> deltas = new HashMap<>();
+        unflushed.forEach((counter, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta != 0) {
+                deltas.put(counter, delta);
+            }
+        });
+        return deltas;
+    }
+
+    private Map<String, Long> increment(Map<String, Long> deltas) {
+        List<String> args = new ArrayList<>();
+        deltas.forEach((counter, delta) -> {
+            args.add(counter);
+            args.add(String.valueOf(delta));
+        });
+        List<?> hash = redisTemplate.execute(INCREMENT, List.of(KEY), args.toArray());
+
+        Map<String, Long> values = new HashMap<>();
+        for (int i = 0; i + 1 < hash.size(); i += 2) {
+            values.put((String) hash.get(i), Long.valueOf((String) hash.get(i + 1)));
+        }
+        return values;
+    }
+
+    /**
+     * The counters recomputed from scratch: grouped counts over the jobs, and the sizes of
+     * stored blobs and of everything under the output directory.
+     */
+    private Map<String, Long> count() {
+        Map<String, Long> counters = new HashMap<>();
+        for (JobStatusCount count : jobRepository.countByTypeAndStatus()) {
+            counters.put(jobCounter(count.getJobType(), count.getStatus()), count.getCount());
+        }
+        counters.put(VIDEOS, videoRepository.count());
+        counters.put(bytesCounter(StorageTier.ORIGINAL), blobRepository.sumSize());
+        counters.put(bytesCounter(StorageTier.DERIVED), WorkDirs.sizeOf(Paths.get(outputDir)));
+        return counters;
+    }
+
+    private static String jobCounter(JobType type, JobStatus status) {
+        return "jobs:" + type + ":" + status;
+    }
+
+    private static String bytesCounter(StorageTier tier) {
+        return "bytes:" + tier;
+    }
+}
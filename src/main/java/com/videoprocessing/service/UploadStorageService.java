@@ -0,0 +1,174 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.dtos.requestDtos.UploadVideoRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUpload;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.UploadContext;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Streams multipart uploads straight to their final place in the upload directory. The body
+ * is parsed as it arrives, so the file is written exactly once, with no temp file in between,
+ * and its SHA-256 and size are computed from the same buffer that is written.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadStorageService {
+
+    private static final String FILE_FIELD = "file";
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final AppProperties appProperties;
+
+    @Value("${app.upload.dir:./uploads}")
+    private String uploadDir;
+
+    /**
+     * Stores the "file" part of a multipart/form-data request.
+     *
+     * @return where the upload was stored, with its size and content hash
+     */
+    public UploadVideoRequest store(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        if (contentType == null || !contentType.toLowerCase().startsWith("multipart/")) {
+            throw new RuntimeException("Upload must be multipart/form-data");
+        }
+
+        FileUpload upload = new FileUpload();
+        upload.setFileSizeMax(appProperties.getMaxFileSize());
+        try {
+            FileItemIterator items = upload.getItemIterator(new ServletUploadContext(request));
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                // Other parts are skipped unread by the iterator
+                if (!item.isFormField() && FILE_FIELD.equals(item.getFieldName())) {
+                    return write(item);
+                }
+            }
+        } catch (FileUploadException | IOException e) {
+            throw new RuntimeException("Failed to store upload: " + e.getMessage(), e);
+        }
+        throw new RuntimeException("No file part named '" + FILE_FIELD + "' in upload");
+    }
+
+    private UploadVideoRequest write(FileItemStream item) throws IOException {
+        if (item.getContentType() == null || !item.getContentType().startsWith("video/")) {
+            throw new RuntimeException("File must be a video");
+        }
+
+        String originalFilename = FilenameUtils.getName(item.getName());
+        String filename = UUID.randomUUID() + "_" + originalFilename;
+        Path filePath = Paths.get(uploadDir, filename);
+        Files.createDirectories(filePath.getParent());
+
+        MessageDigest digest = sha256();
+        long size = 0;
+        boolean stored = false;
+        try (InputStream in = item.openStream();
+             ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel target = FileChannel.open(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            boolean eof = false;
+            while (!eof) {
+                // Fill the buffer completely so each write to disk is large
+                buffer.clear();
+                while (buffer.hasRemaining() && !eof) {
+                    eof = source.read(buffer) == -1;
+                }
+                buffer.flip();
+
+                digest.update(buffer);
+                buffer.rewind();
+                while (buffer.hasRemaining()) {
+                    size += target.write(buffer);
+                }
+            }
+            stored = true;
+        } finally {
+            if (!stored) {
+                Files.deleteIfExists(filePath);
+            }
+        }
+
+        if (size == 0) {
+            Files.delete(filePath);
+            throw new RuntimeException("File is empty");
+        }
+
+        String contentHash = HexFormat.of().formatHex(digest.digest());
+        log.info("Stored upload {} ({} bytes, sha256 {})", filePath, size, contentHash);
+
+        return UploadVideoRequest.builder()
+                .filename(filename)
+                .originalFilename(originalFilename)
+                .filepath(filePath.toString())
+                .size(size)
+                .contentHash(contentHash)
+                .build();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // commons-fileupload only ships a javax.servlet adapter
+    @RequiredArgsConstructor
+    private static class ServletUploadContext implements UploadContext {
+
+        private final HttpServletRequest request;
+
+        @Override
+        public String getCharacterEncoding() {
+            return request.getCharacterEncoding();
+        }
+
+        @Override
+        public String getContentType() {
+            return request.getContentType();
+        }
+
+        @Override
+        @Deprecated
+        public int getContentLength() {
+            return request.getContentLength();
+        }
+
+        @Override
+        public long contentLength() {
+            return request.getContentLengthLong();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return request.getInputStream();
+        }
+    }
+}
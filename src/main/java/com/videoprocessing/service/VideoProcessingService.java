@@ -6,33 +6,83 @@ import com.videoprocessing.repository.*;
 import com.videoprocessing.dtos.requestDtos.*;
 import com.videoprocessing.dtos.responseDtos.*;
 import com.videoprocessing.dtos.ApiResponseWrappers.*;
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.download.FileDownloadService;
+import com.videoprocessing.ffmpeg.ChunkedEncoder;
+import com.videoprocessing.ffmpeg.FFmpegCommands;
+import com.videoprocessing.ffmpeg.FFmpegExecutor;
+import com.videoprocessing.ffmpeg.FilterPipeline;
+import com.videoprocessing.ffmpeg.IndexedKeyframeLocator;
+import com.videoprocessing.ffmpeg.MediaInfo;
+import com.videoprocessing.ffmpeg.FFmpegProgress;
+import com.videoprocessing.ffmpeg.OverlayFilters;
+import com.videoprocessing.ffmpeg.SmartTrimmer;
+import com.videoprocessing.ffmpeg.VideoProber;
+import com.videoprocessing.ffmpeg.WindowedOverlayRenderer;
+import com.videoprocessing.ffmpeg.WorkDirs;
+import com.videoprocessing.queue.JobQueueService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
 import java.nio.file.*;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
-@Transactional
 public class VideoProcessingService {
 
+    private static final String TRIM_PREFIX = "trimmed_";
+    private static final String OVERLAY_PREFIX = "overlay_";
+    private static final String WATERMARK_PREFIX = "watermark_";
+    private static final String HLS_PREFIX = "hls_";
+    private static final int MAX_PAGE_SIZE = 200;
+    // A regeneration that failed this recently is reported instead of being started again
+    private static final Duration REGENERATION_FAILURE_HOLD = Duration.ofMinutes(1);
+    // Package directories are named by fingerprint, or by a random UUID for jobs without one
+    private static final Pattern HLS_PACKAGE_ID = Pattern.compile("hls_([0-9a-f]{64}|[0-9a-f-]{36})");
+    private static final Pattern HLS_FILE_NAME = Pattern.compile("[A-Za-z0-9_][A-Za-z0-9_.-]*");
+
     private final VideoRepository videoRepository;
     private final ProcessingJobRepository jobRepository;
     private final TrimmedVideoRepository trimmedVideoRepository;
     private final VideoOverlayRepository overlayRepository;
     private final VideoQualityVersionRepositor qualityRepository;
     private final FontService fontService; // Add this dependency
+    private final JobQueueService jobQueueService;
+    private final FFmpegExecutor ffmpegExecutor;
+    private final ChunkedEncoder chunkedEncoder;
+    private final SmartTrimmer smartTrimmer;
+    private final VideoProber videoProber;
+    private final IndexedKeyframeLocator keyframeLocator;
+    private final WindowedOverlayRenderer windowedOverlayRenderer;
+    private final JobProgressService progressService;
+    private final JobStateService jobStateService;
+    private final UploadStorageService uploadStorageService;
+    private final ResumableUploadService resumableUploadService;
+    private final BlobStoreService blobStoreService;
+    private final JobStatusService jobStatusService;
+    private final JobFingerprintService fingerprintService;
+    private final SystemStatsService statsService;
+    private final OutputCacheService outputCache;
+    private final FileDownloadService fileDownloadService;
+    private final AppProperties appProperties;
+
+    // Regenerations this node is starting, by fingerprint, completed with the job id; only held while it is enqueued
+    private final Map<String, CompletableFuture<String>> regenerations = new ConcurrentHashMap<>();
 
     @Value("${app.upload.dir:./uploads}")
     private String uploadDir;
@@ -42,78 +92,137 @@ public class VideoProcessingService {
 
     // ===== LEVEL 1: UPLOAD & METADATA =====
 
-    public UploadResponse uploadVideo(MultipartFile file) {
-        String jobId = UUID.randomUUID().toString();
+    public UploadResponse uploadVideo(HttpServletRequest request) {
+        // Stored while the request is open, straight from the request body
+        return startUploadJob(uploadStorageService.store(request));
+    }
+
+    public UploadResponse completeUpload(String uploadId) {
+        return resumableUploadService.completeSession(uploadId, this::startUploadJob);
+    }
 
-        // Create job immediately
+    private UploadResponse startUploadJob(UploadVideoRequest upload) {
+        ContentBlob blob = blobStoreService.ingest(Paths.get(upload.getFilepath()), upload.getContentHash(), upload.getSize());
+        upload.setFilepath(blob.getPath());
+
+        String jobId = UUID.randomUUID().toString();
         ProcessingJob job = ProcessingJob.builder()
                 .jobId(jobId)
                 .jobType(JobType.UPLOAD)
                 .status(JobStatus.PENDING)
                 .build();
-        jobRepository.save(job);
 
-        // Process async
-        processVideoUpload(file, jobId);
+        // Same bytes uploaded before: their probe results and keyframe index still apply
+        Optional<Video> probed = videoRepository.findFirstByContentHashOrderByIdAsc(upload.getContentHash());
+        if (probed.isPresent()) {
+            job.setStatus(JobStatus.PROCESSING);
+            jobRepository.save(job);
+            statsService.jobCreated(JobType.UPLOAD, JobStatus.PROCESSING);
+            saveUploadedVideo(upload, mediaInfoOf(probed.get()), jobId);
 
+            return UploadResponse.builder()
+                    .jobId(jobId)
+                    .message("Identical to an earlier upload, completed without processing")
+                    .status("COMPLETED")
+                    .build();
+        }
+
+        jobQueueService.enqueue(job, upload);
         return UploadResponse.builder()
                 .jobId(jobId)
-                .message("Upload started, processing in background")
+                .message("Upload stored, processing in background")
                 .status("PENDING")
                 .build();
     }
 
-    @Async
-    public CompletableFuture<Void> processVideoUpload(MultipartFile file, String jobId) {
+    public void processVideoUpload(UploadVideoRequest request, String jobId) {
         try {
-            ProcessingJob job = jobRepository.findByJobId(jobId).orElseThrow();
-            job.setStatus(JobStatus.PROCESSING);
-            jobRepository.save(job);
+            Path filePath = Paths.get(request.getFilepath());
 
-            // Save file
-            String filename = UUID.randomUUID() + "_" + file.getOriginalFilename();
-            Path filePath = Paths.get(uploadDir, filename);
-            Files.createDirectories(filePath.getParent());
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-            // Get video metadata using FFmpeg
-            VideoMetadata metadata = getVideoMetadata(filePath.toString());
-
-            // Save to database
-            Video video = Video.builder()
-                    .uuid(UUID.randomUUID().toString())
-                    .filename(filename)
-                    .originalFilename(file.getOriginalFilename())
-                    .filepath(filePath.toString())
-                    .duration(metadata.getDuration())
-                    .size(file.getSize())
-                    .width(metadata.getWidth())
-                    .height(metadata.getHeight())
-                    .build();
+            // Get video metadata using FFprobe
+            MediaInfo info = videoProber.probe(filePath.toString(), request.getContentHash());
 
-            videoRepository.save(video);
-
-            // Update job
-            job.setStatus(JobStatus.COMPLETED);
-            job.setVideo(video);
-            job.setCompletedAt(LocalDateTime.now());
-            jobRepository.save(job);
+            // Keyframe index for later trims and overlays; they fall back to ffprobe without it
+            if (keyframeLocator.indexFor(filePath.toString()) == null) {
+                try {
+                    keyframeLocator.buildIndex(filePath.toString());
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not index keyframes of {}: {}", filePath, e.getMessage());
+                }
+            }
 
-            log.info("Video upload completed: {}", video.getUuid());
+            saveUploadedVideo(request, info, jobId);
 
         } catch (Exception e) {
             log.error("Video upload failed for job: {}", jobId, e);
-            updateJobStatus(jobId, JobStatus.FAILED, e.getMessage());
+            failJob(jobId, e);
         }
+    }
+
+    private void saveUploadedVideo(UploadVideoRequest request, MediaInfo info, String jobId) {
+        Video video = Video.builder()
+                .uuid(UUID.randomUUID().toString())
+                .filename(request.getFilename())
+                .originalFilename(request.getOriginalFilename())
+                .filepath(request.getFilepath())
+                .duration(info.getDuration())
+                .size(request.getSize())
+                .width(info.getWidth())
+                .height(info.getHeight())
+                .videoCodec(info.getVideoCodec())
+                .pixelFormat(info.getPixelFormat())
+                .frameRate(info.getFrameRate())
+                .bitrate(info.getBitrate())
+                .rotation(info.getRotation())
+                .audioCodec(info.getAudioCodec())
+                .audioChannels(info.getAudioChannels())
+                .audioSampleRate(info.getAudioSampleRate())
+                .contentHash(request.getContentHash())
+                .build();
+
+        // The reference is counted in the same transaction that saves the video
+        jobStateService.complete(jobId, null, job -> {
+            video.setBlob(blobStoreService.acquire(request.getContentHash()));
+            job.setVideo(videoRepository.save(video));
+            statsService.videoAdded();
+        });
+        progressService.publishStatus(jobId, JobStatus.COMPLETED);
 
-        return CompletableFuture.completedFuture(null);
+        log.info("Video upload completed: {}", video.getUuid());
     }
 
-    public List<VideoResponse> getAllVideos() {
-        return videoRepository.findByOrderByUploadTimeDesc()
-                .stream()
-                .map(this::mapToVideoResponse)
-                .toList();
+    private static MediaInfo mediaInfoOf(Video video) {
+        return MediaInfo.builder()
+                .duration(video.getDuration())
+                .width(video.getWidth())
+                .height(video.getHeight())
+                .videoCodec(video.getVideoCodec())
+                .pixelFormat(video.getPixelFormat())
+                .frameRate(video.getFrameRate())
+                .bitrate(video.getBitrate())
+                .rotation(video.getRotation())
+                .audioCodec(video.getAudioCodec())
+                .audioChannels(video.getAudioChannels())
+                .audioSampleRate(video.getAudioSampleRate())
+                .build();
+    }
+
+    /**
+     * A page of the catalog, newest first. Pages are read by seeking the (upload_time, id)
+     * index and projected straight into responses, so any page costs the same.
+     */
+    public CursorPage<VideoResponse> getVideos(String cursor, int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        int limit = pageSize(size);
+        List<VideoResponse> videos = videoRepository.findPage(after != null ? after.getTime() : null,
+                after != null ? after.getId() : null, Limit.of(limit + 1));
+
+        List<VideoResponse> items = videos.subList(0, Math.min(limit, videos.size()));
+        VideoResponse last = items.isEmpty() ? null : items.get(items.size() - 1);
+        return CursorPage.<VideoResponse>builder()
+                .items(items)
+                .nextCursor(videos.size() > limit ? new PageCursor(last.getUploadTime(), last.getId()).encode() : null)
+                .build();
     }
     public List<ProcessingJob> getFailedJobsInLast24Hours() {
         LocalDateTime cutoff = LocalDateTime.now().minusHours(24);
@@ -124,258 +233,230 @@ public class VideoProcessingService {
     // ===== LEVEL 2: TRIMMING API =====
 
     public JobResponse trimVideo(TrimVideoRequest request) {
-        String jobId = UUID.randomUUID().toString();
         Video video = videoRepository.findById(request.getVideoId())
                 .orElseThrow(() -> new RuntimeException("Video not found"));
 
-        ProcessingJob job = ProcessingJob.builder()
+        if (request.getMode() == TrimMode.VIRTUAL) {
+            return createVirtualClip(video, request);
+        }
+
+        String fingerprint = fingerprintService.trim(video, request);
+        String outputPath = outputPath(TRIM_PREFIX, fingerprint);
+        return submitJob(JobType.TRIM, video, request, fingerprint, List.of(outputPath),
+                () -> job -> trimmedVideoRepository.save(trimRecord(video, request, outputPath)));
+    }
+
+    /**
+     * A virtual clip is only a record of its range, so its job completes on the spot. The
+     * clip takes the job id as its id and is played from the source by {@link VirtualClipService}.
+     */
+    private JobResponse createVirtualClip(Video video, TrimVideoRequest request) {
+        double start = request.getStartTime();
+        double end = video.getDuration() != null ? Math.min(request.getEndTime(), video.getDuration()) : request.getEndTime();
+        if (start >= end) {
+            throw new RuntimeException("Start time is past the end of the video");
+        }
+
+        String jobId = UUID.randomUUID().toString();
+        jobRepository.save(ProcessingJob.builder()
                 .jobId(jobId)
                 .jobType(JobType.TRIM)
-                .status(JobStatus.PENDING)
+                .status(JobStatus.PROCESSING)
                 .video(video)
+                .build());
+
+        TrimmedVideo clip = TrimmedVideo.builder()
+                .uuid(jobId)
+                .originalVideo(video)
+                .startTime(start)
+                .endTime(end)
+                .duration(end - start)
+                .trimMode(TrimMode.VIRTUAL)
                 .build();
-        jobRepository.save(job);
-
-        // Process async
-        processTrimVideo(request, jobId);
+        statsService.jobCreated(JobType.TRIM, JobStatus.PROCESSING);
+        jobStateService.complete(jobId, null, job -> trimmedVideoRepository.save(clip));
+        progressService.publishStatus(jobId, JobStatus.COMPLETED);
 
+        ProcessingJob saved = jobRepository.findByJobId(jobId).orElseThrow();
         return JobResponse.builder()
                 .jobId(jobId)
-                .jobType("TRIM")
-                .status("PENDING")
-                .createdAt(LocalDateTime.now())
+                .jobType(JobType.TRIM.name())
+                .status(saved.getStatus().name())
+                .resultPath(VirtualClipService.playlistUrl(jobId))
+                .createdAt(saved.getCreatedAt())
+                .completedAt(saved.getCompletedAt())
                 .build();
     }
 
-    @Async
-    public CompletableFuture<Void> processTrimVideo(TrimVideoRequest request, String jobId) {
+    public void processTrimVideo(TrimVideoRequest request, String jobId) {
         try {
-            ProcessingJob job = jobRepository.findByJobId(jobId).orElseThrow();
-            job.setStatus(JobStatus.PROCESSING);
-            jobRepository.save(job);
-
-            Video originalVideo = job.getVideo();
-            String outputFilename = "trimmed_" + UUID.randomUUID() + ".mp4";
-            String outputPath = Paths.get(outputDir, outputFilename).toString();
-
-            // FFmpeg trim command
-            String[] command = {
-                    "ffmpeg", "-i", originalVideo.getFilepath(),
-                    "-ss", String.valueOf(request.getStartTime()),
-                    "-t", String.valueOf(request.getEndTime() - request.getStartTime()),
-                    "-c", "copy", "-avoid_negative_ts", "make_zero",
-                    outputPath
-            };
-
-            executeFFmpegCommand(command);
+            Video originalVideo = jobStateService.videoFor(jobId);
+            String fingerprint = jobStateService.fingerprintFor(jobId);
+            String outputPath = outputPath(TRIM_PREFIX, fingerprint);
+
+            double start = request.getStartTime();
+            double end = request.getEndTime();
+            Consumer<FFmpegProgress> listener = progressService.listener(jobId);
+
+            if (isCached(fingerprint, List.of(outputPath))) {
+                log.info("Reusing cached trim {} for job {}", outputPath, jobId);
+            } else {
+                String target = stagingPath(outputPath, jobId);
+                switch (request.getMode() != null ? request.getMode() : TrimMode.COPY) {
+                    case SMART -> smartTrimmer.trim(originalVideo.getFilepath(), start, end,
+                            Paths.get(target), Paths.get(outputDir, "trim", jobId), listener);
+                    case ACCURATE -> {
+                        jobStateService.recordPartialOutput(jobId, target);
+                        ffmpegExecutor.execute(
+                                FFmpegCommands.accurateTrimCommand(originalVideo.getFilepath(), start, end, target),
+                                end - start, listener);
+                    }
+                    case COPY -> ffmpegExecutor.execute(
+                            FFmpegCommands.copyTrimCommand(originalVideo.getFilepath(), start, end, target),
+                            end - start, listener);
+                }
+                publishOutput(target, outputPath, jobId);
+            }
 
             // Save trimmed video record
-            TrimmedVideo trimmedVideo = TrimmedVideo.builder()
-                    .uuid(UUID.randomUUID().toString())
-                    .originalVideo(originalVideo)
-                    .filename(outputFilename)
-                    .filepath(outputPath)
-                    .startTime(request.getStartTime())
-                    .endTime(request.getEndTime())
-                    .duration(request.getEndTime() - request.getStartTime())
-                    .build();
-
-            trimmedVideoRepository.save(trimmedVideo);
-
-            // Update job
-            job.setStatus(JobStatus.COMPLETED);
-            job.setResultPath(outputPath);
-            job.setCompletedAt(LocalDateTime.now());
-            jobRepository.save(job);
+            TrimmedVideo trimmedVideo = trimRecord(originalVideo, request, outputPath);
+            jobStateService.complete(jobId, outputPath, job -> trimmedVideoRepository.save(trimmedVideo));
+            progressService.publishStatus(jobId, JobStatus.COMPLETED);
 
             log.info("Video trimming completed: {}", trimmedVideo.getUuid());
 
         } catch (Exception e) {
             log.error("Video trimming failed for job: {}", jobId, e);
-            updateJobStatus(jobId, JobStatus.FAILED, e.getMessage());
+            failJob(jobId, e);
         }
-
-        return CompletableFuture.completedFuture(null);
     }
 
     // ===== LEVEL 3: OVERLAYS & WATERMARKING =====
 
     public JobResponse addOverlay(AddOverlayRequest request) {
-        String jobId = UUID.randomUUID().toString();
         log.info("Adding {} overlay to video ID: {}", request.getOverlayType(), request.getVideoId());
 
         Video video = videoRepository.findById(request.getVideoId())
                 .orElseThrow(() -> new RuntimeException("Video not found"));
 
-        ProcessingJob job = ProcessingJob.builder()
-                .jobId(jobId)
-                .jobType(JobType.OVERLAY)
-                .status(JobStatus.PENDING)
-                .video(video)
-                .build();
-        jobRepository.save(job);
-
-        // Process async
-        processAddOverlay(request, jobId);
-
-        return JobResponse.builder()
-                .jobId(jobId)
-                .jobType("OVERLAY")
-                .status("PENDING")
-                .createdAt(LocalDateTime.now())
-                .build();
+        String fingerprint = fingerprintService.overlay(video, request);
+        return submitJob(JobType.OVERLAY, video, request, fingerprint, List.of(outputPath(OVERLAY_PREFIX, fingerprint)),
+                () -> job -> overlayRepository.save(overlayRecord(video, request)));
     }
 
-    @Async
-    public CompletableFuture<Void> processAddOverlay(AddOverlayRequest request, String jobId) {
+    public void processAddOverlay(AddOverlayRequest request, String jobId) {
         try {
-            ProcessingJob job = jobRepository.findByJobId(jobId).orElseThrow();
-            job.setStatus(JobStatus.PROCESSING);
-            jobRepository.save(job);
-
-            Video video = job.getVideo();
-            String outputFilename = "overlay_" + UUID.randomUUID() + ".mp4";
-            String outputPath = Paths.get(outputDir, outputFilename).toString();
-
-            // Build FFmpeg command based on overlay type
-            List<String> command = new ArrayList<>();
-            command.addAll(Arrays.asList("ffmpeg", "-i", video.getFilepath()));
+            Video video = jobStateService.videoFor(jobId);
+            String fingerprint = jobStateService.fingerprintFor(jobId);
+            String outputPath = outputPath(OVERLAY_PREFIX, fingerprint);
+            boolean cached = isCached(fingerprint, List.of(outputPath));
+            String target = stagingPath(outputPath, jobId);
 
+            String fontPath = null;
             if ("TEXT".equals(request.getOverlayType())) {
                 // Use FontService to get proper font path
-                String fontPath = fontService.getFontPathForLanguage(request.getLanguage());
-
-                // Build the drawtext filter with proper escaping
-                StringBuilder filterBuilder = new StringBuilder("drawtext=");
-
-                // Escape text for FFmpeg - handle Unicode properly
-                String escapedText = request.getContent()
-                        .replace("\\", "\\\\")    // Escape backslashes
-                        .replace(":", "\\:")      // Escape colons
-                        .replace("'", "\\'");     // Escape single quotes
-
-                filterBuilder.append("text='").append(escapedText).append("'");
-                filterBuilder.append(":x=").append(request.getPositionX());
-                filterBuilder.append(":y=").append(request.getPositionY());
-                filterBuilder.append(":fontsize=").append(request.getFontSize());
-                filterBuilder.append(":fontcolor=").append(request.getFontColor());
-
-                // Add font file if available - fix Windows path escaping
+                fontPath = fontService.getFontPathForLanguage(request.getLanguage());
                 if (fontPath != null && !fontPath.isEmpty()) {
-                    // Escape Windows backslashes and colons in path
-                    String escapedFontPath = fontPath
-                            .replace("\\", "\\\\")
-                            .replace(":", "\\:");
-                    filterBuilder.append(":fontfile='").append(escapedFontPath).append("'");
                     log.info("Using font: {} for language: {}", fontPath, request.getLanguage());
                 }
+            }
 
-                // Add time constraints if specified - fix the enable syntax
-                if (request.getStartTime() > 0 || request.getEndTime() != null) {
-                    double endTime = request.getEndTime() != null ? request.getEndTime() : 999999.0;
-                    filterBuilder.append(":enable='between(t\\,")
-                            .append(String.format("%.2f", request.getStartTime()))
-                            .append("\\,")
-                            .append(String.format("%.2f", endTime))
-                            .append(")'");
-                }
-
-                command.addAll(Arrays.asList("-vf", filterBuilder.toString()));
-
-            } else if ("IMAGE".equals(request.getOverlayType())) {
-                command.addAll(Arrays.asList("-i", request.getContent()));
-                String filterComplex = String.format(
-                        "[1:v]scale=200:200[overlay];[0:v][overlay]overlay=%d:%d",
-                        request.getPositionX(),
-                        request.getPositionY()
-                );
-                command.addAll(Arrays.asList("-filter_complex", filterComplex));
+            // An overlay shown only part of the time only needs that part re-encoded
+            boolean windowed = false;
+            boolean timeBounded = request.getStartTime() > 0 || request.getEndTime() != null;
+            if (cached) {
+                log.info("Reusing cached overlay {} for job {}", outputPath, jobId);
+            } else if (timeBounded && ("TEXT".equals(request.getOverlayType()) || "IMAGE".equals(request.getOverlayType()))) {
+                String font = fontPath;
+                List<String> extraInputs = "IMAGE".equals(request.getOverlayType())
+                        ? List.of(request.getContent()) : List.of();
+                windowed = windowedOverlayRenderer.render(video.getFilepath(), request.getStartTime(),
+                        request.getEndTime(), extraInputs, offset -> overlayGraph(request, font, offset),
+                        Paths.get(target), Paths.get(outputDir, "overlay", jobId),
+                        progressService.listener(jobId));
             }
 
-            command.addAll(Arrays.asList("-c:a", "copy", outputPath));
+            if (!cached && !windowed) {
+                // Build FFmpeg command based on overlay type
+                List<String> command = new ArrayList<>();
+                command.addAll(Arrays.asList("ffmpeg", "-y", "-i", video.getFilepath()));
+
+                if ("TEXT".equals(request.getOverlayType())) {
+                    command.addAll(Arrays.asList("-vf", OverlayFilters.drawText(request.getContent(),
+                            request.getPositionX(), request.getPositionY(), request.getFontSize(),
+                            request.getFontColor(), fontPath, request.getStartTime(), request.getEndTime())));
+
+                } else if ("IMAGE".equals(request.getOverlayType())) {
+                    command.addAll(Arrays.asList("-i", request.getContent()));
+                    command.addAll(Arrays.asList("-filter_complex", OverlayFilters.imageOverlay(
+                            request.getPositionX(), request.getPositionY(),
+                            request.getStartTime(), request.getEndTime())));
+                }
 
-            // Log the exact command being executed
-            log.info("Executing FFmpeg command: {}", String.join(" ", command));
+                command.addAll(Arrays.asList("-c:a", "copy", "-movflags", FFmpegCommands.FRAGMENTED_MP4, target));
 
-            executeFFmpegCommand(command.toArray(new String[0]));
+                // Log the exact command being executed
+                log.info("Executing FFmpeg command: {}", String.join(" ", command));
 
-            // Save overlay record
-            VideoOverlay overlay = VideoOverlay.builder()
-                    .video(video)
-                    .overlayType(OverlayType.valueOf(request.getOverlayType()))
-                    .content(request.getContent())
-                    .positionX(request.getPositionX())
-                    .positionY(request.getPositionY())
-                    .startTime(request.getStartTime())
-                    .endTime(request.getEndTime())
-                    .fontSize(request.getFontSize())
-                    .fontColor(request.getFontColor())
-                    .language(request.getLanguage())
-                    .build();
+                jobStateService.recordPartialOutput(jobId, target);
 
-            overlayRepository.save(overlay);
+                ffmpegExecutor.execute(command.toArray(new String[0]), video.getDuration(),
+                        progressService.listener(jobId));
+            }
+            if (!cached) {
+                publishOutput(target, outputPath, jobId);
+            }
 
-            // Update job
-            job.setStatus(JobStatus.COMPLETED);
-            job.setResultPath(outputPath);
-            job.setCompletedAt(LocalDateTime.now());
-            jobRepository.save(job);
+            // Save overlay record
+            jobStateService.complete(jobId, outputPath, job -> overlayRepository.save(overlayRecord(video, request)));
+            progressService.publishStatus(jobId, JobStatus.COMPLETED);
 
             log.info("Overlay processing completed for video: {}", video.getUuid());
 
         } catch (Exception e) {
             log.error("Overlay processing failed for job: {}", jobId, e);
-            updateJobStatus(jobId, JobStatus.FAILED, e.getMessage());
+            failJob(jobId, e);
         }
+    }
 
-        return CompletableFuture.completedFuture(null);
+    /**
+     * The overlay filter for a window starting at {@code offset}, with the enable times
+     * shifted to match and the output labelled {@code [out]}.
+     */
+    private String overlayGraph(AddOverlayRequest request, String fontPath, double offset) {
+        Double from = request.getStartTime() - offset;
+        Double to = request.getEndTime() != null ? request.getEndTime() - offset : null;
+        if ("IMAGE".equals(request.getOverlayType())) {
+            return OverlayFilters.imageOverlay(request.getPositionX(), request.getPositionY(), from, to) + "[out]";
+        }
+        return "[0:v]" + OverlayFilters.drawText(request.getContent(), request.getPositionX(),
+                request.getPositionY(), request.getFontSize(), request.getFontColor(), fontPath, from, to) + "[out]";
     }
 
     public JobResponse addWatermark(AddWatermarkRequest request) {
-        String jobId = UUID.randomUUID().toString();
         Video video = videoRepository.findById(request.getVideoId())
                 .orElseThrow(() -> new RuntimeException("Video not found"));
 
-        ProcessingJob job = ProcessingJob.builder()
-                .jobId(jobId)
-                .jobType(JobType.WATERMARK)
-                .status(JobStatus.PENDING)
-                .video(video)
-                .build();
-        jobRepository.save(job);
-
-        // Process async
-        processAddWatermark(request, jobId);
-
-        return JobResponse.builder()
-                .jobId(jobId)
-                .jobType("WATERMARK")
-                .status("PENDING")
-                .createdAt(LocalDateTime.now())
-                .build();
+        String fingerprint = fingerprintService.watermark(video, request);
+        return submitJob(JobType.WATERMARK, video, request, fingerprint, List.of(outputPath(WATERMARK_PREFIX, fingerprint)),
+                () -> job -> overlayRepository.save(watermarkRecord(video, request)));
     }
 
-    @Async
-    public CompletableFuture<Void> processAddWatermark(AddWatermarkRequest request, String jobId) {
+    public void processAddWatermark(AddWatermarkRequest request, String jobId) {
         try {
-            ProcessingJob job = jobRepository.findByJobId(jobId).orElseThrow();
-            job.setStatus(JobStatus.PROCESSING);
-            jobRepository.save(job);
+            Video video = jobStateService.videoFor(jobId);
+            String fingerprint = jobStateService.fingerprintFor(jobId);
+            String outputPath = outputPath(WATERMARK_PREFIX, fingerprint);
 
-            Video video = job.getVideo();
-            String outputFilename = "watermark_" + UUID.randomUUID() + ".mp4";
-            String outputPath = Paths.get(outputDir, outputFilename).toString();
+            validateWatermarkPath(request.getWatermarkPath());
 
-            // Validate watermark file exists
-            if (request.getWatermarkPath() == null || request.getWatermarkPath().equals("string") || request.getWatermarkPath().trim().isEmpty()) {
-                throw new RuntimeException("Invalid watermark path. Please provide a valid path to an image file (PNG, JPG, etc.)");
-            }
-
-            // Check if watermark file exists
-            Path watermarkPath = Paths.get(request.getWatermarkPath());
-            if (!Files.exists(watermarkPath)) {
-                throw new RuntimeException("Watermark file not found: " + request.getWatermarkPath());
+            if (isCached(fingerprint, List.of(outputPath))) {
+                log.info("Reusing cached watermark {} for job {}", outputPath, jobId);
+                jobStateService.complete(jobId, outputPath, job -> overlayRepository.save(watermarkRecord(video, request)));
+                progressService.publishStatus(jobId, JobStatus.COMPLETED);
+                return;
             }
+            String target = stagingPath(outputPath, jobId);
 
             // Calculate watermark position based on position string
             String overlayPosition = calculateWatermarkPosition(request.getPosition(),
@@ -383,61 +464,70 @@ public class VideoProcessingService {
 
             // Build FFmpeg command
             String[] command = {
-                    "ffmpeg", "-i", video.getFilepath(),
+                    "ffmpeg", "-y", "-i", video.getFilepath(),
                     "-i", request.getWatermarkPath(),
                     "-filter_complex",
-                    String.format("[1:v]format=rgba,colorchannelmixer=aa=%f[watermark];[0:v][watermark]overlay=%s",
-                            request.getOpacity(), overlayPosition),
+                    "[1:v]" + OverlayFilters.watermarkAlpha(request.getOpacity())
+                            + "[watermark];[0:v][watermark]overlay=" + overlayPosition,
                     "-c:a", "copy",
-                    outputPath
+                    "-movflags", FFmpegCommands.FRAGMENTED_MP4,
+                    target
             };
 
             // Log the command for debugging
             log.info("Executing watermark FFmpeg command: {}", String.join(" ", command));
 
-            executeFFmpegCommand(command);
+            jobStateService.recordPartialOutput(jobId, target);
 
-            // Save watermark overlay record
-            VideoOverlay watermark = VideoOverlay.builder()
-                    .video(video)
-                    .overlayType(OverlayType.WATERMARK)
-                    .content(request.getWatermarkPath())
-                    .positionX(request.getPositionX())
-                    .positionY(request.getPositionY())
-                    .build();
+            ffmpegExecutor.execute(command, video.getDuration(), progressService.listener(jobId));
+            publishOutput(target, outputPath, jobId);
 
-            overlayRepository.save(watermark);
-
-            // Update job
-            job.setStatus(JobStatus.COMPLETED);
-            job.setResultPath(outputPath);
-            job.setCompletedAt(LocalDateTime.now());
-            jobRepository.save(job);
+            // Save watermark overlay record
+            jobStateService.complete(jobId, outputPath, job -> overlayRepository.save(watermarkRecord(video, request)));
+            progressService.publishStatus(jobId, JobStatus.COMPLETED);
 
             log.info("Watermark processing completed for video: {}", video.getUuid());
 
         } catch (Exception e) {
             log.error("Watermark processing failed for job: {}", jobId, e);
-            updateJobStatus(jobId, JobStatus.FAILED, e.getMessage());
+            failJob(jobId, e);
         }
-
-        return CompletableFuture.completedFuture(null);
     }
 
     // ===== LEVEL 4: ASYNC JOB QUEUE =====
 
     public JobStatusResponse getJobStatus(String jobId) {
-        ProcessingJob job = jobRepository.findByJobId(jobId)
-                .orElseThrow(() -> new RuntimeException("Job not found"));
+        return jobStatusService.getJobStatus(jobId);
+    }
 
-        return JobStatusResponse.builder()
-                .jobId(jobId)
-                .status(job.getStatus().toString())
-                .progress(calculateProgress(job))
-                .message(job.getErrorMessage())
-                .resultUrl(job.getResultPath() != null ? "/download/" + jobId : null)
-                .createdAt(job.getCreatedAt())
-                .completedAt(job.getCompletedAt())
+    /**
+     * A page of jobs, newest first, optionally only those of one status and type.
+     */
+    public CursorPage<JobResponse> getJobs(String cursor, int size, String status, String jobType) {
+        PageCursor after = PageCursor.decode(cursor);
+        int limit = pageSize(size);
+        List<JobSummary> jobs = jobRepository.findPage(
+                status != null ? parseEnum(JobStatus.class, status, "status") : null,
+                jobType != null ? parseEnum(JobType.class, jobType, "job type") : null,
+                after != null ? after.getTime() : null, after != null ? after.getId() : null,
+                Limit.of(limit + 1));
+
+        List<JobResponse> items = jobs.stream()
+                .limit(limit)
+                .map(job -> JobResponse.builder()
+                        .jobId(job.getJobId())
+                        .jobType(job.getJobType().name())
+                        .status(job.getStatus().name())
+                        .resultPath(job.getResultPath())
+                        .errorMessage(job.getErrorMessage())
+                        .createdAt(job.getCreatedAt())
+                        .completedAt(job.getCompletedAt())
+                        .build())
+                .toList();
+        JobSummary last = jobs.size() > limit ? jobs.get(limit - 1) : null;
+        return CursorPage.<JobResponse>builder()
+                .items(items)
+                .nextCursor(last != null ? new PageCursor(last.getCreatedAt(), last.getId()).encode() : null)
                 .build();
     }
 
@@ -448,164 +538,582 @@ public class VideoProcessingService {
         if (job.getStatus() != JobStatus.COMPLETED) {
             throw new RuntimeException("Job not completed yet");
         }
+        if (job.getResultPath() == null) {
+            throw new RuntimeException("Job has no single result file");
+        }
+
+        return present(Paths.get(job.getResultPath())).toString();
+    }
+
+    /**
+     * The output a running job is still writing, or null if the job has none to follow.
+     */
+    public String getPartialJobResult(String jobId) {
+        ProcessingJob job = jobRepository.findByJobId(jobId)
+                .orElseThrow(() -> new RuntimeException("Job not found"));
+        return job.getStatus() == JobStatus.PROCESSING ? job.getPartialPath() : null;
+    }
 
-        return job.getResultPath();
+    /**
+     * Whether a job whose output is being followed has finished writing it. A job that
+     * failed or was requeued will not finish that file, so it throws instead.
+     */
+    public boolean isJobOutputFinished(String jobId) {
+        ProcessingJob job = jobRepository.findByJobId(jobId)
+                .orElseThrow(() -> new RuntimeException("Job not found"));
+        return switch (job.getStatus()) {
+            case COMPLETED -> true;
+            case PROCESSING -> false;
+            case FAILED -> throw new RuntimeException("Job failed: " + job.getErrorMessage());
+            case PENDING -> throw new RuntimeException("Job was interrupted and requeued");
+        };
+    }
+
+    /**
+     * CPU, memory and I/O of the FFmpeg runs of jobs finished since {@code since}, or ever if
+     * null, summed per job type and source resolution.
+     */
+    public List<ResourceUsageSummary> getResourceUsage(LocalDateTime since) {
+        return jobRepository.sumResourceUsage(since).stream()
+                .map(totals -> {
+                    long cpuMillis = totals.getCpuUserMillis() + totals.getCpuSystemMillis();
+                    long wallMillis = totals.getFfmpegWallMillis();
+                    return ResourceUsageSummary.builder()
+                            .jobType(totals.getJobType().name())
+                            .sourceResolution(totals.getHeight() != null ? totals.getHeight() + "p" : null)
+                            .jobs(totals.getJobs())
+                            .cpuSeconds(cpuMillis / 1000.0)
+                            .cpuSecondsPerJob(cpuMillis / 1000.0 / totals.getJobs())
+                            .cpuUserSeconds(totals.getCpuUserMillis() / 1000.0)
+                            .cpuSystemSeconds(totals.getCpuSystemMillis() / 1000.0)
+                            .ffmpegWallSeconds(wallMillis / 1000.0)
+                            .coresPerRun(wallMillis > 0 ? (double) cpuMillis / wallMillis : null)
+                            .peakRssBytes(totals.getPeakRssBytes())
+                            .readBytes(totals.getReadBytes())
+                            .writeBytes(totals.getWriteBytes())
+                            .build();
+                })
+                .toList();
     }
 
     // ===== LEVEL 5: MULTIPLE OUTPUT QUALITIES =====
 
     public JobResponse generateMultipleQualities(GenerateQualitiesRequest request) {
+        Video video = videoRepository.findById(request.getVideoId())
+                .orElseThrow(() -> new RuntimeException("Video not found"));
+
+        String fingerprint = fingerprintService.qualities(video, request);
+        Map<VideoQuality, String> renditions = qualityOutputs(video, request.getQualities(), fingerprint);
+        if (request.getFormat() == OutputFormat.HLS) {
+            Path packageDir = hlsPackageDir(fingerprint);
+            return submitJob(JobType.QUALITY_CONVERSION, video, request, fingerprint,
+                    List.of(packageDir.resolve(FFmpegCommands.HLS_MASTER_PLAYLIST).toString()), () -> {
+                        List<VideoQualityVersion> versions = hlsVersions(video, renditions.keySet(), packageDir);
+                        return job -> qualityRepository.saveAll(versions);
+                    });
+        }
+        return submitJob(JobType.QUALITY_CONVERSION, video, request, fingerprint, List.copyOf(renditions.values()), () -> {
+            List<VideoQualityVersion> versions = qualityVersions(video, renditions);
+            return job -> qualityRepository.saveAll(versions);
+        });
+    }
+
+    public void processQualityConversion(GenerateQualitiesRequest request, String jobId) {
+        try {
+            Video video = jobStateService.videoFor(jobId);
+            String fingerprint = jobStateService.fingerprintFor(jobId);
+
+            if (request.getFormat() == OutputFormat.HLS) {
+                packageHls(video, request.getQualities(), fingerprint, jobId);
+                return;
+            }
+
+            Map<VideoQuality, String> outputs = qualityOutputs(video, request.getQualities(), fingerprint);
+            if (isCached(fingerprint, outputs.values())) {
+                log.info("Reusing cached renditions for job {}", jobId);
+                List<VideoQualityVersion> versions = qualityVersions(video, outputs);
+                jobStateService.complete(jobId, null, job -> qualityRepository.saveAll(versions));
+                progressService.publishStatus(jobId, JobStatus.COMPLETED);
+                return;
+            }
+            Map<VideoQuality, String> targets = new LinkedHashMap<>();
+            outputs.forEach((quality, output) -> targets.put(quality, stagingPath(output, jobId)));
+
+            if (request.getMode() == EncodingMode.PER_RENDITION) {
+                int step = 0;
+                for (Map.Entry<VideoQuality, String> output : targets.entrySet()) {
+                    String[] command = FFmpegCommands.renditionCommand(
+                            video.getFilepath(), output.getKey(), output.getValue());
+                    ffmpegExecutor.execute(command, video.getDuration(),
+                            progressService.listener(jobId, step++, outputs.size()));
+                }
+            } else if (request.getMode() == EncodingMode.CHUNKED) {
+                Path workDir = Paths.get(outputDir, "chunks", jobId);
+                chunkedEncoder.encode(video.getFilepath(), targets, workDir, progressService.listener(jobId));
+            } else {
+                // One decode feeds every rendition; audio is encoded once and shared
+                String[] command = FFmpegCommands.renditionLadderCommand(video.getFilepath(), targets);
+                log.info("Executing rendition ladder FFmpeg command: {}", String.join(" ", command));
+                ffmpegExecutor.execute(command, video.getDuration(), progressService.listener(jobId));
+            }
+
+            for (VideoQuality quality : outputs.keySet()) {
+                publishOutput(targets.get(quality), outputs.get(quality), jobId);
+            }
+
+            List<VideoQualityVersion> versions = qualityVersions(video, outputs);
+            jobStateService.complete(jobId, null, job -> qualityRepository.saveAll(versions));
+            progressService.publishStatus(jobId, JobStatus.COMPLETED);
+
+            log.info("Quality conversion completed for video: {}", video.getUuid());
+
+        } catch (Exception e) {
+            log.error("Quality conversion failed for job: {}", jobId, e);
+            failJob(jobId, e);
+        }
+    }
+
+    /**
+     * Encodes the ladder once, with keyframes aligned across renditions, and packages it as
+     * HLS with CMAF segments: a directory per quality and a master playlist over them.
+     */
+    private void packageHls(Video video, List<String> qualities, String fingerprint, String jobId) throws Exception {
+        Path packageDir = hlsPackageDir(fingerprint);
+        Path master = packageDir.resolve(FFmpegCommands.HLS_MASTER_PLAYLIST);
+        List<VideoQuality> ladder = qualityOutputs(video, qualities, null).keySet().stream().toList();
+
+        if (isCached(fingerprint, List.of(master.toString()))) {
+            log.info("Reusing cached HLS package for job {}", jobId);
+        } else {
+            // Packaged next to its final place and moved there whole, like single-file outputs
+            Path staging = packageDir.resolveSibling(packageDir.getFileName() + "." + jobId);
+            Files.createDirectories(staging);
+            try {
+                String[] command = FFmpegCommands.hlsLadderCommand(video.getFilepath(), ladder,
+                        hasAudio(video), staging.toString());
+                log.info("Executing HLS packaging FFmpeg command: {}", String.join(" ", command));
+                ffmpegExecutor.execute(command, video.getDuration(), progressService.listener(jobId));
+                publishPackage(staging, packageDir, jobId);
+            } finally {
+                WorkDirs.deleteRecursively(staging);
+            }
+        }
+
+        List<VideoQualityVersion> versions = hlsVersions(video, ladder, packageDir);
+        jobStateService.complete(jobId, master.toString(), job -> qualityRepository.saveAll(versions));
+        progressService.publishStatus(jobId, JobStatus.COMPLETED);
+
+        log.info("HLS packaging completed for video: {}", video.getUuid());
+    }
+
+    private static List<VideoQualityVersion> hlsVersions(Video video, Collection<VideoQuality> ladder, Path packageDir)
+            throws IOException {
+        List<VideoQualityVersion> versions = new ArrayList<>();
+        for (VideoQuality quality : ladder) {
+            Path playlist = packageDir.resolve(quality.getResolution()).resolve(FFmpegCommands.HLS_VARIANT_PLAYLIST);
+            long size;
+            try (Stream<Path> files = Files.list(playlist.getParent())) {
+                size = files.mapToLong(file -> file.toFile().length()).sum();
+            }
+            versions.add(VideoQualityVersion.builder()
+                    .originalVideo(video)
+                    .quality(quality)
+                    .format(OutputFormat.HLS)
+                    .filename(quality.getResolution() + "/" + FFmpegCommands.HLS_VARIANT_PLAYLIST)
+                    .filepath(playlist.toString())
+                    .size(size)
+                    .build());
+        }
+        return versions;
+    }
+
+    /**
+     * A playlist, init segment or media segment of an HLS package. Names are checked before
+     * touching the filesystem, so a request cannot reach outside the package.
+     */
+    public Path getHlsFile(String packageId, String variant, String file) {
+        if (!HLS_PACKAGE_ID.matcher(packageId).matches()
+                || (variant != null && !HLS_FILE_NAME.matcher(variant).matches())
+                || !HLS_FILE_NAME.matcher(file).matches()) {
+            throw new RuntimeException("Invalid HLS path");
+        }
+        Path packageDir = Paths.get(outputDir, packageId).toAbsolutePath().normalize();
+        Path path = (variant != null ? packageDir.resolve(variant) : packageDir).resolve(file).normalize();
+        if (!path.startsWith(packageDir) || !Files.isRegularFile(present(path))) {
+            throw new RuntimeException("HLS file not found");
+        }
+        return path;
+    }
+
+    public String getQualityVersionPath(Long qualityId) {
+        String filepath = qualityRepository.findById(qualityId)
+                .orElseThrow(() -> new RuntimeException("Quality version not found"))
+                .getFilepath();
+        return present(Paths.get(filepath)).toString();
+    }
+
+    public List<QualityVersionResponse> getVideoQualityVersions(Long videoId) {
+        return qualityRepository.findByOriginalVideoId(videoId)
+                .stream()
+                .map(this::mapToQualityVersionResponse)
+                .toList();
+    }
+
+    // ===== PIPELINES =====
+
+    public JobResponse runPipeline(PipelineRequest request) {
         String jobId = UUID.randomUUID().toString();
         Video video = videoRepository.findById(request.getVideoId())
                 .orElseThrow(() -> new RuntimeException("Video not found"));
+        validatePipeline(request);
 
         ProcessingJob job = ProcessingJob.builder()
                 .jobId(jobId)
-                .jobType(JobType.QUALITY_CONVERSION)
+                .jobType(JobType.PIPELINE)
                 .status(JobStatus.PENDING)
                 .video(video)
                 .build();
-        jobRepository.save(job);
-
-        // Process async
-        processQualityConversion(request, jobId);
+        jobQueueService.enqueue(job, request);
 
         return JobResponse.builder()
                 .jobId(jobId)
-                .jobType("QUALITY_CONVERSION")
+                .jobType("PIPELINE")
                 .status("PENDING")
                 .createdAt(LocalDateTime.now())
                 .build();
     }
 
-    @Async
-    public CompletableFuture<Void> processQualityConversion(GenerateQualitiesRequest request, String jobId) {
+    /**
+     * Runs every step of the pipeline in one FFmpeg process: the trim becomes input seeking,
+     * overlays and watermarks are chained in the filtergraph, and a final quality step fans
+     * the result out into the ladder. Trim and encoding modes do not apply here. The trim has
+     * no output of its own, so unlike the other steps it is not recorded.
+     */
+    public void processPipeline(PipelineRequest request, String jobId) {
         try {
-            ProcessingJob job = jobRepository.findByJobId(jobId).orElseThrow();
-            job.setStatus(JobStatus.PROCESSING);
-            jobRepository.save(job);
+            Video video = jobStateService.videoFor(jobId);
+            List<PipelineStep> steps = request.getSteps();
+            TrimVideoRequest trim = steps.get(0).getTrim();
+            GenerateQualitiesRequest qualities = steps.get(steps.size() - 1).getQualities();
+
+            FilterPipeline pipeline = new FilterPipeline(video.getFilepath(),
+                    trim != null ? trim.getStartTime() : null,
+                    trim != null ? trim.getEndTime() : null);
+
+            for (PipelineStep step : steps) {
+                if (step.getOverlay() != null) {
+                    AddOverlayRequest overlay = step.getOverlay();
+                    if ("TEXT".equals(overlay.getOverlayType())) {
+                        String fontPath = fontService.getFontPathForLanguage(overlay.getLanguage());
+                        pipeline.filter(OverlayFilters.drawText(overlay.getContent(), overlay.getPositionX(),
+                                overlay.getPositionY(), overlay.getFontSize(), overlay.getFontColor(), fontPath,
+                                overlay.getStartTime(), overlay.getEndTime()));
+                    } else {
+                        pipeline.overlay(overlay.getContent(), OverlayFilters.IMAGE_SCALE,
+                                OverlayFilters.overlayOptions(overlay.getPositionX(), overlay.getPositionY(),
+                                        overlay.getStartTime(), overlay.getEndTime()));
+                    }
+                } else if (step.getWatermark() != null) {
+                    AddWatermarkRequest watermark = step.getWatermark();
+                    pipeline.overlay(watermark.getWatermarkPath(),
+                            OverlayFilters.watermarkAlpha(watermark.getOpacity()),
+                            calculateWatermarkPosition(watermark.getPosition(), video.getWidth(), video.getHeight()));
+                }
+            }
 
-            Video video = job.getVideo();
-
-            for (String qualityStr : request.getQualities()) {
-                VideoQuality quality = VideoQuality.valueOf("QUALITY_" + qualityStr.toUpperCase());
-
-                String outputFilename = String.format("%s_%s_%s.mp4",
-                        video.getUuid(),
-                        quality.getResolution(),
-                        UUID.randomUUID().toString().substring(0, 8));
-                String outputPath = Paths.get(outputDir, outputFilename).toString();
-
-                // FFmpeg quality conversion command
-                String[] command = {
-                        "ffmpeg", "-i", video.getFilepath(),
-                        "-vf", String.format("scale=%d:%d", quality.getWidth(), quality.getHeight()),
-                        "-c:v", "libx264",
-                        "-crf", "23",
-                        "-preset", "medium",
-                        "-c:a", "aac",
-                        "-b:a", "128k",
-                        outputPath
-                };
-
-                executeFFmpegCommand(command);
-
-                // Get file size
-                long fileSize = Files.size(Paths.get(outputPath));
-
-                // Save quality version record
-                VideoQualityVersion qualityVersion = VideoQualityVersion.builder()
-                        .originalVideo(video)
-                        .quality(quality)
-                        .filename(outputFilename)
-                        .filepath(outputPath)
-                        .size(fileSize)
-                        .build();
-
-                qualityRepository.save(qualityVersion);
-
-                log.info("Generated {} quality for video: {}", quality.getResolution(), video.getUuid());
+            Map<VideoQuality, String> outputs = Map.of();
+            String resultPath;
+            String[] command;
+            if (qualities != null) {
+                outputs = qualityOutputs(video, qualities.getQualities(), null);
+                resultPath = outputs.values().iterator().next();
+                command = pipeline.ladderCommand(outputs);
+            } else {
+                resultPath = Paths.get(outputDir, "pipeline_" + UUID.randomUUID() + ".mp4").toString();
+                command = pipeline.command(resultPath);
             }
 
-            // Update job
-            job.setStatus(JobStatus.COMPLETED);
-            job.setCompletedAt(LocalDateTime.now());
-            jobRepository.save(job);
+            log.info("Executing pipeline FFmpeg command: {}", String.join(" ", command));
+            Double duration = trim != null ? trim.getEndTime() - trim.getStartTime() : video.getDuration();
+            ffmpegExecutor.execute(command, duration, progressService.listener(jobId));
+            for (String output : outputs.isEmpty() ? List.of(resultPath) : outputs.values()) {
+                statsService.bytesStored(StorageTier.DERIVED, Files.size(Paths.get(output)));
+            }
 
-            log.info("Quality conversion completed for video: {}", video.getUuid());
+            // Record the other steps as their own jobs would have. A trim record would point at
+            // the pipeline's output, overlays burned in, and expire it along with the trims
+            List<VideoQualityVersion> versions = qualityVersions(video, outputs);
+            jobStateService.complete(jobId, resultPath, job -> {
+                for (PipelineStep step : steps) {
+                    if (step.getOverlay() != null) {
+                        overlayRepository.save(overlayRecord(video, step.getOverlay()));
+                    } else if (step.getWatermark() != null) {
+                        overlayRepository.save(watermarkRecord(video, step.getWatermark()));
+                    }
+                }
+                qualityRepository.saveAll(versions);
+            });
+            progressService.publishStatus(jobId, JobStatus.COMPLETED);
+
+            log.info("Pipeline of {} steps completed for video: {}", steps.size(), video.getUuid());
 
         } catch (Exception e) {
-            log.error("Quality conversion failed for job: {}", jobId, e);
-            updateJobStatus(jobId, JobStatus.FAILED, e.getMessage());
+            log.error("Pipeline processing failed for job: {}", jobId, e);
+            failJob(jobId, e);
         }
-
-        return CompletableFuture.completedFuture(null);
     }
 
-    public List<QualityVersionResponse> getVideoQualityVersions(Long videoId) {
-        return qualityRepository.findByOriginalVideoId(videoId)
-                .stream()
-                .map(this::mapToQualityVersionResponse)
-                .toList();
+    private void validatePipeline(PipelineRequest request) {
+        List<PipelineStep> steps = request.getSteps();
+        for (int i = 0; i < steps.size(); i++) {
+            PipelineStep step = steps.get(i);
+            long operations = Stream.of(step.getTrim(), step.getOverlay(), step.getWatermark(), step.getQualities())
+                    .filter(Objects::nonNull)
+                    .count();
+            if (operations != 1) {
+                throw new RuntimeException("Pipeline step " + (i + 1) + " must specify exactly one operation");
+            }
+
+            if (step.getTrim() != null) {
+                if (i != 0) {
+                    throw new RuntimeException("Trim must be the first pipeline step");
+                }
+                if (!step.getTrim().isValidTimeRange()) {
+                    throw new RuntimeException("End time must be greater than start time");
+                }
+            } else if (step.getOverlay() != null) {
+                String type = step.getOverlay().getOverlayType();
+                if (!"TEXT".equals(type) && !"IMAGE".equals(type)) {
+                    throw new RuntimeException("Pipeline overlays must be TEXT or IMAGE");
+                }
+            } else if (step.getWatermark() != null) {
+                validateWatermarkPath(step.getWatermark().getWatermarkPath());
+            } else {
+                if (i != steps.size() - 1) {
+                    throw new RuntimeException("Quality conversion must be the last pipeline step");
+                }
+                List<String> qualities = step.getQualities().getQualities();
+                if (qualities == null || qualities.isEmpty()
+                        || !qualities.stream().allMatch(q -> q != null && q.matches("480p|720p|1080p"))) {
+                    throw new RuntimeException("Quality must be 480p, 720p, or 1080p");
+                }
+            }
+        }
     }
 
-    // ===== UTILITY METHODS =====
+    // ===== RESULT CACHE =====
 
-    private VideoMetadata getVideoMetadata(String filePath) throws IOException, InterruptedException {
-        String[] command = {
-                "ffprobe", "-v", "quiet",
-                "-print_format", "json",
-                "-show_format", "-show_streams",
-                filePath
-        };
+    /**
+     * What a job saves when it completes on submission, built from the outputs on disk.
+     */
+    @FunctionalInterface
+    private interface CachedRecords {
+        Consumer<ProcessingJob> build() throws IOException;
+    }
+
+    /**
+     * Queues a job unless an identical one makes that unnecessary. If a completed job with
+     * the same fingerprint left its outputs on disk, the job completes on submission with
+     * that job's result and the records from {@code records}; nothing runs on the request
+     * thread. If one is still in flight, the job waits for it and then finds its outputs.
+     * Either way the request is kept, so the job can be replayed to produce them again.
+     */
+    private JobResponse submitJob(JobType type, Video video, Object request, String fingerprint,
+                                  Collection<String> outputs, CachedRecords records) {
+        String jobId = UUID.randomUUID().toString();
+        ProcessingJob job = ProcessingJob.builder()
+                .jobId(jobId)
+                .jobType(type)
+                .status(JobStatus.PENDING)
+                .video(video)
+                .fingerprint(fingerprint)
+                .build();
 
-        ProcessBuilder pb = new ProcessBuilder(command);
-        Process process = pb.start();
+        ProcessingJob cached = isCached(fingerprint, outputs)
+                ? jobRepository.findFirstByFingerprintAndStatusOrderByIdDesc(fingerprint, JobStatus.COMPLETED).orElse(null)
+                : null;
+        Consumer<ProcessingJob> cachedRecords = cached != null ? cachedRecords(records, jobId) : null;
+        if (cachedRecords != null) {
+            job.setStatus(JobStatus.PROCESSING);
+            job.setPayload(jobQueueService.writePayload(request));
+            jobRepository.save(job);
+            statsService.jobCreated(type, JobStatus.PROCESSING);
+            jobStateService.complete(jobId, cached.getResultPath(), cachedRecords);
+            progressService.publishStatus(jobId, JobStatus.COMPLETED);
+            log.info("Job {} reuses the outputs of job {}", jobId, cached.getJobId());
+            // An identical job may have attached to this one while it was being completed
+            jobQueueService.releaseFollowers(jobId);
+        } else {
+            Optional<ProcessingJob> leader = jobRepository.findInFlightByFingerprint(fingerprint).stream().findFirst();
+            if (leader.isPresent()) {
+                String leaderJobId = leader.get().getJobId();
+                jobQueueService.attach(job, request, leaderJobId);
+                log.info("Job {} waits for identical job {}", jobId, leaderJobId);
+
+                // The leader may have finished before it could see this job
+                JobStatus leaderStatus = jobRepository.findByJobId(leaderJobId)
+                        .map(ProcessingJob::getStatus).orElse(JobStatus.FAILED);
+                if (leaderStatus == JobStatus.COMPLETED || leaderStatus == JobStatus.FAILED) {
+                    jobQueueService.releaseFollowers(leaderJobId);
+                }
+            } else {
+                jobQueueService.enqueue(job, request);
+            }
+        }
 
-        String output = new String(process.getInputStream().readAllBytes());
-        process.waitFor();
+        ProcessingJob saved = jobRepository.findByJobId(jobId).orElse(job);
+        return JobResponse.builder()
+                .jobId(jobId)
+                .jobType(type.name())
+                .status(saved.getStatus().name())
+                .resultPath(saved.getResultPath())
+                .errorMessage(saved.getErrorMessage())
+                .createdAt(saved.getCreatedAt())
+                .completedAt(saved.getCompletedAt())
+                .build();
+    }
 
-        // Parse JSON output to extract metadata
-        // This is a simplified version - you'd use Jackson or similar for real parsing
-        VideoMetadata metadata = new VideoMetadata();
-        if (output.contains("duration")) {
-            // Extract duration, width, height from JSON
-            metadata.setDuration(extractDurationFromOutput(output));
-            metadata.setWidth(extractWidthFromOutput(output));
-            metadata.setHeight(extractHeightFromOutput(output));
+    // Null if the outputs went away since they were checked; the job is then queued like any other
+    private Consumer<ProcessingJob> cachedRecords(CachedRecords records, String jobId) {
+        try {
+            return records.build();
+        } catch (IOException | UncheckedIOException e) {
+            log.info("Cached outputs for job {} went away, queueing it: {}", jobId, e.getMessage());
+            return null;
         }
+    }
 
-        return metadata;
+    private boolean isCached(String fingerprint, Collection<String> outputs) {
+        return fingerprint != null
+                && jobRepository.existsByFingerprintAndStatus(fingerprint, JobStatus.COMPLETED)
+                && outputs.stream().allMatch(output -> Files.exists(Paths.get(output)));
     }
 
-    private void executeFFmpegCommand(String[] command) throws IOException, InterruptedException {
-        ProcessBuilder pb = new ProcessBuilder(command);
-        pb.redirectErrorStream(true);
+    // Outputs are named by fingerprint, so an identical job finds them; jobs without one get a random name
+    private String outputPath(String prefix, String fingerprint) {
+        return Paths.get(outputDir, prefix + (fingerprint != null ? fingerprint : UUID.randomUUID()) + ".mp4").toString();
+    }
 
-        // Set environment for better Unicode support
-        Map<String, String> env = pb.environment();
-        env.put("LANG", "en_US.UTF-8");
+    /**
+     * Where a job writes an output before {@link #publishOutput} moves it into place, so the
+     * shared name only ever holds a finished file.
+     */
+    private static String stagingPath(String output, String jobId) {
+        int extension = output.lastIndexOf('.');
+        return output.substring(0, extension) + "." + jobId + output.substring(extension);
+    }
 
-        Process process = pb.start();
+    private void publishOutput(String staging, String output, String jobId) throws IOException {
+        Path target = Paths.get(output);
+        long replaced = Files.exists(target) ? Files.size(target) : 0;
+        Files.move(Paths.get(staging), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        statsService.bytesStored(StorageTier.DERIVED, Files.size(target) - replaced);
+        outputCache.published(target, jobId);
+        prepareDownloads(target);
+    }
+
+    private Path hlsPackageDir(String fingerprint) {
+        return Paths.get(outputDir, HLS_PREFIX + (fingerprint != null ? fingerprint : UUID.randomUUID()));
+    }
 
-        // Capture output with proper encoding
-        StringBuilder outputLog = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                outputLog.append(line).append("\n");
-                log.debug("FFmpeg: {}", line);
+    // A directory cannot replace another atomically; if an identical job got there first, its package stays
+    private void publishPackage(Path staging, Path packageDir, String jobId) throws IOException {
+        try {
+            Files.move(staging, packageDir, StandardCopyOption.ATOMIC_MOVE);
+            statsService.bytesStored(StorageTier.DERIVED, WorkDirs.sizeOf(packageDir));
+            outputCache.published(packageDir, jobId);
+            prepareDownloads(packageDir);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            log.info("HLS package {} already published", packageDir.getFileName());
+        }
+    }
+
+    // Hashes the published files for their ETags here, so no download has to; the job stands either way
+    private void prepareDownloads(Path published) {
+        try (Stream<Path> files = Files.walk(published)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                fileDownloadService.prepare(file);
             }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to prepare downloads of {}: {}", published.getFileName(), e.getMessage());
+        }
+    }
+
+    private boolean hasAudio(Video video) throws IOException, InterruptedException {
+        // Videos stored before probing at ingest have no codecs recorded
+        if (video.getVideoCodec() != null) {
+            return video.getAudioCodec() != null;
+        }
+        return videoProber.probe(video.getFilepath(), video.getContentHash()).hasAudio();
+    }
+
+    // ===== EVICTED OUTPUTS =====
+
+    /**
+     * {@code path}, if it is there. If the output cache evicted it, a job producing it again is
+     * started, or found by its fingerprint like any identical job in flight, and the download
+     * fails with {@link OutputRegeneratingException} for the client to retry once it is done.
+     * A path the cache does not know is returned as it is.
+     */
+    private Path present(Path path) {
+        if (Files.exists(path)) {
+            outputCache.touch(path);
+            return path;
+        }
+        String fingerprint = outputCache.fingerprintOf(path);
+        if (fingerprint == null) {
+            return path;
         }
 
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            log.error("FFmpeg failed with exit code: {} and output: {}", exitCode, outputLog);
-            throw new RuntimeException("FFmpeg command failed with exit code: " + exitCode);
+        // The first download on this node starts the job, outside the map; the others wait for its id
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> starting = regenerations.putIfAbsent(fingerprint, created);
+        if (starting == null) {
+            try {
+                created.complete(regenerate(fingerprint));
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            } finally {
+                regenerations.remove(fingerprint, created);
+            }
+            starting = created;
+        }
+        try {
+            throw new OutputRegeneratingException(starting.join());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
         }
     }
 
+    // Replays the request of an earlier job with this fingerprint, unless one is already running
+    private String regenerate(String fingerprint) {
+        Optional<ProcessingJob> inFlight = jobRepository.findInFlightByFingerprint(fingerprint).stream().findFirst();
+        if (inFlight.isPresent()) {
+            return inFlight.get().getJobId();
+        }
+        ProcessingJob source = jobRepository.findReplayableByFingerprint(fingerprint, Limit.of(1)).stream()
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Output was evicted and cannot be regenerated"));
+        // Retrying downloads would otherwise replay a request that keeps failing
+        if (source.getStatus() == JobStatus.FAILED && source.getCompletedAt() != null
+                && source.getCompletedAt().isAfter(LocalDateTime.now().minus(REGENERATION_FAILURE_HOLD))) {
+            throw new RuntimeException("Regenerating the output failed: " + source.getErrorMessage());
+        }
+
+        ProcessingJob job = ProcessingJob.builder()
+                .jobId(UUID.randomUUID().toString())
+                .jobType(source.getJobType())
+                .video(source.getVideo())
+                .fingerprint(fingerprint)
+                .regeneration(true)
+                .build();
+        jobQueueService.enqueuePayload(job, source.getPayload());
+        log.info("Regenerating evicted output of job {} with job {}", source.getJobId(), job.getJobId());
+        return job.getJobId();
+    }
+
+    // ===== UTILITY METHODS =====
+
     // Remove the old escapeTextForFFmpeg method since we're handling it differently now
 
     private String calculateWatermarkPosition(String position, int videoWidth, int videoHeight) {
@@ -620,71 +1128,123 @@ public class VideoProcessingService {
         };
     }
 
-    private Integer calculateProgress(ProcessingJob job) {
-        return switch (job.getStatus()) {
-            case PENDING -> 0;
-            case PROCESSING -> 50;
-            case COMPLETED -> 100;
-            case FAILED -> 0;
-        };
+    private void validateWatermarkPath(String watermarkPath) {
+        // Validate watermark file exists
+        if (watermarkPath == null || watermarkPath.equals("string") || watermarkPath.trim().isEmpty()) {
+            throw new RuntimeException("Invalid watermark path. Please provide a valid path to an image file (PNG, JPG, etc.)");
+        }
+
+        // Check if watermark file exists
+        if (!Files.exists(Paths.get(watermarkPath))) {
+            throw new RuntimeException("Watermark file not found: " + watermarkPath);
+        }
     }
 
-    private void updateJobStatus(String jobId, JobStatus status, String errorMessage) {
-        jobRepository.findByJobId(jobId).ifPresent(job -> {
-            job.setStatus(status);
-            job.setErrorMessage(errorMessage);
-            if (status == JobStatus.COMPLETED || status == JobStatus.FAILED) {
-                job.setCompletedAt(LocalDateTime.now());
-            }
-            jobRepository.save(job);
-        });
+    private Map<VideoQuality, String> qualityOutputs(Video video, List<String> qualities, String fingerprint) {
+        Map<VideoQuality, String> outputs = new LinkedHashMap<>();
+        for (String qualityStr : qualities) {
+            VideoQuality quality = VideoQuality.valueOf("QUALITY_" + qualityStr.toUpperCase());
+
+            String outputFilename = fingerprint != null
+                    ? String.format("%s_%s.mp4", fingerprint, quality.getResolution())
+                    : String.format("%s_%s_%s.mp4",
+                            video.getUuid(),
+                            quality.getResolution(),
+                            UUID.randomUUID().toString().substring(0, 8));
+            outputs.put(quality, Paths.get(outputDir, outputFilename).toString());
+        }
+        return outputs;
     }
 
-    private VideoResponse mapToVideoResponse(Video video) {
-        return VideoResponse.builder()
-                .id(video.getId())
-                .uuid(video.getUuid())
-                .filename(video.getFilename())
-                .originalFilename(video.getOriginalFilename())
-                .duration(video.getDuration())
-                .size(video.getSize())
-                .width(video.getWidth())
-                .height(video.getHeight())
-                .uploadTime(video.getUploadTime())
+    private List<VideoQualityVersion> qualityVersions(Video video, Map<VideoQuality, String> outputs) throws IOException {
+        List<VideoQualityVersion> versions = new ArrayList<>();
+        for (Map.Entry<VideoQuality, String> output : outputs.entrySet()) {
+            Path outputPath = Paths.get(output.getValue());
+
+            // Quality version record, saved when the job completes
+            versions.add(VideoQualityVersion.builder()
+                    .originalVideo(video)
+                    .quality(output.getKey())
+                    .filename(outputPath.getFileName().toString())
+                    .filepath(outputPath.toString())
+                    .size(Files.size(outputPath))
+                    .build());
+
+            log.info("Generated {} quality for video: {}", output.getKey().getResolution(), video.getUuid());
+        }
+        return versions;
+    }
+
+    private static TrimmedVideo trimRecord(Video video, TrimVideoRequest request, String outputPath) {
+        return TrimmedVideo.builder()
+                .uuid(UUID.randomUUID().toString())
+                .originalVideo(video)
+                .filename(Paths.get(outputPath).getFileName().toString())
+                .filepath(outputPath)
+                .startTime(request.getStartTime())
+                .endTime(request.getEndTime())
+                .duration(request.getEndTime() - request.getStartTime())
+                .trimMode(request.getMode() != null ? request.getMode() : TrimMode.COPY)
                 .build();
     }
 
-    private QualityVersionResponse mapToQualityVersionResponse(VideoQualityVersion version) {
-        return QualityVersionResponse.builder()
-                .quality(version.getQuality().getResolution())
-                .filename(version.getFilename())
-                .size(version.getSize())
-                .createdAt(version.getCreatedAt())
-                .downloadUrl("/download/quality/" + version.getId())
+    private VideoOverlay overlayRecord(Video video, AddOverlayRequest request) {
+        return VideoOverlay.builder()
+                .video(video)
+                .overlayType(OverlayType.valueOf(request.getOverlayType()))
+                .content(request.getContent())
+                .positionX(request.getPositionX())
+                .positionY(request.getPositionY())
+                .startTime(request.getStartTime())
+                .endTime(request.getEndTime())
+                .fontSize(request.getFontSize())
+                .fontColor(request.getFontColor())
+                .language(request.getLanguage())
                 .build();
     }
 
-    // Helper methods for metadata extraction (simplified)
-    private Double extractDurationFromOutput(String output) {
-        // Parse JSON to extract duration - simplified version
-        return 0.0; // Implement proper JSON parsing
+    private VideoOverlay watermarkRecord(Video video, AddWatermarkRequest request) {
+        return VideoOverlay.builder()
+                .video(video)
+                .overlayType(OverlayType.WATERMARK)
+                .content(request.getWatermarkPath())
+                .positionX(request.getPositionX())
+                .positionY(request.getPositionY())
+                .build();
     }
 
-    private Integer extractWidthFromOutput(String output) {
-        return 1920; // Implement proper JSON parsing
+    private static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
 
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String name) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid " + name + ": " + value);
+        }
     }
 
-    private Integer extractHeightFromOutput(String output) {
-        return 1080; // Implement proper JSON parsing
+    private void failJob(String jobId, Exception e) {
+        jobStateService.fail(jobId, e);
+        progressService.publishStatus(jobId, JobStatus.FAILED);
     }
 
-    @lombok.Data
-    @lombok.NoArgsConstructor
-    @lombok.AllArgsConstructor
-    private static class VideoMetadata {
-        private Double duration;
-        private Integer width;
-        private Integer height;
+    private QualityVersionResponse mapToQualityVersionResponse(VideoQualityVersion version) {
+        OutputFormat format = version.getFormat() != null ? version.getFormat() : OutputFormat.MP4;
+        QualityVersionResponse.QualityVersionResponseBuilder response = QualityVersionResponse.builder()
+                .quality(version.getQuality().getResolution())
+                .filename(version.getFilename())
+                .size(version.getSize())
+                .createdAt(version.getCreatedAt())
+                .format(format.name());
+        if (format == OutputFormat.HLS) {
+            String packageUrl = "/hls/" + Paths.get(version.getFilepath()).getParent().getParent().getFileName();
+            response.downloadUrl(packageUrl + "/" + version.getFilename())
+                    .streamUrl(packageUrl + "/" + FFmpegCommands.HLS_MASTER_PLAYLIST);
+        } else {
+            response.downloadUrl("/download/quality/" + version.getId());
+        }
+        return response.build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.entity.TrimmedVideo;
+import com.videoprocessing.enums.TrimMode;
+import com.videoprocessing.ffmpeg.FFmpegCommands;
+import com.videoprocessing.ffmpeg.FFmpegExecutor;
+import com.videoprocessing.ffmpeg.KeyframeLocator;
+import com.videoprocessing.repository.TrimmedVideoRepository;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Serves virtual clips: trims stored as a range over their source, with no file of their
+ * own. A clip is played as an HLS playlist whose segments start on source keyframes and are
+ * stream copied out of the source when requested, or downloaded as one fragmented MP4
+ * remuxed on the fly. Neither costs more than reading the source range, but each holds an
+ * FFmpeg process for as long as the client reads, so at most {@code app.clip-stream-concurrency}
+ * run at once and requests beyond that fail with {@link ClipStreamLimitException}.
+ */
+@Service
+@Slf4j
+public class VirtualClipService {
+
+    public static final String PLAYLIST = "index.m3u8";
+
+    private final TrimmedVideoRepository trimmedVideoRepository;
+    private final KeyframeLocator keyframeLocator;
+    private final FFmpegExecutor ffmpegExecutor;
+    private final Semaphore streams;
+    private final String cacheControl;
+
+    /**
+     * Opens the response a clip is streamed to, once it is certain to be sent. Until then a
+     * failed request can still be answered with an error.
+     */
+    @FunctionalInterface
+    public interface Output {
+        OutputStream open() throws IOException;
+    }
+
+    public VirtualClipService(TrimmedVideoRepository trimmedVideoRepository,
+                              KeyframeLocator keyframeLocator,
+                              FFmpegExecutor ffmpegExecutor,
+                              AppProperties appProperties) {
+        this.trimmedVideoRepository = trimmedVideoRepository;
+        this.keyframeLocator = keyframeLocator;
+        this.ffmpegExecutor = ffmpegExecutor;
+        this.streams = new Semaphore(appProperties.getClipStreamConcurrency());
+        // Not immutable: segment boundaries come from the keyframe index, and the clip goes with its source
+        this.cacheControl = "public, max-age=" + appProperties.getClipCacheMaxAgeSeconds();
+    }
+
+    /**
+     * The Cache-Control header for a clip's playlist and segments, which must expire together.
+     */
+    public String cacheControl() {
+        return cacheControl;
+    }
+
+    @Value
+    static class Segment {
+        double start;
+        double end;
+    }
+
+    public String playlist(String clipId) throws IOException, InterruptedException {
+        return playlist(segments(clip(clipId)));
+    }
+
+    public void streamSegment(String clipId, int index, Output out) throws IOException, InterruptedException {
+        TrimmedVideo clip = clip(clipId);
+        List<Segment> segments = segments(clip);
+        if (index < 0 || index >= segments.size()) {
+            throw new RuntimeException("Segment not found");
+        }
+        Segment segment = segments.get(index);
+        stream(FFmpegCommands.segmentRemuxCommand(
+                clip.getOriginalVideo().getFilepath(), segment.getStart(), segment.getEnd()), out);
+    }
+
+    public void streamClip(String clipId, Output out) throws IOException, InterruptedException {
+        TrimmedVideo clip = clip(clipId);
+        stream(FFmpegCommands.clipRemuxCommand(
+                clip.getOriginalVideo().getFilepath(), clip.getStartTime(), clip.getEndTime()), out);
+    }
+
+    // Rejects rather than queues: a client waiting on a stalled response would hold its thread as long
+    private void stream(String[] command, Output out) throws IOException, InterruptedException {
+        if (!streams.tryAcquire()) {
+            throw new ClipStreamLimitException();
+        }
+        try {
+            ffmpegExecutor.stream(command, out.open());
+        } finally {
+            streams.release();
+        }
+    }
+
+    public static String playlistUrl(String clipId) {
+        return "/clips/" + clipId + "/" + PLAYLIST;
+    }
+
+    public static String segmentName(int index) {
+        return String.format(Locale.ROOT, "segment_%05d.ts", index);
+    }
+
+    private TrimmedVideo clip(String clipId) {
+        return trimmedVideoRepository.findWithOriginalByUuid(clipId)
+                .filter(clip -> clip.getTrimMode() == TrimMode.VIRTUAL)
+                .orElseThrow(() -> new RuntimeException("Clip not found"));
+    }
+
+    // Recomputed per request: the keyframe index answers from a memory mapping, so this is cheap
+    private List<Segment> segments(TrimmedVideo clip) throws IOException, InterruptedException {
+        String source = clip.getOriginalVideo().getFilepath();
+        return segments(keyframeLocator.keyframesBetween(source, clip.getStartTime(), clip.getEndTime()),
+                clip.getStartTime(), clip.getEndTime());
+    }
+
+    /**
+     * Splits {@code [start, end)} at keyframes into segments of at least the HLS segment
+     * length. The first segment begins at the keyframe at or before {@code start}.
+     */
+    static List<Segment> segments(List<Double> keyframes, double start, double end) {
+        double segmentStart = start;
+        for (double keyframe : keyframes) {
+            if (keyframe <= start) {
+                segmentStart = keyframe;
+            }
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        for (double keyframe : keyframes) {
+            if (keyframe >= end) {
+                break;
+            }
+            if (keyframe - segmentStart >= FFmpegCommands.HLS_SEGMENT_SECONDS) {
+                segments.add(new Segment(segmentStart, keyframe));
+                segmentStart = keyframe;
+            }
+        }
+        segments.add(new Segment(segmentStart, end));
+        return segments;
+    }
+
+    static String playlist(List<Segment> segments) {
+        double longest = segments.stream().mapToDouble(s -> s.getEnd() - s.getStart()).max().orElse(0);
+
+        StringBuilder m3u8 = new StringBuilder()
+                .append("#EXTM3U\n")
+                .append("#EXT-X-VERSION:3\n")
+                .append("#EXT-X-PLAYLIST-TYPE:VOD\n")
+                .append("#EXT-X-TARGETDURATION:").append((long) Math.ceil(longest)).append('\n')
+                .append("#EXT-X-MEDIA-SEQUENCE:0\n");
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            m3u8.append(String.format(Locale.ROOT, "#EXTINF:%.3f,", segment.getEnd() - segment.getStart()))
+                    .append('\n')
+                    .append(segmentName(i)).append('\n');
+        }
+        return m3u8.append("#EXT-X-ENDLIST\n").toString();
+    }
+}
@@ -24,7 +24,10 @@ public class JobStatusWebSocketController {
 
     // Method to send real-time updates (called from service)
     public void sendJobUpdate(String jobId, String status, Integer progress) {
-        JobUpdateMessage message = new JobUpdateMessage(jobId, status, progress);
-        messagingTemplate.convertAndSend("/topic/job-updates/" + jobId, message);
+        sendJobUpdate(new JobUpdateMessage(jobId, status, progress));
+    }
+
+    public void sendJobUpdate(JobUpdateMessage message) {
+        messagingTemplate.convertAndSend("/topic/job-updates/" + message.getJobId(), message);
     }
 }
@@ -0,0 +1,199 @@
+package com.videoprocessing.download;
+
+import com.videoprocessing.config.AppProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileDownloadServiceTest {
+
+    @TempDir
+    Path dir;
+
+    // Background hashes wait here until a test runs them
+    private final List<Runnable> digests = new ArrayList<>();
+    private final FileDownloadService downloads = new FileDownloadService(new AppProperties(), digests::add);
+    private byte[] content;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        file = Files.write(dir.resolve("result.mp4"), content);
+    }
+
+    @Test
+    void parsesRanges() {
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("bytes=abc", 1000));
+        assertNull(ByteRange.parse("items=0-1", 1000));
+        assertEquals(List.of(new ByteRange(0, 99)), ByteRange.parse("bytes=0-99", 1000));
+        assertEquals(List.of(new ByteRange(900, 999)), ByteRange.parse("bytes=-100", 1000));
+        assertEquals(List.of(new ByteRange(500, 999)), ByteRange.parse("bytes=500-", 1000));
+        assertEquals(List.of(new ByteRange(990, 999)), ByteRange.parse("bytes=990-5000", 1000));
+        // Overlapping and adjacent ranges are merged
+        assertEquals(List.of(new ByteRange(0, 199), new ByteRange(300, 309)),
+                ByteRange.parse("bytes=300-309, 100-199, 0-150", 1000));
+        assertEquals(List.of(), ByteRange.parse("bytes=1000-1100", 1000));
+    }
+
+    @Test
+    void servesWholeFileAndSingleRange() throws Exception {
+        downloads.prepare(file);
+        MockHttpServletResponse full = serve(new MockHttpServletRequest("GET", "/"));
+        assertEquals(200, full.getStatus());
+        assertEquals("bytes", full.getHeader("Accept-Ranges"));
+        assertArrayEquals(content, full.getContentAsByteArray());
+        String etag = full.getHeader("ETag");
+        assertTrue(etag.matches("\"[0-9a-f]{64}\""));
+
+        MockHttpServletRequest ranged = new MockHttpServletRequest("GET", "/");
+        ranged.addHeader("Range", "bytes=100-199");
+        ranged.addHeader("If-Range", etag);
+        MockHttpServletResponse partial = serve(ranged);
+        assertEquals(206, partial.getStatus());
+        assertEquals("bytes 100-199/1000", partial.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 200), partial.getContentAsByteArray());
+
+        // A stale If-Range gets the whole file
+        ranged = new MockHttpServletRequest("GET", "/");
+        ranged.addHeader("Range", "bytes=100-199");
+        ranged.addHeader("If-Range", "\"other\"");
+        assertEquals(200, serve(ranged).getStatus());
+
+        MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/");
+        conditional.addHeader("If-None-Match", "\"other\", " + etag);
+        MockHttpServletResponse notModified = serve(conditional);
+        assertEquals(304, notModified.getStatus());
+        assertEquals(0, notModified.getContentAsByteArray().length);
+
+        MockHttpServletRequest unsatisfiable = new MockHttpServletRequest("GET", "/");
+        unsatisfiable.addHeader("Range", "bytes=2000-");
+        MockHttpServletResponse rejected = serve(unsatisfiable);
+        assertEquals(416, rejected.getStatus());
+        assertEquals("bytes */1000", rejected.getHeader("Content-Range"));
+    }
+
+    @Test
+    void hashesUnpreparedFileOnceInTheBackground() throws Exception {
+        MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/");
+        conditional.addHeader("If-None-Match", "\"" + "0".repeat(64) + "\"");
+        MockHttpServletResponse first = serve(conditional);
+        MockHttpServletResponse second = serve(new MockHttpServletRequest("GET", "/"));
+
+        assertEquals(200, first.getStatus());
+        assertArrayEquals(content, first.getContentAsByteArray());
+        assertNull(first.getHeader("ETag"));
+        assertNull(second.getHeader("ETag"));
+        assertEquals(1, digests.size());
+
+        digests.remove(0).run();
+        assertTrue(serve(new MockHttpServletRequest("GET", "/")).getHeader("ETag").matches("\"[0-9a-f]{64}\""));
+        assertTrue(digests.isEmpty());
+    }
+
+    @Test
+    void servesSeveralRangesAsMultipart() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("Range", "bytes=0-9,500-509");
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(206, response.getStatus());
+        String boundary = response.getContentType().substring(response.getContentType().indexOf("boundary=") + 9);
+        byte[] body = response.getContentAsByteArray();
+        assertEquals(body.length, response.getContentLengthLong());
+
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+        assertTrue(text.startsWith("--" + boundary + "\r\n"));
+        assertTrue(text.contains("Content-Range: bytes 0-9/1000\r\n\r\n"
+                + new String(Arrays.copyOfRange(content, 0, 10), StandardCharsets.ISO_8859_1) + "\r\n--" + boundary));
+        assertTrue(text.contains("Content-Range: bytes 500-509/1000\r\n\r\n"
+                + new String(Arrays.copyOfRange(content, 500, 510), StandardCharsets.ISO_8859_1)));
+        assertTrue(text.endsWith("\r\n--" + boundary + "--\r\n"));
+    }
+
+    @Test
+    void handsSingleRangeToSendfileWhenAvailable() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=10-19");
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(10L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(20L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    @Test
+    void servesStreamingFilesInline() throws Exception {
+        Path playlist = Files.writeString(dir.resolve("master.m3u8"), "#EXTM3U\n");
+        Path segment = Files.write(dir.resolve("segment_00000.m4s"), content);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        downloads.serve(playlist, false, new MockHttpServletRequest("GET", "/"), response);
+        assertEquals(200, response.getStatus());
+        assertEquals("application/vnd.apple.mpegurl", response.getContentType());
+        assertNull(response.getHeader("Content-Disposition"));
+
+        response = new MockHttpServletResponse();
+        downloads.serve(segment, false, new MockHttpServletRequest("GET", "/"), response);
+        assertEquals("video/iso.segment", response.getContentType());
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void followsFileWhileItIsWritten() throws Exception {
+        Path growing = dir.resolve("growing.mp4");
+        Files.write(growing, Arrays.copyOfRange(content, 0, 400));
+        AtomicBoolean finished = new AtomicBoolean();
+
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+                Files.write(growing, Arrays.copyOfRange(content, 400, 1000), StandardOpenOption.APPEND);
+                finished.set(true);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(downloads.follow(growing, finished::get, response));
+        writer.join();
+        assertEquals(200, response.getStatus());
+        assertEquals("no-store", response.getHeader("Cache-Control"));
+        assertArrayEquals(content, response.getContentAsByteArray());
+
+        // Gone and finished: the caller serves the final file instead
+        assertFalse(downloads.follow(dir.resolve("moved.mp4"), () -> true, new MockHttpServletResponse()));
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        downloads.serve(file, request, response);
+        return response;
+    }
+}
@@ -0,0 +1,79 @@
+package com.videoprocessing.ffmpeg;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.enums.VideoQuality;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChunkedEncoderTest {
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void keepsNoMoreChunksOfAJobSubmittedThanTheExecutorRuns() throws Exception {
+        AppProperties appProperties = new AppProperties();
+        appProperties.setChunkParallelism(2);
+        // Chunks take about as long as each other; no straggler should be re-run
+        appProperties.setChunkSpeculationFactor(1000);
+        ThreadPoolTaskExecutor chunkExecutor = new ThreadPoolTaskExecutor();
+        chunkExecutor.setCorePoolSize(2);
+        chunkExecutor.setMaxPoolSize(2);
+        chunkExecutor.initialize();
+        VideoProber videoProber = mock(VideoProber.class);
+        when(videoProber.probe(anyString())).thenReturn(MediaInfo.builder().build());
+
+        FFmpegExecutor ffmpegExecutor = mock(FFmpegExecutor.class);
+        doAnswer(invocation -> {
+            List<String> command = Arrays.asList(invocation.<String[]>getArgument(0));
+            int list = command.indexOf("-segment_list");
+            if (list >= 0) {
+                List<String> lines = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    lines.add(String.format("chunk_%05d.mkv,%d,%d", i, i * 30, i * 30 + 30));
+                }
+                Files.write(Path.of(command.get(list + 1)), lines);
+            }
+            return null;
+        }).when(ffmpegExecutor).execute(any(String[].class));
+        AtomicInteger encoded = new AtomicInteger();
+        AtomicInteger mostQueued = new AtomicInteger();
+        doAnswer(invocation -> {
+            mostQueued.accumulateAndGet(chunkExecutor.getThreadPoolExecutor().getQueue().size(), Math::max);
+            Thread.sleep(20);
+            encoded.incrementAndGet();
+            return null;
+        }).when(ffmpegExecutor).execute(any(String[].class), any(), any());
+
+        List<FFmpegProgress> progress = new ArrayList<>();
+        try {
+            new ChunkedEncoder(ffmpegExecutor, chunkExecutor, appProperties, videoProber).encode("source.mp4",
+                    Map.of(VideoQuality.QUALITY_720P, workDir.resolve("out.mp4").toString()),
+                    workDir.resolve("work"), progress::add);
+        } finally {
+            chunkExecutor.shutdown();
+        }
+
+        assertEquals(8, encoded.get());
+        // Submitted all at once, six chunks would have been waiting behind the first two
+        assertTrue(mostQueued.get() <= 1, "queued " + mostQueued.get());
+        assertTrue(progress.get(progress.size() - 1).isFinished());
+    }
+}
@@ -0,0 +1,59 @@
+package com.videoprocessing.ffmpeg;
+
+import com.videoprocessing.enums.VideoQuality;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FFmpegCommandsTest {
+
+    @Test
+    void encodesTheLadderFromOneDecodeThroughTheTeeMuxer() {
+        Map<VideoQuality, String> outputs = new LinkedHashMap<>();
+        outputs.put(VideoQuality.QUALITY_720P, "out_720p.mp4");
+        outputs.put(VideoQuality.QUALITY_480P, "out_480p.mp4");
+
+        String[] command = FFmpegCommands.renditionLadderCommand("source.mp4", outputs);
+
+        assertEquals(List.of("ffmpeg",
+                "-i", "source.mp4",
+                "-filter_complex", "[0:v]split=2[s0][s1];[s0]scale=1280:720[v0];[s1]scale=640:480[v1]",
+                "-map", "[v0]",
+                "-map", "[v1]",
+                "-map", "0:a?",
+                "-c:v", "libx264", "-crf", "23", "-preset", "medium",
+                "-c:a", "aac", "-b:a", "128k",
+                "-flags", "+global_header",
+                "-f", "tee",
+                // The comma inside select= is quoted, or tee would read it as an option separator
+                "[select=\\'v:0,a\\':f=mp4]out_720p.mp4|[select=\\'v:1,a\\':f=mp4]out_480p.mp4"),
+                List.of(command));
+    }
+
+    @Test
+    void feedsTheLadderFromTheEndOfAFiltergraph() {
+        Map<VideoQuality, String> outputs = new LinkedHashMap<>();
+        outputs.put(VideoQuality.QUALITY_1080P, "out_1080p.mp4");
+        outputs.put(VideoQuality.QUALITY_720P, "out_720p.mp4");
+        outputs.put(VideoQuality.QUALITY_480P, "out_480p.mp4");
+
+        String[] command = FFmpegCommands.filteredLadderCommand(
+                List.of("-ss", "1.000000", "-i", "source.mp4", "-i", "logo.png"),
+                "[0:v][1:v]overlay=10:10[p1]", "[p1]", outputs);
+        List<String> args = List.of(command);
+
+        assertEquals(List.of("ffmpeg", "-ss", "1.000000", "-i", "source.mp4", "-i", "logo.png"),
+                args.subList(0, 7));
+        assertEquals("[0:v][1:v]overlay=10:10[p1];[p1]split=3[s0][s1][s2];"
+                        + "[s0]scale=1920:1080[v0];[s1]scale=1280:720[v1];[s2]scale=640:480[v2]",
+                args.get(args.indexOf("-filter_complex") + 1));
+        assertEquals("[select=\\'v:0,a\\':f=mp4]out_1080p.mp4"
+                        + "|[select=\\'v:1,a\\':f=mp4]out_720p.mp4"
+                        + "|[select=\\'v:2,a\\':f=mp4]out_480p.mp4",
+                args.get(args.size() - 1));
+    }
+}
@@ -0,0 +1,48 @@
+package com.videoprocessing.ffmpeg;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FFmpegExecutorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final FFmpegExecutor executor = new FFmpegExecutor("ffmpeg", registry);
+
+    @AfterEach
+    void unbind() {
+        ResourceUsage.unbind();
+    }
+
+    @Test
+    void chargesCapturedAndStreamedRunsToTheJob() throws Exception {
+        ResourceUsage usage = new ResourceUsage();
+        ResourceUsage.bind(usage);
+
+        assertEquals("probed\n", executor.capture(new String[]{"sh", "-c", "sleep 0.1; echo probed"}));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        executor.stream(new String[]{"sh", "-c", "head -c 200000 /dev/zero"}, out);
+
+        assertEquals(200000, out.size());
+        assertEquals(2, usage.getRuns());
+        assertTrue(usage.getWallMillis() >= 100);
+    }
+
+    @Test
+    void failedRunsThrowFFmpegExceptionAndAreStillCharged() {
+        ResourceUsage usage = new ResourceUsage();
+        ResourceUsage.bind(usage);
+
+        assertThrows(FFmpegException.class, () -> executor.capture(new String[]{"sh", "-c", "exit 1"}));
+        assertThrows(FFmpegException.class, () -> executor.stream(new String[]{"sh", "-c", "exit 1"},
+                new ByteArrayOutputStream()));
+
+        assertEquals(2, usage.getRuns());
+    }
+}
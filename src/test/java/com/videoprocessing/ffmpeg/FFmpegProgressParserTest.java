@@ -0,0 +1,89 @@
+package com.videoprocessing.ffmpeg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FFmpegProgressParserTest {
+
+    // Output of ffmpeg -progress pipe:1 -nostats with stderr merged in, as FFmpegExecutor reads it
+    private static final String OUTPUT = """
+            Input #0, mov,mp4,m4a,3gp,3g2,mj2, from 'source.mp4':
+              Duration: 00:01:40.00, start: 0.000000, bitrate: 1205 kb/s
+              Stream #0:0[0x1](und): Video: h264 (High) (avc1 / 0x31637661), yuv420p, 1280x720, 1070 kb/s, 30 fps
+            frame=131
+            fps=0.00
+            stream_0_0_q=28.0
+            bitrate=N/A
+            total_size=48
+            out_time_us=4333333
+            out_time_ms=4333333
+            out_time=00:00:04.333333
+            dup_frames=0
+            drop_frames=0
+            speed=8.66x
+            progress=continue
+            frame=3000
+            fps=119.88
+            stream_0_0_q=-1.0
+            bitrate= 982.1kbits/s
+            total_size=12276301
+            out_time_us=100000000
+            out_time_ms=100000000
+            out_time=00:01:40.000000
+            dup_frames=0
+            drop_frames=0
+            speed=3.99x
+            progress=end
+            """;
+
+    @Test
+    void emitsOneSnapshotPerBlockUsingTheHeaderDuration() {
+        FFmpegProgressParser parser = new FFmpegProgressParser(null);
+        List<FFmpegProgress> snapshots = new ArrayList<>();
+        for (String line : OUTPUT.split("\n")) {
+            FFmpegProgress progress = parser.accept(line);
+            if (progress != null) {
+                snapshots.add(progress);
+            }
+        }
+
+        assertEquals(2, snapshots.size());
+        FFmpegProgress first = snapshots.get(0);
+        assertEquals(100.0, first.getTotalSeconds(), 1e-9);
+        assertEquals(4.333333, first.getOutTimeSeconds(), 1e-9);
+        assertEquals(0.0, first.getFps());
+        assertEquals(8.66, first.getSpeed());
+        assertEquals(48L, first.getTotalSize());
+        assertEquals(4, first.getPercent());
+        assertEquals((100 - 4.333333) / 8.66, first.getEtaSeconds(), 1e-9);
+        assertFalse(first.isFinished());
+
+        FFmpegProgress last = snapshots.get(1);
+        assertEquals(119.88, last.getFps());
+        assertEquals(12276301L, last.getTotalSize());
+        assertEquals(100, last.getPercent());
+        assertEquals(0.0, last.getEtaSeconds());
+        assertTrue(last.isFinished());
+    }
+
+    @Test
+    void suppliedDurationWinsAndUnknownValuesAreNull() {
+        FFmpegProgressParser parser = new FFmpegProgressParser(10.0);
+        parser.accept("  Duration: 00:01:40.00, start: 0.000000, bitrate: 1205 kb/s");
+        parser.accept("out_time_us=5000000");
+        parser.accept("speed=N/A");
+        FFmpegProgress progress = parser.accept("progress=continue");
+
+        assertEquals(10.0, progress.getTotalSeconds());
+        assertEquals(50, progress.getPercent());
+        assertNull(progress.getSpeed());
+        assertNull(progress.getEtaSeconds());
+    }
+}
@@ -0,0 +1,84 @@
+package com.videoprocessing.ffmpeg;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FFprobeParserTest {
+
+    @Test
+    void readsVideoAudioAndFormat() throws Exception {
+        MediaInfo info = FFprobeParser.parse("""
+                {
+                  "streams": [
+                    {
+                      "index": 0, "codec_name": "h264", "codec_type": "video",
+                      "width": 1920, "height": 1080, "pix_fmt": "yuv420p",
+                      "r_frame_rate": "30000/1001", "avg_frame_rate": "30000/1001",
+                      "disposition": {"default": 1, "dub": 0},
+                      "tags": {"language": "und", "handler_name": "VideoHandler"}
+                    },
+                    {
+                      "index": 1, "codec_name": "aac", "codec_type": "audio",
+                      "sample_rate": "48000", "channels": 2, "channel_layout": "stereo",
+                      "r_frame_rate": "0/0", "avg_frame_rate": "0/0"
+                    },
+                    {"index": 2, "codec_name": "aac", "codec_type": "audio", "sample_rate": "44100", "channels": 1}
+                  ],
+                  "format": {
+                    "filename": "clip.mp4", "nb_streams": 3, "format_name": "mov,mp4,m4a,3gp,3g2,mj2",
+                    "duration": "12.345000", "size": "1234567", "bit_rate": "800123",
+                    "tags": {"major_brand": "isom"}
+                  }
+                }
+                """);
+
+        assertEquals(12.345, info.getDuration(), 1e-9);
+        assertEquals(1920, info.getWidth());
+        assertEquals(1080, info.getHeight());
+        assertEquals("h264", info.getVideoCodec());
+        assertEquals("yuv420p", info.getPixelFormat());
+        assertEquals(29.97, info.getFrameRate(), 0.001);
+        assertEquals(800123L, info.getBitrate());
+        assertEquals(0, info.getRotation());
+        assertTrue(info.hasAudio());
+        assertEquals("aac", info.getAudioCodec());
+        assertEquals(2, info.getAudioChannels());
+        assertEquals(48000, info.getAudioSampleRate());
+    }
+
+    @Test
+    void appliesDisplayMatrixRotation() throws Exception {
+        MediaInfo info = FFprobeParser.parse("""
+                {"streams": [{
+                  "codec_name": "hevc", "codec_type": "video", "width": 1920, "height": 1080,
+                  "avg_frame_rate": "0/0", "r_frame_rate": "60/1", "duration": "3.5",
+                  "side_data_list": [{"side_data_type": "Display Matrix",
+                                      "displaymatrix": "\\n00000000:            0       65536           0\\n",
+                                      "rotation": -90}]
+                }], "format": {}}
+                """);
+
+        assertEquals(90, info.getRotation());
+        assertEquals(1080, info.getWidth());
+        assertEquals(1920, info.getHeight());
+        assertEquals(60.0, info.getFrameRate());
+        assertEquals(3.5, info.getDuration());
+        assertFalse(info.hasAudio());
+        assertNull(info.getBitrate());
+    }
+
+    @Test
+    void appliesRotateTag() throws Exception {
+        MediaInfo info = FFprobeParser.parse("""
+                {"streams": [{"codec_type": "video", "width": 640, "height": 480, "tags": {"rotate": "270"}}]}
+                """);
+
+        assertEquals(270, info.getRotation());
+        assertEquals(480, info.getWidth());
+        assertEquals(640, info.getHeight());
+    }
+}
@@ -0,0 +1,67 @@
+package com.videoprocessing.ffmpeg;
+
+import com.videoprocessing.enums.VideoQuality;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilterPipelineTest {
+
+    @Test
+    void chainsStepsIntoOneFiltergraphOverTheTrimmedInput() {
+        String[] command = new FilterPipeline("source.mp4", 2.0, 7.0)
+                .filter("drawtext=text='hi'")
+                .overlay("logo.png", OverlayFilters.IMAGE_SCALE, "10:10")
+                .overlay("mark.png", "format=rgba", "20:20")
+                .command("out.mp4");
+
+        assertEquals(List.of("ffmpeg", "-y",
+                "-ss", "2.000000", "-t", "5.000000", "-i", "source.mp4",
+                "-i", "logo.png",
+                "-i", "mark.png",
+                "-filter_complex", "[0:v]drawtext=text='hi'[p0];"
+                        + "[1:v]scale=200:200[in1];[p0][in1]overlay=10:10[p1];"
+                        + "[2:v]format=rgba[in2];[p1][in2]overlay=20:20[p2]",
+                "-map", "[p2]",
+                "-map", "0:a?",
+                "-c:v", "libx264", "-crf", "23", "-preset", "medium",
+                "-c:a", "aac", "-b:a", "128k",
+                "-movflags", "+faststart",
+                "out.mp4"), List.of(command));
+    }
+
+    @Test
+    void mapsTheSourceWhenThereAreNoFilters() {
+        String[] command = new FilterPipeline("source.mp4", null, 4.0).command("out.mp4");
+
+        assertEquals(List.of("ffmpeg", "-y",
+                "-t", "4.000000", "-i", "source.mp4",
+                "-map", "0:v:0",
+                "-map", "0:a?",
+                "-c:v", "libx264", "-crf", "23", "-preset", "medium",
+                "-c:a", "aac", "-b:a", "128k",
+                "-movflags", "+faststart",
+                "out.mp4"), List.of(command));
+    }
+
+    @Test
+    void feedsTheLadderFromTheLastStep() {
+        Map<VideoQuality, String> outputs = new LinkedHashMap<>();
+        outputs.put(VideoQuality.QUALITY_720P, "out_720p.mp4");
+        outputs.put(VideoQuality.QUALITY_480P, "out_480p.mp4");
+
+        List<String> command = List.of(new FilterPipeline("source.mp4", 1.0, null)
+                .filter("hflip")
+                .ladderCommand(outputs));
+
+        assertEquals(List.of("ffmpeg", "-ss", "1.000000", "-i", "source.mp4", "-filter_complex",
+                "[0:v]hflip[p0];[p0]split=2[s0][s1];[s0]scale=1280:720[v0];[s1]scale=640:480[v1]",
+                "-map", "[v0]", "-map", "[v1]", "-map", "0:a?"), command.subList(0, 13));
+        assertEquals("[select=\\'v:0,a\\':f=mp4]out_720p.mp4|[select=\\'v:1,a\\':f=mp4]out_480p.mp4",
+                command.get(command.size() - 1));
+    }
+}
@@ -0,0 +1,93 @@
+package com.videoprocessing.ffmpeg;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+class KeyframeIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void findsNeighbouringKeyframesAcrossBlocks() throws Exception {
+        // Keyframes every 2 s, spanning several blocks
+        int count = KeyframeIndex.BLOCK_SIZE * 3 + 5;
+        long[] pts = new long[count];
+        long[] positions = new long[count];
+        for (int i = 0; i < count; i++) {
+            pts[i] = i * 2_000_000L;
+            positions[i] = i == 7 ? -1 : 48 + i * 500_000L;
+        }
+        Path path = dir.resolve("video.mp4.kfi");
+        KeyframeIndex.write(path, pts, positions);
+
+        KeyframeIndex index = KeyframeIndex.open(path);
+        assertEquals(count, index.size());
+
+        assertEquals(130.0, index.atOrBefore(131.9).getTime(), 1e-9);
+        assertEquals(130.0, index.atOrBefore(130.0).getTime(), 1e-9);
+        assertEquals(132.0, index.atOrAfter(130.1).getTime(), 1e-9);
+        assertEquals(48 + 66 * 500_000L, index.atOrAfter(130.1).getPosition());
+        assertEquals(-1, index.atOrBefore(14.5).getPosition());
+
+        // Block boundaries and both ends
+        assertEquals(128.0, index.atOrBefore(129.0).getTime(), 1e-9);
+        assertEquals(0.0, index.atOrBefore(0.0).getTime(), 1e-9);
+        assertEquals((count - 1) * 2.0, index.atOrBefore(1e6).getTime(), 1e-9);
+        assertNull(index.atOrAfter((count - 1) * 2.0 + 0.5));
+
+        assertEquals(List.of(124.0, 126.0, 128.0, 130.0), index.timesBetween(125.0, 130.5));
+    }
+
+    @Test
+    void locatorReusesOpenIndexUntilSidecarChanges() throws Exception {
+        Path source = Files.write(dir.resolve("source.mp4"), new byte[16]);
+        Files.setLastModifiedTime(source, FileTime.from(Instant.now().minusSeconds(60)));
+        Path sidecar = IndexedKeyframeLocator.sidecarFor(source.toString());
+        KeyframeIndex.write(sidecar, new long[]{0, 2_000_000}, new long[]{48, 900});
+        IndexedKeyframeLocator locator = new IndexedKeyframeLocator(mock(FFmpegExecutor.class),
+                mock(FFprobeKeyframeLocator.class));
+
+        KeyframeIndex first = locator.indexFor(source.toString());
+        assertSame(first, locator.indexFor(source.toString()));
+
+        KeyframeIndex.write(sidecar, new long[]{0, 4_000_000}, new long[]{48, 900});
+        Files.setLastModifiedTime(sidecar, FileTime.from(Instant.now().plusSeconds(5)));
+        KeyframeIndex rebuilt = locator.indexFor(source.toString());
+        assertNotSame(first, rebuilt);
+        assertEquals(4.0, rebuilt.atOrAfter(1.0).getTime(), 1e-9);
+
+        // A source changed after its sidecar was written is looked up without it
+        Files.setLastModifiedTime(source, FileTime.from(Instant.now().plusSeconds(10)));
+        assertNull(locator.indexFor(source.toString()));
+    }
+
+    @Test
+    void handlesEmptyAndLateStartingIndexes() throws Exception {
+        Path empty = dir.resolve("empty.kfi");
+        KeyframeIndex.write(empty, new long[0], new long[0]);
+        KeyframeIndex emptyIndex = KeyframeIndex.open(empty);
+        assertNull(emptyIndex.atOrBefore(5.0));
+        assertNull(emptyIndex.atOrAfter(5.0));
+        assertEquals(List.of(), emptyIndex.timesBetween(0.0, 5.0));
+
+        Path late = dir.resolve("late.kfi");
+        KeyframeIndex.write(late, new long[]{1_500_000, 4_000_000}, new long[]{100, 900});
+        KeyframeIndex lateIndex = KeyframeIndex.open(late);
+        assertNull(lateIndex.atOrBefore(1.0));
+        assertEquals(1.5, lateIndex.atOrAfter(0.0).getTime(), 1e-9);
+        assertEquals(List.of(1.5), lateIndex.timesBetween(0.0, 2.0));
+    }
+}
@@ -0,0 +1,64 @@
+package com.videoprocessing.ffmpeg;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ProcessSamplerTest {
+
+    @Test
+    void samplesRunningProcessFromProc() throws Exception {
+        assumeTrue(Files.isReadable(Path.of("/proc/self/stat")), "No /proc on this platform");
+        // Burn some CPU so the tick counts are not zero
+        long sum = 0;
+        for (long i = 0; i < 200_000_000L; i++) {
+            sum += i ^ (sum >>> 3);
+        }
+        assertTrue(sum != 1);
+
+        ProcessSample sample = ProcessSampler.sample(ProcessHandle.current());
+
+        assertNotNull(sample);
+        assertTrue(sample.getCpuUserMillis() + sample.getCpuSystemMillis() > 0);
+        assertTrue(sample.getPeakRssBytes() > 0);
+        assertTrue(sample.getReadBytes() > 0);
+    }
+
+    @Test
+    void processThatHasExitedHasNoSample() throws Exception {
+        assumeTrue(Files.isReadable(Path.of("/proc/self/stat")), "No /proc on this platform");
+        Process process = new ProcessBuilder("true").start();
+        process.waitFor();
+
+        assertNull(ProcessSampler.sample(process.toHandle()));
+    }
+
+    @Test
+    void propagatedTasksChargeTheSubmittersUsage() throws Exception {
+        ResourceUsage usage = new ResourceUsage();
+        ResourceUsage.bind(usage);
+        Runnable task;
+        try {
+            task = ResourceUsage.propagating(() -> ResourceUsage.current().charge(new ProcessSample(10, 5, 100, 1, 2), 20));
+        } finally {
+            ResourceUsage.unbind();
+        }
+
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+
+        assertEquals(1, usage.getRuns());
+        assertEquals(10, usage.getCpuUserMillis());
+        assertEquals(100, usage.getPeakRssBytes());
+        assertEquals(20, usage.getWallMillis());
+        assertNull(ResourceUsage.current());
+    }
+}
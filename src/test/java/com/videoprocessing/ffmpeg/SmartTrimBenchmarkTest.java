@@ -0,0 +1,88 @@
+package com.videoprocessing.ffmpeg;
+
+import com.videoprocessing.config.AppProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares smart trim with a full re-encode on a synthetic clip. Opt-in, and needs ffmpeg on the PATH:
+ * {@code mvn test -Dtest=SmartTrimBenchmarkTest -Dbenchmarks=true}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class SmartTrimBenchmarkTest {
+
+    private static final double START = 12.3;
+    private static final double END = 97.7;
+    // One frame at 30 fps, plus container rounding
+    private static final double TOLERANCE = 0.05;
+
+    @TempDir
+    static Path workDir;
+
+    private static final FFmpegExecutor executor = new FFmpegExecutor("ffmpeg", new SimpleMeterRegistry());
+    private static Path source;
+
+    @BeforeAll
+    static void createSyntheticClip() throws Exception {
+        try {
+            executor.capture(new String[]{"ffmpeg", "-version"});
+        } catch (Exception e) {
+            assumeTrue(false, "ffmpeg not available");
+        }
+
+        // Two minutes of 720p with a keyframe every 5 seconds, so both cuts land mid-GOP
+        source = workDir.resolve("source.mp4");
+        executor.execute(new String[]{
+                "ffmpeg", "-y",
+                "-f", "lavfi", "-i", "testsrc2=size=1280x720:rate=30",
+                "-f", "lavfi", "-i", "sine=frequency=440:sample_rate=48000",
+                "-t", "120",
+                "-c:v", "libx264", "-preset", "veryfast", "-g", "150", "-keyint_min", "150", "-sc_threshold", "0",
+                "-c:a", "aac",
+                source.toString()
+        });
+    }
+
+    @Test
+    void smartTrimIsAccurateAndFasterThanFullReencode() throws Exception {
+        SmartTrimmer trimmer = new SmartTrimmer(executor, new FFprobeKeyframeLocator(executor),
+                new VideoProber(executor, new AppProperties()));
+
+        Path smart = workDir.resolve("smart.mp4");
+        long smartStart = System.nanoTime();
+        trimmer.trim(source.toString(), START, END, smart, workDir.resolve("smart-work"), progress -> { });
+        long smartNanos = System.nanoTime() - smartStart;
+
+        Path full = workDir.resolve("full.mp4");
+        long fullStart = System.nanoTime();
+        executor.execute(FFmpegCommands.accurateTrimCommand(source.toString(), START, END, full.toString()));
+        long fullNanos = System.nanoTime() - fullStart;
+
+        System.out.printf("Smart trim: %d ms, full re-encode: %d ms (%.1fx)%n",
+                smartNanos / 1_000_000, fullNanos / 1_000_000, (double) fullNanos / smartNanos);
+
+        assertEquals(END - START, duration(smart), TOLERANCE);
+        assertEquals(END - START, duration(full), TOLERANCE);
+        assertTrue(smartNanos < fullNanos, "smart trim should beat a full re-encode");
+    }
+
+    private static double duration(Path file) throws Exception {
+        String output = executor.capture(new String[]{
+                "ffprobe", "-v", "error",
+                "-select_streams", "v:0",
+                "-show_entries", "format=duration",
+                "-of", "csv=p=0",
+                file.toString()
+        });
+        return Double.parseDouble(output.trim());
+    }
+}
@@ -0,0 +1,112 @@
+package com.videoprocessing.ffmpeg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class WindowedOverlayRendererTest {
+
+    // A 4 second GOP over an 18 second source
+    private static final List<Double> KEYFRAMES = List.of(0.0, 4.0, 8.0, 12.0, 16.0);
+
+    @TempDir
+    Path dir;
+
+    private final FFmpegExecutor ffmpegExecutor = mock(FFmpegExecutor.class);
+    private final VideoProber videoProber = mock(VideoProber.class);
+    private final KeyframeLocator keyframeLocator = (source, from, to) -> KEYFRAMES.stream()
+            .filter(keyframe -> keyframe >= from - 4 && keyframe <= to)
+            .toList();
+    private final WindowedOverlayRenderer renderer =
+            new WindowedOverlayRenderer(ffmpegExecutor, keyframeLocator, videoProber);
+
+    // Commands in the order they ran, and the concat list as the last of them saw it
+    private final List<List<String>> commands = new ArrayList<>();
+    private final List<Double> windowDurations = new ArrayList<>();
+    private List<String> pieces;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(videoProber.probe("source.mp4")).thenReturn(MediaInfo.builder()
+                .videoCodec("h264")
+                .pixelFormat("yuv420p")
+                .build());
+        doAnswer(invocation -> {
+            List<String> command = List.of((String[]) invocation.getArgument(0));
+            commands.add(command);
+            if (command.contains("concat")) {
+                pieces = Files.readAllLines(Path.of(command.get(command.indexOf("concat") + 4)));
+            }
+            return null;
+        }).when(ffmpegExecutor).execute(any(String[].class));
+        doAnswer(invocation -> {
+            commands.add(List.of((String[]) invocation.getArgument(0)));
+            windowDurations.add(invocation.getArgument(1));
+            return null;
+        }).when(ffmpegExecutor).execute(any(String[].class), any(), any());
+    }
+
+    @Test
+    void widensTheWindowOutToKeyframesAndCopiesAroundIt() throws Exception {
+        List<Double> offsets = new ArrayList<>();
+        Path work = dir.resolve("work");
+
+        assertTrue(renderer.render("source.mp4", 5.5, 9.0, List.of("logo.png"), offset -> {
+            offsets.add(offset);
+            return "[0:v][1:v]overlay=enable='between(t,1.5,5)'[out]";
+        }, dir.resolve("out.mp4"), work, progress -> { }));
+
+        assertEquals(List.of(4.0), offsets);
+        assertEquals(List.of(8.0), windowDurations);
+        assertEquals(4, commands.size());
+        assertEquals(List.of("ffmpeg", "-y", "-ss", "0.000000", "-i", "source.mp4", "-t", "4.000000",
+                "-map", "0:v:0", "-c", "copy", "-f", "mpegts", work.resolve("before.ts").toString()), commands.get(0));
+        assertEquals(List.of("ffmpeg", "-y", "-ss", "4.000000", "-i", "source.mp4", "-i", "logo.png",
+                "-t", "8.000000"), commands.get(1).subList(0, 10));
+        assertEquals(List.of("ffmpeg", "-y", "-ss", "12.000000", "-i", "source.mp4",
+                "-map", "0:v:0", "-c", "copy", "-f", "mpegts", work.resolve("after.ts").toString()), commands.get(2));
+        assertEquals(List.of("before.ts", "window.ts", "after.ts").stream()
+                .map(piece -> FFmpegCommands.concatEntry(work.resolve(piece).toString())).toList(), pieces);
+        assertFalse(Files.exists(work));
+    }
+
+    @Test
+    void reencodesFromTheStartAndToTheEndWhenNoKeyframeBoundsTheWindow() throws Exception {
+        // No keyframe after 17, so the window runs to the end; 0 leaves nothing to copy before it
+        assertTrue(renderer.render("source.mp4", 1.0, 17.0, List.of(), offset -> "[0:v]null[out]",
+                dir.resolve("out.mp4"), dir.resolve("work"), progress -> { }));
+
+        assertEquals(2, commands.size());
+        List<String> window = commands.get(0);
+        assertEquals("0.000000", window.get(window.indexOf("-ss") + 1));
+        assertFalse(window.contains("-t"));
+        assertEquals(1, windowDurations.size());
+        assertNull(windowDurations.get(0));
+        assertEquals(1, pieces.size());
+    }
+
+    @Test
+    void leavesSourcesItCannotSpliceAlone() throws Exception {
+        when(videoProber.probe("source.mp4")).thenReturn(MediaInfo.builder().videoCodec("vp9").build());
+
+        assertFalse(renderer.render("source.mp4", 5.0, 9.0, List.of(), offset -> "[0:v]null[out]",
+                dir.resolve("out.mp4"), dir.resolve("work"), progress -> { }));
+
+        verifyNoInteractions(ffmpegExecutor);
+    }
+}
@@ -0,0 +1,123 @@
+package com.videoprocessing.queue;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs against a local Redis (REDIS_HOST/REDIS_PORT, default localhost:6379); skipped when none is reachable.
+ */
+class RedisJobStreamTest {
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private String streamKey;
+    private RedisJobStream stream;
+
+    @BeforeAll
+    static void connect() {
+        String host = System.getenv().getOrDefault("REDIS_HOST", "localhost");
+        int port = Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379"));
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+
+        boolean reachable;
+        try {
+            reachable = "PONG".equals(redisTemplate.execute(connection -> connection.ping(), true));
+        } catch (Exception e) {
+            reachable = false;
+        }
+        assumeTrue(reachable, "Redis not reachable at " + host + ":" + port);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @BeforeEach
+    void createStream() {
+        streamKey = "test:video:jobs:" + UUID.randomUUID();
+        stream = new RedisJobStream(redisTemplate, streamKey, "test-workers", 1000);
+        stream.ensureGroup();
+    }
+
+    @AfterEach
+    void deleteStream() {
+        redisTemplate.delete(streamKey);
+    }
+
+    @Test
+    void deliversEachJobToOneConsumer() {
+        stream.publish("job-1");
+        stream.publish("job-2");
+
+        List<StreamJob> first = stream.read("node-a", 1, Duration.ofMillis(100));
+        List<StreamJob> second = stream.read("node-b", 10, Duration.ofMillis(100));
+
+        assertEquals(1, first.size());
+        assertEquals("job-1", first.get(0).getJobId());
+        assertEquals(1, second.size());
+        assertEquals("job-2", second.get(0).getJobId());
+    }
+
+    @Test
+    void ensureGroupIsIdempotent() {
+        stream.ensureGroup();
+        stream.publish("job-1");
+
+        assertEquals(1, stream.read("node-a", 1, Duration.ofMillis(100)).size());
+    }
+
+    @Test
+    void reclaimsMessagesOfDeadConsumer() throws InterruptedException {
+        stream.publish("job-1");
+        assertEquals(1, stream.read("dead-node", 1, Duration.ofMillis(100)).size());
+
+        Thread.sleep(50);
+        List<StreamJob> reclaimed = stream.autoClaim("live-node", Duration.ofMillis(20), 10);
+
+        assertEquals(1, reclaimed.size());
+        assertEquals("job-1", reclaimed.get(0).getJobId());
+    }
+
+    @Test
+    void touchedMessagesAreNotReclaimed() throws InterruptedException {
+        stream.publish("job-1");
+        StreamJob message = stream.read("busy-node", 1, Duration.ofMillis(100)).get(0);
+
+        Thread.sleep(50);
+        stream.touch("busy-node", List.of(message.getMessageId()));
+
+        assertTrue(stream.autoClaim("other-node", Duration.ofMillis(40), 10).isEmpty());
+    }
+
+    @Test
+    void ackedMessagesAreNotReclaimed() throws InterruptedException {
+        stream.publish("job-1");
+        StreamJob message = stream.read("node-a", 1, Duration.ofMillis(100)).get(0);
+        stream.ack(message.getMessageId());
+
+        Thread.sleep(50);
+
+        assertTrue(stream.autoClaim("node-b", Duration.ofMillis(20), 10).isEmpty());
+    }
+}
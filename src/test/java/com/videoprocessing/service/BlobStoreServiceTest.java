@@ -0,0 +1,76 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.entity.ContentBlob;
+import com.videoprocessing.enums.StorageTier;
+import com.videoprocessing.repository.ContentBlobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BlobStoreServiceTest {
+
+    private static final String HASH = "ab12" + "0".repeat(60);
+
+    @TempDir
+    Path uploadDir;
+
+    private ContentBlobRepository repository;
+    private SystemStatsService stats;
+    private BlobStoreService blobs;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ContentBlobRepository.class);
+        AtomicReference<ContentBlob> stored = new AtomicReference<>();
+        when(repository.findByContentHash(anyString())).thenAnswer(invocation -> Optional.ofNullable(stored.get()));
+        when(repository.save(any())).thenAnswer(invocation -> {
+            stored.set(invocation.getArgument(0));
+            return stored.get();
+        });
+
+        stats = mock(SystemStatsService.class);
+        blobs = new BlobStoreService(repository, stats);
+        ReflectionTestUtils.setField(blobs, "uploadDir", uploadDir.toString());
+    }
+
+    @Test
+    void storesIdenticalUploadsOnceUnderTheirHash() throws Exception {
+        byte[] content = {1, 2, 3, 4};
+        Path first = Files.write(uploadDir.resolve("a_clip.mp4"), content);
+        Path second = Files.write(uploadDir.resolve("b_clip.mp4"), content);
+
+        ContentBlob blob = blobs.ingest(first, HASH, content.length);
+        Path blobPath = Path.of(blob.getPath());
+        assertEquals(uploadDir.resolve("blobs").resolve("ab").resolve("12").resolve(HASH), blobPath);
+        assertArrayEquals(content, Files.readAllBytes(blobPath));
+        FileTime stamp = FileTime.fromMillis(1_000_000);
+        Files.setLastModifiedTime(blobPath, stamp);
+
+        assertSame(blob, blobs.ingest(second, HASH, content.length));
+        assertFalse(Files.exists(first));
+        assertFalse(Files.exists(second));
+        // The existing blob is left untouched
+        assertEquals(stamp, Files.getLastModifiedTime(blobPath));
+        verify(repository, times(1)).save(any());
+        // Stored bytes count once, for the first copy only
+        verify(stats, times(1)).bytesStored(StorageTier.ORIGINAL, content.length);
+    }
+}
@@ -0,0 +1,95 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.dtos.requestDtos.TrimVideoRequest;
+import com.videoprocessing.entity.ProcessingJob;
+import com.videoprocessing.entity.Video;
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.enums.JobType;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Runs more concurrent jobs than the pool has connections, with FFmpeg stubbed to block until
+ * all of them are inside it, and checks that none of them holds a connection meanwhile.
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:connection-hold;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=5",
+        "spring.datasource.hikari.connection-timeout=2000",
+        "app.output.dir=${java.io.tmpdir}/connection-hold-outputs"
+})
+class JobConnectionHoldTest extends ServiceIntegrationTest {
+
+    private static final int JOBS = 12;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void jobsHoldNoConnectionWhileEncoding() throws Exception {
+        Video video = sourceVideo();
+
+        List<String> jobIds = new ArrayList<>();
+        for (int i = 0; i < JOBS; i++) {
+            String jobId = UUID.randomUUID().toString();
+            jobRepository.save(ProcessingJob.builder()
+                    .jobId(jobId)
+                    .jobType(JobType.TRIM)
+                    .status(JobStatus.PROCESSING)
+                    .video(video)
+                    .build());
+            jobIds.add(jobId);
+        }
+
+        CountDownLatch encoding = new CountDownLatch(JOBS);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            encoding.countDown();
+            release.await();
+            // The output the job moves into place
+            writeOutput(invocation.getArgument(0), 1);
+            return null;
+        }).when(ffmpegExecutor).execute(any(String[].class), any(), any());
+
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        ExecutorService executor = Executors.newFixedThreadPool(JOBS);
+        try {
+            for (String jobId : jobIds) {
+                TrimVideoRequest request = TrimVideoRequest.builder()
+                        .videoId(video.getId())
+                        .startTime(1.0)
+                        .endTime(5.0)
+                        .build();
+                executor.submit(() -> videoService.processTrimVideo(request, jobId));
+            }
+
+            // More jobs than connections can only all get here if none is holding one
+            assertTrue(encoding.await(30, TimeUnit.SECONDS), "Not every job reached FFmpeg");
+            assertEquals(0, pool.getHikariPoolMXBean().getActiveConnections());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        for (String jobId : jobIds) {
+            assertEquals(JobStatus.COMPLETED, job(jobId).getStatus());
+        }
+    }
+}
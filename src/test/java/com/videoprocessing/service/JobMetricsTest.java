@@ -0,0 +1,95 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.enums.JobType;
+import com.videoprocessing.ffmpeg.FFmpegException;
+import com.videoprocessing.service.JobMetrics.FailureCause;
+import com.videoprocessing.service.JobMetrics.Phase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JobMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SystemStatsService statsService = mock(SystemStatsService.class);
+    private final JobMetrics metrics = new JobMetrics(registry, statsService);
+
+    @Test
+    void classifiesFailuresByCause() {
+        assertEquals(FailureCause.FFMPEG,
+                FailureCause.of(new RuntimeException("Chunk 3 failed", new FFmpegException("ffprobe failed with exit code: 1"))));
+        // Only the type counts, not what the message says
+        assertEquals(FailureCause.OTHER,
+                FailureCause.of(new RuntimeException("FFmpeg command failed with exit code 1")));
+        assertEquals(FailureCause.IO,
+                FailureCause.of(new RuntimeException("Failed to move output", new IOException("disk full"))));
+        assertEquals(FailureCause.INTERRUPTED, FailureCause.of(new InterruptedException()));
+        assertEquals(FailureCause.OTHER, FailureCause.of(new RuntimeException("Video not found")));
+    }
+
+    @Test
+    void recordsJobsPerTypeAndOutcome() {
+        when(statsService.jobCount(JobType.TRIM, JobStatus.PENDING)).thenReturn(3L);
+        LocalDateTime started = LocalDateTime.now();
+
+        metrics.claimed(JobType.TRIM, started.minusSeconds(2), started);
+        metrics.finished(JobType.TRIM, false, started, started.plusSeconds(5));
+        metrics.failed(JobType.TRIM, FailureCause.FFMPEG);
+
+        assertEquals(3, registry.get("video.jobs.queue.depth").tag("type", "TRIM").gauge().value());
+        assertEquals(2000, registry.get("video.jobs.queue.wait").tag("type", "TRIM").timer()
+                .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1, registry.get("video.jobs.execution").tags("type", "TRIM", "outcome", "failed").timer()
+                .count());
+        assertEquals(0, registry.get("video.jobs.execution").tags("type", "TRIM", "outcome", "completed").timer()
+                .count());
+        assertEquals(1, registry.get("video.jobs.failures").tags("type", "TRIM", "cause", "FFMPEG").counter()
+                .count());
+    }
+
+    @Test
+    void countsJobEventsOnlyOnceTheirTransactionCommits() {
+        LocalDateTime now = LocalDateTime.now();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            metrics.claimed(JobType.TRIM, now.minusSeconds(1), now);
+            metrics.failed(JobType.TRIM, FailureCause.IO);
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            assertEquals(0, registry.get("video.jobs.failures").tags("type", "TRIM", "cause", "IO").counter().count());
+
+            // The claim's transaction lost the race and rolled back; the failure's committed
+            synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            synchronizations.get(1).afterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(0, registry.get("video.jobs.queue.wait").tag("type", "TRIM").timer().count());
+        assertEquals(1, registry.get("video.jobs.failures").tags("type", "TRIM", "cause", "IO").counter().count());
+    }
+
+    @Test
+    void timesConnectionHoldUntilTransactionCompletes() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            metrics.holdingConnection(Phase.CLAIM);
+            assertEquals(0, registry.get("video.jobs.connection.hold").tag("phase", "CLAIM").timer().count());
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(1, registry.get("video.jobs.connection.hold").tag("phase", "CLAIM").timer().count());
+    }
+}
@@ -0,0 +1,86 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.dtos.responseDtos.JobUpdateMessage;
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.ffmpeg.FFmpegProgress;
+import com.videoprocessing.repository.ProcessingJobRepository;
+import com.videoprocessing.websocket.JobStatusWebSocketController;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class JobProgressServiceTest {
+
+    private static final long INTERVAL_MS = 100;
+
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    private final ProcessingJobRepository jobRepository = mock(ProcessingJobRepository.class);
+    private final List<JobUpdateMessage> sent = new CopyOnWriteArrayList<>();
+    private JobProgressService progressService;
+
+    @AfterEach
+    void stopScheduler() {
+        scheduler.shutdown();
+    }
+
+    private void start() {
+        scheduler.initialize();
+        JobStatusWebSocketController webSocket = mock(JobStatusWebSocketController.class);
+        doAnswer(invocation -> sent.add(invocation.getArgument(0))).when(webSocket).sendJobUpdate(any(JobUpdateMessage.class));
+        AppProperties appProperties = new AppProperties();
+        appProperties.setProgressPushIntervalMs(INTERVAL_MS);
+        progressService = new JobProgressService(webSocket, jobRepository, appProperties,
+                mock(JobStatusCache.class), scheduler);
+    }
+
+    @Test
+    void pushesFirstAndLatestUpdateOfEachInterval() throws Exception {
+        start();
+        Consumer<FFmpegProgress> listener = progressService.listener("job");
+
+        listener.accept(progress(10));
+        listener.accept(progress(20));
+        listener.accept(progress(30));
+        assertEquals(List.of(10), percents());
+
+        Thread.sleep(INTERVAL_MS * 3);
+        assertEquals(List.of(10, 30), percents());
+        verify(jobRepository).updateProgress("job", 30);
+
+        // Idle for an interval, so the next update goes out at once
+        listener.accept(progress(40));
+        assertEquals(List.of(10, 30, 40), percents());
+    }
+
+    @Test
+    void dropsPendingUpdateOnceTheJobFinishes() throws Exception {
+        start();
+        Consumer<FFmpegProgress> listener = progressService.listener("job");
+
+        listener.accept(progress(10));
+        listener.accept(progress(90));
+        progressService.publishStatus("job", JobStatus.COMPLETED);
+        Thread.sleep(INTERVAL_MS * 3);
+
+        assertEquals(List.of(10, 100), percents());
+    }
+
+    private List<Integer> percents() {
+        return sent.stream().map(JobUpdateMessage::getProgress).toList();
+    }
+
+    private static FFmpegProgress progress(double seconds) {
+        return FFmpegProgress.builder().outTimeSeconds(seconds).totalSeconds(100.0).build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.dtos.ApiResponseWrappers.JobStatusResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Status polls served from the cache at 5,000 per second. Latency is measured from when each
+ * poll was due, not when it was sent, so a stall counts against every poll it delays.
+ * Opt-in, and needs a local Redis (REDIS_HOST/REDIS_PORT, default localhost:6379):
+ * {@code mvn test -Dtest=JobStatusPollBenchmarkTest -Dbenchmarks=true}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class JobStatusPollBenchmarkTest {
+
+    private static final int POLLS_PER_SECOND = 5_000;
+    private static final int SECONDS = 10;
+    private static final int CLIENTS = 50;
+    private static final int JOBS = 2_000;
+    private static final long P99_LIMIT_MICROS = 5_000;
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static JobStatusCache cache;
+    private static String[] jobIds;
+
+    @BeforeAll
+    static void connect() {
+        String host = System.getenv().getOrDefault("REDIS_HOST", "localhost");
+        int port = Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379"));
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+
+        boolean reachable;
+        try {
+            reachable = "PONG".equals(redisTemplate.execute(connection -> connection.ping(), true));
+        } catch (Exception e) {
+            reachable = false;
+        }
+        assumeTrue(reachable, "Redis not reachable at " + host + ":" + port);
+
+        cache = new JobStatusCache(redisTemplate, true, 300);
+        jobIds = new String[JOBS];
+        for (int i = 0; i < JOBS; i++) {
+            jobIds[i] = "benchmark-" + UUID.randomUUID();
+            cache.put(JobStatusResponse.builder()
+                    .jobId(jobIds[i])
+                    .status("PROCESSING")
+                    .progress(i % 100)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        }
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void servesFiveThousandPollsPerSecond() throws Exception {
+        int pollsPerClient = POLLS_PER_SECOND * SECONDS / CLIENTS;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) * CLIENTS / POLLS_PER_SECOND;
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        Future<?>[] runs = new Future<?>[CLIENTS];
+        long[][] latencies = new long[CLIENTS][pollsPerClient];
+        for (int c = 0; c < CLIENTS; c++) {
+            int client = c;
+            runs[c] = clients.submit(() -> {
+                // Clients are staggered so polls arrive evenly rather than in bursts
+                long due = start + intervalNanos * client / CLIENTS;
+                for (int i = 0; i < pollsPerClient; i++, due += intervalNanos) {
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    assertNotNull(cache.get(jobIds[(client * pollsPerClient + i) % JOBS]));
+                    latencies[client][i] = System.nanoTime() - due;
+                }
+            });
+        }
+        for (Future<?> run : runs) {
+            run.get();
+        }
+        clients.shutdown();
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        long p50 = all[all.length / 2] / 1_000;
+        long p99 = all[(int) (all.length * 0.99)] / 1_000;
+        long p999 = all[(int) (all.length * 0.999)] / 1_000;
+        System.out.printf("%d polls at %d/s: p50 %d us, p99 %d us, p99.9 %d us, max %d us%n",
+                all.length, POLLS_PER_SECOND, p50, p99, p999, all[all.length - 1] / 1_000);
+
+        assertTrue(p99 < P99_LIMIT_MICROS, "p99 " + p99 + " us");
+    }
+}
@@ -0,0 +1,71 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.dtos.responseDtos.CursorPage;
+import com.videoprocessing.dtos.responseDtos.JobResponse;
+import com.videoprocessing.dtos.responseDtos.VideoResponse;
+import com.videoprocessing.entity.ProcessingJob;
+import com.videoprocessing.entity.Video;
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.enums.JobType;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Walks the video and job listings page by page, including rows that share a timestamp.
+ */
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:keyset-pagination;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class KeysetPaginationTest extends ServiceIntegrationTest {
+
+    @Test
+    void pagesThroughVideosAndFilteredJobs() {
+        // Pairs of rows share a timestamp, so the id has to break ties
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 12, 0);
+        List<String> expectedVideos = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Video video = videoRepository.save(Video.builder()
+                    .uuid(UUID.randomUUID().toString())
+                    .filename("video" + i + ".mp4")
+                    .uploadTime(base.plusMinutes(i / 2))
+                    .build());
+            expectedVideos.add(0, video.getUuid());
+
+            jobRepository.save(ProcessingJob.builder()
+                    .jobId("job-" + i)
+                    .jobType(i % 2 == 0 ? JobType.TRIM : JobType.OVERLAY)
+                    .status(i < 4 ? JobStatus.COMPLETED : JobStatus.PENDING)
+                    .createdAt(base.plusMinutes(i / 2))
+                    .build());
+        }
+
+        List<String> videos = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<VideoResponse> page = videoService.getVideos(cursor, 3);
+            page.getItems().forEach(video -> videos.add(video.getUuid()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+        assertEquals(expectedVideos, videos);
+        assertEquals(3, pages);
+
+        CursorPage<JobResponse> trims = videoService.getJobs(null, 2, null, "trim");
+        assertEquals(List.of("job-6", "job-4"), trims.getItems().stream().map(JobResponse::getJobId).toList());
+        CursorPage<JobResponse> moreTrims = videoService.getJobs(trims.getNextCursor(), 2, null, "trim");
+        assertEquals(List.of("job-2", "job-0"), moreTrims.getItems().stream().map(JobResponse::getJobId).toList());
+        assertNull(moreTrims.getNextCursor());
+
+        CursorPage<JobResponse> completedOverlays = videoService.getJobs(null, 10, "COMPLETED", "OVERLAY");
+        assertEquals(List.of("job-3", "job-1"),
+                completedOverlays.getItems().stream().map(JobResponse::getJobId).toList());
+        assertEquals("COMPLETED", completedOverlays.getItems().get(0).getStatus());
+    }
+}
@@ -0,0 +1,105 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.dtos.requestDtos.TrimVideoRequest;
+import com.videoprocessing.dtos.responseDtos.JobResponse;
+import com.videoprocessing.entity.ProcessingJob;
+import com.videoprocessing.entity.Video;
+import com.videoprocessing.repository.DerivedOutputRepository;
+import com.videoprocessing.repository.TrimmedVideoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Two trims in the cache: the one not downloaded since is evicted first, and concurrent
+ * downloads of it are turned away while one regeneration produces it again.
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:output-cache;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "app.output.dir=${java.io.tmpdir}/output-cache-outputs"
+})
+class OutputCacheTest extends ServiceIntegrationTest {
+
+    @Autowired
+    private OutputCacheService outputCache;
+
+    @Autowired
+    private DerivedOutputRepository outputRepository;
+
+    @Autowired
+    private TrimmedVideoRepository trimmedVideoRepository;
+
+    @Test
+    void evictsLeastRecentlyUsedAndRegeneratesOnce() throws Exception {
+        Video video = sourceVideo();
+        ffmpegWrites(1000);
+
+        TrimVideoRequest kept = trim(video, 1.0);
+        TrimVideoRequest evicted = trim(video, 2.0);
+        JobResponse keptJob = videoService.trimVideo(kept);
+        videoService.processTrimVideo(kept, keptJob.getJobId());
+        JobResponse evictedJob = videoService.trimVideo(evicted);
+        videoService.processTrimVideo(evicted, evictedJob.getJobId());
+
+        // The older output was downloaded since, the newer one was not
+        Thread.sleep(5);
+        videoService.getJobResult(keptJob.getJobId());
+        outputCache.flushAccesses();
+        outputCache.evict(1);
+
+        Path keptPath = Path.of(job(keptJob).getResultPath());
+        Path evictedPath = Path.of(job(evictedJob).getResultPath());
+        assertTrue(Files.exists(keptPath));
+        assertFalse(Files.exists(evictedPath));
+        assertNotNull(outputRepository.findByPath(evictedPath.toAbsolutePath().normalize().toString())
+                .orElseThrow().getEvictedAt());
+
+        List<CompletableFuture<String>> downloads = List.of(
+                CompletableFuture.supplyAsync(() -> videoService.getJobResult(evictedJob.getJobId())),
+                CompletableFuture.supplyAsync(() -> videoService.getJobResult(evictedJob.getJobId())));
+        List<String> deferredTo = new ArrayList<>();
+        for (CompletableFuture<String> download : downloads) {
+            ExecutionException e = assertThrows(ExecutionException.class, download::get);
+            deferredTo.add(assertInstanceOf(OutputRegeneratingException.class, e.getCause()).getJobId());
+        }
+        String fingerprint = job(evictedJob).getFingerprint();
+        List<ProcessingJob> regenerations = jobRepository.findInFlightByFingerprint(fingerprint);
+        assertEquals(1, regenerations.size());
+        ProcessingJob regeneration = regenerations.get(0);
+        assertEquals(List.of(regeneration.getJobId(), regeneration.getJobId()), deferredTo);
+
+        videoService.processTrimVideo(evicted, regeneration.getJobId());
+
+        assertEquals(job(evictedJob).getResultPath(), videoService.getJobResult(evictedJob.getJobId()));
+        assertTrue(Files.exists(evictedPath));
+        // Produced again, but not another trim for the catalog
+        assertEquals(2, trimmedVideoRepository.count());
+        assertEquals(2, jobRepository.findReplayableByFingerprint(fingerprint, Limit.of(10)).size());
+        verify(ffmpegExecutor, times(3)).execute(any(String[].class), any(), any());
+    }
+
+    private static TrimVideoRequest trim(Video video, double start) {
+        return TrimVideoRequest.builder()
+                .videoId(video.getId())
+                .startTime(start)
+                .endTime(start + 4)
+                .build();
+    }}
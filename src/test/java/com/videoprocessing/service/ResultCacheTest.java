@@ -0,0 +1,63 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.dtos.requestDtos.TrimVideoRequest;
+import com.videoprocessing.dtos.responseDtos.JobResponse;
+import com.videoprocessing.entity.Video;
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.queue.JobQueueService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Identical trims: the second waits for the first and reuses its output, and a third one
+ * submitted afterwards completes on submission. FFmpeg runs once.
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:result-cache;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "app.output.dir=${java.io.tmpdir}/result-cache-outputs"
+})
+class ResultCacheTest extends ServiceIntegrationTest {
+
+    @Autowired
+    private JobQueueService jobQueueService;
+
+    @Test
+    void identicalTrimsShareOneRun() throws Exception {
+        Video video = sourceVideo();
+        ffmpegWrites(1);
+
+        TrimVideoRequest request = TrimVideoRequest.builder()
+                .videoId(video.getId())
+                .startTime(1.0)
+                .endTime(5.0)
+                .build();
+
+        JobResponse leader = videoService.trimVideo(request);
+        JobResponse follower = videoService.trimVideo(request);
+        assertEquals("PENDING", follower.getStatus());
+        assertEquals(leader.getJobId(), job(follower).getAttachedTo());
+
+        videoService.processTrimVideo(request, leader.getJobId());
+        jobQueueService.releaseFollowers(leader.getJobId());
+        assertNull(job(follower).getAttachedTo());
+
+        videoService.processTrimVideo(request, follower.getJobId());
+        assertEquals(JobStatus.COMPLETED, job(follower).getStatus());
+        assertEquals(job(leader).getResultPath(), job(follower).getResultPath());
+
+        JobResponse later = videoService.trimVideo(request);
+        assertEquals("COMPLETED", later.getStatus());
+        assertEquals(job(leader).getResultPath(), later.getResultPath());
+        // Kept so the output can be produced again from this job too
+        assertNotNull(job(later).getPayload());
+
+        verify(ffmpegExecutor, times(1)).execute(any(String[].class), any(), any());
+    }}
@@ -0,0 +1,144 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.dtos.ApiResponseWrappers.UploadResponse;
+import com.videoprocessing.dtos.requestDtos.CreateUploadRequest;
+import com.videoprocessing.dtos.requestDtos.UploadVideoRequest;
+import com.videoprocessing.dtos.responseDtos.UploadSessionResponse;
+import com.videoprocessing.entity.UploadSession;
+import com.videoprocessing.repository.UploadSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ResumableUploadServiceTest {
+
+    private static final int CHUNK = 256 * 1024;
+
+    @TempDir
+    Path uploadDir;
+
+    private final AtomicReference<UploadSession> stored = new AtomicReference<>();
+    private ResumableUploadService uploads;
+
+    @BeforeEach
+    void setUp() {
+        UploadSessionRepository repository = mock(UploadSessionRepository.class);
+        when(repository.save(any())).thenAnswer(invocation -> {
+            stored.set(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(repository.findByUploadId(anyString())).thenAnswer(invocation -> Optional.ofNullable(stored.get()));
+        when(repository.transition(anyString(), any(), any())).thenAnswer(invocation -> {
+            UploadSession session = stored.get();
+            if (session.getStatus() != invocation.getArgument(1)) {
+                return 0;
+            }
+            session.setStatus(invocation.getArgument(2));
+            return 1;
+        });
+
+        uploads = new ResumableUploadService(repository, new AppProperties());
+        ReflectionTestUtils.setField(uploads, "uploadDir", uploadDir.toString());
+    }
+
+    @Test
+    void assemblesChunksArrivingOutOfOrderAndRepeated() throws Exception {
+        byte[] content = new byte[3 * CHUNK + 1000];
+        new Random(7).nextBytes(content);
+
+        UploadSessionResponse session = uploads.createSession(CreateUploadRequest.builder()
+                .filename("field.mp4").size((long) content.length).chunkSize(CHUNK).build());
+        String uploadId = session.getUploadId();
+        assertEquals(4, session.getChunkCount());
+
+        write(uploadId, 3, content);
+        write(uploadId, 0, content);
+        write(uploadId, 0, content);
+        UploadSessionResponse partial = write(uploadId, 1, content);
+        assertEquals(List.of("0-1", "3"), partial.getReceivedRanges());
+        assertThrows(RuntimeException.class, () -> uploads.completeSession(uploadId, upload -> started("job")));
+
+        write(uploadId, 2, content);
+        AtomicReference<UploadVideoRequest> handedOff = new AtomicReference<>();
+        UploadResponse response = uploads.completeSession(uploadId, upload -> {
+            handedOff.set(upload);
+            return started("job-1");
+        });
+
+        assertEquals("job-1", response.getJobId());
+        assertArrayEquals(content, Files.readAllBytes(Path.of(handedOff.get().getFilepath())));
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)),
+                handedOff.get().getContentHash());
+        assertEquals(List.of("0-3"), uploads.getSession(uploadId).getReceivedRanges());
+
+        // Completing again is idempotent
+        assertEquals("job-1", uploads.completeSession(uploadId, upload -> started("job-2")).getJobId());
+    }
+
+    @Test
+    void rejectsChunkOfWrongLength() {
+        String uploadId = uploads.createSession(CreateUploadRequest.builder()
+                .filename("clip.mp4").size(2L * CHUNK).chunkSize(CHUNK).build()).getUploadId();
+
+        assertThrows(RuntimeException.class,
+                () -> uploads.writeChunk(uploadId, 0, new ByteArrayInputStream(new byte[CHUNK - 1])));
+        assertThrows(RuntimeException.class,
+                () -> uploads.writeChunk(uploadId, 1, new ByteArrayInputStream(new byte[CHUNK + 1])));
+        assertEquals(0, uploads.getSession(uploadId).getReceivedChunks());
+    }
+
+    @Test
+    void failsForGoodOnceTheHandOffTookTheFile() throws Exception {
+        byte[] content = new byte[CHUNK];
+        String uploadId = uploads.createSession(CreateUploadRequest.builder()
+                .filename("clip.mp4").size((long) CHUNK).chunkSize(CHUNK).build()).getUploadId();
+        write(uploadId, 0, content);
+
+        Path blob = uploadDir.resolve("blob");
+        assertThrows(RuntimeException.class, () -> uploads.completeSession(uploadId, upload -> {
+            try {
+                Files.move(Path.of(upload.getFilepath()), blob);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            throw new RuntimeException("Enqueue failed");
+        }));
+
+        assertEquals("FAILED", uploads.getSession(uploadId).getStatus());
+        RuntimeException again = assertThrows(RuntimeException.class,
+                () -> uploads.completeSession(uploadId, upload -> started("job")));
+        assertEquals("Upload is already failed", again.getMessage());
+        assertThrows(RuntimeException.class, () -> write(uploadId, 0, content));
+    }
+
+    private UploadSessionResponse write(String uploadId, int index, byte[] content) {
+        int from = index * CHUNK;
+        byte[] chunk = Arrays.copyOfRange(content, from, Math.min(content.length, from + CHUNK));
+        return uploads.writeChunk(uploadId, index, new ByteArrayInputStream(chunk));
+    }
+
+    private static UploadResponse started(String jobId) {
+        return UploadResponse.builder().jobId(jobId).status("PENDING").build();
+    }
+}
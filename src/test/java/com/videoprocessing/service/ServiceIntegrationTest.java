@@ -0,0 +1,81 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.dtos.responseDtos.JobResponse;
+import com.videoprocessing.entity.ProcessingJob;
+import com.videoprocessing.entity.Video;
+import com.videoprocessing.ffmpeg.FFmpegExecutor;
+import com.videoprocessing.repository.ProcessingJobRepository;
+import com.videoprocessing.repository.VideoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Runs the services against H2 with the "test" profile and FFmpeg mocked. Subclasses name
+ * their own database with {@code spring.datasource.url}, so their rows stay apart.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+abstract class ServiceIntegrationTest {
+
+    @Autowired
+    protected VideoProcessingService videoService;
+
+    @Autowired
+    protected VideoRepository videoRepository;
+
+    @Autowired
+    protected ProcessingJobRepository jobRepository;
+
+    @MockitoBean
+    protected FFmpegExecutor ffmpegExecutor;
+
+    // Downloads fonts on startup
+    @MockitoBean
+    private FontService fontService;
+
+    /**
+     * A saved one-minute source video; FFmpeg is mocked, so no file is behind it.
+     */
+    protected Video sourceVideo() {
+        return videoRepository.save(Video.builder()
+                .uuid(UUID.randomUUID().toString())
+                .filename("source.mp4")
+                .filepath("source.mp4")
+                .duration(60.0)
+                .contentHash(UUID.randomUUID().toString().replace("-", ""))
+                .build());
+    }
+
+    /**
+     * Has every FFmpeg run write {@code bytes} bytes to the output, its last argument.
+     */
+    protected void ffmpegWrites(int bytes) throws Exception {
+        doAnswer(invocation -> {
+            writeOutput(invocation.getArgument(0), bytes);
+            return null;
+        }).when(ffmpegExecutor).execute(any(String[].class), any(), any());
+    }
+
+    protected static void writeOutput(String[] command, int bytes) throws Exception {
+        Path output = Path.of(command[command.length - 1]);
+        Files.createDirectories(output.getParent());
+        Files.write(output, new byte[bytes]);
+    }
+
+    protected ProcessingJob job(JobResponse response) {
+        return job(response.getJobId());
+    }
+
+    protected ProcessingJob job(String jobId) {
+        return jobRepository.findByJobId(jobId).orElseThrow();
+    }
+}
@@ -0,0 +1,165 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.dtos.responseDtos.CleanupReport;
+import com.videoprocessing.entity.ContentBlob;
+import com.videoprocessing.entity.UploadSession;
+import com.videoprocessing.enums.UploadStatus;
+import com.videoprocessing.repository.ContentBlobRepository;
+import com.videoprocessing.repository.ProcessingJobRepository;
+import com.videoprocessing.repository.TrimmedVideoRepository;
+import com.videoprocessing.repository.UploadSessionRepository;
+import com.videoprocessing.repository.VideoQualityVersionRepositor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StorageGcServiceTest {
+
+    private static final FileTime OLD = FileTime.from(Instant.now().minus(30, ChronoUnit.DAYS));
+    private static final String KEPT_HASH = "ab12" + "0".repeat(60);
+    private static final String ORPHAN_HASH = "ab12" + "1".repeat(60);
+    private static final String UNREFERENCED_HASH = "ab12" + "2".repeat(60);
+
+    @TempDir
+    Path outputDir;
+
+    @TempDir
+    Path uploadDir;
+
+    private StorageGcService gc;
+    private ContentBlobRepository blobs;
+    private Path expiredTrim;
+    private Path reusedTrim;
+    private Path freshTrim;
+    private Path hlsPackage;
+    private Path chunkDir;
+    private Path keptBlob;
+    private Path orphanBlob;
+    private Path unreferencedBlob;
+    private Path abandonedUpload;
+    private Path activeUpload;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        expiredTrim = old(Files.write(outputDir.resolve("trimmed_a.mp4"), new byte[100]));
+        reusedTrim = old(Files.write(outputDir.resolve("trimmed_b.mp4"), new byte[100]));
+        freshTrim = Files.write(outputDir.resolve("trimmed_c.mp4"), new byte[100]);
+        hlsPackage = outputDir.resolve("hls_d");
+        Files.createDirectories(hlsPackage.resolve("720p"));
+        old(Files.write(hlsPackage.resolve("720p").resolve("seg_0.m4s"), new byte[40]));
+        old(Files.write(hlsPackage.resolve("master.m3u8"), new byte[10]));
+        old(hlsPackage.resolve("720p"));
+        old(hlsPackage);
+        chunkDir = outputDir.resolve("chunks").resolve("3f1c8a2e-0000-4000-8000-000000000000");
+        Files.createDirectories(chunkDir);
+        old(Files.write(chunkDir.resolve("chunk_0.mp4"), new byte[7]));
+        old(chunkDir);
+
+        Path shard = Files.createDirectories(uploadDir.resolve("blobs").resolve("ab").resolve("12"));
+        keptBlob = old(Files.write(shard.resolve(KEPT_HASH), new byte[1000]));
+        orphanBlob = old(Files.write(shard.resolve(ORPHAN_HASH), new byte[500]));
+        unreferencedBlob = old(Files.write(shard.resolve(UNREFERENCED_HASH), new byte[300]));
+
+        TrimmedVideoRepository trims = mock(TrimmedVideoRepository.class);
+        when(trims.findFilepathsCreatedSince(any())).thenReturn(List.of(reusedTrim.toString()));
+        when(trims.countByFilepathIsNotNullAndCreatedAtBefore(any())).thenReturn(2L);
+        VideoQualityVersionRepositor qualities = mock(VideoQualityVersionRepositor.class);
+        when(qualities.countByCreatedAtBefore(any())).thenReturn(3L);
+        ProcessingJobRepository jobs = mock(ProcessingJobRepository.class);
+        blobs = mock(ContentBlobRepository.class);
+        when(blobs.findExistingHashes(anyCollection())).thenReturn(List.of(KEPT_HASH, UNREFERENCED_HASH));
+        when(blobs.findUnreferencedBefore(any(), anyLong(), any())).thenReturn(List.of(ContentBlob.builder()
+                .id(7L).contentHash(UNREFERENCED_HASH).path(unreferencedBlob.toString()).size(300L).build()));
+        when(blobs.deleteUnreferenced(anyCollection())).thenReturn(1);
+
+        abandonedUpload = old(Files.write(uploadDir.resolve("abandoned.mp4"), new byte[200]));
+        Files.write(uploadDir.resolve("abandoned.mp4.chunks"), new byte[4]);
+        // Created long ago, but a chunk arrived recently
+        activeUpload = Files.write(uploadDir.resolve("active.mp4"), new byte[200]);
+        UploadSessionRepository sessions = mock(UploadSessionRepository.class);
+        when(sessions.findOpenBefore(any(), anyLong(), any())).thenReturn(List.of(
+                UploadSession.builder().id(1L).uploadId("abandoned").filepath(abandonedUpload.toString()).build(),
+                UploadSession.builder().id(2L).uploadId("active").filepath(activeUpload.toString()).build()));
+        when(sessions.transition(eq("abandoned"), eq(UploadStatus.OPEN), eq(UploadStatus.EXPIRED))).thenReturn(1);
+
+        AppProperties appProperties = new AppProperties();
+        appProperties.setCleanupDeletesPerSecond(10_000);
+        gc = new StorageGcService(trims, qualities, jobs, blobs, sessions, mock(SystemStatsService.class),
+                mock(OutputCacheService.class), mock(StringRedisTemplate.class), mock(ThreadPoolTaskExecutor.class), appProperties,
+                outputDir.toString(), uploadDir.toString());
+    }
+
+    @Test
+    void removesExpiredAndOrphanedFilesButNothingInUse() throws Exception {
+        CleanupReport dryRun = gc.run(true);
+        assertEquals(6L, dryRun.getFilesDeleted());
+        assertEquals(100L + 50 + 7 + 500 + 300 + 200, dryRun.getBytesReclaimed());
+        assertEquals(2L, dryRun.getTrimmedRowsDeleted());
+        assertEquals(3L, dryRun.getQualityRowsDeleted());
+        assertTrue(Files.exists(expiredTrim) && Files.exists(hlsPackage) && Files.exists(orphanBlob));
+
+        CleanupReport report = gc.run(false);
+        assertEquals(dryRun.getFilesByCategory(), report.getFilesByCategory());
+        assertEquals(1L, report.getFilesByCategory().get("TRIM"));
+        assertEquals(1L, report.getFilesByCategory().get("QUALITY"));
+        assertEquals(2L, report.getFilesByCategory().get("ORPHAN"));
+        assertEquals(1L, report.getFilesByCategory().get("BLOB"));
+        assertEquals(1L, report.getFilesByCategory().get("UPLOAD"));
+        assertEquals(1L, report.getBlobRowsDeleted());
+        assertEquals(1L, report.getUploadSessionsExpired());
+        assertEquals(0L, report.getFailures());
+
+        assertFalse(Files.exists(expiredTrim));
+        assertFalse(Files.exists(hlsPackage));
+        assertFalse(Files.exists(chunkDir));
+        assertFalse(Files.exists(orphanBlob));
+        assertFalse(Files.exists(unreferencedBlob));
+        assertFalse(Files.exists(abandonedUpload));
+        assertFalse(Files.exists(uploadDir.resolve("abandoned.mp4.chunks")));
+        // Reused by a recent trim, too new, or still referenced
+        assertTrue(Files.exists(reusedTrim));
+        assertTrue(Files.exists(freshTrim));
+        assertTrue(Files.exists(keptBlob));
+        assertTrue(Files.exists(activeUpload));
+    }
+
+    @Test
+    void keepsBlobFileStoredAgainWhileItWasSetAside() throws Exception {
+        // The same content was uploaded between the rename and the row's deletion
+        when(blobs.findByContentHash(UNREFERENCED_HASH)).thenReturn(Optional.of(ContentBlob.builder()
+                .id(8L).contentHash(UNREFERENCED_HASH).path(unreferencedBlob.toString()).size(300L).build()));
+
+        CleanupReport report = gc.run(false);
+
+        assertEquals(1L, report.getBlobRowsDeleted());
+        assertEquals(0L, report.getFilesByCategory().get("BLOB"));
+        assertTrue(Files.exists(unreferencedBlob));
+        assertFalse(Files.exists(unreferencedBlob.resolveSibling(UNREFERENCED_HASH + ".deleting")));
+    }
+
+    private static Path old(Path path) throws Exception {
+        Files.setLastModifiedTime(path, OLD);
+        return path;
+    }
+}
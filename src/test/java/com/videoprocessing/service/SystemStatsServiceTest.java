@@ -0,0 +1,104 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.dtos.SystemStats;
+import com.videoprocessing.enums.JobStatus;
+import com.videoprocessing.enums.JobType;
+import com.videoprocessing.enums.StorageTier;
+import com.videoprocessing.repository.ContentBlobRepository;
+import com.videoprocessing.repository.JobStatusCount;
+import com.videoprocessing.repository.ProcessingJobRepository;
+import com.videoprocessing.repository.VideoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SystemStatsServiceTest {
+
+    @TempDir
+    Path outputDir;
+
+    private ProcessingJobRepository jobRepository;
+    private VideoRepository videoRepository;
+    private ContentBlobRepository blobRepository;
+    private SystemStatsService stats;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository = mock(ProcessingJobRepository.class);
+        videoRepository = mock(VideoRepository.class);
+        blobRepository = mock(ContentBlobRepository.class);
+        // No Redis: counters are this node's alone
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenThrow(new RedisConnectionFailureException("down"));
+
+        stats = new SystemStatsService(jobRepository, videoRepository, blobRepository, redisTemplate,
+                new AppProperties(), outputDir.toString());
+    }
+
+    @Test
+    void countsTransitionsAndRecountsDrift() throws Exception {
+        stats.jobCreated(JobType.TRIM, JobStatus.PENDING);
+        stats.jobCreated(JobType.TRIM, JobStatus.PENDING);
+        stats.jobTransitioned(JobType.TRIM, JobStatus.PENDING, JobStatus.PROCESSING);
+        stats.jobTransitioned(JobType.TRIM, JobStatus.PROCESSING, JobStatus.COMPLETED);
+        stats.videoAdded();
+        stats.bytesStored(StorageTier.DERIVED, 300);
+
+        SystemStats counted = stats.getStats();
+        assertEquals(2L, counted.getTotalJobs());
+        assertEquals(1L, counted.getCompletedJobs());
+        assertEquals(1L, counted.getJobsByType().get("TRIM").get("PENDING"));
+        assertEquals(0L, counted.getJobsByType().get("UPLOAD").get("PENDING"));
+        assertEquals(1L, counted.getTotalVideos());
+        assertEquals(300L, counted.getStorageByTier().get("DERIVED"));
+
+        // The database and disk disagree: the recount wins
+        when(jobRepository.countByTypeAndStatus()).thenReturn(List.of(
+                count(JobType.TRIM, JobStatus.COMPLETED, 1),
+                count(JobType.UPLOAD, JobStatus.FAILED, 4)));
+        when(videoRepository.count()).thenReturn(3L);
+        when(blobRepository.sumSize()).thenReturn(1000L);
+        Files.write(outputDir.resolve("trimmed_a.mp4"), new byte[120]);
+        Files.createDirectories(outputDir.resolve("hls_b").resolve("720p"));
+        Files.write(outputDir.resolve("hls_b").resolve("720p").resolve("seg_0.m4s"), new byte[80]);
+        stats.reconcile();
+
+        SystemStats recounted = stats.getStats();
+        assertEquals(5L, recounted.getTotalJobs());
+        assertEquals(0L, recounted.getJobsByType().get("TRIM").get("PENDING"));
+        assertEquals(4L, recounted.getFailedJobs());
+        assertEquals(3L, recounted.getTotalVideos());
+        assertEquals(1000L, recounted.getStorageByTier().get("ORIGINAL"));
+        assertEquals(200L, recounted.getStorageByTier().get("DERIVED"));
+        assertEquals(1200L, recounted.getStorageUsed());
+        assertNotNull(recounted.getReconciledAt());
+    }
+
+    private static JobStatusCount count(JobType type, JobStatus status, long count) {
+        return new JobStatusCount() {
+            public JobType getJobType() {
+                return type;
+            }
+
+            public JobStatus getStatus() {
+                return status;
+            }
+
+            public Long getCount() {
+                return count;
+            }
+        };
+    }
+}
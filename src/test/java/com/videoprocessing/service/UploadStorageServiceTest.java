@@ -0,0 +1,89 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.dtos.requestDtos.UploadVideoRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UploadStorageServiceTest {
+
+    private static final String BOUNDARY = "----upload-boundary";
+
+    @TempDir
+    Path uploadDir;
+
+    private UploadStorageService storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new UploadStorageService(new AppProperties());
+        ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+    }
+
+    @Test
+    void storesFilePartWithHashAndSize() throws Exception {
+        // Larger than the write buffer, and not a multiple of it
+        byte[] content = new byte[3 * 1024 * 1024 + 123];
+        new Random(42).nextBytes(content);
+
+        UploadVideoRequest upload = storage.store(multipart("clip.mp4", "video/mp4", content));
+
+        Path stored = Path.of(upload.getFilepath());
+        assertEquals(uploadDir, stored.getParent());
+        assertTrue(upload.getFilename().endsWith("_clip.mp4"));
+        assertEquals("clip.mp4", upload.getOriginalFilename());
+        assertEquals(content.length, upload.getSize());
+        assertArrayEquals(content, Files.readAllBytes(stored));
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)),
+                upload.getContentHash());
+    }
+
+    @Test
+    void rejectsNonVideoWithoutWritingAnything() throws Exception {
+        assertThrows(RuntimeException.class,
+                () -> storage.store(multipart("notes.txt", "text/plain", new byte[]{1, 2, 3})));
+        try (var files = Files.list(uploadDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void stripsClientPathsFromFilename() {
+        UploadVideoRequest upload = storage.store(multipart("..\\..\\evil.mp4", "video/mp4", new byte[]{1}));
+        assertEquals(uploadDir, Path.of(upload.getFilepath()).getParent());
+        assertEquals("evil.mp4", upload.getOriginalFilename());
+    }
+
+    private static MockHttpServletRequest multipart(String filename, String contentType, byte[] content) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                + "ignored\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/upload");
+        request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+        request.setContent(body.toByteArray());
+        return request;
+    }
+}
@@ -0,0 +1,104 @@
+package com.videoprocessing.service;
+
+import com.videoprocessing.config.AppProperties;
+import com.videoprocessing.entity.TrimmedVideo;
+import com.videoprocessing.entity.Video;
+import com.videoprocessing.enums.TrimMode;
+import com.videoprocessing.ffmpeg.FFmpegExecutor;
+import com.videoprocessing.ffmpeg.KeyframeLocator;
+import com.videoprocessing.repository.TrimmedVideoRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VirtualClipServiceTest {
+
+    @Test
+    void splitsClipAtKeyframesIntoPlaylistSegments() {
+        // Keyframes every 2 s; the clip starts mid-GOP, so it snaps back to 10 s
+        List<Double> keyframes = List.of(10.0, 12.0, 14.0, 16.0, 18.0, 20.0, 22.0);
+        List<VirtualClipService.Segment> segments = VirtualClipService.segments(keyframes, 11.0, 21.5);
+
+        assertEquals(List.of(
+                new VirtualClipService.Segment(10.0, 14.0),
+                new VirtualClipService.Segment(14.0, 18.0),
+                new VirtualClipService.Segment(18.0, 21.5)), segments);
+
+        assertEquals("""
+                #EXTM3U
+                #EXT-X-VERSION:3
+                #EXT-X-PLAYLIST-TYPE:VOD
+                #EXT-X-TARGETDURATION:4
+                #EXT-X-MEDIA-SEQUENCE:0
+                #EXTINF:4.000,
+                segment_00000.ts
+                #EXTINF:4.000,
+                segment_00001.ts
+                #EXTINF:3.500,
+                segment_00002.ts
+                #EXT-X-ENDLIST
+                """, VirtualClipService.playlist(segments));
+    }
+
+    @Test
+    void rejectsClipsBeyondTheStreamLimit() throws Exception {
+        TrimmedVideoRepository clips = mock(TrimmedVideoRepository.class);
+        when(clips.findWithOriginalByUuid("clip")).thenReturn(Optional.of(TrimmedVideo.builder()
+                .originalVideo(Video.builder().filepath("source.mp4").build())
+                .startTime(0.0)
+                .endTime(4.0)
+                .trimMode(TrimMode.VIRTUAL)
+                .build()));
+        FFmpegExecutor ffmpegExecutor = mock(FFmpegExecutor.class);
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            streaming.countDown();
+            release.await();
+            return null;
+        }).when(ffmpegExecutor).stream(any(), any());
+        AppProperties appProperties = new AppProperties();
+        appProperties.setClipStreamConcurrency(1);
+        VirtualClipService service = new VirtualClipService(clips, mock(KeyframeLocator.class), ffmpegExecutor, appProperties);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+            try {
+                service.streamClip("clip", ByteArrayOutputStream::new);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(streaming.await(5, TimeUnit.SECONDS));
+        boolean[] opened = {false};
+        assertThrows(ClipStreamLimitException.class, () -> service.streamClip("clip", () -> {
+            opened[0] = true;
+            return new ByteArrayOutputStream();
+        }));
+        // Rejected before the response was committed, so the 503 can still be sent
+        assertFalse(opened[0]);
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        service.streamClip("clip", ByteArrayOutputStream::new);
+    }
+
+    @Test
+    void keepsClipWithoutKeyframesAsOneSegment() {
+        assertEquals(List.of(new VirtualClipService.Segment(3.0, 5.0)),
+                VirtualClipService.segments(List.of(), 3.0, 5.0));
+    }
+}